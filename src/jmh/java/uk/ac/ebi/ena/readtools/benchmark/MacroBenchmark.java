@@ -0,0 +1,354 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.benchmark;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import uk.ac.ebi.ena.readtools.fastq.FastqNormalizer;
+import uk.ac.ebi.ena.readtools.fastq.ena.Fastq2Sam;
+import uk.ac.ebi.ena.readtools.sam.Sam2Fastq;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+import uk.ac.ebi.ena.readtools.v2.FileFormat;
+import uk.ac.ebi.ena.readtools.v2.validator.ValidatorWrapper;
+
+/**
+ * End-to-end throughput and memory benchmark of the command line tools.
+ *
+ * <p>Paired FASTQ input is generated locally for every requested read count and layout, the BAM
+ * input of {@link Sam2Fastq} is produced by {@link Fastq2Sam}. Every tool runs in a JVM of its own
+ * so that peak RSS, heap and GC figures are not polluted by earlier runs. Results are written as a
+ * JSON report that can be compared across versions.
+ */
+public class MacroBenchmark {
+  static final long SEED = 42;
+  static final int READ_LENGTH = 150;
+
+  static final String INPUT_1 = "input_1.fastq";
+  static final String INPUT_2 = "input_2.fastq";
+  static final String INPUT_BAM = "input.bam";
+  static final String INPUT_COMPLETE = "input.complete";
+
+  public enum Tool {
+    FASTQ2SAM {
+      @Override
+      long run(Path inputDir, Path caseDir, long reads) throws Exception {
+        Fastq2Sam.Params p = new Fastq2Sam.Params();
+        p.files =
+            Arrays.asList(
+                inputDir.resolve(INPUT_1).toString(), inputDir.resolve(INPUT_2).toString());
+        p.data_file = caseDir.resolve("out.bam").toString();
+        p.tmp_root = caseDir.toString();
+
+        Fastq2Sam fastq2Sam = new Fastq2Sam();
+        fastq2Sam.create(p);
+        return fastq2Sam.getTotalReadCount();
+      }
+    },
+
+    SAM2FASTQ {
+      @Override
+      long run(Path inputDir, Path caseDir, long reads) throws Exception {
+        Sam2Fastq.Params p = new Sam2Fastq.Params();
+        p.samFile = inputDir.resolve(INPUT_BAM).toFile();
+        p.fastqBaseName = caseDir.resolve("out").toString();
+
+        Sam2Fastq sam2Fastq = new Sam2Fastq();
+        sam2Fastq.create(p);
+        return sam2Fastq.getTotalReadCount();
+      }
+
+      @Override
+      List<Path> getInputs(Path inputDir) {
+        return Arrays.asList(inputDir.resolve(INPUT_BAM));
+      }
+    },
+
+    NORMALIZE {
+      @Override
+      long run(Path inputDir, Path caseDir, long reads) throws Exception {
+        return FastqNormalizer.normalizePairedEnd(
+                inputDir.resolve(INPUT_1).toString(),
+                inputDir.resolve(INPUT_2).toString(),
+                caseDir.resolve("out_1.fastq").toString(),
+                caseDir.resolve("out_2.fastq").toString(),
+                "ERR000001",
+                false,
+                caseDir.resolve("tmp").toFile())
+            .getTotalReadCount();
+      }
+    },
+
+    VALIDATE {
+      @Override
+      long run(Path inputDir, Path caseDir, long reads) throws Exception {
+        List<File> files =
+            Arrays.asList(inputDir.resolve(INPUT_1).toFile(), inputDir.resolve(INPUT_2).toFile());
+        new ValidatorWrapper(files, FileFormat.FASTQ, reads).run();
+        // The validator reads every record or fails.
+        return reads;
+      }
+    };
+
+    /**
+     * @return Number of reads processed.
+     */
+    abstract long run(Path inputDir, Path caseDir, long reads) throws Exception;
+
+    List<Path> getInputs(Path inputDir) {
+      return Arrays.asList(inputDir.resolve(INPUT_1), inputDir.resolve(INPUT_2));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Params p = new Params();
+    JCommander jc = new JCommander(p);
+    try {
+      jc.parse(args);
+    } catch (ParameterException e) {
+      jc.usage();
+      System.exit(1);
+    }
+
+    if (null != p.runCase) {
+      runCase(
+          Tool.valueOf(p.runCase),
+          Paths.get(p.inputDir),
+          Paths.get(p.caseDir),
+          Long.parseLong(p.reads),
+          Paths.get(p.result));
+    } else {
+      new MacroBenchmark().run(p);
+    }
+  }
+
+  void run(Params p) throws Exception {
+    Path workDir = Paths.get(p.workDir);
+    List<Map<String, Object>> results = new ArrayList<>();
+
+    for (String readCount : p.reads.split(",")) {
+      long reads = Long.parseLong(readCount.trim());
+      for (String layoutName : p.layouts.split(",")) {
+        FastqGenerator.Layout layout =
+            FastqGenerator.Layout.valueOf(layoutName.trim().toUpperCase());
+        Path inputDir = workDir.resolve(layout.name().toLowerCase() + "-" + reads);
+        generateInput(inputDir, layout, reads);
+
+        for (String toolName : p.tools.split(",")) {
+          Tool tool = Tool.valueOf(toolName.trim().toUpperCase());
+          if (Tool.SAM2FASTQ == tool && !Files.exists(inputDir.resolve(INPUT_BAM))) {
+            // Not measured, only produces the input.
+            fork(p, Tool.FASTQ2SAM, inputDir, reads);
+          }
+
+          Map<String, Object> result = new LinkedHashMap<>();
+          result.put("tool", tool.name());
+          result.put("layout", layout.name());
+          result.put("reads", reads);
+          result.putAll(fork(p, tool, inputDir, reads));
+          results.add(result);
+
+          System.out.println(result);
+        }
+      }
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("version", System.getProperty("readtools.version", "unknown"));
+    report.put("timestamp", Instant.now().toString());
+    report.put("javaVersion", System.getProperty("java.version"));
+    report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+    report.put("heap", p.heap);
+    report.put("readLength", READ_LENGTH);
+    report.put("results", results);
+
+    Path reportPath = Paths.get(p.report);
+    if (null != reportPath.getParent()) {
+      Files.createDirectories(reportPath.getParent());
+    }
+    new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .writeValue(reportPath.toFile(), report);
+    System.out.println("Report: " + reportPath.toAbsolutePath());
+  }
+
+  /** Generates paired FASTQ input, unless complete input is already there from an earlier run. */
+  static void generateInput(Path inputDir, FastqGenerator.Layout layout, long reads)
+      throws IOException {
+    if (Files.exists(inputDir.resolve(INPUT_COMPLETE))) {
+      return;
+    }
+
+    deleteRecursively(inputDir);
+    Files.createDirectories(inputDir);
+
+    System.out.printf("Generating %d %s reads in %s%n", reads, layout, inputDir);
+    try (OutputStream first =
+            new BufferedOutputStream(Files.newOutputStream(inputDir.resolve(INPUT_1)), 1 << 20);
+        OutputStream second =
+            new BufferedOutputStream(Files.newOutputStream(inputDir.resolve(INPUT_2)), 1 << 20)) {
+      FastqGenerator.phred33(SEED, READ_LENGTH)
+          .generate(Math.toIntExact(reads / 2), layout, first, second);
+    }
+    Files.createFile(inputDir.resolve(INPUT_COMPLETE));
+  }
+
+  /** Runs the tool in a new JVM and returns its metrics. */
+  static Map<String, Object> fork(Params p, Tool tool, Path inputDir, long reads) throws Exception {
+    Path caseDir = inputDir.resolve(tool.name().toLowerCase());
+    Path result = inputDir.resolve(tool.name().toLowerCase() + ".json");
+    deleteRecursively(caseDir);
+    Files.deleteIfExists(result);
+    Files.createDirectories(caseDir.resolve("tmp"));
+
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-Xmx" + p.heap);
+    command.add("-Djava.io.tmpdir=" + caseDir.resolve("tmp"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(MacroBenchmark.class.getName());
+    command.addAll(
+        Arrays.asList(
+            "--run-case", tool.name(),
+            "--input-dir", inputDir.toString(),
+            "--case-dir", caseDir.toString(),
+            "--reads", String.valueOf(reads),
+            "--result", result.toString()));
+
+    int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    if (0 != exitCode || !Files.exists(result)) {
+      metrics.put("error", "exit code " + exitCode);
+    } else {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> read = new ObjectMapper().readValue(result.toFile(), Map.class);
+      metrics.putAll(read);
+
+      if (Tool.FASTQ2SAM == tool) {
+        Files.move(
+            caseDir.resolve("out.bam"),
+            inputDir.resolve(INPUT_BAM),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    deleteRecursively(caseDir);
+    return metrics;
+  }
+
+  /** Runs the tool in this JVM and writes its metrics to the result file. */
+  static void runCase(Tool tool, Path inputDir, Path caseDir, long reads, Path result)
+      throws Exception {
+    long inputBytes = 0;
+    for (Path input : tool.getInputs(inputDir)) {
+      inputBytes += Files.size(input);
+    }
+
+    ResourceMonitor monitor =
+        new ResourceMonitor(caseDir, file -> file.getFileName().toString().startsWith("out"));
+    monitor.start();
+    long processed = tool.run(inputDir, caseDir, reads);
+    monitor.stop();
+
+    double seconds = monitor.getElapsedSeconds();
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("readsProcessed", processed);
+    metrics.put("inputBytes", inputBytes);
+    metrics.put("readsPerSecond", processed / seconds);
+    metrics.put("mbPerSecond", inputBytes / (1024.0 * 1024.0) / seconds);
+    metrics.putAll(monitor.getMetrics());
+
+    new ObjectMapper().writeValue(result.toFile(), metrics);
+  }
+
+  static void deleteRecursively(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(path)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  static class Params {
+    @Parameter(
+        names = {"--reads"},
+        description = "Comma separated numbers of reads, half of them in each of the paired files")
+    String reads = "1000000";
+
+    @Parameter(
+        names = {"--layouts"},
+        description = "Comma separated input layouts: paired, shuffled_paired")
+    String layouts = "paired,shuffled_paired";
+
+    @Parameter(
+        names = {"--tools"},
+        description = "Comma separated tools: fastq2sam, sam2fastq, normalize, validate")
+    String tools = "fastq2sam,sam2fastq,normalize,validate";
+
+    @Parameter(
+        names = {"--work-dir"},
+        description = "Directory for generated input and tool output")
+    String workDir = "build/macrobenchmark";
+
+    @Parameter(
+        names = {"--report"},
+        description = "JSON report file")
+    String report = "build/reports/macrobenchmark/results.json";
+
+    @Parameter(
+        names = {"--heap"},
+        description = "Maximum heap size of the JVMs the tools run in")
+    String heap = "5g";
+
+    @Parameter(
+        names = {"--run-case"},
+        hidden = true)
+    String runCase;
+
+    @Parameter(
+        names = {"--input-dir"},
+        hidden = true)
+    String inputDir;
+
+    @Parameter(
+        names = {"--case-dir"},
+        hidden = true)
+    String caseDir;
+
+    @Parameter(
+        names = {"--result"},
+        hidden = true)
+    String result;
+  }
+}
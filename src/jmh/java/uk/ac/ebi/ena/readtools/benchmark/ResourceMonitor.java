@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Measures the resources used by the current JVM between {@link #start()} and {@link #stop()}.
+ *
+ * <p>Temporary files are found by polling the given directory. Files living for less than the poll
+ * interval may be missed, so spill bytes and temp file counts are lower bounds.
+ */
+class ResourceMonitor {
+  private static final long POLL_INTERVAL_MS = 50;
+
+  private final Path tempDir;
+  private final Predicate<Path> isOutput;
+
+  private final Set<Path> tempFiles = new HashSet<>();
+  private volatile long peakTempBytes;
+  private volatile boolean running;
+  private Thread poller;
+
+  private long startNanos;
+  private long elapsedNanos;
+  private long startGcMillis;
+  private long startGcCount;
+  private long gcMillis;
+  private long gcCount;
+
+  /**
+   * @param tempDir Directory the measured code keeps its temporary files in.
+   * @param isOutput Tells output files in the directory apart from temporary files.
+   */
+  ResourceMonitor(Path tempDir, Predicate<Path> isOutput) {
+    this.tempDir = tempDir;
+    this.isOutput = isOutput;
+  }
+
+  void start() {
+    List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+    pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+    startGcMillis = gcMillis();
+    startGcCount = gcCount();
+
+    running = true;
+    poller = new Thread(this::poll, "resource-monitor");
+    poller.setDaemon(true);
+    poller.start();
+
+    startNanos = System.nanoTime();
+  }
+
+  void stop() throws InterruptedException {
+    elapsedNanos = System.nanoTime() - startNanos;
+
+    gcMillis = gcMillis() - startGcMillis;
+    gcCount = gcCount() - startGcCount;
+
+    running = false;
+    poller.join();
+    // Files left behind are counted as well.
+    sample();
+  }
+
+  Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("elapsedSeconds", elapsedNanos / 1e9);
+    metrics.put("peakRssBytes", getPeakRssBytes());
+    metrics.put("peakHeapBytes", getPeakHeapBytes());
+    metrics.put("gcTimeMillis", gcMillis);
+    metrics.put("gcCount", gcCount);
+    metrics.put("spillBytes", peakTempBytes);
+    metrics.put("tempFileCount", tempFiles.size());
+    return metrics;
+  }
+
+  double getElapsedSeconds() {
+    return elapsedNanos / 1e9;
+  }
+
+  private void poll() {
+    while (running) {
+      sample();
+      try {
+        Thread.sleep(POLL_INTERVAL_MS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private synchronized void sample() {
+    long bytes = 0;
+    try (Stream<Path> files = Files.walk(tempDir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (!Files.isRegularFile(file) || isOutput.test(file)) {
+          continue;
+        }
+        try {
+          bytes += Files.size(file);
+          tempFiles.add(file);
+        } catch (NoSuchFileException e) {
+          // deleted since listed
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      // directory changed while walked, try again next time
+      return;
+    }
+    peakTempBytes = Math.max(peakTempBytes, bytes);
+  }
+
+  /** Sum of the peaks of the heap pools, an upper bound of the peak heap usage. */
+  private static long getPeakHeapBytes() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> MemoryType.HEAP == pool.getType())
+        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+        .sum();
+  }
+
+  /**
+   * @return Peak resident set size of the process, -1 where not available.
+   */
+  private static long getPeakRssBytes() {
+    Path status = Paths.get("/proc/self/status");
+    if (!Files.isReadable(status)) {
+      return -1;
+    }
+
+    try (Stream<String> lines = Files.lines(status)) {
+      return lines
+          .filter(line -> line.startsWith("VmHWM:"))
+          .map(line -> line.replaceAll("[^0-9]", ""))
+          .mapToLong(kb -> Long.parseLong(kb) * 1024)
+          .findFirst()
+          .orElse(-1);
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .filter(time -> time > 0)
+        .sum();
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+        .filter(count -> count > 0)
+        .sum();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.cram.ref;
+
+import htsjdk.samtools.SAMSequenceRecord;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.ena.readtools.cram.common.Utils;
+
+/**
+ * Fetches reference regions with {@link ENAReferenceSource#getRegion(SAMSequenceRecord, int, int)},
+ * either from the disk cache or from the memory cache. The reference is generated locally, nothing
+ * is downloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ENAReferenceSourceBenchmark {
+  static final int REFERENCE_LENGTH = 4 * 1024 * 1024;
+  static final long SEED = 42;
+
+  public enum Cache {
+    DISK,
+    MEMORY
+  }
+
+  @Param({"DISK", "MEMORY"})
+  public Cache cache;
+
+  @Param({"150", "10000"})
+  public int regionLength;
+
+  private Path dir;
+  private ENAReferenceSource source;
+  private SAMSequenceRecord record;
+  private final Random random = new Random(SEED);
+
+  @Setup
+  public void setup() throws IOException {
+    byte[] bases = new byte[REFERENCE_LENGTH];
+    byte[] alphabet = {'A', 'C', 'G', 'T'};
+    for (int i = 0; i < bases.length; i++) {
+      bases[i] = alphabet[random.nextInt(alphabet.length)];
+    }
+    String md5 = Utils.calculateMD5String(bases);
+
+    dir = Files.createTempDirectory("ena-reference-source-benchmark");
+    Files.write(dir.resolve(md5), bases);
+
+    source = new ENAReferenceSource(dir.toString().replaceAll("\\\\+", "/") + "/%s");
+    record = new SAMSequenceRecord("chr1", REFERENCE_LENGTH);
+    record.setAttribute(SAMSequenceRecord.MD5_TAG, md5);
+
+    if (Cache.MEMORY == cache) {
+      source.getReferenceBases(record, false);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public ReferenceRegion getRegion() throws IOException {
+    int start = 1 + random.nextInt(REFERENCE_LENGTH - regionLength);
+    return source.getRegion(record, start, start + regionLength - 1);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+
+/** Normalizes generated FASTQ files on disk. Scores are reported per read. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FastqNormalizerBenchmark {
+  static final int PAIRS = 50_000;
+  static final long SEED = 42;
+
+  @Param({"PAIRED", "SHUFFLED_PAIRED"})
+  public FastqGenerator.Layout layout;
+
+  private Path dir;
+  private String input1;
+  private String input2;
+  private String output1;
+  private String output2;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("fastq-normalizer-benchmark");
+    input1 = dir.resolve("input_1.fastq").toString();
+    input2 = dir.resolve("input_2.fastq").toString();
+    output1 = dir.resolve("output_1.fastq").toString();
+    output2 = dir.resolve("output_2.fastq").toString();
+
+    try (OutputStream first = new BufferedOutputStream(Files.newOutputStream(Path.of(input1)));
+        OutputStream second = new BufferedOutputStream(Files.newOutputStream(Path.of(input2)))) {
+      FastqGenerator.phred33(SEED, 150).generate(PAIRS, layout, first, second);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PAIRS)
+  public long normalizeSingleEnd() throws IOException {
+    return FastqNormalizer.normalizeSingleEnd(input1, output1, "ERR000001", false);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(2 * PAIRS)
+  public long normalizePairedEnd() throws IOException {
+    return FastqNormalizer.normalizePairedEnd(
+            input1, input2, output1, output2, "ERR000001", false, dir.toFile())
+        .getTotalReadCount();
+  }
+}
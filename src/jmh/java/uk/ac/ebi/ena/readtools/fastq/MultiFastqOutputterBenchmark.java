@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq;
+
+import htsjdk.samtools.SAMFileHeader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+
+/**
+ * Writes SAM-like records through {@link MultiFastqOutputter}. Collated input pairs every mate
+ * immediately; shuffled input keeps mates in the cache and, with a cache smaller than the input,
+ * pushes them to the overflow BAM. With adjacent mates collated input bypasses the cache. Output
+ * goes nowhere. Scores are reported per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Dfastq-dumper.cache-size=5000"})
+public class MultiFastqOutputterBenchmark {
+  static final int PAIRS = 10_000;
+  static final long SEED = 42;
+
+  private static final int FIRST_OF_PAIR = 1 | 64;
+  private static final int SECOND_OF_PAIR = 1 | 128;
+
+  @Param({"PAIRED", "SHUFFLED_PAIRED"})
+  public FastqGenerator.Layout layout;
+
+  @Param({"false", "true"})
+  public boolean adjacentMates;
+
+  private final List<byte[][]> records = new ArrayList<>();
+  private final SAMFileHeader header = new SAMFileHeader();
+
+  @Setup
+  public void setup() throws IOException {
+    FastqGenerator.phred33(SEED, 150)
+        .generate(
+            PAIRS,
+            layout,
+            (mate, readname, bases, quals) -> {
+              // The outputter expects template names, mate numbers come with the flags.
+              String name = readname.substring(0, readname.lastIndexOf('/'));
+              records.add(
+                  new byte[][] {
+                    name.getBytes(StandardCharsets.US_ASCII),
+                    new byte[] {(byte) mate},
+                    bases.getBytes(StandardCharsets.US_ASCII),
+                    quals.getBytes(StandardCharsets.US_ASCII)
+                  });
+            });
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(2 * PAIRS)
+  public long writeRead() {
+    OutputStream nowhere = OutputStream.nullOutputStream();
+    MultiFastqOutputter outputter =
+        new MultiFastqOutputter(new OutputStream[] {nowhere, nowhere, nowhere}, nowhere, header);
+    outputter.setAdjacentMates(adjacentMates);
+
+    for (byte[][] record : records) {
+      outputter.writeRead(
+          record[0], 1 == record[1][0] ? FIRST_OF_PAIR : SECOND_OF_PAIR, record[2], record[3]);
+    }
+    outputter.finish();
+
+    return outputter.getCounter();
+  }
+}
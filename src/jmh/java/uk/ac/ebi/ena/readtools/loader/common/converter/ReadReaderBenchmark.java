@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common.converter;
+
+import htsjdk.samtools.util.FastqQualityFormat;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+import uk.ac.ebi.ena.readtools.utils.Utils;
+
+/** Parses an in-memory FASTQ file with {@link ReadReader}. Scores are reported per record. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadReaderBenchmark {
+  static final int RECORDS = 10_000;
+  static final long SEED = 42;
+
+  public enum Input {
+    PHRED33,
+    CASAVA18,
+    SOLEXA
+  }
+
+  @Param({"PHRED33", "CASAVA18", "SOLEXA"})
+  public Input input;
+
+  @Param({"150"})
+  public int readLength;
+
+  private byte[] fastq;
+  private FastqQualityFormat qualityFormat;
+
+  @Setup
+  public void setup() throws IOException {
+    FastqGenerator generator;
+    switch (input) {
+      case PHRED33:
+        generator = FastqGenerator.phred33(SEED, readLength);
+        qualityFormat = FastqQualityFormat.Standard;
+        break;
+
+      case CASAVA18:
+        generator =
+            FastqGenerator.phred33(SEED, readLength)
+                .setNameStyle(FastqGenerator.NameStyle.CASAVA18);
+        qualityFormat = FastqQualityFormat.Standard;
+        break;
+
+      case SOLEXA:
+        generator = FastqGenerator.solexa(SEED, readLength);
+        qualityFormat = FastqQualityFormat.Solexa;
+        break;
+
+      default:
+        throw new IllegalArgumentException(String.valueOf(input));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.generate(RECORDS, FastqGenerator.Layout.SINGLE, out, null);
+    fastq = out.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void read(Blackhole blackhole) throws IOException {
+    ReadReader reader = new ReadReader(Utils.getQualityNormalizer(qualityFormat), "1");
+    try (InputStream is = new BufferedInputStream(new ByteArrayInputStream(fastq))) {
+      for (; ; ) {
+        blackhole.consume(reader.read(is));
+      }
+    } catch (EOFException e) {
+      // end of input
+    }
+  }
+}
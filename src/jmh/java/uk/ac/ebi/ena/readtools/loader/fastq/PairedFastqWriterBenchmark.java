@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.fastq;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+
+/**
+ * Pairs mates with {@link PairedFastqWriter}. Shuffled input with a small spill page makes the
+ * writer spill to disk and resolve the spilled pages in {@link PairedFastqWriter#cascadeErrors()}.
+ * Scores are reported per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairedFastqWriterBenchmark {
+  static final int PAIRS = 10_000;
+  static final long SEED = 42;
+
+  @Param({"PAIRED", "SHUFFLED_PAIRED"})
+  public FastqGenerator.Layout layout;
+
+  @Param({"1000", "100000"})
+  public int spillPageSize;
+
+  private final List<Read> reads = new ArrayList<>();
+  private File tempDir;
+
+  @Setup
+  public void setup() throws IOException {
+    // Mates arrive one after the other when paired, and far apart when shuffled.
+    FastqGenerator.phred33(SEED, 150)
+        .generate(
+            PAIRS,
+            layout,
+            (mate, readname, bases, quals) -> reads.add(new Read(readname, bases, quals)));
+    tempDir = Files.createTempDirectory("paired-fastq-writer-benchmark").toFile();
+  }
+
+  @TearDown
+  public void tearDown() {
+    File[] files = tempDir.listFiles();
+    if (null != files) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    tempDir.delete();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(2 * PAIRS)
+  public void write(Blackhole blackhole) {
+    PairedFastqWriter writer =
+        new PairedFastqWriter(tempDir, spillPageSize, Long.MAX_VALUE, Long.MAX_VALUE);
+    writer.setWriter(
+        new ReadWriter<PairedRead, Spot>() {
+          @Override
+          public void cascadeErrors() {}
+
+          @Override
+          public void write(PairedRead spot) {
+            blackhole.consume(spot);
+          }
+
+          @Override
+          public void setWriter(ReadWriter<Spot, ? extends Spot> readWriter) {}
+        });
+
+    for (Read read : reads) {
+      writer.write(read);
+    }
+    writer.cascadeErrors();
+  }
+}
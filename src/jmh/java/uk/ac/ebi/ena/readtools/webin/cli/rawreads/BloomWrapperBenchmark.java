@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.ena.readtools.sampler.generator.FastqGenerator;
+
+/**
+ * Adds Casava 1.8 read names to a {@link BloomWrapper}, single and multi-threaded. Names are taken
+ * round robin from a pre-generated set; a fresh wrapper is used for every iteration so that the
+ * measurement covers filter growth rather than a saturated filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BloomWrapperBenchmark {
+  static final int NAMES = 1 << 20;
+  static final long SEED = 42;
+
+  private String[] names;
+  private byte[][] nameBytes;
+  private BloomWrapper bloomWrapper;
+
+  @Setup
+  public void setup() throws IOException {
+    List<String> generated = new ArrayList<>(NAMES);
+    // Short sequences, only the names are of interest here.
+    FastqGenerator.phred33(SEED, 1)
+        .setNameStyle(FastqGenerator.NameStyle.CASAVA18)
+        .generate(
+            NAMES,
+            FastqGenerator.Layout.SINGLE,
+            (mate, readname, bases, quals) -> generated.add(readname.split(" ")[0]));
+
+    names = generated.toArray(new String[0]);
+    nameBytes = new byte[NAMES][];
+    for (int i = 0; i < NAMES; i++) {
+      nameBytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    bloomWrapper = new BloomWrapper(NAMES);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private static final AtomicInteger threads = new AtomicInteger();
+
+    // Threads start at different names so that they do not add the same ones.
+    int position = threads.getAndIncrement() * (NAMES / 8);
+
+    int next() {
+      position = (position + 1) & (NAMES - 1);
+      return position;
+    }
+  }
+
+  @Benchmark
+  public void addString(Cursor cursor) {
+    bloomWrapper.add(names[cursor.next()]);
+  }
+
+  @Benchmark
+  public void addBytes(Cursor cursor) {
+    byte[] name = nameBytes[cursor.next()];
+    bloomWrapper.add(name, 0, name.length);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void addBytesConcurrently(Cursor cursor) {
+    byte[] name = nameBytes[cursor.next()];
+    bloomWrapper.add(name, 0, name.length);
+  }
+}
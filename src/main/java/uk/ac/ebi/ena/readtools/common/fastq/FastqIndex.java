@@ -0,0 +1,308 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.fastq;
+
+import htsjdk.samtools.SAMException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sidecar index of a FASTQ file in the spirit of .fai and .gzi indexes. It holds the position of
+ * every {@link #getInterval()}th record with the number of bases before it, and the read and base
+ * counts of the whole file. Positions are file offsets, or BGZF virtual file offsets for BGZF
+ * compressed files. Files compressed otherwise cannot be indexed.
+ *
+ * <p>The index is written as text next to the FASTQ file, named after it with {@link #EXTENSION}:
+ * "##key value" header lines, then the number, position and preceding bases of each indexed record,
+ * all separated by tabs.
+ */
+public class FastqIndex {
+  public static final String EXTENSION = ".fqi";
+  public static final int DEFAULT_INTERVAL = 1000;
+
+  private static final String FORMAT = "fastq-index";
+  private static final String VERSION = "1";
+
+  private final int interval;
+  private final boolean blockCompressed;
+  private final long fileSize;
+  private final long readCount;
+  private final long baseCount;
+  private final long endPointer;
+  private final long[] pointers;
+  private final long[] baseCounts;
+
+  private FastqIndex(
+      int interval,
+      boolean blockCompressed,
+      long fileSize,
+      long readCount,
+      long baseCount,
+      long endPointer,
+      long[] pointers,
+      long[] baseCounts) {
+    this.interval = interval;
+    this.blockCompressed = blockCompressed;
+    this.fileSize = fileSize;
+    this.readCount = readCount;
+    this.baseCount = baseCount;
+    this.endPointer = endPointer;
+    this.pointers = pointers;
+    this.baseCounts = baseCounts;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0 || args[0].isEmpty()) {
+      System.out.println("Provide path to an uncompressed or BGZF compressed FASTQ file.");
+      System.exit(1);
+    }
+
+    File fastqFile = new File(args[0]);
+    FastqIndex index =
+        build(fastqFile, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_INTERVAL);
+    index.write(getIndexFile(fastqFile));
+    System.out.println(
+        String.format("Indexed %d reads, %d bases.", index.getReadCount(), index.getBaseCount()));
+  }
+
+  public static FastqIndex build(File fastqFile) throws IOException {
+    return build(fastqFile, DEFAULT_INTERVAL);
+  }
+
+  /**
+   * Reads the whole file, checking the structure of its records as the FASTQ readers do.
+   *
+   * @param interval Number of records from one indexed record to the next.
+   */
+  public static FastqIndex build(File fastqFile, int interval) throws IOException {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Interval must be positive: " + interval);
+    }
+    if (!FastqSplitter.isSplittable(fastqFile)) {
+      throw new IllegalArgumentException(
+          "Only uncompressed and BGZF compressed files can be indexed: " + fastqFile);
+    }
+
+    boolean blockCompressed = FastqLineCursor.isBlockCompressed(fastqFile);
+    long[] pointers = new long[16];
+    long[] baseCounts = new long[16];
+    int entryCount = 0;
+    long readCount = 0;
+    long baseCount = 0;
+    long endPointer;
+    try (FastqLineCursor cursor = FastqLineCursor.open(fastqFile, blockCompressed, 0)) {
+      while (cursor.readNonBlankLine()) {
+        if ('@' != cursor.firstByte) {
+          throw error("Sequence header must start with @", cursor, fastqFile);
+        }
+        long start = cursor.lineStart;
+
+        checkLine(cursor, "Sequence Line", fastqFile);
+        long basesLength = cursor.lineLength;
+
+        checkLine(cursor, "Quality Header", fastqFile);
+        if ('+' != cursor.firstByte) {
+          throw error("Quality header must start with +", cursor, fastqFile);
+        }
+
+        checkLine(cursor, "Quality Line", fastqFile);
+        if (basesLength != cursor.lineLength) {
+          throw error("Sequence and quality line must be the same length", cursor, fastqFile);
+        }
+
+        if (0 == readCount % interval) {
+          if (entryCount == pointers.length) {
+            pointers = Arrays.copyOf(pointers, entryCount * 2);
+            baseCounts = Arrays.copyOf(baseCounts, entryCount * 2);
+          }
+          pointers[entryCount] = start;
+          baseCounts[entryCount++] = baseCount;
+        }
+        readCount++;
+        baseCount += basesLength;
+      }
+      endPointer = cursor.getPointer();
+    }
+
+    return new FastqIndex(
+        interval,
+        blockCompressed,
+        fastqFile.length(),
+        readCount,
+        baseCount,
+        endPointer,
+        Arrays.copyOf(pointers, entryCount),
+        Arrays.copyOf(baseCounts, entryCount));
+  }
+
+  public static File getIndexFile(File fastqFile) {
+    return new File(fastqFile.getPath() + EXTENSION);
+  }
+
+  /**
+   * @return Index of the given FASTQ file, or null if it has none or if the file has changed since.
+   */
+  public static FastqIndex load(File fastqFile) throws IOException {
+    File indexFile = getIndexFile(fastqFile);
+    if (!indexFile.isFile() || indexFile.lastModified() < fastqFile.lastModified()) {
+      return null;
+    }
+    FastqIndex index = read(indexFile);
+    return index.getFileSize() == fastqFile.length() ? index : null;
+  }
+
+  public static FastqIndex read(File indexFile) throws IOException {
+    Map<String, String> header = new HashMap<>();
+    long[] pointers = new long[16];
+    long[] baseCounts = new long[16];
+    int entryCount = 0;
+    try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath())) {
+      String line;
+      while (null != (line = reader.readLine())) {
+        String[] fields = line.split("\t");
+        if (line.startsWith("##")) {
+          header.put(fields[0].substring(2), fields.length > 1 ? fields[1] : "");
+          continue;
+        }
+        if (3 != fields.length) {
+          throw new IOException("Invalid fastq index line: " + line);
+        }
+        if (entryCount == pointers.length) {
+          pointers = Arrays.copyOf(pointers, entryCount * 2);
+          baseCounts = Arrays.copyOf(baseCounts, entryCount * 2);
+        }
+        pointers[entryCount] = Long.parseLong(fields[1]);
+        baseCounts[entryCount++] = Long.parseLong(fields[2]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid fastq index: " + indexFile, e);
+    }
+
+    if (!VERSION.equals(header.get(FORMAT))) {
+      throw new IOException("Not a version " + VERSION + " fastq index: " + indexFile);
+    }
+    try {
+      return new FastqIndex(
+          Integer.parseInt(header.get("interval")),
+          "BGZF".equals(header.get("compression")),
+          Long.parseLong(header.get("size")),
+          Long.parseLong(header.get("reads")),
+          Long.parseLong(header.get("bases")),
+          Long.parseLong(header.get("end")),
+          Arrays.copyOf(pointers, entryCount),
+          Arrays.copyOf(baseCounts, entryCount));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid fastq index header: " + indexFile, e);
+    }
+  }
+
+  public void write(File indexFile) throws IOException {
+    try (PrintWriter writer =
+        new PrintWriter(
+            new BufferedWriter(
+                Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.US_ASCII)))) {
+      writer.print("##" + FORMAT + "\t" + VERSION + "\n");
+      writer.print("##interval\t" + interval + "\n");
+      writer.print("##compression\t" + (blockCompressed ? "BGZF" : "NONE") + "\n");
+      writer.print("##size\t" + fileSize + "\n");
+      writer.print("##reads\t" + readCount + "\n");
+      writer.print("##bases\t" + baseCount + "\n");
+      writer.print("##end\t" + endPointer + "\n");
+      for (int i = 0; i < pointers.length; i++) {
+        writer.print(getEntryRecord(i) + "\t" + pointers[i] + "\t" + baseCounts[i] + "\n");
+      }
+      if (writer.checkError()) {
+        throw new IOException("Failed to write fastq index: " + indexFile);
+      }
+    }
+  }
+
+  public int getInterval() {
+    return interval;
+  }
+
+  public boolean isBlockCompressed() {
+    return blockCompressed;
+  }
+
+  /**
+   * @return Size of the indexed file, to tell whether it has changed.
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  public long getReadCount() {
+    return readCount;
+  }
+
+  public long getBaseCount() {
+    return baseCount;
+  }
+
+  /**
+   * @return Position after the last record.
+   */
+  public long getEndPointer() {
+    return endPointer;
+  }
+
+  public int getEntryCount() {
+    return pointers.length;
+  }
+
+  /**
+   * @return Indexed record at or before the given record.
+   */
+  public int getEntry(long record) {
+    if (record < 0 || record >= readCount) {
+      throw new IndexOutOfBoundsException("Record: " + record + ", reads: " + readCount);
+    }
+    return (int) (record / interval);
+  }
+
+  /**
+   * @return Number of the indexed record, counting from 0.
+   */
+  public long getEntryRecord(int entry) {
+    return (long) entry * interval;
+  }
+
+  public long getEntryPointer(int entry) {
+    return pointers[entry];
+  }
+
+  /**
+   * @return Number of bases of all records before the indexed one.
+   */
+  public long getEntryBaseCount(int entry) {
+    return baseCounts[entry];
+  }
+
+  private static void checkLine(FastqLineCursor cursor, String kind, File fastqFile)
+      throws IOException {
+    if (!cursor.readNonBlankLine()) {
+      throw error("File is too short - missing " + kind, cursor, fastqFile);
+    }
+  }
+
+  private static SAMException error(String message, FastqLineCursor cursor, File fastqFile) {
+    return new SAMException(message + " at line " + cursor.lineNumber + " in fastq " + fastqFile);
+  }
+}
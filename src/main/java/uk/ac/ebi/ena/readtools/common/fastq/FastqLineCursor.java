@@ -0,0 +1,255 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.fastq;
+
+import com.google.common.io.ByteStreams;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the lines of an uncompressed or BGZF compressed file, keeping where each line starts and
+ * how long it is but not what it holds. Positions are file offsets, or BGZF virtual file offsets,
+ * from which the file can be opened again.
+ */
+abstract class FastqLineCursor implements Closeable {
+  /** Position of the last line read. */
+  long lineStart;
+
+  /** Number of the last line read, counting from 1 at the position the cursor was opened at. */
+  long lineNumber;
+
+  /** First byte of the last line read, or -1 if it is empty. */
+  int firstByte;
+
+  /** Length of the last line read, without its line end. */
+  long lineLength;
+
+  /** True if the last line read holds nothing but whitespace. */
+  boolean blank;
+
+  private final byte[] buffer = new byte[1 << 16];
+  private int position;
+  private int limit;
+  private long bufferStart;
+  private boolean afterCarriageReturn;
+
+  /**
+   * @param pointer File offset, or BGZF virtual file offset, to read from.
+   */
+  static FastqLineCursor open(File file, boolean blockCompressed, long pointer) throws IOException {
+    if (!blockCompressed) {
+      FileChannel channel = FileChannel.open(file.toPath());
+      channel.position(pointer);
+      InputStream inputStream = Channels.newInputStream(channel);
+      return new FastqLineCursor() {
+        private long filled = pointer;
+
+        @Override
+        int fill(byte[] buffer) throws IOException {
+          int read = inputStream.read(buffer, 0, buffer.length);
+          filled += Math.max(0, read);
+          return read;
+        }
+
+        @Override
+        long getFillPointer() {
+          return filled;
+        }
+
+        @Override
+        public void close() throws IOException {
+          inputStream.close();
+        }
+      };
+    }
+
+    BlockCompressedInputStream inputStream = new BlockCompressedInputStream(file);
+    inputStream.seek(pointer);
+    return new FastqLineCursor() {
+      @Override
+      int fill(byte[] buffer) throws IOException {
+        // Only read within one block, so that virtual file offsets go up one by one.
+        int available = inputStream.available();
+        if (available <= 0) {
+          // An empty block, whose offset also points to the next byte, or the end of the file.
+          int b = inputStream.read();
+          if (b < 0) {
+            return -1;
+          }
+          buffer[0] = (byte) b;
+          return 1;
+        }
+        return inputStream.read(buffer, 0, Math.min(available, buffer.length));
+      }
+
+      @Override
+      long getFillPointer() {
+        return inputStream.getFilePointer();
+      }
+
+      @Override
+      public void close() throws IOException {
+        inputStream.close();
+      }
+    };
+  }
+
+  /**
+   * @return True for BGZF compressed files.
+   */
+  static boolean isBlockCompressed(File file) throws IOException {
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+      return BlockCompressedInputStream.isValidFile(inputStream);
+    }
+  }
+
+  /**
+   * @return Stream of the bytes from one position up to another, which may be {@link
+   *     Long#MAX_VALUE} to read to the end.
+   */
+  static InputStream openStream(File file, boolean blockCompressed, long start, long end)
+      throws IOException {
+    if (!blockCompressed) {
+      FileChannel channel = FileChannel.open(file.toPath());
+      channel.position(start);
+      return ByteStreams.limit(Channels.newInputStream(channel), end - start);
+    }
+
+    BlockCompressedInputStream inputStream = new BlockCompressedInputStream(file);
+    inputStream.seek(start);
+    return new InputStream() {
+      private final byte[] single = new byte[1];
+
+      @Override
+      public int read() throws IOException {
+        return -1 == read(single, 0, 1) ? -1 : single[0] & 0xff;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (0 == len) {
+          return 0;
+        }
+        // Loads the next block once the current one has been read.
+        int available = inputStream.available();
+        long pointer = inputStream.getFilePointer();
+        if (pointer >= end) {
+          return -1;
+        }
+        if (available <= 0) {
+          // An empty block, or the end of the file.
+          int c = inputStream.read();
+          if (c < 0) {
+            return -1;
+          }
+          b[off] = (byte) c;
+          return 1;
+        }
+        if (BlockCompressedFilePointerUtil.getBlockAddress(pointer)
+            == BlockCompressedFilePointerUtil.getBlockAddress(end)) {
+          available =
+              Math.min(
+                  available,
+                  BlockCompressedFilePointerUtil.getBlockOffset(end)
+                      - BlockCompressedFilePointerUtil.getBlockOffset(pointer));
+        }
+        return inputStream.read(b, off, Math.min(len, available));
+      }
+
+      @Override
+      public void close() throws IOException {
+        inputStream.close();
+      }
+    };
+  }
+
+  /**
+   * Reads into the buffer.
+   *
+   * @return Number of bytes read, or -1 at the end of the file.
+   */
+  abstract int fill(byte[] buffer) throws IOException;
+
+  /**
+   * @return Position of the next byte {@link #fill(byte[])} reads.
+   */
+  abstract long getFillPointer() throws IOException;
+
+  /**
+   * @return Position of the next byte to be read.
+   */
+  long getPointer() throws IOException {
+    return position < limit ? bufferStart + position : getFillPointer();
+  }
+
+  /**
+   * Reads up to the next line feed, carriage return or both.
+   *
+   * @return False at the end of the file.
+   */
+  boolean readLine() throws IOException {
+    lineStart = getPointer();
+    int b = read();
+    if (afterCarriageReturn && '\n' == b) {
+      lineStart = getPointer();
+      b = read();
+    }
+    afterCarriageReturn = false;
+    if (b < 0) {
+      return false;
+    }
+
+    lineNumber++;
+    firstByte = '\n' == b || '\r' == b ? -1 : b;
+    lineLength = 0;
+    blank = true;
+    while (b >= 0 && '\n' != b && '\r' != b) {
+      blank &= Character.isWhitespace(b);
+      lineLength++;
+      b = read();
+    }
+    afterCarriageReturn = '\r' == b;
+    return true;
+  }
+
+  /**
+   * Skips blank lines, as the FASTQ parsers do.
+   *
+   * @return False at the end of the file.
+   */
+  boolean readNonBlankLine() throws IOException {
+    boolean read;
+    do {
+      read = readLine();
+    } while (read && blank);
+    return read;
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      bufferStart = getFillPointer();
+      position = 0;
+      limit = Math.max(0, fill(buffer));
+      if (0 == limit) {
+        return -1;
+      }
+    }
+    return buffer[position++] & 0xff;
+  }
+}
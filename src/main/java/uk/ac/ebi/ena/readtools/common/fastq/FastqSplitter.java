@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.fastq;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Splits an uncompressed or BGZF compressed FASTQ file into parts starting at evenly spaced
+ * records, so that the parts can be read on their own. Positions are file offsets, or BGZF virtual
+ * file offsets.
+ *
+ * <p>If the file has an up to date {@link FastqIndex}, parts start at evenly spaced indexed
+ * records. Otherwise each part starts at the first record after an evenly spaced byte offset, or
+ * for BGZF after the first block at or after it. A record starts with a line starting with '@' that
+ * is followed by a line, a line starting with '+' and a line as long as the one after the '@'.
+ * Bases never start with '+', so a quality line starting with '@' is not mistaken for the start of
+ * a record.
+ */
+public final class FastqSplitter {
+  // A BGZF block starts within this many bytes of any offset that is not in the last block.
+  private static final int MAX_BLOCK_SIZE = 65536;
+  private static final int BLOCK_HEADER_SIZE = 16;
+  // Lines read to find a record start, enough for a record starting in any of the first four.
+  private static final int RECORD_SEARCH_LINES = 8;
+
+  private FastqSplitter() {}
+
+  /**
+   * @return True for files that can be split, which are uncompressed or BGZF compressed.
+   */
+  public static boolean isSplittable(File file) {
+    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+      inputStream.mark(3);
+      int b1 = inputStream.read();
+      int b2 = inputStream.read();
+      int b3 = inputStream.read();
+      inputStream.reset();
+      if (0x1f == b1 && 0x8b == b2) {
+        return BlockCompressedInputStream.isValidFile(inputStream);
+      }
+      return !('B' == b1 && 'Z' == b2 && 'h' == b3);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return True for BGZF compressed files.
+   */
+  public static boolean isBlockCompressed(File file) throws IOException {
+    return FastqLineCursor.isBlockCompressed(file);
+  }
+
+  /**
+   * @param parts Most parts to split into. Small files give fewer, the first always starts at 0.
+   * @return Starts of the parts, then the end of the last part, which is {@link Long#MAX_VALUE} for
+   *     BGZF compressed files without an index.
+   * @throws SAMException If no record start is found after an offset.
+   */
+  public static long[] split(File file, boolean blockCompressed, int parts) throws IOException {
+    if (parts <= 0) {
+      throw new IllegalArgumentException("Parts must be positive: " + parts);
+    }
+    FastqIndex index = loadIndex(file, blockCompressed);
+    return null == index ? findStarts(file, blockCompressed, parts) : findStarts(index, parts);
+  }
+
+  /**
+   * @return Stream of the bytes of a part, from its start up to the start of the next one.
+   */
+  public static InputStream open(File file, boolean blockCompressed, long start, long end)
+      throws IOException {
+    return FastqLineCursor.openStream(file, blockCompressed, start, end);
+  }
+
+  /**
+   * @return Index of the file, or null if it has none that can be used.
+   */
+  private static FastqIndex loadIndex(File fastqFile, boolean blockCompressed) {
+    try {
+      FastqIndex index = FastqIndex.load(fastqFile);
+      return null != index && index.isBlockCompressed() == blockCompressed ? index : null;
+    } catch (IOException e) {
+      // A broken index is no worse than none.
+      return null;
+    }
+  }
+
+  private static long[] findStarts(FastqIndex index, int parts) {
+    int entryCount = index.getEntryCount();
+    // Like a file without records, an empty file is one part.
+    int count = Math.max(1, Math.min(parts, entryCount));
+    long[] starts = new long[count + 1];
+    for (int i = 1; i < count; i++) {
+      starts[i] = index.getEntryPointer((int) ((long) i * entryCount / count));
+    }
+    starts[count] = index.getEndPointer();
+    return starts;
+  }
+
+  private static long[] findStarts(File file, boolean blockCompressed, int parts)
+      throws IOException {
+    long length = file.length();
+    long[] starts = new long[parts + 1];
+    int count = 0;
+    for (int i = 0; i < parts; i++) {
+      long start = 0 == i ? 0 : findRecordStart(file, blockCompressed, i * length / parts);
+      if (start < 0) {
+        break;
+      }
+      // Parts of a small file may start at the same record.
+      if (0 == count || start > starts[count - 1]) {
+        starts[count++] = start;
+      }
+    }
+    starts[count++] = blockCompressed ? Long.MAX_VALUE : length;
+    return Arrays.copyOf(starts, count);
+  }
+
+  /**
+   * @return Start of the first record after the line at the given offset, or -1 if there is none.
+   */
+  private static long findRecordStart(File file, boolean blockCompressed, long offset)
+      throws IOException {
+    try (FastqLineCursor cursor = openCursor(file, blockCompressed, offset)) {
+      if (null == cursor) {
+        return -1;
+      }
+      // The rest of the line the offset falls into.
+      cursor.readLine();
+
+      long[] lineStarts = new long[RECORD_SEARCH_LINES];
+      int[] firstBytes = new int[RECORD_SEARCH_LINES];
+      long[] lengths = new long[RECORD_SEARCH_LINES];
+      for (int i = 0; i < RECORD_SEARCH_LINES; i++) {
+        if (!cursor.readNonBlankLine()) {
+          return -1;
+        }
+        lineStarts[i] = cursor.lineStart;
+        firstBytes[i] = cursor.firstByte;
+        lengths[i] = cursor.lineLength;
+
+        int j = i - 3;
+        if (j >= 0
+            && '@' == firstBytes[j]
+            && '+' == firstBytes[j + 2]
+            && lengths[j + 1] == lengths[j + 3]) {
+          return lineStarts[j];
+        }
+      }
+    }
+    throw new SAMException(
+        String.format(
+            "No fastq record found in %d lines after offset %d", RECORD_SEARCH_LINES, offset));
+  }
+
+  /**
+   * @return Cursor at the given file offset, or at the first BGZF block after it. Null if there is
+   *     no block after it.
+   */
+  private static FastqLineCursor openCursor(File file, boolean blockCompressed, long offset)
+      throws IOException {
+    if (!blockCompressed) {
+      return FastqLineCursor.open(file, false, offset);
+    }
+    long blockAddress = findBlockAddress(file, offset);
+    if (blockAddress < 0) {
+      return null;
+    }
+    return FastqLineCursor.open(
+        file, true, BlockCompressedFilePointerUtil.makeFilePointer(blockAddress));
+  }
+
+  /**
+   * @return File offset of the first BGZF block at or after the given offset, or -1 if there is
+   *     none.
+   */
+  private static long findBlockAddress(File file, long offset) throws IOException {
+    byte[] bytes = new byte[MAX_BLOCK_SIZE + BLOCK_HEADER_SIZE];
+    int length = 0;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      randomAccessFile.seek(offset);
+      int read;
+      while (length < bytes.length
+          && (read = randomAccessFile.read(bytes, length, bytes.length - length)) > 0) {
+        length += read;
+      }
+    }
+    for (int i = 0; i + BLOCK_HEADER_SIZE <= length; i++) {
+      if (isBlockHeader(bytes, i)) {
+        return offset + i;
+      }
+    }
+    return -1;
+  }
+
+  /** Matches the fixed bytes of a BGZF block header: gzip magic, deflate, extra field "BC". */
+  private static boolean isBlockHeader(byte[] bytes, int i) {
+    return 0x1f == (bytes[i] & 0xff)
+        && 0x8b == (bytes[i + 1] & 0xff)
+        && 8 == bytes[i + 2]
+        && 4 == bytes[i + 3]
+        && 6 == bytes[i + 10]
+        && 0 == bytes[i + 11]
+        && 'B' == bytes[i + 12]
+        && 'C' == bytes[i + 13]
+        && 2 == bytes[i + 14]
+        && 0 == bytes[i + 15];
+  }
+}
@@ -10,7 +10,6 @@
  */
 package uk.ac.ebi.ena.readtools.common.reads;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -21,6 +20,7 @@ import java.util.regex.Pattern;
  * <pre>@instrument:run:flowcell:lane:tile:x:y readnum:filter:control:barcode</pre>
  *
  * <p>Regex groups: (1) base name, (2) whitespace, (3) read number, (4) rest (empty or :barcode...).
+ * The helpers below give the same results without the regex, see {@link ReadNameTokenizer}.
  */
 public final class CasavaRead {
 
@@ -37,16 +37,14 @@ public final class CasavaRead {
 
   /** Returns group(1) — the base/instrument name — or null if not Casava 1.8 format. */
   public static String getBaseNameOrNull(String readName) {
-    Matcher m = P_CASAVA_18_NAME.matcher(readName);
-    if (!m.matches()) return null;
-    return m.group(1);
+    ReadName name = ReadNameTokenizer.parseCasava(readName);
+    return null == name ? null : name.getKey();
   }
 
   /** Returns group(3) — the read number (1, 2, ...) — or null if not Casava 1.8 format. */
   public static String getReadIndexOrNull(String readName) {
-    Matcher m = P_CASAVA_18_NAME.matcher(readName);
-    if (!m.matches()) return null;
-    return m.group(3);
+    ReadName name = ReadNameTokenizer.parseCasava(readName);
+    return null == name ? null : name.getPairNumber();
   }
 
   /**
@@ -55,20 +53,13 @@ public final class CasavaRead {
    * "ATCACG+GCGCTA".
    */
   public static String getBarcodeOrNull(String readName) {
-    Matcher m = P_CASAVA_18_NAME.matcher(readName);
-    if (!m.matches()) return null;
-    String tail = m.group(6); // ($|:.*$)
-    if (tail.isEmpty()) return null;
-    // tail starts with ':', strip it
-    String barcode = tail.substring(1);
-    if (barcode.isEmpty()) return null;
-    return barcode;
+    ReadName name = ReadNameTokenizer.parseCasava(readName);
+    return null == name ? null : name.getBarcode();
   }
 
   /** Returns true if the filter flag is Y (read failed filtering). */
   public static boolean isFiltered(String readName) {
-    Matcher m = P_CASAVA_18_NAME.matcher(readName);
-    if (!m.matches()) return false;
-    return "Y".equals(m.group(4));
+    ReadName name = ReadNameTokenizer.parseCasava(readName);
+    return null != name && name.isFiltered();
   }
 }
@@ -10,6 +10,8 @@
  */
 package uk.ac.ebi.ena.readtools.common.reads;
 
+import java.util.Arrays;
+
 public interface QualityNormalizer {
 
   /**
@@ -18,4 +20,17 @@ public interface QualityNormalizer {
    * @param qualities
    */
   void normalize(byte[] qualities);
+
+  /**
+   * Normalize the given range of qualities in-place.
+   *
+   * @param qualities
+   * @param offset
+   * @param length
+   */
+  default void normalize(byte[] qualities, int offset, int length) {
+    byte[] range = Arrays.copyOfRange(qualities, offset, offset + length);
+    normalize(range);
+    System.arraycopy(range, 0, qualities, offset, length);
+  }
 }
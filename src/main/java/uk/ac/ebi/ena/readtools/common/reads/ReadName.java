@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.reads;
+
+/**
+ * Read name split into its parts by {@link ReadNameTokenizer}. Parts are kept as spans of the
+ * original name and only turned into strings when asked for, so an instance can be reused for every
+ * read of a file.
+ */
+public final class ReadName {
+  private String name;
+  private ReadNameTokenizer.Scheme scheme;
+
+  private int keyEnd;
+  private int pairNumberStart;
+  private int pairNumberEnd;
+  private boolean filtered;
+  private int controlNumberStart = -1;
+  private int controlNumberEnd = -1;
+  private int barcodeStart = -1;
+
+  private String key;
+  private String pairNumber;
+
+  void setCasava(
+      String name,
+      int keyEnd,
+      int pairNumberStart,
+      int pairNumberEnd,
+      boolean filtered,
+      int controlNumberStart,
+      int controlNumberEnd,
+      int barcodeStart) {
+    set(name, ReadNameTokenizer.Scheme.CASAVA18, keyEnd, pairNumberStart, pairNumberEnd);
+    this.filtered = filtered;
+    this.controlNumberStart = controlNumberStart;
+    this.controlNumberEnd = controlNumberEnd;
+    this.barcodeStart = barcodeStart;
+  }
+
+  void setSeparator(String name, int keyEnd, int pairNumberStart) {
+    set(name, ReadNameTokenizer.Scheme.SEPARATOR, keyEnd, pairNumberStart, name.length());
+    this.filtered = false;
+    this.controlNumberStart = -1;
+    this.controlNumberEnd = -1;
+    this.barcodeStart = -1;
+  }
+
+  /** For names that could only be split by the regular expressions. */
+  void set(String name, ReadNameTokenizer.Scheme scheme, String key, String pairNumber) {
+    this.name = name;
+    this.scheme = scheme;
+    this.keyEnd = key.length();
+    this.pairNumberStart = -1;
+    this.pairNumberEnd = -1;
+    this.key = key;
+    this.pairNumber = pairNumber;
+    this.filtered = false;
+    this.controlNumberStart = -1;
+    this.controlNumberEnd = -1;
+    this.barcodeStart = -1;
+  }
+
+  private void set(
+      String name,
+      ReadNameTokenizer.Scheme scheme,
+      int keyEnd,
+      int pairNumberStart,
+      int pairNumberEnd) {
+    this.name = name;
+    this.scheme = scheme;
+    this.keyEnd = keyEnd;
+    this.pairNumberStart = pairNumberStart;
+    this.pairNumberEnd = pairNumberEnd;
+    this.key = null;
+    this.pairNumber = null;
+  }
+
+  /**
+   * @return The whole read name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public ReadNameTokenizer.Scheme getScheme() {
+    return scheme;
+  }
+
+  /**
+   * @return The read name without the pair number, shared by the mates of a pair. It spans from the
+   *     start of the name to {@link #getKeyEnd()}.
+   */
+  public String getKey() {
+    if (null == key) {
+      key = name.substring(0, keyEnd);
+    }
+    return key;
+  }
+
+  public int getKeyEnd() {
+    return keyEnd;
+  }
+
+  /**
+   * @return The pair number as written in the read name, e.g. "1" or "2".
+   */
+  public String getPairNumber() {
+    if (null == pairNumber) {
+      pairNumber = name.substring(pairNumberStart, pairNumberEnd);
+    }
+    return pairNumber;
+  }
+
+  /**
+   * @return The pair number as an integer.
+   * @throws NumberFormatException If the pair number does not fit an integer.
+   */
+  public int getPairIndex() {
+    return Integer.parseInt(getPairNumber());
+  }
+
+  /**
+   * @return True if the Casava 1.8 filter flag is Y. Always false for other schemes.
+   */
+  public boolean isFiltered() {
+    return filtered;
+  }
+
+  /**
+   * @return The Casava 1.8 control number, or null for other schemes.
+   */
+  public String getControlNumber() {
+    return controlNumberStart < 0 ? null : name.substring(controlNumberStart, controlNumberEnd);
+  }
+
+  /**
+   * @return The Casava 1.8 barcode, e.g. "ATCACG+GCGCTA", or null if there is none.
+   */
+  public String getBarcode() {
+    return barcodeStart < 0 ? null : name.substring(barcodeStart);
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.reads;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits read names into key, pair number and, for Casava 1.8 names, filter flag, control number
+ * and barcode in a single pass over the name, without regular expressions.
+ *
+ * <p>Names are tried as Casava 1.8 first (see {@link CasavaRead}) and then as a key followed by one
+ * of the separators {@code . | : / _} and a numeric pair number, unless they look like a Casava 1.8
+ * name without the read number part. The results are the same as those of {@link
+ * CasavaRead#P_CASAVA_18_NAME}, {@link #P_CASAVA_LIKE_NAME} and {@link #P_SEPARATOR_NAME}.
+ *
+ * <p>An instance remembers the scheme of the first name it parsed and uses it to skip checks that
+ * cannot succeed for the rest of the file. It reuses a single {@link ReadName} and is not thread
+ * safe.
+ */
+public class ReadNameTokenizer {
+  public enum Scheme {
+    /** instrument:run:flowcell:lane:tile:x:y readnum:filter:control[:barcode] */
+    CASAVA18,
+    /** key followed by one of . | : / _ and the pair number */
+    SEPARATOR
+  }
+
+  /** Casava 1.8 like names without the read number part. These are not split by separators. */
+  public static final Pattern P_CASAVA_LIKE_NAME =
+      Pattern.compile("^([a-zA-Z0-9_-]+:[0-9]+:[a-zA-Z0-9_-]+:[0-9]+:[0-9]+:[0-9-]+:[0-9-]+)$");
+
+  /** Key, separator and pair number. */
+  public static final Pattern P_SEPARATOR_NAME = Pattern.compile("^(.*)(?:[\\.|:|/|_])([0-9]+)$");
+
+  private final ReadName readName = new ReadName();
+  private Scheme scheme;
+
+  /**
+   * @return The parsed name, or null if the name follows neither scheme. The returned instance is
+   *     overwritten by the next call.
+   */
+  public ReadName tokenize(String name) {
+    // Casava 1.8 names have a blank before the read number. Files of separator names rarely have
+    // any, so the Casava check is skipped for them once the scheme is known.
+    if (Scheme.SEPARATOR != scheme || hasBlank(name)) {
+      if (parseCasava(name, readName)) {
+        detected(Scheme.CASAVA18);
+        return readName;
+      }
+    }
+
+    if (parseSeparator(name, readName)) {
+      detected(Scheme.SEPARATOR);
+      return readName;
+    }
+
+    return null;
+  }
+
+  /**
+   * @return Scheme of the first name parsed, null if none was.
+   */
+  public Scheme getScheme() {
+    return scheme;
+  }
+
+  private void detected(Scheme scheme) {
+    if (null == this.scheme) {
+      this.scheme = scheme;
+    }
+  }
+
+  /**
+   * @return The parsed name, or null if the name follows neither scheme.
+   */
+  public static ReadName parse(String name) {
+    ReadName readName = new ReadName();
+    return parseCasava(name, readName) || parseSeparator(name, readName) ? readName : null;
+  }
+
+  /**
+   * @return The parsed name, or null if the name is not a Casava 1.8 name.
+   */
+  public static ReadName parseCasava(String name) {
+    ReadName readName = new ReadName();
+    return parseCasava(name, readName) ? readName : null;
+  }
+
+  /**
+   * Parses a Casava 1.8 name. The key is everything before the last blank that is followed by a
+   * valid read number, filter flag and control number.
+   *
+   * @return True if the name is a Casava 1.8 name, the parts are then set on the given instance.
+   */
+  public static boolean parseCasava(String name, ReadName into) {
+    if (hasLineTerminator(name)) {
+      // None of the parts may contain one.
+      return false;
+    }
+
+    // The shortest tail is "1:N:0".
+    for (int tail = name.length() - 5; tail >= 2; tail--) {
+      char blank = name.charAt(tail - 1);
+      if (' ' != blank && '\t' != blank) {
+        continue;
+      }
+
+      if (parseCasavaTail(name, tail, into)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /** Parses {@code readnum:filter:control[:barcode]} starting at the given position. */
+  private static boolean parseCasavaTail(String name, int start, ReadName into) {
+    int length = name.length();
+
+    int pairNumberEnd = skipDigits(name, start);
+    if (pairNumberEnd == start
+        || pairNumberEnd + 3 >= length
+        || ':' != name.charAt(pairNumberEnd)) {
+      return false;
+    }
+
+    char filter = name.charAt(pairNumberEnd + 1);
+    if (('Y' != filter && 'N' != filter) || ':' != name.charAt(pairNumberEnd + 2)) {
+      return false;
+    }
+
+    int controlNumberStart = pairNumberEnd + 3;
+    int controlNumberEnd = skipDigits(name, controlNumberStart);
+    if (controlNumberEnd == controlNumberStart
+        || 0 != (name.charAt(controlNumberEnd - 1) - '0') % 2) {
+      return false;
+    }
+
+    int barcodeStart = -1;
+    if (controlNumberEnd != length) {
+      if (':' != name.charAt(controlNumberEnd)) {
+        return false;
+      }
+      if (controlNumberEnd + 1 != length) {
+        barcodeStart = controlNumberEnd + 1;
+      }
+    }
+
+    into.setCasava(
+        name,
+        start - 1,
+        start,
+        pairNumberEnd,
+        'Y' == filter,
+        controlNumberStart,
+        controlNumberEnd,
+        barcodeStart);
+    return true;
+  }
+
+  /**
+   * Parses a name made of a key, one of the separators {@code . | : / _} and a numeric pair number.
+   * Names looking like Casava 1.8 names without the read number part are not split.
+   *
+   * @return True if the name could be split, the parts are then set on the given instance.
+   */
+  public static boolean parseSeparator(String name, ReadName into) {
+    if (hasLineTerminator(name)) {
+      // Rare enough to leave the line terminator rules of the patterns to the patterns.
+      if (P_CASAVA_LIKE_NAME.matcher(name).find()) {
+        return false;
+      }
+      Matcher m = P_SEPARATOR_NAME.matcher(name);
+      if (!m.find()) {
+        return false;
+      }
+      into.set(name, Scheme.SEPARATOR, m.group(1), m.group(2));
+      return true;
+    }
+
+    if (isCasavaLike(name)) {
+      return false;
+    }
+
+    int length = name.length();
+    int pairNumberStart = length;
+    while (pairNumberStart > 0 && isDigit(name.charAt(pairNumberStart - 1))) {
+      pairNumberStart--;
+    }
+
+    if (pairNumberStart == length || pairNumberStart == 0) {
+      return false;
+    }
+
+    switch (name.charAt(pairNumberStart - 1)) {
+      case '.':
+      case '|':
+      case ':':
+      case '/':
+      case '_':
+        into.setSeparator(name, pairNumberStart - 1, pairNumberStart);
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  /** Same as {@link #P_CASAVA_LIKE_NAME} for names without line terminators. */
+  private static boolean isCasavaLike(String name) {
+    int position = 0;
+    for (int field = 0; field < 7; field++) {
+      int start = position;
+      boolean digitsOnly = 1 == field || 3 == field || 4 == field;
+      boolean digitsOrDash = 5 == field || 6 == field;
+
+      while (position < name.length() && ':' != name.charAt(position)) {
+        char c = name.charAt(position);
+        boolean valid =
+            digitsOnly
+                ? isDigit(c)
+                : digitsOrDash
+                    ? isDigit(c) || '-' == c
+                    : isDigit(c)
+                        || ('a' <= c && c <= 'z')
+                        || ('A' <= c && c <= 'Z')
+                        || '_' == c
+                        || '-' == c;
+        if (!valid) {
+          return false;
+        }
+        position++;
+      }
+
+      if (position == start) {
+        return false;
+      }
+
+      if (6 == field) {
+        return position == name.length();
+      }
+
+      if (position == name.length()) {
+        return false;
+      }
+      // skip ':'
+      position++;
+    }
+
+    return false;
+  }
+
+  private static int skipDigits(String name, int position) {
+    while (position < name.length() && isDigit(name.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private static boolean isDigit(char c) {
+    return '0' <= c && c <= '9';
+  }
+
+  private static boolean hasBlank(String name) {
+    return name.indexOf(' ') >= 0 || name.indexOf('\t') >= 0;
+  }
+
+  /** Characters not matched by '.' in regular expressions. */
+  private static boolean hasLineTerminator(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if ('\n' == c || '\r' == c || '\u0085' == c || '\u2028' == c || '\u2029' == c) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.reads;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks bases and quality scores with a 256 entry table per base alphabet instead of regular
+ * expressions or sets of characters. Every check is one pass over a range of bytes or characters,
+ * bytes being taken as ISO-8859-1 and characters above 255 never being valid.
+ *
+ * <p>The loops are plain counted loops without early exits, which the JIT can unroll and vectorise.
+ */
+public final class ReadValidationKernel {
+  /** IUPAC nucleotide codes, gap and unknown base, in upper case. */
+  public static final String IUPAC_CODES = "ACGTURYSWKMBDHVN.-";
+
+  /** IUPAC codes in either case. */
+  public static final ReadValidationKernel IUPAC = ignoringCase(IUPAC_CODES);
+
+  /** Lowest quality score character, Phred+33 0. */
+  public static final char MIN_QUALITY = '!';
+
+  /** Highest quality score character. */
+  public static final char MAX_QUALITY = '~';
+
+  private static final String AUTCG = "AUTCGautcg";
+  private static final byte VALID = 1;
+  private static final byte AUTCG_BASE = 2;
+
+  private final byte[] flags = new byte[256];
+
+  /**
+   * @param validBases All valid base characters, case sensitive.
+   */
+  public ReadValidationKernel(String validBases) {
+    for (int i = 0; i < validBases.length(); i++) {
+      char base = validBases.charAt(i);
+      if (base > 255) {
+        throw new IllegalArgumentException("Base character out of range: " + base);
+      }
+      flags[base] = AUTCG.indexOf(base) < 0 ? VALID : VALID | AUTCG_BASE;
+    }
+  }
+
+  /**
+   * @param validBases All valid base characters, in any case.
+   */
+  public static ReadValidationKernel ignoringCase(String validBases) {
+    return new ReadValidationKernel(validBases.toUpperCase() + validBases.toLowerCase());
+  }
+
+  /**
+   * @return Number of AUTCG bases in the range, the rest being non-AUTCG, or -1 if any base is not
+   *     valid.
+   */
+  public int countAutcg(byte[] bases, int offset, int length) {
+    int valid = VALID;
+    int autcg = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int flag = flags[bases[i] & 0xff];
+      valid &= flag;
+      autcg += flag >> 1;
+    }
+    return 0 == valid ? -1 : autcg;
+  }
+
+  /**
+   * @return Number of AUTCG bases from start to end, the rest being non-AUTCG, or -1 if any base is
+   *     not valid.
+   */
+  public int countAutcg(CharSequence bases, int start, int end) {
+    int valid = VALID;
+    int autcg = 0;
+    for (int i = start; i < end; i++) {
+      char base = bases.charAt(i);
+      int flag = base > 255 ? 0 : flags[base];
+      valid &= flag;
+      autcg += flag >> 1;
+    }
+    return 0 == valid ? -1 : autcg;
+  }
+
+  public boolean isValid(byte[] bases, int offset, int length) {
+    return countAutcg(bases, offset, length) >= 0;
+  }
+
+  public boolean isValid(CharSequence bases, int start, int end) {
+    return countAutcg(bases, start, end) >= 0;
+  }
+
+  public boolean isValid(CharSequence bases) {
+    return isValid(bases, 0, bases.length());
+  }
+
+  /**
+   * @return The distinct invalid characters of the bases.
+   */
+  public Set<Character> findInvalid(CharSequence bases) {
+    Set<Character> invalid = new HashSet<>();
+    for (int i = 0; i < bases.length(); i++) {
+      char base = bases.charAt(i);
+      if (base > 255 || 0 == flags[base]) {
+        invalid.add(base);
+      }
+    }
+    return invalid;
+  }
+
+  /**
+   * @return Sum of the Phred scores of Phred+33 quality scores.
+   */
+  public static long sumQualities(byte[] qualities, int offset, int length) {
+    long sum = 0;
+    for (int i = offset; i < offset + length; i++) {
+      sum += qualities[i] & 0xff;
+    }
+    return sum - (long) MIN_QUALITY * length;
+  }
+
+  /**
+   * @return Sum of the Phred scores of Phred+33 quality scores.
+   */
+  public static long sumQualities(CharSequence qualities) {
+    long sum = 0;
+    for (int i = 0; i < qualities.length(); i++) {
+      sum += qualities.charAt(i);
+    }
+    return sum - (long) MIN_QUALITY * qualities.length();
+  }
+
+  /**
+   * @return True if all quality score characters from start to end are printable, from {@link
+   *     #MIN_QUALITY} to {@link #MAX_QUALITY}.
+   */
+  public static boolean isValidQualities(CharSequence qualities, int start, int end) {
+    boolean valid = true;
+    for (int i = start; i < end; i++) {
+      char quality = qualities.charAt(i);
+      valid &= MIN_QUALITY <= quality & quality <= MAX_QUALITY;
+    }
+    return valid;
+  }
+
+  public static boolean isValidQualities(CharSequence qualities) {
+    return isValidQualities(qualities, 0, qualities.length());
+  }
+}
@@ -19,4 +19,10 @@ public class IlluminaQualityNormalizer implements QualityNormalizer {
   public void normalize(byte[] qualities) {
     SolexaQualityConverter.getSingleton().convertSolexa_1_3_QualityCharsToPhredBinary(qualities);
   }
+
+  @Override
+  public void normalize(byte[] qualities, int offset, int length) {
+    SolexaQualityConverter.getSingleton()
+        .convertSolexa_1_3_QualityCharsToPhredBinary(offset, length, qualities);
+  }
 }
@@ -19,4 +19,12 @@ public class SolexaQualityNormalizer implements QualityNormalizer {
   public void normalize(byte[] qualities) {
     SolexaQualityConverter.getSingleton().convertSolexaQualityCharsToPhredBinary(qualities);
   }
+
+  @Override
+  public void normalize(byte[] qualities, int offset, int length) {
+    SolexaQualityConverter converter = SolexaQualityConverter.getSingleton();
+    for (int i = offset; i < offset + length; i++) {
+      qualities[i] = converter.solexaCharToPhredBinary(qualities[i]);
+    }
+  }
 }
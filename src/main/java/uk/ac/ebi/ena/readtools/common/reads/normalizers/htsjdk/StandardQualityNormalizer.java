@@ -20,4 +20,11 @@ public class StandardQualityNormalizer implements QualityNormalizer {
   public void normalize(byte[] qualities) {
     SAMUtils.fastqToPhred(qualities);
   }
+
+  @Override
+  public void normalize(byte[] qualities, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      qualities[i] = (byte) SAMUtils.fastqToPhred((char) (qualities[i] & 0xff));
+    }
+  }
 }
@@ -37,13 +37,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 import uk.ac.ebi.ena.readtools.cram.common.Utils;
+import uk.ac.ebi.ena.readtools.metrics.Counter;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
+import uk.ac.ebi.ena.readtools.metrics.Timer;
 
 /**
  * A central class for automated discovery of reference sequences. The algorithm is expected similar
@@ -93,28 +94,27 @@ public class ENAReferenceSource implements CRAMReferenceSource {
   private List<PathPattern> refPatterns = new ArrayList<PathPattern>();
   private List<PathPattern> cachePatterns = new ArrayList<PathPattern>();
 
+  // Per source, the same loads are also recorded in the process wide Metrics.
   Map<String, Integer> disk_map = new HashMap<>();
-  private AtomicInteger disk_counter = new AtomicInteger();
-  private AtomicLong disk_sz = new AtomicLong();
-  private AtomicLong disk_spent = new AtomicLong();
+  private final Timer disk_loads = new Timer();
+  private final Counter disk_sz = new Counter();
 
   Map<String, Integer> download_map = new HashMap<>();
-  private AtomicInteger download_counter = new AtomicInteger();
-  private AtomicLong download_sz = new AtomicLong();
-  private AtomicLong download_spent = new AtomicLong();
+  private final Timer downloads = new Timer();
+  private final Counter download_sz = new Counter();
 
-  private AtomicInteger mem_counter = new AtomicInteger();
+  private final Counter mem_hits = new Counter();
 
   int getRemoteFetchCount() {
-    return download_counter.get();
+    return (int) downloads.getCount();
   }
 
   int getDiskFetchCount() {
-    return disk_counter.get();
+    return (int) disk_loads.getCount();
   }
 
   int getMemFetchCount() {
-    return mem_counter.get();
+    return (int) mem_hits.get();
   }
 
   /*
@@ -190,10 +190,10 @@ public class ENAReferenceSource implements CRAMReferenceSource {
     if (r != null) {
       byte[] bytes = r.get();
       if (bytes != null) {
+        mem_hits.increment();
+        Metrics.REFERENCE_MEMORY_HITS.increment();
         log.debug(
-            String.format(
-                "% 6d Reference found in memory cache by md5: %s",
-                mem_counter.incrementAndGet(), md5));
+            String.format("% 6d Reference found in memory cache by md5: %s", mem_hits.get(), md5));
         return bytes;
       }
     }
@@ -205,20 +205,24 @@ public class ENAReferenceSource implements CRAMReferenceSource {
   }
 
   private byte[] findInFileCache(String md5) throws IOException {
-    long start = System.currentTimeMillis();
+    long start = disk_loads.start();
     for (PathPattern pathPattern : cachePatterns) {
       File file = new File(pathPattern.format(md5));
       if (file.exists()) {
         byte[] data = loadFromPathWithFileCleanupRetry(file, md5);
+        long spent = disk_loads.stop(start);
+        Metrics.REFERENCE_DISK_LOADS.record(spent);
+        disk_sz.add(data.length);
+        Metrics.REFERENCE_BYTES.add(data.length);
         log.debug(
             String.format(
                 ".% 5d Reference found on disk cache at the location %s sz:%d, total: %d, spent: %d, total spent: %d, attempt %d",
-                disk_counter.incrementAndGet(),
+                disk_loads.getCount(),
                 file.getPath(),
                 data.length,
-                disk_sz.addAndGet(data.length),
-                System.currentTimeMillis() - start,
-                disk_spent.addAndGet(System.currentTimeMillis() - start),
+                disk_sz.get(),
+                spent / 1_000_000,
+                disk_loads.getTotalNanos() / 1_000_000,
                 disk_map.merge(md5, (Integer) 1, (v1, v2) -> v1 + v2)));
         return data;
       }
@@ -495,21 +499,25 @@ public class ENAReferenceSource implements CRAMReferenceSource {
   }
 
   private byte[] findBasesRemotelyByMD5(String md5) throws MalformedURLException, IOException {
-    long start = System.currentTimeMillis();
+    long start = downloads.start();
     for (PathPattern p : refPatterns) {
       String path = p.format(md5);
       byte[] data = loadFromPath(path, md5);
       if (data == null) continue;
 
+      long spent = downloads.stop(start);
+      Metrics.REFERENCE_DOWNLOADS.record(spent);
+      download_sz.add(data.length);
+      Metrics.REFERENCE_BYTES.add(data.length);
       log.debug(
           String.format(
               "*% 5d Reference found at the location %s sz:%d, total: %d, spent: %d, total spent: %d, attempt %d",
-              download_counter.incrementAndGet(),
+              downloads.getCount(),
               path,
               data.length,
-              download_sz.addAndGet(data.length),
-              System.currentTimeMillis() - start,
-              download_spent.addAndGet(System.currentTimeMillis() - start),
+              download_sz.get(),
+              spent / 1_000_000,
+              downloads.getTotalNanos() / 1_000_000,
               download_map.merge(md5, (Integer) 1, (v1, v2) -> v1 + v2)));
       return data;
     }
@@ -15,20 +15,28 @@ import htsjdk.samtools.fastq.AsyncFastqWriter;
 import htsjdk.samtools.fastq.BasicFastqWriter;
 import htsjdk.samtools.fastq.FastqReader;
 import htsjdk.samtools.fastq.FastqRecord;
+import htsjdk.samtools.fastq.FastqWriter;
 import htsjdk.samtools.util.FastqQualityFormat;
+import htsjdk.samtools.util.IOUtil;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.common.reads.ReadName;
 import uk.ac.ebi.ena.readtools.loader.common.Pair;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterMemoryLimitException;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedFastqWriter;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
+import uk.ac.ebi.ena.readtools.utils.ChecksumOutputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
 
 /**
  * FastqNormalizer provides direct FASTQ-to-FASTQ conversion with quality score normalization,
@@ -48,11 +56,18 @@ public class FastqNormalizer {
     private final long pairCount;
     private final long orphanCount;
     private final long baseCount;
+    private final Map<String, Checksums> checksums;
 
     public PairedNormalizationResult(long pairCount, long orphanCount, long baseCount) {
+      this(pairCount, orphanCount, baseCount, Collections.emptyMap());
+    }
+
+    public PairedNormalizationResult(
+        long pairCount, long orphanCount, long baseCount, Map<String, Checksums> checksums) {
       this.pairCount = pairCount;
       this.orphanCount = orphanCount;
       this.baseCount = baseCount;
+      this.checksums = checksums;
     }
 
     /** Number of complete pairs written. */
@@ -74,16 +89,28 @@ public class FastqNormalizer {
     public long getBaseCount() {
       return baseCount;
     }
+
+    /** Checksums of the input and output files by path, empty unless requested. */
+    public Map<String, Checksums> getChecksums() {
+      return checksums;
+    }
   }
 
   /** Result of a single-end normalization, providing detailed counts. */
   public static class SingleNormalizationResult {
     private final long readCount;
     private final long baseCount;
+    private final Map<String, Checksums> checksums;
 
     public SingleNormalizationResult(long readCount, long baseCount) {
+      this(readCount, baseCount, Collections.emptyMap());
+    }
+
+    public SingleNormalizationResult(
+        long readCount, long baseCount, Map<String, Checksums> checksums) {
       this.readCount = readCount;
       this.baseCount = baseCount;
+      this.checksums = checksums;
     }
 
     /** Number of reads written. */
@@ -95,6 +122,11 @@ public class FastqNormalizer {
     public long getBaseCount() {
       return baseCount;
     }
+
+    /** Checksums of the input and output files by path, empty unless requested. */
+    public Map<String, Checksums> getChecksums() {
+      return checksums;
+    }
   }
 
   /**
@@ -128,6 +160,32 @@ public class FastqNormalizer {
   public static SingleNormalizationResult normalizeSingleEndWithStats(
       String inputFastq, String outputFastq, String prefix, boolean convertUracil)
       throws IOException {
+    return normalizeSingleEndWithStats(
+        inputFastq, outputFastq, prefix, convertUracil, new ChecksumMethod[0]);
+  }
+
+  /**
+   * Normalizes a single-end FASTQ file, returning detailed statistics and checksums of the input
+   * and output files computed while they are read and written.
+   *
+   * @param inputFastq Path to input FASTQ file (gz/bz2/plain auto-detected)
+   * @param outputFastq Path to output FASTQ file (extension determines compression)
+   * @param prefix Optional run ID prefix for read names (nullable)
+   * @param convertUracil If true, converts U bases to T
+   * @param checksumMethods Checksums to compute, none to skip them
+   * @return Result containing read count, base count and checksums
+   * @throws IOException If file I/O fails
+   */
+  public static SingleNormalizationResult normalizeSingleEndWithStats(
+      String inputFastq,
+      String outputFastq,
+      String prefix,
+      boolean convertUracil,
+      ChecksumMethod... checksumMethods)
+      throws IOException {
+    Map<String, Checksums> checksums = new LinkedHashMap<>();
+    Checksums inputChecksums = newChecksums(checksums, inputFastq, checksumMethods);
+    Checksums outputChecksums = newChecksums(checksums, outputFastq, checksumMethods);
 
     // Detect quality format
     FastqQualityFormat format = Utils.detectFastqQualityFormat(inputFastq, null);
@@ -139,12 +197,12 @@ public class FastqNormalizer {
             null,
             new BufferedReader(
                 new InputStreamReader(
-                    Utils.openFastqInputStream(new File(inputFastq).toPath()),
+                    Utils.openFastqInputStream(new File(inputFastq).toPath(), inputChecksums),
                     StandardCharsets.UTF_8)));
 
     AsyncFastqWriter writer =
         new AsyncFastqWriter(
-            new BasicFastqWriter(new File(outputFastq)), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
+            openFastqWriter(outputFastq, outputChecksums), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
 
     long counter = 0;
     long baseCount = 0;
@@ -159,6 +217,8 @@ public class FastqNormalizer {
           bases = Utils.replaceUracilBases(bases);
         }
         baseCount += bases.length();
+        Metrics.READS_IN.increment();
+        Metrics.BASES_IN.add(bases.length());
 
         // Normalize quality scores
         byte[] qualityBytes = record.getBaseQualityString().getBytes(StandardCharsets.UTF_8);
@@ -182,7 +242,7 @@ public class FastqNormalizer {
       writer.close();
     }
 
-    return new SingleNormalizationResult(counter, baseCount);
+    return new SingleNormalizationResult(counter, baseCount, checksums);
   }
 
   /**
@@ -334,6 +394,54 @@ public class FastqNormalizer {
       long spillPageSizeBytes,
       long spillAbandonLimitBytes)
       throws IOException {
+    return normalizePairedEnd(
+        inputFastq1,
+        inputFastq2,
+        outputFastq1,
+        outputFastq2,
+        outputFastqOrphans,
+        prefix,
+        convertUracil,
+        tempDir,
+        spillPageSize,
+        spillPageSizeBytes,
+        spillAbandonLimitBytes,
+        new ChecksumMethod[0]);
+  }
+
+  /**
+   * Normalizes paired-end FASTQ files with full pairing/sorting/spilling support, computing
+   * checksums of the input and output files while they are read and written.
+   *
+   * @param inputFastq1 Path to first mate FASTQ file
+   * @param inputFastq2 Path to second mate FASTQ file
+   * @param outputFastq1 Path to output first mate FASTQ file
+   * @param outputFastq2 Path to output second mate FASTQ file
+   * @param outputFastqOrphans Path to output orphan FASTQ file
+   * @param prefix Optional run ID prefix (nullable)
+   * @param convertUracil If true, converts U bases to T
+   * @param tempDir Directory for temporary spill files
+   * @param spillPageSize Maximum number of reads to keep in memory before spilling
+   * @param spillPageSizeBytes Maximum memory usage in bytes before spilling
+   * @param spillAbandonLimitBytes Maximum total spilled bytes before aborting
+   * @param checksumMethods Checksums to compute, none to skip them
+   * @return Result containing pair count, orphan count, total read count and checksums
+   * @throws IOException If file I/O fails
+   */
+  public static PairedNormalizationResult normalizePairedEnd(
+      String inputFastq1,
+      String inputFastq2,
+      String outputFastq1,
+      String outputFastq2,
+      String outputFastqOrphans,
+      String prefix,
+      boolean convertUracil,
+      File tempDir,
+      int spillPageSize,
+      long spillPageSizeBytes,
+      long spillAbandonLimitBytes,
+      ChecksumMethod... checksumMethods)
+      throws IOException {
 
     PairedNormalizer normalizer =
         new PairedNormalizer(
@@ -347,11 +455,48 @@ public class FastqNormalizer {
             tempDir,
             spillPageSize,
             spillPageSizeBytes,
-            spillAbandonLimitBytes);
+            spillAbandonLimitBytes,
+            checksumMethods);
 
     return normalizer.normalize();
   }
 
+  /**
+   * @return Checksums of the file, added to the map, or null if no checksums are computed.
+   */
+  private static Checksums newChecksums(
+      Map<String, Checksums> checksums, String path, ChecksumMethod[] checksumMethods) {
+    if (checksumMethods.length == 0) {
+      return null;
+    }
+    return checksums.computeIfAbsent(path, p -> new Checksums(checksumMethods));
+  }
+
+  /**
+   * Opens a FASTQ writer like {@link BasicFastqWriter#BasicFastqWriter(File)}, gzip compressed if
+   * the file name ends with .gz, computing checksums of the written file bytes.
+   *
+   * @param checksums Checksums to update, or null.
+   */
+  private static FastqWriter openFastqWriter(String path, Checksums checksums) throws IOException {
+    if (checksums == null) {
+      return new BasicFastqWriter(new File(path));
+    }
+
+    OutputStream out =
+        new ChecksumOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path), OUTPUT_BUFFER_SIZE), checksums);
+    if (IOUtil.hasGzipFileExtension(Paths.get(path))) {
+      out =
+          new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE) {
+            {
+              def.setLevel(IOUtil.getCompressionLevel());
+            }
+          };
+    }
+    return new BasicFastqWriter(new PrintStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE)));
+  }
+
   static File resolveTempDir(
       String outputFastq1, String outputFastq2, String outputFastqOrphans, File fallbackTempDir) {
     File outputDir = resolveParentDir(outputFastq1);
@@ -417,6 +562,12 @@ public class FastqNormalizer {
     private final int spillPageSize;
     private final long spillPageSizeBytes;
     private final long spillAbandonLimitBytes;
+    private final Map<String, Checksums> checksums = new LinkedHashMap<>();
+    private final Checksums inputChecksums1;
+    private final Checksums inputChecksums2;
+    private final Checksums outputChecksums1;
+    private final Checksums outputChecksums2;
+    private final Checksums outputChecksumsOrphans;
 
     private QualityNormalizer qualityNormalizer;
     private Map<String, List<NormalizedRead>> pairMap;
@@ -438,6 +589,34 @@ public class FastqNormalizer {
         int spillPageSize,
         long spillPageSizeBytes,
         long spillAbandonLimitBytes) {
+      this(
+          inputFastq1,
+          inputFastq2,
+          outputFastq1,
+          outputFastq2,
+          outputFastqOrphans,
+          prefix,
+          convertUracil,
+          tempDir,
+          spillPageSize,
+          spillPageSizeBytes,
+          spillAbandonLimitBytes,
+          new ChecksumMethod[0]);
+    }
+
+    public PairedNormalizer(
+        String inputFastq1,
+        String inputFastq2,
+        String outputFastq1,
+        String outputFastq2,
+        String outputFastqOrphans,
+        String prefix,
+        boolean convertUracil,
+        File tempDir,
+        int spillPageSize,
+        long spillPageSizeBytes,
+        long spillAbandonLimitBytes,
+        ChecksumMethod[] checksumMethods) {
       this.inputFastq1 = inputFastq1;
       this.inputFastq2 = inputFastq2;
       this.outputFastq1 = outputFastq1;
@@ -455,6 +634,11 @@ public class FastqNormalizer {
       this.spillFiles = new ArrayList<>();
       this.index1 = null;
       this.index2 = null;
+      this.inputChecksums1 = newChecksums(checksums, inputFastq1, checksumMethods);
+      this.inputChecksums2 = newChecksums(checksums, inputFastq2, checksumMethods);
+      this.outputChecksums1 = newChecksums(checksums, outputFastq1, checksumMethods);
+      this.outputChecksums2 = newChecksums(checksums, outputFastq2, checksumMethods);
+      this.outputChecksumsOrphans = newChecksums(checksums, outputFastqOrphans, checksumMethods);
     }
 
     public PairedNormalizationResult normalize() throws IOException {
@@ -468,13 +652,13 @@ public class FastqNormalizer {
       // Open output writers shared across in-memory write and spill processing
       AsyncFastqWriter writer1 =
           new AsyncFastqWriter(
-              new BasicFastqWriter(new File(outputFastq1)), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
+              openFastqWriter(outputFastq1, outputChecksums1), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
       AsyncFastqWriter writer2 =
           new AsyncFastqWriter(
-              new BasicFastqWriter(new File(outputFastq2)), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
+              openFastqWriter(outputFastq2, outputChecksums2), AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
       AsyncFastqWriter writerOrphans =
           new AsyncFastqWriter(
-              new BasicFastqWriter(new File(outputFastqOrphans)),
+              openFastqWriter(outputFastqOrphans, outputChecksumsOrphans),
               AsyncFastqWriter.DEFAULT_QUEUE_SIZE);
 
       long counter = 0;
@@ -511,7 +695,7 @@ public class FastqNormalizer {
         }
       }
 
-      return new PairedNormalizationResult(pairCount, orphanCount, baseCount);
+      return new PairedNormalizationResult(pairCount, orphanCount, baseCount, checksums);
     }
 
     private void processInputFiles() throws IOException {
@@ -520,7 +704,7 @@ public class FastqNormalizer {
               null,
               new BufferedReader(
                   new InputStreamReader(
-                      Utils.openFastqInputStream(new File(inputFastq1).toPath()),
+                      Utils.openFastqInputStream(new File(inputFastq1).toPath(), inputChecksums1),
                       StandardCharsets.UTF_8)));
 
       FastqReader reader2 =
@@ -528,7 +712,7 @@ public class FastqNormalizer {
               null,
               new BufferedReader(
                   new InputStreamReader(
-                      Utils.openFastqInputStream(new File(inputFastq2).toPath()),
+                      Utils.openFastqInputStream(new File(inputFastq2).toPath(), inputChecksums2),
                       StandardCharsets.UTF_8)));
 
       try {
@@ -566,9 +750,9 @@ public class FastqNormalizer {
         String normalizedQuality = SAMUtils.phredToFastq(qualityBytes);
 
         // Extract read key and pair number
-        String readKey = PairedFastqWriter.getReadKey(record.getReadName());
-        String pairNumberStr = PairedFastqWriter.getPairNumber(record.getReadName());
-        int pairNumber = Integer.parseInt(pairNumberStr);
+        ReadName readName = PairedFastqWriter.parseReadName(record.getReadName());
+        String readKey = readName.getKey();
+        int pairNumber = readName.getPairIndex();
 
         // Track pair indices
         if (index1 == null) {
@@ -607,6 +791,8 @@ public class FastqNormalizer {
           throw new IOException("Got same spot twice: " + record.getReadName());
         }
         readList.set(mappedIndex, normRead);
+        Metrics.READS_IN.increment();
+        Metrics.BASES_IN.add(normRead.bases.length());
 
         // Update memory tracking
         totalBytesInMemory +=
@@ -631,6 +817,7 @@ public class FastqNormalizer {
             "Temp memory limit " + spillAbandonLimitBytes + " bytes reached");
       }
 
+      long started = Metrics.SPILL.start();
       File spillFile = createTempFile();
       spillFiles.add(spillFile);
 
@@ -643,6 +830,8 @@ public class FastqNormalizer {
       } finally {
         oos.close();
       }
+      Metrics.SPILL_BYTES.add(spillFile.length());
+      Metrics.SPILL.stop(started);
 
       totalSpilledBytes += totalBytesInMemory;
       pairMap.clear();
@@ -671,11 +860,13 @@ public class FastqNormalizer {
           writePair(writer1, writer2, reads, counter);
           baseCount += reads.get(0).bases.length() + reads.get(1).bases.length();
           pairCount++;
+          Metrics.PAIRS_ASSEMBLED.increment();
         } else {
           NormalizedRead orphan = reads.get(0) != null ? reads.get(0) : reads.get(1);
           writeOrphan(writerOrphans, orphan, counter);
           baseCount += orphan.bases.length();
           orphanCount++;
+          Metrics.ORPHANS.increment();
         }
       }
 
@@ -709,6 +900,7 @@ public class FastqNormalizer {
 
       int i = 0;
       do {
+        Metrics.CASCADE_GENERATIONS.increment();
         // If pairMap is empty, load the first unprocessed spill file as base
         if (pairMap.isEmpty()) {
           loadSpillFile(spillFiles.get(i++));
@@ -721,6 +913,7 @@ public class FastqNormalizer {
         for (int j = i; j < generation; j++) {
           ObjectInputStream ois = null;
           ObjectOutputStream oos = null;
+          long started = Metrics.FILL.start();
 
           try {
             ois = openInputStream(spillFiles.get(j));
@@ -761,7 +954,9 @@ public class FastqNormalizer {
 
           if (oos != null) {
             oos.close();
+            Metrics.SPILL_BYTES.add(spillFiles.get(spillFiles.size() - 1).length());
           }
+          Metrics.FILL.stop(started);
         }
 
         // Write completed pairs and remaining orphans from this generation
@@ -784,6 +979,7 @@ public class FastqNormalizer {
       pairMap.clear();
       totalBytesInMemory = 0;
 
+      long started = Metrics.FILL.start();
       try (ObjectInputStream ois = openInputStream(file)) {
         for (; ; ) {
           Pair<String, List<NormalizedRead>> entry =
@@ -798,6 +994,7 @@ public class FastqNormalizer {
         }
       } catch (EOFException eof) {
         // Normal end of file
+        Metrics.FILL.stop(started);
       } catch (ClassNotFoundException e) {
         throw new IOException("Failed to deserialize spill file", e);
       }
@@ -884,6 +1081,7 @@ public class FastqNormalizer {
       String suffix = String.format("_PAGE_%d", spillFiles.size());
       File tmpFile = File.createTempFile(prefix, suffix, tempDir);
       tmpFile.deleteOnExit();
+      Metrics.SPILL_PAGES.increment();
       return tmpFile;
     }
 
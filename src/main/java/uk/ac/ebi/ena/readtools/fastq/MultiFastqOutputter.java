@@ -23,12 +23,18 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 
 /**
  * Note<br>
  * Makes use of a collection based caching implementation that may produce results in which a paired
  * read is incorrectly written to the unpaired file if the two mates are located far away from each
  * other in the collection.
+ *
+ * <p>When mates are known to follow each other, as in queryname sorted or collated input, {@link
+ * #setAdjacentMates(boolean)} pairs them as they come without the cache. A mate that is not
+ * followed by its pair goes to the overflow BAM, where the cache would have left it at the end, and
+ * is paired there if its pair turns up after all.
  */
 public class MultiFastqOutputter {
   private static final Log log = Log.getInstance(MultiFastqOutputter.class);
@@ -48,6 +54,9 @@ public class MultiFastqOutputter {
   private byte[] prefix;
   private long counter = 1;
   private SAMFileHeader header;
+  private boolean adjacentMates;
+  // Paired read waiting for its mate while mates are adjacent.
+  private FastqRead pending;
 
   List<FastqRead> list = new ArrayList<FastqRead>();
 
@@ -70,6 +79,23 @@ public class MultiFastqOutputter {
     return counter;
   }
 
+  /**
+   * @return True if the header declares queryname sorted or query grouped records, in which mates
+   *     follow each other.
+   */
+  public static boolean hasAdjacentMates(SAMFileHeader header) {
+    return SAMFileHeader.SortOrder.queryname == header.getSortOrder()
+        || SAMFileHeader.GroupOrder.query == header.getGroupOrder();
+  }
+
+  public boolean isAdjacentMates() {
+    return adjacentMates;
+  }
+
+  public void setAdjacentMates(boolean adjacentMates) {
+    this.adjacentMates = adjacentMates;
+  }
+
   protected void write(FastqRead read, OutputStream stream) throws IOException {
     if (prefix == null) {
       stream.write(read.data);
@@ -85,10 +111,12 @@ public class MultiFastqOutputter {
 
   protected void foundCollision(FastqRead read) {
     FastqRead anchor = readSet.remove(read);
+    Metrics.CACHE_HITS.increment();
     try {
       write(anchor, streams[anchor.templateIndex]);
       write(read, streams[read.templateIndex]);
       counter++;
+      Metrics.PAIRS_ASSEMBLED.increment();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -109,7 +137,7 @@ public class MultiFastqOutputter {
   }
 
   protected void purgeCache() {
-    long time1 = System.nanoTime();
+    long started = Metrics.CACHE_PURGE.start();
     list.clear();
     for (FastqRead read : readSet.keySet()) list.add(read);
 
@@ -119,9 +147,10 @@ public class MultiFastqOutputter {
       kickedFromCache(list.get(i));
     }
 
+    Metrics.CACHE_EVICTIONS.add(list.size() / 2);
     list.clear();
-    long time2 = System.nanoTime();
-    log.debug(String.format("Cache purged in %.2fms.\n", (time2 - time1) / 1000000f));
+    long nanos = Metrics.CACHE_PURGE.stop(started);
+    log.debug(String.format("Cache purged in %.2fms.", nanos / 1000000f));
   }
 
   public void writeRead(byte[] name, int flags, byte[] bases, byte[] scores) {
@@ -138,6 +167,29 @@ public class MultiFastqOutputter {
       return;
     }
 
+    if (adjacentMates) {
+      if (pending == null) {
+        pending = read;
+        return;
+      }
+      if (pending.compareTo(read) == 0) {
+        try {
+          write(pending, streams[pending.templateIndex]);
+          write(read, streams[read.templateIndex]);
+          counter++;
+          Metrics.PAIRS_ASSEMBLED.increment();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        pending = null;
+        return;
+      }
+
+      kickedFromCache(pending);
+      pending = read;
+      return;
+    }
+
     if (readSet.containsKey(read)) {
       foundCollision(read);
     } else {
@@ -148,8 +200,13 @@ public class MultiFastqOutputter {
   }
 
   public void finish() {
+    if (pending != null) {
+      kickedFromCache(pending);
+      pending = null;
+    }
     for (FastqRead read : readSet.keySet()) kickedFromCache(read);
 
+    Metrics.CACHE_FLUSHED.add(readSet.size());
     readSet.clear();
     if (writer != null) writer.close();
     writer = null;
@@ -10,41 +10,101 @@
  */
 package uk.ac.ebi.ena.readtools.fastq.ena;
 
+import htsjdk.samtools.CRAMFileWriter;
 import htsjdk.samtools.ReservedTagConstants;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileWriter;
 import htsjdk.samtools.SAMFileWriterFactory;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.cram.structure.CRAMEncodingStrategy;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.FileExtensions;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
+import java.util.ArrayList;
+import java.util.List;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.common.reads.ReadName;
+import uk.ac.ebi.ena.readtools.common.reads.ReadNameTokenizer;
+import uk.ac.ebi.ena.readtools.common.reads.ReadValidationKernel;
 import uk.ac.ebi.ena.readtools.loader.common.InvalidBaseCharacterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedRead;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.utils.ChecksumOutputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
 
-/** Accepts Fastq spot data and writes them out to a BAM file. */
+/**
+ * Accepts Fastq spot data and writes them out to a SAM, BAM or unaligned CRAM file.
+ *
+ * <p>Paired output is either sorted by read name with a {@link PairedReadSorter} or collated, that
+ * is written in the order the pairs were assembled in with mates next to each other.
+ */
 public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
   private static final String DEFAULT_READ_GROUP_NAME = "A";
   private static final String VALID_DNA_CHARSET = ".acmgrsvtwyhkdbnACMGRSVTWYHKDBN";
 
+  /** Order of the records of paired output. */
+  public enum PairOrder {
+    /** Sorted by read name, SO:queryname. */
+    QUERYNAME,
+    /** Mates next to each other, pairs in the order they were assembled in, GO:query. */
+    COLLATED
+  }
+
+  /** Output settings, public fields with defaults like {@link Fastq2Sam.Params}. */
+  public static class Options {
+    /** Order of paired output. Ignored for single reads, which are written unsorted. */
+    public PairOrder pairOrder = PairOrder.QUERYNAME;
+
+    /** Memory used to sort paired output by read name. */
+    public long sortBufferBytes = PairedReadSorter.DEFAULT_BUFFER_BYTES;
+
+    /** Number of threads sorting paired output by read name. */
+    public int sortThreads = PairedReadSorter.DEFAULT_THREADS;
+
+    /** Deflate level of BAM output, 0 to 9. */
+    public int compressionLevel = BlockCompressedOutputStream.getDefaultCompressionLevel();
+
+    /**
+     * Number of threads compressing BAM output with a {@link ParallelBamWriter} or encoding CRAM
+     * containers with a {@link ParallelCramWriter}. 0 to use the single threaded htsjdk writers.
+     */
+    public int compressionThreads = 0;
+
+    /** Records per CRAM slice. */
+    public int cramReadsPerSlice = CRAMEncodingStrategy.DEFAULT_READS_PER_SLICE;
+
+    /** Slices per CRAM container. */
+    public int cramSlicesPerContainer = 1;
+
+    /** Checksums of the output file computed while it is written, none by default. */
+    public List<ChecksumMethod> checksumMethods = new ArrayList<>();
+  }
+
   private final QualityNormalizer qualityNormalizer;
   private final String sampleName;
   private final boolean convertUracil;
   private final boolean paired;
+  private final PairOrder pairOrder;
 
-  private final Pattern validDnaCharsetPattern;
+  private final ReadValidationKernel validDnaCharset;
+  private final Checksums checksums;
   private final SAMFileWriter writer;
+  private final PairedReadSorter sorter;
+
+  /** Spots sharing a read name, collected while writing sorted output. */
+  private final List<PairedRead> nameGroup = new ArrayList<>();
 
   public Fastq2BamWriter(
       QualityNormalizer qualityNormalizer,
@@ -53,24 +113,129 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
       String tempDir,
       boolean convertUracil,
       boolean paired) {
+    this(
+        qualityNormalizer,
+        sampleName,
+        outputFilePath,
+        tempDir,
+        convertUracil,
+        paired,
+        new Options());
+  }
+
+  public Fastq2BamWriter(
+      QualityNormalizer qualityNormalizer,
+      String sampleName,
+      String outputFilePath,
+      String tempDir,
+      boolean convertUracil,
+      boolean paired,
+      Options options) {
     this.qualityNormalizer = qualityNormalizer;
     this.sampleName = sampleName;
     this.convertUracil = convertUracil;
     this.paired = paired;
+    this.pairOrder = options.pairOrder;
 
     if (sampleName == null || sampleName.trim().isEmpty()) {
       throw new IllegalArgumentException("Sample name is either null or empty.");
     }
 
-    validDnaCharsetPattern =
+    validDnaCharset =
         convertUracil
-            ? Pattern.compile("^[" + VALID_DNA_CHARSET + "uU]+$")
-            : Pattern.compile("^[" + VALID_DNA_CHARSET + "]+$");
+            ? new ReadValidationKernel(VALID_DNA_CHARSET + "uU")
+            : new ReadValidationKernel(VALID_DNA_CHARSET);
+
+    checksums = options.checksumMethods.isEmpty() ? null : new Checksums(options.checksumMethods);
+    writer = createWriter(outputFilePath, tempDir, options);
+
+    if (paired && PairOrder.QUERYNAME == pairOrder) {
+      try {
+        sorter =
+            new PairedReadSorter(Paths.get(tempDir), options.sortBufferBytes, options.sortThreads);
+      } catch (IOException ex) {
+        writer.close();
+        throw new ReadWriterException(ex, ReadWriterException.ErrorType.SORTING_ERROR);
+      }
+    } else {
+      sorter = null;
+    }
+  }
+
+  /**
+   * Records are either sorted here or need no sorting, so they are passed on as presorted and
+   * htsjdk does not sort them again. The output format follows the file extension, CRAM output is
+   * unaligned and written without a reference.
+   */
+  private SAMFileWriter createWriter(String outputFilePath, String tempDir, Options options) {
+    SAMFileHeader header = createHeader();
+    Path path = Paths.get(outputFilePath);
 
-    writer =
+    if (outputFilePath.endsWith(FileExtensions.CRAM)) {
+      // htsjdk wants slices at least as large as its multi-reference threshold, which does not
+      // apply to unmapped records.
+      CRAMEncodingStrategy strategy =
+          new CRAMEncodingStrategy()
+              .setMinimumSingleReferenceSliceSize(
+                  Math.min(
+                      options.cramReadsPerSlice,
+                      CRAMEncodingStrategy.DEFAULT_MINIMUM_SINGLE_REFERENCE_SLICE_THRESHOLD))
+              .setReadsPerSlice(options.cramReadsPerSlice)
+              .setSlicesPerContainer(options.cramSlicesPerContainer)
+              .setGZIPCompressionLevel(options.compressionLevel);
+
+      if (options.compressionThreads > 0) {
+        return new ParallelCramWriter(
+            header,
+            openOutputStream(path),
+            path.getFileName().toString(),
+            strategy,
+            options.compressionThreads);
+      }
+      return new CRAMFileWriter(
+          strategy,
+          new BufferedOutputStream(openOutputStream(path), 1 << 20),
+          null,
+          true,
+          ParallelCramWriter.NO_REFERENCE,
+          header,
+          outputFilePath);
+    }
+
+    boolean sam = outputFilePath.endsWith(FileExtensions.SAM);
+    if (options.compressionThreads > 0 && !sam) {
+      return new ParallelBamWriter(
+          header,
+          openOutputStream(path),
+          path.toString(),
+          options.compressionLevel,
+          options.compressionThreads);
+    }
+
+    SAMFileWriterFactory factory =
         new SAMFileWriterFactory()
             .setTempDirectory(new File(tempDir))
-            .makeSAMOrBAMWriter(createHeader(), false, Paths.get(outputFilePath));
+            .setCompressionLevel(options.compressionLevel);
+    if (checksums == null) {
+      return factory.makeSAMOrBAMWriter(header, true, path);
+    }
+    return sam
+        ? factory.makeSAMWriter(header, true, openOutputStream(path))
+        : factory.makeBAMWriter(header, true, openOutputStream(path));
+  }
+
+  /** Opens the output file, computing its checksums if any were asked for. */
+  private OutputStream openOutputStream(Path path) {
+    OutputStream out = ParallelBamWriter.open(path);
+    return checksums == null ? out : new ChecksumOutputStream(out, checksums);
+  }
+
+  /**
+   * @return Checksums of the output file, complete after {@link #unwind()}, or null if none were
+   *     asked for.
+   */
+  public Checksums getChecksums() {
+    return checksums;
   }
 
   @Override
@@ -78,41 +243,13 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
     try {
       validate(spot);
 
-      if (spot.isPaired()) {
-        SAMRecord rec1 =
-            createSamRecord(
-                true,
-                spot.name,
-                spot.forward.getName(),
-                spot.forward.getBases(),
-                spot.forward.getQualityScores());
-        rec1.setFirstOfPairFlag(true);
-        rec1.setSecondOfPairFlag(false);
-        writer.addAlignment(rec1);
-
-        SAMRecord rec2 =
-            createSamRecord(
-                true,
-                spot.name,
-                spot.reverse.getName(),
-                spot.reverse.getBases(),
-                spot.reverse.getQualityScores());
-        rec2.setFirstOfPairFlag(false);
-        rec2.setSecondOfPairFlag(true);
-        writer.addAlignment(rec2);
-
+      if (sorter != null) {
+        sorter.add(spot);
       } else {
-        Read unpaired = spot.getUnpaired();
-        SAMRecord rec =
-            createSamRecord(
-                false,
-                spot.name,
-                unpaired.getName(),
-                unpaired.getBases(),
-                unpaired.getQualityScores());
-        rec.setReadPairedFlag(false);
-        writer.addAlignment(rec);
+        addAlignments(spot);
       }
+    } catch (IOException ex) {
+      throw new ReadWriterException(ex, ReadWriterException.ErrorType.SORTING_ERROR);
     } catch (Exception ex) {
       throw new ReadWriterException(ex, ReadWriterException.ErrorType.SAM_RECORD_ERROR);
     }
@@ -125,7 +262,100 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
   public void setWriter(ReadWriter<Spot, ? extends Spot> readWriter) {}
 
   public void unwind() {
-    writer.close();
+    try (PairedReadSorter sorter = this.sorter) {
+      if (sorter != null) {
+        sorter.writeSorted(this::writeSorted);
+        flushNameGroup();
+      }
+    } catch (IOException ex) {
+      throw new ReadWriterException(ex, ReadWriterException.ErrorType.SORTING_ERROR);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private void writeSorted(PairedRead spot) {
+    if (!nameGroup.isEmpty() && !nameGroup.get(0).name.equals(spot.name)) {
+      flushNameGroup();
+    }
+    nameGroup.add(spot);
+  }
+
+  /**
+   * htsjdk orders records with equal names by putting first mates before second mates and paired
+   * records before unpaired ones. Spots rarely share a name, but when they do their records are
+   * written in that order rather than pair by pair.
+   */
+  private void flushNameGroup() {
+    try {
+      if (1 == nameGroup.size()) {
+        addAlignments(nameGroup.get(0));
+      } else {
+        for (PairedRead spot : nameGroup) {
+          if (spot.isPaired()) {
+            writer.addAlignment(createFirstOfPair(spot));
+          }
+        }
+        for (PairedRead spot : nameGroup) {
+          if (spot.isPaired()) {
+            writer.addAlignment(createSecondOfPair(spot));
+          }
+        }
+        for (PairedRead spot : nameGroup) {
+          if (!spot.isPaired()) {
+            writer.addAlignment(createUnpaired(spot));
+          }
+        }
+      }
+    } catch (Exception ex) {
+      throw new ReadWriterException(ex, ReadWriterException.ErrorType.SAM_RECORD_ERROR);
+    } finally {
+      nameGroup.clear();
+    }
+  }
+
+  private void addAlignments(PairedRead spot) {
+    if (spot.isPaired()) {
+      writer.addAlignment(createFirstOfPair(spot));
+      writer.addAlignment(createSecondOfPair(spot));
+    } else {
+      writer.addAlignment(createUnpaired(spot));
+    }
+  }
+
+  private SAMRecord createFirstOfPair(PairedRead spot) {
+    SAMRecord rec =
+        createSamRecord(
+            true,
+            spot.name,
+            spot.forward.getName(),
+            spot.forward.getBases(),
+            spot.forward.getQualityScores());
+    rec.setFirstOfPairFlag(true);
+    rec.setSecondOfPairFlag(false);
+    return rec;
+  }
+
+  private SAMRecord createSecondOfPair(PairedRead spot) {
+    SAMRecord rec =
+        createSamRecord(
+            true,
+            spot.name,
+            spot.reverse.getName(),
+            spot.reverse.getBases(),
+            spot.reverse.getQualityScores());
+    rec.setFirstOfPairFlag(false);
+    rec.setSecondOfPairFlag(true);
+    return rec;
+  }
+
+  private SAMRecord createUnpaired(PairedRead spot) {
+    Read unpaired = spot.getUnpaired();
+    SAMRecord rec =
+        createSamRecord(
+            false, spot.name, unpaired.getName(), unpaired.getBases(), unpaired.getQualityScores());
+    rec.setReadPairedFlag(false);
+    return rec;
   }
 
   private SAMFileHeader createHeader() {
@@ -134,8 +364,11 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
 
     final SAMFileHeader header = new SAMFileHeader();
     header.addReadGroup(rgroup);
-    if (paired) {
+    if (paired && PairOrder.QUERYNAME == pairOrder) {
       header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+    } else if (paired) {
+      header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+      header.setGroupOrder(SAMFileHeader.GroupOrder.query);
     } else {
       header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
     }
@@ -145,10 +378,7 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
 
   private void validate(PairedRead pairedRead) {
     if (pairedRead.forward != null) {
-      Matcher matcher = validDnaCharsetPattern.matcher(pairedRead.forward.getBases());
-      if (!matcher.matches()) {
-        handleInvalidDnaCharset(pairedRead.forward.getBases(), matcher);
-      }
+      validateBases(pairedRead.forward.getBases());
 
       if (pairedRead.forward.getBases().length() != pairedRead.forward.getQualityScores().length())
         throw new IllegalArgumentException(
@@ -158,8 +388,7 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
     }
 
     if (pairedRead.reverse != null) {
-      Matcher matcher = validDnaCharsetPattern.matcher(pairedRead.reverse.getBases());
-      if (!matcher.matches()) handleInvalidDnaCharset(pairedRead.reverse.getBases(), matcher);
+      validateBases(pairedRead.reverse.getBases());
 
       if (pairedRead.reverse.getBases().length() != pairedRead.reverse.getQualityScores().length())
         throw new IllegalArgumentException(
@@ -169,15 +398,11 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
     }
   }
 
-  private void handleInvalidDnaCharset(String bases, Matcher matcher) {
-    Set<Character> invalidBaseChars =
-        bases
-            .chars()
-            .mapToObj(intChar -> (char) intChar)
-            .filter(base -> !matcher.reset(String.valueOf(base)).matches())
-            .collect(Collectors.toSet());
-
-    throw new InvalidBaseCharacterException(bases, invalidBaseChars);
+  private void validateBases(String bases) {
+    // Empty bases are not valid either.
+    if (bases.isEmpty() || !validDnaCharset.isValid(bases)) {
+      throw new InvalidBaseCharacterException(bases, validDnaCharset.findInvalid(bases));
+    }
   }
 
   private SAMRecord createSamRecord(
@@ -194,12 +419,15 @@ public class Fastq2BamWriter implements ReadWriter<PairedRead, Spot> {
     rec.setBaseQualities(normalizedQualities);
 
     // Store Casava 1.8 metadata in standard SAM tags
-    String barcode = CasavaRead.getBarcodeOrNull(readName);
-    if (barcode != null) {
-      rec.setAttribute("BC", barcode);
-    }
-    if (CasavaRead.isFiltered(readName)) {
-      rec.setReadFailsVendorQualityCheckFlag(true);
+    ReadName casavaName = ReadNameTokenizer.parseCasava(readName);
+    if (casavaName != null) {
+      String barcode = casavaName.getBarcode();
+      if (barcode != null) {
+        rec.setAttribute("BC", barcode);
+      }
+      if (casavaName.isFiltered()) {
+        rec.setReadFailsVendorQualityCheckFlag(true);
+      }
     }
 
     if (paired) {
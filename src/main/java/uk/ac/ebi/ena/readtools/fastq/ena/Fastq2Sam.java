@@ -14,25 +14,37 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.Parameters;
+import htsjdk.samtools.cram.structure.CRAMEncodingStrategy;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import htsjdk.samtools.util.FastqQualityFormat;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
 import uk.ac.ebi.ena.readtools.loader.common.FileCompression;
 import uk.ac.ebi.ena.readtools.loader.common.converter.Converter;
 import uk.ac.ebi.ena.readtools.loader.common.converter.MultiFastqConverter;
+import uk.ac.ebi.ena.readtools.loader.common.converter.ParallelFastqConverter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedFastqWriter;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedRead;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
 import uk.ac.ebi.ena.readtools.loader.fastq.SingleFastqWriter;
+import uk.ac.ebi.ena.readtools.metrics.MetricsRegistry;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
 
 public class Fastq2Sam {
   private long totalReadCount = 0, totalBaseCount = 0;
+  private final Map<String, Checksums> checksums = new LinkedHashMap<>();
 
   public static void main(String[] args) {
     final Params p = new Params();
@@ -49,6 +61,10 @@ public class Fastq2Sam {
       System.exit(Params.OK_CODE);
     }
 
+    if (null != p.metrics_json) {
+      MetricsRegistry.getDefault().writeJsonOnExit(new File(p.metrics_json));
+    }
+
     try {
       new Fastq2Sam().create(p);
       System.exit(Params.OK_CODE);
@@ -69,15 +85,49 @@ public class Fastq2Sam {
       for (String f_name : p.files) System.out.println(" " + f_name);
     }
 
+    List<ChecksumMethod> checksumMethods = new ArrayList<>();
+    for (String method : p.checksum_methods) {
+      checksumMethods.add(ChecksumMethod.valueOf(method.toUpperCase()));
+    }
+
     List<InputStream> istreams = new ArrayList<>();
-    for (String f : p.files) {
-      istreams.add(FileCompression.valueOf(p.compression).open(f, p.use_tar));
+    List<ChecksumInputStream> checksumStreams = new ArrayList<>();
+    FileCompression compression = FileCompression.valueOf(p.compression);
+    // The parallel converter reads the file itself, so it cannot compute the input checksums.
+    boolean parallelParse =
+        p.parse_threads > 0
+            && 1 == p.files.size()
+            && !p.use_tar
+            && checksumMethods.isEmpty()
+            && FileCompression.ZIP != compression
+            && FileCompression.BZ2 != compression
+            && ParallelFastqConverter.isSplittable(new File(p.files.get(0)));
+    for (String f : parallelParse ? Collections.<String>emptyList() : p.files) {
+      if (checksumMethods.isEmpty()) {
+        istreams.add(compression.open(new File(f), p.use_tar));
+      } else {
+        ChecksumInputStream checksumStream =
+            new ChecksumInputStream(
+                new FileInputStream(f),
+                checksums.computeIfAbsent(f, name -> new Checksums(checksumMethods)));
+        checksumStreams.add(checksumStream);
+        istreams.add(compression.open(checksumStream, p.use_tar));
+      }
     }
 
     FastqQualityFormat qualityFormat =
         Utils.detectFastqQualityFormat(p.files.get(0), p.files.size() == 2 ? p.files.get(1) : null);
     QualityNormalizer normalizer = Utils.getQualityNormalizer(qualityFormat);
     File tempDir = resolveTempDir(p.data_file, p.tmp_root);
+    Fastq2BamWriter.Options options = new Fastq2BamWriter.Options();
+    options.pairOrder = Fastq2BamWriter.PairOrder.valueOf(p.pair_order.toUpperCase());
+    options.sortBufferBytes = p.sort_buffer_bytes;
+    options.sortThreads = p.sort_threads;
+    options.compressionLevel = p.compression_level;
+    options.compressionThreads = p.compression_threads;
+    options.cramReadsPerSlice = p.cram_reads_per_slice;
+    options.cramSlicesPerContainer = p.cram_slices_per_container;
+    options.checksumMethods = checksumMethods;
     Fastq2BamWriter fastqToBamWriter =
         new Fastq2BamWriter(
             normalizer,
@@ -85,7 +135,8 @@ public class Fastq2Sam {
             p.data_file,
             tempDir.getAbsolutePath(),
             p.convertUracil,
-            p.files.size() == 1 ? false : true);
+            p.files.size() == 1 ? false : true,
+            options);
 
     ReadWriter<Read, PairedRead> readWriter;
     if (1 == p.files.size()) {
@@ -106,7 +157,11 @@ public class Fastq2Sam {
       readWriter.setWriter(fastqToBamWriter);
     }
 
-    Converter converter = new MultiFastqConverter<>(istreams, readWriter);
+    Converter converter =
+        parallelParse
+            ? new ParallelFastqConverter<>(
+                new File(p.files.get(0)), null, readWriter, null, p.parse_threads)
+            : new MultiFastqConverter<>(istreams, readWriter);
     converter.run();
 
     totalReadCount += converter.getReadCount();
@@ -114,7 +169,17 @@ public class Fastq2Sam {
 
     readWriter.cascadeErrors();
     fastqToBamWriter.unwind();
+    for (ChecksumInputStream checksumStream : checksumStreams) {
+      // Archives such as tar and zip files are not read to their end by the conversion.
+      checksumStream.drain();
+    }
+    if (fastqToBamWriter.getChecksums() != null) {
+      checksums.put(p.data_file, fastqToBamWriter.getChecksums());
+    }
     System.out.printf("READS: %d; BASES: %d%n", totalReadCount, totalBaseCount);
+    for (Map.Entry<String, Checksums> entry : checksums.entrySet()) {
+      System.out.printf("%s: %s%n", entry.getKey(), entry.getValue());
+    }
   }
 
   static File resolveTempDir(String dataFilePath, String tmpRoot) {
@@ -143,6 +208,13 @@ public class Fastq2Sam {
     return totalBaseCount;
   }
 
+  /**
+   * @return Checksums of the input files and the output file by path, empty unless requested.
+   */
+  public Map<String, Checksums> getChecksums() {
+    return checksums;
+  }
+
   @Parameters(commandDescription = "FastQ to SAM conversion.")
   public static class Params {
 
@@ -168,7 +240,7 @@ public class Fastq2Sam {
 
     @Parameter(
         names = {"-o", "--output-data-file"},
-        description = "Output file")
+        description = "Output file, written as CRAM if it ends with .cram and as BAM otherwise")
     public String data_file = "data.tmp";
 
     @Parameter(
@@ -216,6 +288,60 @@ public class Fastq2Sam {
         description = "Whether or not to convert Uracil bases [U, u] to [T, t]. Default is false.")
     public boolean convertUracil = false;
 
+    @Parameter(
+        names = {"--checksum"},
+        description =
+            "Checksum to compute for the input and output files while they are read and written, repeat option for more than one, supported values: MD5 and SHA256")
+    public List<String> checksum_methods = new ArrayList<>();
+
+    @Parameter(
+        names = {"--metrics-json"},
+        description = "File to write the metrics summary to as JSON when the program exits")
+    public String metrics_json;
+
+    @Parameter(
+        names = {"--pair-order"},
+        description =
+            "Order of paired output records, supported values: QUERYNAME (sorted by read name) and COLLATED (mates together, pairs unsorted and not buffered for sorting)")
+    public String pair_order = Fastq2BamWriter.PairOrder.QUERYNAME.name();
+
+    @Parameter(
+        names = {"--sort-buffer-bytes"},
+        description = "Memory in bytes used to sort paired output by read name")
+    public long sort_buffer_bytes = PairedReadSorter.DEFAULT_BUFFER_BYTES;
+
+    @Parameter(
+        names = {"--sort-threads"},
+        description = "Number of threads used to sort paired output by read name")
+    public int sort_threads = PairedReadSorter.DEFAULT_THREADS;
+
+    @Parameter(
+        names = {"--compression-level"},
+        description = "Deflate level of the BAM or CRAM output, 0 (none) to 9 (best)")
+    public int compression_level = BlockCompressedOutputStream.getDefaultCompressionLevel();
+
+    @Parameter(
+        names = {"--compression-threads"},
+        description =
+            "Number of threads compressing BAM blocks or encoding CRAM containers in parallel, 0 to compress on the writing thread")
+    public int compression_threads = 0;
+
+    @Parameter(
+        names = {"--parse-threads"},
+        description =
+            "Number of threads parsing parts of a single uncompressed or BGZF compressed input file in parallel, 0 to parse it on the reading thread")
+    public int parse_threads = 0;
+
+    @Parameter(
+        names = {"--cram-reads-per-slice"},
+        description = "Number of records per CRAM slice")
+    public int cram_reads_per_slice = CRAMEncodingStrategy.DEFAULT_READS_PER_SLICE;
+
+    @Parameter(
+        names = {"--cram-slices-per-container"},
+        description = "Number of slices per CRAM container")
+    public int cram_slices_per_container = 1;
+
     public String toString() {
       return String.format(
           "CommonParams:\nfiles: %s\ncompression: %s\ndata_file: %s",
@@ -0,0 +1,625 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import uk.ac.ebi.ena.readtools.loader.fastq.PairedRead;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+
+/**
+ * External sorter of paired reads by spot name, the order of queryname sorted unaligned BAM files.
+ *
+ * <p>Each added spot is encoded into a binary record holding both mates, so mates stay adjacent and
+ * are compared once per pair instead of once per SAM record. Records are buffered in memory and
+ * full buffers are sorted and written to disk as runs by a pool of threads while the caller keeps
+ * adding. {@link #writeSorted(Consumer)} merges the runs and the last buffer and hands the spots
+ * over in order.
+ *
+ * <p>Spot names are compared as UTF-8 bytes, which is the order of {@link String#compareTo} used by
+ * htsjdk for read names outside of the supplementary planes. Spots with equal names keep the order
+ * they were added in.
+ */
+public class PairedReadSorter implements Closeable {
+  public static final long DEFAULT_BUFFER_BYTES = 256L * 1024L * 1024L;
+  public static final int DEFAULT_THREADS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  /** Maximum number of runs merged at once, more are merged into larger runs first. */
+  static final int MAX_MERGE_WIDTH = 128;
+
+  private static final int IO_BUFFER_SIZE = 1 << 16;
+  private static final int NULL_LENGTH = -1;
+  private static final byte FORWARD = 1;
+  private static final byte REVERSE = 2;
+
+  private final Path workDir;
+  private final ExecutorService executor;
+  private final BlockingQueue<Buffer> freeBuffers;
+  private final int threads;
+  private final int bufferLimit;
+  private final List<Path> runs = new ArrayList<>();
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  private Buffer buffer;
+  private int bufferCount = 1;
+  private long addCount;
+
+  public PairedReadSorter(Path tempDir) throws IOException {
+    this(tempDir, DEFAULT_BUFFER_BYTES, DEFAULT_THREADS);
+  }
+
+  /**
+   * @param tempDir Directory to keep the runs in. System default when null.
+   * @param bufferBytes Memory to buffer records in. It is shared between the buffer being filled
+   *     and one buffer per thread being sorted. Buffers are only allocated when needed.
+   * @param threads Number of threads sorting and writing runs.
+   */
+  public PairedReadSorter(Path tempDir, long bufferBytes, int threads) throws IOException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+    if (bufferBytes <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferBytes);
+    }
+
+    this.workDir =
+        tempDir == null
+            ? Files.createTempDirectory("sort-")
+            : Files.createTempDirectory(tempDir, "sort-");
+
+    this.threads = threads;
+    long perBuffer = Math.min(Integer.MAX_VALUE - 8, bufferBytes / (threads + 1));
+    this.bufferLimit = (int) Math.max(IO_BUFFER_SIZE, perBuffer);
+    this.buffer = new Buffer(bufferLimit);
+    this.freeBuffers = new ArrayBlockingQueue<>(threads);
+
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "paired-read-sorter");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public void add(PairedRead spot) throws IOException {
+    if (!buffer.add(spot)) {
+      spill();
+      buffer.add(spot);
+    }
+    addCount++;
+  }
+
+  /**
+   * @return Number of spots added so far.
+   */
+  public long getAddCount() {
+    return addCount;
+  }
+
+  /**
+   * @return Number of runs written to disk so far.
+   */
+  public int getRunCount() {
+    return runs.size();
+  }
+
+  /** Hands all added spots over to the given consumer, sorted by spot name. Call it once. */
+  public void writeSorted(Consumer<PairedRead> consumer) throws IOException {
+    awaitPending();
+
+    List<Path> merged = runs;
+    while (merged.size() > MAX_MERGE_WIDTH) {
+      merged = mergeRuns(merged);
+    }
+
+    buffer.sort();
+
+    List<Cursor> cursors = new ArrayList<>();
+    try {
+      for (Path run : merged) {
+        cursors.add(new RunCursor(run, cursors.size()));
+      }
+      cursors.add(new BufferCursor(buffer, cursors.size()));
+
+      merge(cursors, cursor -> consumer.accept(cursor.decode()));
+    } finally {
+      for (Cursor cursor : cursors) {
+        cursor.close();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try (Stream<Path> files = Files.list(workDir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(workDir);
+  }
+
+  /** Sorts and writes the full buffer in the background and carries on with a free one. */
+  private void spill() throws IOException {
+    Buffer full = buffer;
+    Path run = workDir.resolve("run-" + runs.size());
+    runs.add(run);
+
+    try {
+      if (bufferCount <= threads) {
+        buffer = new Buffer(bufferLimit);
+        bufferCount++;
+      } else {
+        buffer = freeBuffers.take();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+
+    pending.add(
+        executor.submit(
+            () -> {
+              try {
+                full.sort();
+                try (DataOutputStream out = newOutputStream(run)) {
+                  full.writeTo(out);
+                }
+              } finally {
+                full.clear();
+                freeBuffers.add(full);
+              }
+              return null;
+            }));
+    checkPending();
+  }
+
+  /** Merges consecutive groups of runs in parallel. The merged runs keep the order of the runs. */
+  private List<Path> mergeRuns(List<Path> sources) throws IOException {
+    List<Path> merged = new ArrayList<>();
+    for (int from = 0; from < sources.size(); from += MAX_MERGE_WIDTH) {
+      List<Path> group = sources.subList(from, Math.min(sources.size(), from + MAX_MERGE_WIDTH));
+      Path target = workDir.resolve("merged-" + sources.size() + "-" + merged.size());
+      merged.add(target);
+
+      pending.add(
+          executor.submit(
+              () -> {
+                List<Cursor> cursors = new ArrayList<>();
+                try (DataOutputStream out = newOutputStream(target)) {
+                  for (Path run : group) {
+                    cursors.add(new RunCursor(run, cursors.size()));
+                  }
+                  merge(cursors, cursor -> cursor.writeTo(out));
+                } finally {
+                  for (Cursor cursor : cursors) {
+                    cursor.close();
+                  }
+                }
+                for (Path run : group) {
+                  Files.delete(run);
+                }
+                return null;
+              }));
+    }
+
+    awaitPending();
+    return merged;
+  }
+
+  private static void merge(List<Cursor> cursors, RecordHandler handler) throws IOException {
+    PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, cursors.size()));
+    for (Cursor cursor : cursors) {
+      if (cursor.next()) {
+        queue.add(cursor);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      Cursor cursor = queue.poll();
+      handler.handle(cursor);
+      if (cursor.next()) {
+        queue.add(cursor);
+      }
+    }
+  }
+
+  private void checkPending() throws IOException {
+    for (int i = pending.size() - 1; i >= 0; i--) {
+      if (pending.get(i).isDone()) {
+        get(pending.remove(i));
+      }
+    }
+  }
+
+  private void awaitPending() throws IOException {
+    while (!pending.isEmpty()) {
+      get(pending.remove(0));
+    }
+  }
+
+  private static void get(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static DataOutputStream newOutputStream(Path path) throws IOException {
+    return new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE));
+  }
+
+  private interface RecordHandler {
+    void handle(Cursor cursor) throws IOException;
+  }
+
+  /**
+   * Records laid out back to back. Each record is the name length and bytes, followed by the
+   * payload length and bytes. The payload holds a mate mask and, for each present mate, its name,
+   * bases, qualities and default read index. The buffer starts small and grows up to its limit.
+   */
+  private static class Buffer {
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final int limit;
+    private byte[] data;
+    private int used;
+    private int[] offsets = new int[1024];
+    private int count;
+
+    Buffer(int limit) {
+      this.limit = limit;
+      this.data = new byte[Math.min(limit, INITIAL_SIZE)];
+    }
+
+    /**
+     * @return False if the spot does not fit, the buffer is then left unchanged. A spot always fits
+     *     into an empty buffer.
+     */
+    boolean add(PairedRead spot) {
+      int size = encodedSize(spot);
+      if (used + size > data.length) {
+        if (used > 0 && used + size > limit) {
+          return false;
+        }
+        long grown = Math.max(used + (long) size, Math.min(limit, 2L * data.length));
+        data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, grown));
+      }
+
+      int start = used;
+      int payloadStart = putString(start, spot.name) + Integer.BYTES;
+      data[payloadStart] =
+          (byte) ((spot.forward != null ? FORWARD : 0) | (spot.reverse != null ? REVERSE : 0));
+      int position = payloadStart + 1;
+      position = putRead(position, spot.forward);
+      position = putRead(position, spot.reverse);
+      putInt(payloadStart - Integer.BYTES, position - payloadStart);
+
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, count * 2);
+      }
+      offsets[count++] = start;
+      used = position;
+      return true;
+    }
+
+    void clear() {
+      used = 0;
+      count = 0;
+    }
+
+    /** Stable sort of the record offsets by record name. */
+    void sort() {
+      if (count > 1) {
+        int[] sorted = Arrays.copyOf(offsets, count);
+        mergeSort(sorted, Arrays.copyOf(offsets, count), 0, count);
+        System.arraycopy(sorted, 0, offsets, 0, count);
+      }
+    }
+
+    /** Sorts src[from, to) into dst[from, to), both start with the same content. */
+    private void mergeSort(int[] dst, int[] src, int from, int to) {
+      if (to - from < 16) {
+        for (int i = from + 1; i < to; i++) {
+          int offset = dst[i];
+          int j = i;
+          for (; j > from && compareNames(dst[j - 1], offset) > 0; j--) {
+            dst[j] = dst[j - 1];
+          }
+          dst[j] = offset;
+        }
+        return;
+      }
+
+      int mid = (from + to) >>> 1;
+      mergeSort(src, dst, from, mid);
+      mergeSort(src, dst, mid, to);
+
+      for (int i = from, l = from, r = mid; i < to; i++) {
+        if (r >= to || (l < mid && compareNames(src[l], src[r]) <= 0)) {
+          dst[i] = src[l++];
+        } else {
+          dst[i] = src[r++];
+        }
+      }
+    }
+
+    private int compareNames(int offset1, int offset2) {
+      int from1 = offset1 + Integer.BYTES;
+      int from2 = offset2 + Integer.BYTES;
+      return Arrays.compareUnsigned(
+          data, from1, from1 + getInt(data, offset1), data, from2, from2 + getInt(data, offset2));
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+      for (int i = 0; i < count; i++) {
+        int offset = offsets[i];
+        out.write(data, offset, recordLength(data, offset));
+      }
+    }
+
+    private static int encodedSize(PairedRead spot) {
+      return 2 * Integer.BYTES
+          + utf8Length(spot.name)
+          + 1
+          + encodedSize(spot.forward)
+          + encodedSize(spot.reverse);
+    }
+
+    private static int encodedSize(Read read) {
+      if (read == null) {
+        return 0;
+      }
+      return 4 * Integer.BYTES
+          + utf8Length(read.getName())
+          + utf8Length(read.getBases())
+          + utf8Length(read.getQualityScores())
+          + utf8Length(read.getDefaultReadIndex());
+    }
+
+    private int putRead(int position, Read read) {
+      if (read == null) {
+        return position;
+      }
+      position = putString(position, read.getName());
+      position = putString(position, read.getBases());
+      position = putString(position, read.getQualityScores());
+      return putString(position, read.getDefaultReadIndex());
+    }
+
+    private int putString(int position, String value) {
+      if (value == null) {
+        putInt(position, NULL_LENGTH);
+        return position + Integer.BYTES;
+      }
+
+      // Bases and qualities are ASCII, only names may need the encoder.
+      int length = value.length();
+      int p = position + Integer.BYTES;
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c >= 0x80) {
+          byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+          System.arraycopy(bytes, 0, data, position + Integer.BYTES, bytes.length);
+          putInt(position, bytes.length);
+          return position + Integer.BYTES + bytes.length;
+        }
+        data[p++] = (byte) c;
+      }
+      putInt(position, length);
+      return p;
+    }
+
+    private void putInt(int position, int value) {
+      PairedReadSorter.putInt(data, position, value);
+    }
+  }
+
+  private static int utf8Length(String value) {
+    if (value == null) {
+      return 0;
+    }
+    int length = value.length();
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+      }
+    }
+    return length;
+  }
+
+  private static int getInt(byte[] data, int position) {
+    return ((data[position] & 0xff) << 24)
+        | ((data[position + 1] & 0xff) << 16)
+        | ((data[position + 2] & 0xff) << 8)
+        | (data[position + 3] & 0xff);
+  }
+
+  private static void putInt(byte[] data, int position, int value) {
+    data[position] = (byte) (value >>> 24);
+    data[position + 1] = (byte) (value >>> 16);
+    data[position + 2] = (byte) (value >>> 8);
+    data[position + 3] = (byte) value;
+  }
+
+  private static int recordLength(byte[] data, int offset) {
+    int payloadLengthAt = offset + Integer.BYTES + getInt(data, offset);
+    return payloadLengthAt + Integer.BYTES + getInt(data, payloadLengthAt) - offset;
+  }
+
+  /**
+   * Position in a sorted sequence of records. Cursors are ordered by the name of their current
+   * record and then by their index, so that equal names keep the order they were added in.
+   */
+  private abstract static class Cursor implements Comparable<Cursor>, Closeable {
+    private final int index;
+
+    byte[] data;
+    int offset;
+
+    Cursor(int index) {
+      this.index = index;
+    }
+
+    abstract boolean next() throws IOException;
+
+    @Override
+    public int compareTo(Cursor other) {
+      int from1 = offset + Integer.BYTES;
+      int from2 = other.offset + Integer.BYTES;
+      int result =
+          Arrays.compareUnsigned(
+              data,
+              from1,
+              from1 + getInt(data, offset),
+              other.data,
+              from2,
+              from2 + getInt(other.data, other.offset));
+      return result != 0 ? result : Integer.compare(index, other.index);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+      out.write(data, offset, recordLength(data, offset));
+    }
+
+    PairedRead decode() {
+      int[] position = {offset};
+      String name = getString(position);
+      position[0] += Integer.BYTES;
+
+      byte mates = data[position[0]++];
+      Read forward = (mates & FORWARD) != 0 ? getRead(position) : null;
+      Read reverse = (mates & REVERSE) != 0 ? getRead(position) : null;
+      return new PairedRead(name, forward, reverse);
+    }
+
+    private Read getRead(int[] position) {
+      return new Read(
+          getString(position), getString(position), getString(position), getString(position));
+    }
+
+    private String getString(int[] position) {
+      int length = getInt(data, position[0]);
+      position[0] += Integer.BYTES;
+      if (length == NULL_LENGTH) {
+        return null;
+      }
+      String value = new String(data, position[0], length, StandardCharsets.UTF_8);
+      position[0] += length;
+      return value;
+    }
+
+    @Override
+    public void close() throws IOException {}
+  }
+
+  private static class BufferCursor extends Cursor {
+    private final Buffer buffer;
+    private int position;
+
+    BufferCursor(Buffer buffer, int index) {
+      super(index);
+      this.buffer = buffer;
+      this.data = buffer.data;
+    }
+
+    @Override
+    boolean next() {
+      if (position == buffer.count) {
+        return false;
+      }
+      offset = buffer.offsets[position++];
+      return true;
+    }
+  }
+
+  private static class RunCursor extends Cursor {
+    private final DataInputStream in;
+
+    RunCursor(Path run, int index) throws IOException {
+      super(index);
+      this.data = new byte[1024];
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+    }
+
+    @Override
+    boolean next() throws IOException {
+      int nameLength;
+      try {
+        nameLength = in.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+
+      ensure(Integer.BYTES + nameLength + Integer.BYTES);
+      in.readFully(data, Integer.BYTES, nameLength);
+      int payloadLength = in.readInt();
+      ensure(Integer.BYTES + nameLength + Integer.BYTES + payloadLength);
+      in.readFully(data, Integer.BYTES + nameLength + Integer.BYTES, payloadLength);
+
+      putInt(data, 0, nameLength);
+      putInt(data, Integer.BYTES + nameLength, payloadLength);
+      offset = 0;
+      return true;
+    }
+
+    private void ensure(int size) {
+      if (size > data.length) {
+        data = Arrays.copyOf(data, Math.max(size, data.length * 2));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
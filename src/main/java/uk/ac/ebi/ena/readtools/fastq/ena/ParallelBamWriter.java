@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.RuntimeIOException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * BAM writer compressing its output with a {@link ParallelBgzfOutputStream}. Records are encoded by
+ * the calling thread and written as they come, the header sort order is not checked.
+ */
+public class ParallelBamWriter implements SAMFileWriter {
+  private static final byte[] BAM_MAGIC = {'B', 'A', 'M', 1};
+
+  private final SAMFileHeader header;
+  private final ParallelBgzfOutputStream out;
+  private final BAMRecordCodec codec;
+  private ProgressLoggerInterface progressLogger;
+
+  /**
+   * @param compressionLevel Deflate level, 0 to 9.
+   * @param threads Number of threads compressing BGZF blocks.
+   */
+  public ParallelBamWriter(SAMFileHeader header, Path path, int compressionLevel, int threads) {
+    this(header, open(path), path.toString(), compressionLevel, threads);
+  }
+
+  /**
+   * @param outputStream Stream to write the BAM file to, closed with the writer.
+   * @param fileName Name of the file for error messages.
+   * @param compressionLevel Deflate level, 0 to 9.
+   * @param threads Number of threads compressing BGZF blocks.
+   */
+  public ParallelBamWriter(
+      SAMFileHeader header,
+      OutputStream outputStream,
+      String fileName,
+      int compressionLevel,
+      int threads) {
+    this.header = header;
+    try {
+      this.out =
+          new ParallelBgzfOutputStream(
+              new BufferedOutputStream(outputStream, 1 << 20), compressionLevel, threads);
+      writeHeader(header, out);
+    } catch (IOException ex) {
+      throw new RuntimeIOException(ex);
+    }
+
+    this.codec = new BAMRecordCodec(header);
+    this.codec.setOutputStream(out, fileName);
+  }
+
+  static OutputStream open(Path path) {
+    try {
+      return Files.newOutputStream(path);
+    } catch (IOException ex) {
+      throw new RuntimeIOException(ex);
+    }
+  }
+
+  @Override
+  public void addAlignment(SAMRecord alignment) {
+    codec.encode(alignment);
+    if (progressLogger != null) {
+      progressLogger.record(alignment);
+    }
+  }
+
+  @Override
+  public SAMFileHeader getFileHeader() {
+    return header;
+  }
+
+  @Override
+  public void setProgressLogger(ProgressLoggerInterface progress) {
+    this.progressLogger = progress;
+  }
+
+  @Override
+  public void close() {
+    try {
+      out.close();
+    } catch (IOException ex) {
+      throw new RuntimeIOException(ex);
+    }
+  }
+
+  /** Writes BAM magic, header text and reference sequences, all little endian, uncompressed. */
+  public static void writeHeader(SAMFileHeader header, OutputStream out) throws IOException {
+    StringWriter text = new StringWriter();
+    new SAMTextHeaderCodec().encode(text, header);
+    byte[] textBytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(BAM_MAGIC);
+    writeInt(data, textBytes.length);
+    data.write(textBytes);
+
+    writeInt(data, header.getSequenceDictionary().size());
+    for (SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences()) {
+      byte[] name = sequence.getSequenceName().getBytes(StandardCharsets.UTF_8);
+      writeInt(data, name.length + 1);
+      data.write(name);
+      data.write(0);
+      writeInt(data, sequence.getSequenceLength());
+    }
+    data.flush();
+  }
+
+  private static void writeInt(DataOutputStream data, int value) throws IOException {
+    data.writeInt(Integer.reverseBytes(value));
+  }
+}
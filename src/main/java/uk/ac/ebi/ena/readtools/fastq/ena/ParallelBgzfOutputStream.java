@@ -0,0 +1,236 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes BGZF, the blocked gzip format of BAM files, compressing blocks on a pool of threads.
+ *
+ * <p>Data is cut into blocks of {@link #BLOCK_SIZE} bytes. Full blocks are deflated in parallel and
+ * written out in the order they were filled. Blocks that do not shrink enough to fit into a BGZF
+ * block are stored uncompressed. {@link #close()} writes the BGZF end-of-file marker and releases
+ * the deflaters.
+ */
+public class ParallelBgzfOutputStream extends OutputStream {
+  /** Uncompressed bytes per block, as written by samtools. */
+  public static final int BLOCK_SIZE = 0xff00;
+
+  private static final int MAX_BLOCK_SIZE = 1 << 16;
+  private static final int HEADER_SIZE = 18;
+  private static final int FOOTER_SIZE = 8;
+
+  private static final byte[] HEADER = {
+    31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0
+  };
+
+  private final OutputStream out;
+  private final int compressionLevel;
+  private final int maxPending;
+  private final ExecutorService executor;
+  // Deflaters not in use, ended on close.
+  private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  private byte[] block = new byte[BLOCK_SIZE];
+  private int used;
+  private volatile boolean closed;
+
+  /**
+   * @param compressionLevel Deflate level, 0 to 9.
+   * @param threads Number of threads compressing blocks.
+   */
+  public ParallelBgzfOutputStream(OutputStream out, int compressionLevel, int threads) {
+    if (compressionLevel < Deflater.NO_COMPRESSION
+        || compressionLevel > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+
+    this.out = out;
+    this.compressionLevel = compressionLevel;
+    // Enough blocks in flight to keep the threads busy while the oldest one is being written.
+    this.maxPending = 4 * threads;
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "bgzf-deflater");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    block[used++] = (byte) b;
+    if (used == BLOCK_SIZE) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      int length = Math.min(len, BLOCK_SIZE - used);
+      System.arraycopy(b, off, block, used, length);
+      used += length;
+      off += length;
+      len -= length;
+
+      if (used == BLOCK_SIZE) {
+        submitBlock();
+      }
+    }
+  }
+
+  /** Ends the current block, even if not full, and writes out all blocks. */
+  @Override
+  public void flush() throws IOException {
+    if (used > 0) {
+      submitBlock();
+    }
+    while (!pending.isEmpty()) {
+      writeOldest();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      flush();
+      out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+    } finally {
+      executor.shutdownNow();
+      endDeflaters();
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    byte[] data = block;
+    int length = used;
+    pending.add(executor.submit(() -> compress(data, length)));
+
+    block = new byte[BLOCK_SIZE];
+    used = 0;
+
+    while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peek().isDone())) {
+      writeOldest();
+    }
+  }
+
+  private void writeOldest() throws IOException {
+    try {
+      out.write(pending.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * @return The whole BGZF block of the given data.
+   */
+  private byte[] compress(byte[] data, int length) {
+    byte[] compressed = new byte[MAX_BLOCK_SIZE];
+    Deflater pooled = deflaters.poll();
+    if (null == pooled) {
+      pooled = new Deflater(compressionLevel, true);
+    }
+    int size;
+    try {
+      size = deflate(pooled, data, length, compressed);
+    } finally {
+      deflaters.add(pooled);
+      // Blocks still compressing when the stream is closed end their deflater themselves.
+      if (closed) {
+        endDeflaters();
+      }
+    }
+    if (size < 0) {
+      // Incompressible, stored blocks always fit.
+      Deflater deflater = new Deflater(Deflater.NO_COMPRESSION, true);
+      try {
+        size = deflate(deflater, data, length, compressed);
+      } finally {
+        deflater.end();
+      }
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, length);
+
+    int blockSize = HEADER_SIZE + size + FOOTER_SIZE;
+    System.arraycopy(HEADER, 0, compressed, 0, HEADER.length);
+    putShort(compressed, HEADER.length, blockSize - 1);
+    putInt(compressed, HEADER_SIZE + size, (int) crc.getValue());
+    putInt(compressed, HEADER_SIZE + size + Integer.BYTES, length);
+
+    byte[] result = new byte[blockSize];
+    System.arraycopy(compressed, 0, result, 0, blockSize);
+    return result;
+  }
+
+  private void endDeflaters() {
+    Deflater deflater;
+    while (null != (deflater = deflaters.poll())) {
+      deflater.end();
+    }
+  }
+
+  /**
+   * @return Compressed size, written after the block header, or -1 if the block does not fit.
+   */
+  private static int deflate(Deflater deflater, byte[] data, int length, byte[] compressed) {
+    int capacity = MAX_BLOCK_SIZE - HEADER_SIZE - FOOTER_SIZE;
+    deflater.reset();
+    deflater.setInput(data, 0, length);
+    deflater.finish();
+    int size = deflater.deflate(compressed, HEADER_SIZE, capacity);
+    return deflater.finished() ? size : -1;
+  }
+
+  private static void putShort(byte[] data, int position, int value) {
+    data[position] = (byte) value;
+    data[position + 1] = (byte) (value >>> 8);
+  }
+
+  private static void putInt(byte[] data, int position, int value) {
+    data[position] = (byte) value;
+    data[position + 1] = (byte) (value >>> 8);
+    data[position + 2] = (byte) (value >>> 16);
+    data[position + 3] = (byte) (value >>> 24);
+  }
+}
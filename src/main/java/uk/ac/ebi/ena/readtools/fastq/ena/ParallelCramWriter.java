@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.cram.build.CompressionHeaderFactory;
+import htsjdk.samtools.cram.build.ContainerFactory;
+import htsjdk.samtools.cram.build.CramIO;
+import htsjdk.samtools.cram.build.SliceFactory;
+import htsjdk.samtools.cram.common.CRAMVersion;
+import htsjdk.samtools.cram.common.CramVersions;
+import htsjdk.samtools.cram.ref.CRAMReferenceSource;
+import htsjdk.samtools.cram.ref.ReferenceContext;
+import htsjdk.samtools.cram.structure.CRAMCompressionRecord;
+import htsjdk.samtools.cram.structure.CRAMEncodingStrategy;
+import htsjdk.samtools.cram.structure.CompressionHeader;
+import htsjdk.samtools.cram.structure.Container;
+import htsjdk.samtools.cram.structure.CramHeader;
+import htsjdk.samtools.cram.structure.Slice;
+import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.RuntimeIOException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CRAM writer for unaligned reads, encoding containers on a pool of threads.
+ *
+ * <p>Records are cut into batches of one container each, reads per slice times slices per
+ * container. Every batch is encoded the way an htsjdk {@link ContainerFactory} would, with slices
+ * of unmapped records, and the containers are written out in the order the records were added in.
+ * Each batch is given the number of records before it, so record counters run across the file.
+ */
+public class ParallelCramWriter implements SAMFileWriter {
+  /**
+   * Reference source for unaligned reads. Unmapped records are stored with their bases and never
+   * need a reference, asking for one is an error.
+   */
+  public static final CRAMReferenceSource NO_REFERENCE =
+      new CRAMReferenceSource() {
+        @Override
+        public byte[] getReferenceBases(SAMSequenceRecord sequenceRecord, boolean tryNameVariants) {
+          throw new IllegalStateException(
+              "No reference for unaligned reads: " + sequenceRecord.getSequenceName());
+        }
+
+        @Override
+        public byte[] getReferenceBasesByRegion(
+            SAMSequenceRecord sequenceRecord, int zeroBasedStart, int requestedRegionLength) {
+          throw new IllegalStateException(
+              "No reference for unaligned reads: " + sequenceRecord.getSequenceName());
+        }
+      };
+
+  private static final CRAMVersion VERSION = CramVersions.DEFAULT_CRAM_VERSION;
+
+  private final SAMFileHeader header;
+  private final CRAMEncodingStrategy strategy;
+  private final OutputStream out;
+  private final int recordsPerContainer;
+  private final int maxPending;
+  private final ExecutorService executor;
+  private final Deque<Future<Container>> pending = new ArrayDeque<>();
+
+  private List<SAMRecord> batch;
+  private long recordCount;
+  private ProgressLoggerInterface progressLogger;
+
+  /**
+   * @param threads Number of threads encoding containers.
+   */
+  public ParallelCramWriter(
+      SAMFileHeader header, Path path, CRAMEncodingStrategy strategy, int threads) {
+    this(header, ParallelBamWriter.open(path), path.getFileName().toString(), strategy, threads);
+  }
+
+  /**
+   * @param outputStream Stream to write the CRAM file to, closed with the writer.
+   * @param fileName Name of the file, stored in the CRAM file definition.
+   * @param threads Number of threads encoding containers.
+   */
+  public ParallelCramWriter(
+      SAMFileHeader header,
+      OutputStream outputStream,
+      String fileName,
+      CRAMEncodingStrategy strategy,
+      int threads) {
+    if (threads <= 0) {
+      CloserUtil.close(outputStream);
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+
+    this.header = header;
+    this.strategy = strategy;
+    this.recordsPerContainer = strategy.getReadsPerSlice() * strategy.getSlicesPerContainer();
+    // Containers hold their records until written, so keep only a few in flight per thread.
+    this.maxPending = 2 * threads;
+    this.batch = new ArrayList<>(recordsPerContainer);
+
+    this.out = new BufferedOutputStream(outputStream, 1 << 20);
+    CramIO.writeCramHeader(new CramHeader(VERSION, fileName), out);
+    Container.writeSAMFileHeaderContainer(VERSION, header, out);
+
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "cram-encoder");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void addAlignment(SAMRecord alignment) {
+    batch.add(alignment);
+    if (batch.size() == recordsPerContainer) {
+      submitBatch();
+    }
+    if (progressLogger != null) {
+      progressLogger.record(alignment);
+    }
+  }
+
+  @Override
+  public SAMFileHeader getFileHeader() {
+    return header;
+  }
+
+  @Override
+  public void setProgressLogger(ProgressLoggerInterface progress) {
+    this.progressLogger = progress;
+  }
+
+  @Override
+  public void close() {
+    try (OutputStream output = out) {
+      if (!batch.isEmpty()) {
+        submitBatch();
+      }
+      while (!pending.isEmpty()) {
+        writeOldest();
+      }
+      CramIO.writeCramEOF(VERSION, output);
+    } catch (IOException ex) {
+      throw new RuntimeIOException(ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void submitBatch() {
+    List<SAMRecord> records = batch;
+    long globalRecordCounter = recordCount;
+    pending.add(executor.submit(() -> encode(records, globalRecordCounter)));
+    recordCount += records.size();
+    batch = new ArrayList<>(recordsPerContainer);
+
+    while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peek().isDone())) {
+      writeOldest();
+    }
+  }
+
+  private void writeOldest() {
+    try {
+      pending.remove().get().write(VERSION, out);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeIOException(ex);
+    } catch (ExecutionException ex) {
+      throw new RuntimeIOException(ex.getCause());
+    }
+  }
+
+  /**
+   * @param globalRecordCounter Number of records written before these.
+   */
+  private Container encode(List<SAMRecord> records, long globalRecordCounter) {
+    // A slice factory numbers all its slices from the counter it was made with, so each slice gets
+    // its own.
+    int readsPerSlice = strategy.getReadsPerSlice();
+    List<SliceFactory> sliceFactories = new ArrayList<>(strategy.getSlicesPerContainer());
+    List<CRAMCompressionRecord> cramRecords = new ArrayList<>(records.size());
+    for (int from = 0; from < records.size(); from += readsPerSlice) {
+      List<SAMRecord> sliceRecords =
+          records.subList(from, Math.min(from + readsPerSlice, records.size()));
+      for (SAMRecord record : sliceRecords) {
+        if (record.getHeader() == null) {
+          record.setHeaderStrict(header);
+        }
+      }
+      SliceFactory sliceFactory =
+          new SliceFactory(strategy, NO_REFERENCE, header, globalRecordCounter + from);
+      sliceFactory.createNewSliceEntry(ReferenceContext.UNMAPPED_UNPLACED_ID, sliceRecords);
+      cramRecords.addAll(sliceFactory.getCRAMRecordsForAllSlices());
+      sliceFactories.add(sliceFactory);
+    }
+
+    CompressionHeader compressionHeader =
+        new CompressionHeaderFactory(strategy).createCompressionHeader(cramRecords, false);
+    List<Slice> slices = new ArrayList<>(sliceFactories.size());
+    for (SliceFactory sliceFactory : sliceFactories) {
+      slices.addAll(sliceFactory.createSlices(compressionHeader, 0));
+    }
+    return new Container(compressionHeader, slices, 0, globalRecordCounter);
+  }
+}
@@ -19,6 +19,8 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 
 public enum FileCompression {
   BZ2,
@@ -36,7 +38,36 @@ public enum FileCompression {
   }
 
   public InputStream open(File file, boolean tar) throws IOException {
+    return open(file, tar, null);
+  }
+
+  /**
+   * Opens the file, computing checksums of its raw, possibly compressed, bytes as they are read.
+   * Once the returned stream has been read to its end the checksums cover the whole file, except
+   * for archives of which only the first entry is read. Use {@link #open(InputStream, boolean)} on
+   * a {@link ChecksumInputStream} to {@link ChecksumInputStream#drain() drain} those.
+   *
+   * @param checksums Checksums to update, or null.
+   */
+  public InputStream open(File file, boolean tar, Checksums checksums) throws IOException {
+    if (NONE == this && !tar && file.isFile() && checksums == null) {
+      // Plain files are read from memory mappings rather than through stream buffers.
+      return new MappedFileInputStream(file);
+    }
+
     InputStream is = new FileInputStream(file);
+    if (checksums != null) {
+      is = new ChecksumInputStream(is, checksums);
+    }
+    return open(is, tar);
+  }
+
+  /**
+   * Decompresses the raw bytes of a file. The stream is closed if this fails.
+   *
+   * @param tar True to read the first entry of a tar archive.
+   */
+  public InputStream open(InputStream is, boolean tar) throws IOException {
     try {
       switch (this) {
         case BZ2:
@@ -87,6 +118,13 @@ public enum FileCompression {
     return getCompressor(file).open(file.getPath(), getUseTar(file));
   }
 
+  /**
+   * @param checksums Checksums of the raw file bytes to update, or null.
+   */
+  public static InputStream open(File file, Checksums checksums) throws IOException {
+    return getCompressor(file).open(file, getUseTar(file), checksums);
+  }
+
   public static boolean getUseTar(File file) {
     return file.getName().toLowerCase().contains(".tar");
   }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/**
+ * Reads a file, or a range of it, straight from memory mappings instead of through stream buffers.
+ * Files larger than {@link #MAPPING_SIZE} are mapped one part after another.
+ *
+ * <p>Single bytes are read without locking or copying, so parsers reading byte by byte should call
+ * {@link #read()} on this class rather than through {@link InputStream}, where it can be inlined.
+ */
+public final class MappedFileInputStream extends InputStream {
+  /** Most bytes mapped at once, mappings are limited to 2 GB. */
+  public static final int MAPPING_SIZE = 1 << 30;
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final FileChannel channel;
+  private final long end;
+  private final int mappingSize;
+  private long mappingStart;
+  private ByteBuffer mapping = EMPTY;
+
+  public MappedFileInputStream(File file) throws IOException {
+    this(file, 0, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param start Offset to read from.
+   * @param end Offset to read up to, or beyond the end of the file to read to the end.
+   */
+  public MappedFileInputStream(File file, long start, long end) throws IOException {
+    this(file, start, end, MAPPING_SIZE);
+  }
+
+  MappedFileInputStream(File file, long start, long end, int mappingSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath());
+    try {
+      this.end = Math.min(end, channel.size());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.mappingSize = mappingSize;
+    this.mappingStart = start;
+  }
+
+  /**
+   * @return Offset of the next byte to be read.
+   */
+  public long getPosition() {
+    return mappingStart + mapping.position();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!mapping.hasRemaining() && !mapNext()) {
+      return -1;
+    }
+    return mapping.get() & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (0 == len) {
+      return 0;
+    }
+    if (!mapping.hasRemaining() && !mapNext()) {
+      return -1;
+    }
+    int length = Math.min(len, mapping.remaining());
+    mapping.get(b, off, length);
+    return length;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long position = getPosition();
+    long skipped = Math.max(0, Math.min(n, end - position));
+    if (position + skipped <= mappingStart + mapping.limit()) {
+      mapping.position((int) (position + skipped - mappingStart));
+    } else {
+      mappingStart = position + skipped;
+      mapping = EMPTY;
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - getPosition()));
+  }
+
+  @Override
+  public void close() throws IOException {
+    mapping = EMPTY;
+    channel.close();
+  }
+
+  /**
+   * Maps the part of the file after the current mapping.
+   *
+   * @return False at the end.
+   */
+  private boolean mapNext() throws IOException {
+    long position = mappingStart + mapping.limit();
+    if (position >= end) {
+      return false;
+    }
+    mapping =
+        channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mappingSize, end - position));
+    mappingStart = position;
+    return true;
+  }
+}
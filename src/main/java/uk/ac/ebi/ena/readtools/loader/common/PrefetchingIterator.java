@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Takes the elements of another iterator on a background thread, so that reading, decompressing and
+ * parsing them overlaps with the work of the consumer. Elements are handed over in batches of
+ * {@code batchSize} through a queue of at most {@code batches} batches, which holds the producer
+ * back when the consumer is slower.
+ *
+ * <p>An exception thrown by the other iterator is thrown by {@link #hasNext()} once the elements
+ * taken before it have been consumed. The other iterator must not be used by anyone else, and
+ * elements must not be changed by it once handed out. Consumers stopping early should call {@link
+ * #close()} to stop the producer.
+ */
+public final class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+  public static final int DEFAULT_BATCHES = 4;
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  // Marks the end by identity, after any failure has been recorded.
+  private final List<T> end = Collections.emptyList();
+  private final BlockingQueue<List<T>> queue;
+  private final ExecutorService executor;
+  private volatile Throwable failure;
+  private volatile boolean closed;
+
+  private List<T> batch = Collections.emptyList();
+  private int index;
+  private boolean done;
+
+  public PrefetchingIterator(Iterator<? extends T> source) {
+    this(source, DEFAULT_BATCHES, DEFAULT_BATCH_SIZE);
+  }
+
+  public PrefetchingIterator(Iterator<? extends T> source, int batches, int batchSize) {
+    if (batches < 1 || batchSize < 1) {
+      throw new IllegalArgumentException(
+          "batches and batchSize must be positive: " + batches + ", " + batchSize);
+    }
+    this.queue = new ArrayBlockingQueue<>(batches);
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            r -> {
+              Thread thread = new Thread(r, "prefetcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.execute(() -> produce(source, batchSize));
+    executor.shutdown();
+  }
+
+  private void produce(Iterator<? extends T> source, int batchSize) {
+    List<T> next = new ArrayList<>(batchSize);
+    try {
+      while (!closed && source.hasNext()) {
+        next.add(source.next());
+        if (next.size() == batchSize) {
+          queue.put(next);
+          next = new ArrayList<>(batchSize);
+        }
+      }
+    } catch (Throwable t) {
+      failure = t;
+    }
+
+    if (closed) {
+      return;
+    }
+    try {
+      // Elements taken before a failure are consumed before it is thrown.
+      if (!next.isEmpty()) {
+        queue.put(next);
+      }
+      queue.put(end);
+    } catch (InterruptedException ignored) {
+      // Closed while the queue was full.
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (index == batch.size()) {
+      if (done) {
+        return false;
+      }
+
+      List<T> next;
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+
+      if (end == next) {
+        done = true;
+        batch = Collections.emptyList();
+        index = 0;
+        if (null != failure) {
+          if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+          }
+          if (failure instanceof Error) {
+            throw (Error) failure;
+          }
+          throw new RuntimeException(failure);
+        }
+        return false;
+      }
+      batch = next;
+      index = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T element = batch.get(index);
+    // Consumed elements are not kept alive by the batch.
+    batch.set(index++, null);
+    return element;
+  }
+
+  /** Stops the producer and drops the elements it has taken. */
+  @Override
+  public void close() {
+    closed = true;
+    done = true;
+    batch = Collections.emptyList();
+    index = 0;
+    executor.shutdownNow();
+    queue.clear();
+  }
+}
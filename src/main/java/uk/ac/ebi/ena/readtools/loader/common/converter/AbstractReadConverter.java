@@ -14,10 +14,12 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import uk.ac.ebi.ena.readtools.loader.common.MappedFileInputStream;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterMemoryLimitException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 
 public abstract class AbstractReadConverter<T extends Spot> implements Converter {
   protected final InputStream istream;
@@ -37,7 +39,11 @@ public abstract class AbstractReadConverter<T extends Spot> implements Converter
    * @param readLimit Only read limited amount of reads.
    */
   protected AbstractReadConverter(InputStream istream, ReadWriter<T, ?> writer, Long readLimit) {
-    this.istream = new BufferedInputStream(istream, 1024 * 1024);
+    // Mapped files need no buffer, and are read faster without one.
+    this.istream =
+        istream instanceof MappedFileInputStream
+            ? istream
+            : new BufferedInputStream(istream, 1024 * 1024);
     this.readWriter = writer;
     this.readLimit = readLimit;
   }
@@ -65,7 +71,7 @@ public abstract class AbstractReadConverter<T extends Spot> implements Converter
       begin();
 
       do {
-        readWriter.write(getNextSpot());
+        writeNext();
       } while (!isDone());
     } catch (ConverterEOFException ignored) {
       isEofReached = true;
@@ -106,6 +112,11 @@ public abstract class AbstractReadConverter<T extends Spot> implements Converter
 
   protected void begin() {}
 
+  /** Reads and writes the next read. Called by {@link #run()} until it is done. */
+  protected void writeNext() throws ReadWriterException {
+    readWriter.write(getNextSpot());
+  }
+
   protected void end() {}
 
   private boolean isWithinReadLimit() {
@@ -124,6 +135,8 @@ public abstract class AbstractReadConverter<T extends Spot> implements Converter
       spot = getNextSpotFromInputStream(istream);
       ++readCount;
       baseCount += spot.getBaseCount();
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(spot.getBaseCount());
 
       return spot;
     } catch (EOFException e) {
@@ -11,11 +11,16 @@
 package uk.ac.ebi.ena.readtools.loader.common.converter;
 
 import htsjdk.samtools.util.FastqQualityFormat;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 import uk.ac.ebi.ena.readtools.utils.Utils;
 
 /**
@@ -30,6 +35,8 @@ public class AutoNormalizeQualityReadConverter extends AbstractReadConverter<Rea
 
   private volatile ReadReader readReader;
 
+  private ReadBatch batch;
+
   public AutoNormalizeQualityReadConverter(
       InputStream istream, ReadWriter<Read, ?> writer, String defaultReadIndex, String filePath) {
     super(istream, writer);
@@ -69,6 +76,49 @@ public class AutoNormalizeQualityReadConverter extends AbstractReadConverter<Rea
     }
   }
 
+  /**
+   * Writers accepting {@link ReadBatch batches} are given up to {@link ReadBatch#DEFAULT_CAPACITY}
+   * reads at a time, read straight into the batch.
+   */
+  @Override
+  protected void writeNext() throws ReadWriterException {
+    if (!(readWriter instanceof ReadBatchWriter)) {
+      super.writeNext();
+      return;
+    }
+
+    if (batch == null) {
+      batch = new ReadBatch();
+    }
+    batch.clear();
+    try {
+      while (!batch.isFull() && !isDone()) {
+        readInto(batch);
+      }
+    } finally {
+      // Reads before a failing one are written first, as they are when not batching.
+      if (!batch.isEmpty()) {
+        ((ReadBatchWriter<?>) readWriter).write(batch);
+      }
+    }
+  }
+
+  private void readInto(ReadBatch batch) {
+    try {
+      readReader.read(istream, batch);
+      ++readCount;
+      baseCount += batch.getBasesLength(batch.size() - 1);
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(batch.getBasesLength(batch.size() - 1));
+    } catch (EOFException e) {
+      throw new ConverterEOFException(readCount);
+    } catch (ConverterException e) {
+      throw e;
+    } catch (Throwable cause) {
+      throw new ConverterException(cause);
+    }
+  }
+
   @Override
   public Read getNextSpotFromInputStream(InputStream inputStream) throws IOException {
     return readReader.read(inputStream);
@@ -15,11 +15,14 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterMemoryLimitException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 
 /**
  * Similar to {@link AutoNormalizeQualityReadConverter}, but here, base quality normalizer is
@@ -89,7 +92,16 @@ public class MultiFastqConverter<T extends Spot> implements Converter {
     return baseCount;
   }
 
+  /**
+   * Reads and writes all reads. Writers accepting {@link ReadBatch batches} are given up to {@link
+   * ReadBatch#DEFAULT_CAPACITY} reads at a time.
+   */
   public void run() {
+    if (readWriter instanceof ReadBatchWriter) {
+      runBatches((ReadBatchWriter<?>) readWriter);
+      return;
+    }
+
     try {
       do {
         readWriter.write(convert());
@@ -106,6 +118,34 @@ public class MultiFastqConverter<T extends Spot> implements Converter {
     }
   }
 
+  private void runBatches(ReadBatchWriter<?> batchWriter) {
+    ReadBatch batch = new ReadBatch();
+    try {
+      do {
+        batch.clear();
+        try {
+          while (!batch.isFull() && !isDone()) {
+            convert(batch);
+          }
+        } finally {
+          // Reads before a failing one are written first, as they are when not batching.
+          if (!batch.isEmpty()) {
+            batchWriter.write(batch);
+          }
+        }
+      } while (!isDone());
+    } catch (ConverterEOFException ignored) {
+    } catch (Exception e) {
+      if (e instanceof ReadWriterException
+          || e instanceof ReadWriterMemoryLimitException
+          || e instanceof ConverterException) {
+        throw e;
+      } else {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
   public void runOnce() {
     try {
       if (!isDone()) {
@@ -139,20 +179,50 @@ public class MultiFastqConverter<T extends Spot> implements Converter {
 
       readCount++;
       baseCount += spot.getBaseCount();
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(spot.getBaseCount());
 
       return spot;
     } catch (EOFException e) {
-      readersCompleted.add(readers.get(readerIndex));
-      readers.remove(readerIndex);
+      throw completeReader();
+    } catch (ConverterException e) {
+      throw e;
+    } catch (Exception cause) {
+      throw new ConverterException(cause);
+    }
+  }
+
+  /** Same as {@link #convert()}, adding the read to the batch. */
+  private void convert(ReadBatch batch) {
+    try {
+      if (readerIndex >= readers.size()) {
+        readerIndex = 0;
+      }
+
+      readers.get(readerIndex).read(istreams.get(readerIndex), batch);
 
-      istreamsCompleted.add(istreams.get(readerIndex));
-      istreams.remove(readerIndex);
+      readerIndex++;
 
-      throw new ConverterEOFException(readCount);
+      readCount++;
+      baseCount += batch.getBasesLength(batch.size() - 1);
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(batch.getBasesLength(batch.size() - 1));
+    } catch (EOFException e) {
+      throw completeReader();
     } catch (ConverterException e) {
       throw e;
     } catch (Exception cause) {
       throw new ConverterException(cause);
     }
   }
+
+  private ConverterEOFException completeReader() {
+    readersCompleted.add(readers.get(readerIndex));
+    readers.remove(readerIndex);
+
+    istreamsCompleted.add(istreams.get(readerIndex));
+    istreams.remove(readerIndex);
+
+    return new ConverterEOFException(readCount);
+  }
 }
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common.converter;
+
+import htsjdk.samtools.SAMException;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import uk.ac.ebi.ena.readtools.common.fastq.FastqSplitter;
+import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.loader.common.MappedFileInputStream;
+import uk.ac.ebi.ena.readtools.loader.common.converter.ReadReader.ReadStyle;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterMemoryLimitException;
+import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
+
+/**
+ * Same as a {@link MultiFastqConverter} of a single uncompressed or BGZF compressed FASTQ file, but
+ * parts of the file are parsed on a pool of threads. The file is split by a {@link FastqSplitter}
+ * into parts of about {@link #PART_SIZE} bytes, each part is parsed into {@link ReadBatch batches}
+ * on its own and the batches are written in file order on the calling thread. Uncompressed files
+ * are read from memory mappings.
+ *
+ * <p>Read and base counts and errors, with their line numbers, are the same as when parsing the
+ * file sequentially. A part is only taken as parsed if it ends with a line feed after a whole
+ * record, and if its read names have the style found first. Otherwise, and on any error, the file
+ * is parsed sequentially from the start of that part on.
+ */
+public class ParallelFastqConverter<T extends Spot> implements Converter {
+  /** Bytes of an uncompressed file per part, parts of BGZF compressed files are a quarter of it. */
+  public static final long PART_SIZE = 4 << 20;
+
+  // As given to the reader of a single stream by MultiFastqConverter.
+  private static final String DEFAULT_READ_INDEX = "1";
+
+  private final File file;
+  private final QualityNormalizer qualityNormalizer;
+  private final ReadWriter<Read, T> readWriter;
+  private final Long readLimit;
+  private final int threads;
+  private final long partSize;
+
+  long readCount = 0, baseCount = 0;
+
+  // Reader and stream of the file once it is parsed sequentially.
+  private ReadReader reader;
+  private InputStream istream;
+  private boolean isEofReached;
+
+  public ParallelFastqConverter(File fastqFile, ReadWriter<Read, T> readWriter) {
+    this(fastqFile, null, readWriter, null, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param qualityNormalizer Normalizer of the quality scores, or null to keep them.
+   * @param readLimit Only read limited amount of reads.
+   * @param threads Number of threads parsing parts.
+   */
+  public ParallelFastqConverter(
+      File fastqFile,
+      QualityNormalizer qualityNormalizer,
+      ReadWriter<Read, T> readWriter,
+      Long readLimit,
+      int threads) {
+    this(fastqFile, qualityNormalizer, readWriter, readLimit, threads, PART_SIZE);
+  }
+
+  ParallelFastqConverter(
+      File fastqFile,
+      QualityNormalizer qualityNormalizer,
+      ReadWriter<Read, T> readWriter,
+      Long readLimit,
+      int threads,
+      long partSize) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+
+    this.file = fastqFile;
+    this.qualityNormalizer = qualityNormalizer;
+    this.readWriter = readWriter;
+    this.readLimit = readLimit;
+    this.threads = threads;
+    this.partSize = partSize;
+  }
+
+  /**
+   * @return True for files that can be split into parts, which are uncompressed or BGZF compressed.
+   */
+  public static boolean isSplittable(File file) {
+    return FastqSplitter.isSplittable(file);
+  }
+
+  public long getReadCount() {
+    return readCount;
+  }
+
+  public long getBaseCount() {
+    return baseCount;
+  }
+
+  /**
+   * Reads and writes all reads. Writers accepting {@link ReadBatch batches} are given whole
+   * batches. After {@link #runOnce()} the rest of the file is parsed sequentially.
+   */
+  public void run() {
+    try {
+      if (isDone()) {
+        return;
+      }
+      if (null == reader) {
+        runParts();
+      } else {
+        runSequentially();
+      }
+    } catch (ConverterEOFException ignored) {
+    } catch (Exception e) {
+      if (e instanceof ReadWriterException
+          || e instanceof ReadWriterMemoryLimitException
+          || e instanceof ConverterException) {
+        throw e;
+      } else {
+        throw new RuntimeException(e);
+      }
+    } finally {
+      closeStream();
+    }
+  }
+
+  public void runOnce() {
+    try {
+      if (!isDone()) {
+        if (null == reader) {
+          boolean blockCompressed = isBlockCompressed();
+          openStream(blockCompressed, 0, getEnd(blockCompressed), 0, null);
+        }
+        readWriter.write(convert());
+      }
+    } catch (ConverterEOFException ignored) {
+      closeStream();
+    } catch (Exception e) {
+      if (e instanceof ReadWriterException
+          || e instanceof ReadWriterMemoryLimitException
+          || e instanceof ConverterException) {
+        throw e;
+      } else {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  public boolean isDone() {
+    return isEofReached || (readLimit != null && readCount >= readLimit);
+  }
+
+  private void runParts() {
+    boolean blockCompressed = isBlockCompressed();
+    long partSize = blockCompressed ? this.partSize / 4 : this.partSize;
+    long[] starts;
+    try {
+      starts =
+          FastqSplitter.split(
+              file, blockCompressed, (int) Math.min(1 << 20, 1 + file.length() / partSize));
+    } catch (SAMException e) {
+      // No record start found, as in FASTQ with bases over several lines.
+      starts = new long[] {0, getEnd(blockCompressed)};
+    } catch (IOException e) {
+      throw new ConverterException(e);
+    }
+    int partCount = starts.length - 1;
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "fastq-parser");
+              thread.setDaemon(true);
+              return thread;
+            });
+    Deque<Future<Part>> pending = new ArrayDeque<>();
+    try {
+      long lineNumber = 0;
+      ReadStyle readStyle = null;
+      int submitted = 0;
+      for (int part = 0; part < partCount; part++) {
+        // Enough parts in flight to keep the threads busy while the oldest one is being written.
+        while (submitted < partCount && pending.size() < 2 * threads) {
+          long start = starts[submitted];
+          long end = starts[submitted + 1];
+          boolean last = ++submitted == partCount;
+          pending.add(executor.submit(() -> parse(blockCompressed, start, end, last)));
+        }
+
+        Part parsed;
+        try {
+          parsed = pending.remove().get();
+        } catch (ExecutionException e) {
+          throw new ConverterException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ConverterException(e);
+        }
+        if (!parsed.isParsed
+            || (null != readStyle && null != parsed.readStyle && readStyle != parsed.readStyle)) {
+          executor.shutdownNow();
+          openStream(blockCompressed, starts[part], starts[partCount], lineNumber, readStyle);
+          runSequentially();
+          return;
+        }
+
+        write(parsed.batches);
+        if (isDone()) {
+          return;
+        }
+        lineNumber += parsed.lineCount;
+        if (null == readStyle) {
+          readStyle = parsed.readStyle;
+        }
+      }
+      isEofReached = true;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @param last True for the last part, which need not end with a line feed.
+   */
+  private Part parse(boolean blockCompressed, long start, long end, boolean last) {
+    Part part = new Part();
+    ReadReader partReader = new ReadReader(qualityNormalizer, DEFAULT_READ_INDEX);
+    try (PartInputStream inputStream =
+        new PartInputStream(
+            blockCompressed
+                ? FastqSplitter.open(file, true, start, end)
+                : new MappedFileInputStream(file, start, end))) {
+      ReadBatch batch = new ReadBatch();
+      part.batches.add(batch);
+      try {
+        while (true) {
+          if (batch.isFull()) {
+            batch = new ReadBatch();
+            part.batches.add(batch);
+          }
+          inputStream.startRecord();
+          partReader.read(inputStream, batch);
+        }
+      } catch (EOFException e) {
+        part.isParsed =
+            !inputStream.isRecordStarted() && (last || '\n' == inputStream.getLastByte());
+      }
+    } catch (Exception e) {
+      // The part is parsed again sequentially, to fail the same way.
+    }
+    part.lineCount = partReader.getLineNumber();
+    part.readStyle = partReader.getReadStyle();
+    return part;
+  }
+
+  private void write(List<ReadBatch> batches) {
+    for (ReadBatch batch : batches) {
+      int size = batch.size();
+      if (null != readLimit) {
+        size = (int) Math.min(size, readLimit - readCount);
+      }
+      if (size <= 0) {
+        return;
+      }
+      if (size < batch.size()) {
+        ReadBatch head = new ReadBatch(size);
+        for (int i = 0; i < size; i++) {
+          head.add(batch.getRead(i));
+        }
+        batch = head;
+      }
+
+      if (readWriter instanceof ReadBatchWriter) {
+        ((ReadBatchWriter<?>) readWriter).write(batch);
+      } else {
+        for (int i = 0; i < batch.size(); i++) {
+          readWriter.write(batch.getRead(i));
+        }
+      }
+      readCount += batch.size();
+      baseCount += batch.getBaseCount();
+      Metrics.READS_IN.add(batch.size());
+      Metrics.BASES_IN.add(batch.getBaseCount());
+    }
+  }
+
+  /** Same as {@link MultiFastqConverter#run()} with the stream opened. */
+  private void runSequentially() {
+    if (!(readWriter instanceof ReadBatchWriter)) {
+      do {
+        readWriter.write(convert());
+      } while (!isDone());
+      return;
+    }
+
+    ReadBatchWriter<?> batchWriter = (ReadBatchWriter<?>) readWriter;
+    ReadBatch batch = new ReadBatch();
+    do {
+      batch.clear();
+      try {
+        while (!batch.isFull() && !isDone()) {
+          convert(batch);
+        }
+      } finally {
+        // Reads before a failing one are written first, as they are when not batching.
+        if (!batch.isEmpty()) {
+          batchWriter.write(batch);
+        }
+      }
+    } while (!isDone());
+  }
+
+  private Read convert() {
+    try {
+      Read spot = reader.read(istream);
+
+      readCount++;
+      baseCount += spot.getBaseCount();
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(spot.getBaseCount());
+
+      return spot;
+    } catch (EOFException e) {
+      isEofReached = true;
+      throw new ConverterEOFException(readCount);
+    } catch (ConverterException e) {
+      throw e;
+    } catch (Exception cause) {
+      throw new ConverterException(cause);
+    }
+  }
+
+  /** Same as {@link #convert()}, adding the read to the batch. */
+  private void convert(ReadBatch batch) {
+    try {
+      reader.read(istream, batch);
+
+      readCount++;
+      baseCount += batch.getBasesLength(batch.size() - 1);
+      Metrics.READS_IN.increment();
+      Metrics.BASES_IN.add(batch.getBasesLength(batch.size() - 1));
+    } catch (EOFException e) {
+      isEofReached = true;
+      throw new ConverterEOFException(readCount);
+    } catch (ConverterException e) {
+      throw e;
+    } catch (Exception cause) {
+      throw new ConverterException(cause);
+    }
+  }
+
+  /**
+   * Opens the file for parsing sequentially from a record on.
+   *
+   * @param lineNumber Number of line feeds before the record.
+   * @param readStyle Style of the read names before the record, or null if there are none.
+   */
+  private void openStream(
+      boolean blockCompressed, long start, long end, long lineNumber, ReadStyle readStyle) {
+    reader = new ReadReader(qualityNormalizer, DEFAULT_READ_INDEX);
+    reader.setLineNumber(lineNumber);
+    reader.setReadStyle(readStyle);
+    try {
+      istream =
+          blockCompressed
+              ? new BufferedInputStream(FastqSplitter.open(file, true, start, end), 1024 * 1024)
+              : new MappedFileInputStream(file, start, end);
+    } catch (IOException e) {
+      throw new ConverterException(e);
+    }
+  }
+
+  private void closeStream() {
+    if (null != istream) {
+      try {
+        istream.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  private boolean isBlockCompressed() {
+    try {
+      return FastqSplitter.isBlockCompressed(file);
+    } catch (IOException e) {
+      throw new ConverterException(e);
+    }
+  }
+
+  private long getEnd(boolean blockCompressed) {
+    return blockCompressed ? Long.MAX_VALUE : file.length();
+  }
+
+  /** Reads of one part, kept until the parts before it have been written. */
+  private static final class Part {
+    private final List<ReadBatch> batches = new ArrayList<>();
+    private boolean isParsed;
+    private long lineCount;
+    private ReadStyle readStyle;
+  }
+
+  /** Keeps the last byte read and whether a record has started since {@link #startRecord()}. */
+  private static final class PartInputStream extends InputStream {
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+    private int lastByte = -1;
+    private boolean recordStarted;
+
+    PartInputStream(InputStream in) {
+      this.in = in;
+    }
+
+    void startRecord() {
+      recordStarted = false;
+    }
+
+    /**
+     * @return True if anything but whitespace has been read since {@link #startRecord()}.
+     */
+    boolean isRecordStarted() {
+      return recordStarted;
+    }
+
+    int getLastByte() {
+      return lastByte;
+    }
+
+    @Override
+    public int read() throws IOException {
+      while (position == limit) {
+        position = 0;
+        limit = in.read(buffer, 0, buffer.length);
+        if (limit < 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      int b = buffer[position++] & 0xff;
+      lastByte = b;
+      recordStarted |= b > ' ';
+      return b;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
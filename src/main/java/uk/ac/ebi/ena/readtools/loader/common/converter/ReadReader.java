@@ -14,14 +14,16 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.common.reads.ReadValidationKernel;
 import uk.ac.ebi.ena.readtools.loader.common.InvalidBaseCharacterException;
+import uk.ac.ebi.ena.readtools.loader.common.MappedFileInputStream;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
 
 class ReadReader {
 
@@ -34,9 +36,7 @@ class ReadReader {
     public Long line_no;
     public boolean allow_empty;
     public ReadStyle read_style;
-    public Matcher m_bases;
     public Matcher m_qname;
-    public Matcher m_quals;
     public Matcher m_quals_sd;
     public Matcher m_casava_1_8_name;
     public Matcher m_base_name;
@@ -45,18 +45,14 @@ class ReadReader {
         Long line_no,
         boolean allow_empty,
         ReadStyle read_style,
-        Matcher m_bases,
         Matcher m_qname,
-        Matcher m_quals,
         Matcher m_quals_sd,
         Matcher m_casava_1_8_name,
         Matcher m_base_name) {
       this.line_no = line_no;
       this.allow_empty = allow_empty;
       this.read_style = read_style;
-      this.m_bases = m_bases;
       this.m_qname = m_qname;
-      this.m_quals = m_quals;
       this.m_quals_sd = m_quals_sd;
       this.m_casava_1_8_name = m_casava_1_8_name;
       this.m_base_name = m_base_name;
@@ -103,15 +99,14 @@ class ReadReader {
 
   // regexs
   static final Pattern p_base_name = Pattern.compile("^@(.*)"); // for name of the record
-  private static final Pattern p_bases =
-      Pattern.compile("^([ACGTNUactgnu.]*?)\\+$"); // bases, trailing '+' is obligatory
+  private static final ReadValidationKernel bases_charset =
+      new ReadValidationKernel("ACGTNUactgnu."); // bases, trailing '+' is obligatory
   private static final Pattern p_qual_name =
       Pattern.compile("^(\\S*)(?: .*$|$)"); // name of quality record
   //  Pattern p_quals     = Pattern.compile(
   // "^([\\!\\\"\\#\\$\\%\\&\\'\\(\\)\\*\\+,\\-\\.\\/0-9:;<=>\\?\\@A-I]+)$" ); //qualities
   private static final Pattern p_quals_sd =
       Pattern.compile("^-?[0-9]{0,3}( +-?[0-9]{1,3})*[ -]*?$");
-  private static final Pattern p_quals = Pattern.compile("^([!-~]*?)$"); // qualities
   private static final char base_stopper = '+';
 
   private final DataSpotReaderParams params = defaultParams();
@@ -123,6 +118,14 @@ class ReadReader {
 
   private final int expectedBaseLength;
 
+  /** The line being read, reused for every line. */
+  private final StringBuilder lineBuffer = new StringBuilder(1024);
+
+  // fields of the record being read, reused for every record
+  private final Field name = new Field();
+  private final Field bases = new Field();
+  private final Field qualityScores = new Field();
+
   /** Creates a reader that does not perform any quality normalization. */
   public ReadReader(String defaultReadIndex) {
     this(null, defaultReadIndex);
@@ -147,39 +150,82 @@ class ReadReader {
     this.expectedBaseLength = expectedLength;
   }
 
+  /**
+   * @return Style of the read names, detected from the first record, or null before it is read.
+   */
+  ReadStyle getReadStyle() {
+    return params.read_style;
+  }
+
+  /** Sets the style of the read names instead of detecting it from the first record. */
+  void setReadStyle(ReadStyle readStyle) {
+    params.read_style = readStyle;
+  }
+
+  /**
+   * @return Number of line feeds read so far, which errors are reported at.
+   */
+  long getLineNumber() {
+    return params.line_no;
+  }
+
+  /** Sets the number of line feeds read so far, to read on from a line further into a file. */
+  void setLineNumber(long lineNumber) {
+    params.line_no = lineNumber;
+  }
+
   public Read read(InputStream inputStream) throws IOException {
+    readRecord(inputStream);
+
+    return new Read(name.toString(), bases.toString(), qualityScores.toString(), defaultReadIndex);
+  }
+
+  /** Reads the next record into the batch, which must not be full. */
+  public void read(InputStream inputStream, ReadBatch batch) throws IOException {
+    readRecord(inputStream);
+
+    batch.add(
+        name.data,
+        name.length,
+        bases.data,
+        bases.length,
+        qualityScores.data,
+        qualityScores.length,
+        defaultReadIndex);
+  }
+
+  private void readRecord(InputStream inputStream) throws IOException {
     boolean recordStarted = false;
 
-    String bases = null;
-    String qualityScores = null;
+    name.reset();
+    bases.reset();
+    qualityScores.reset();
     try {
-      String name = readBaseName(inputStream);
+      readBaseName(inputStream);
       recordStarted = true;
 
-      bases = readBases(inputStream);
+      readBases(inputStream);
       readQualName(inputStream);
-      qualityScores = readQualityScores(inputStream, name, bases);
-      checkForEmptyBasesAndQualityScores(bases, qualityScores);
+      readQualityScores(inputStream);
+      checkForEmptyBasesAndQualityScores();
       if (qualityNormalizer != null) {
-        qualityScores = normaliseQualityScores(qualityScores);
+        normaliseQualityScores();
       }
-
-      return new Read(name, bases, qualityScores, defaultReadIndex);
     } catch (EOFException e) {
       // Read data must always be checked even when the end of stream has been reached.
       if (recordStarted) {
-        checkForEmptyBasesAndQualityScores(bases, qualityScores);
+        checkForEmptyBasesAndQualityScores();
       }
 
       throw e;
     }
   }
 
-  private String readBaseName(InputStream is) throws IOException {
-    String line = readLine(is);
-    while (line.trim().length() == 0) line = readLine(is);
+  private void readBaseName(InputStream is) throws IOException {
+    CharSequence line = readLine(is);
+    while (isBlank(line)) line = readLine(is);
 
-    if (line.trim().length() > 257) // uint8 + @ character
+    if (trimmedLength(line) > 257) // uint8 + @ character
     throw new ConverterException(
           params.line_no, String.format("Line's length exceeds 256 characters: [%s]", line));
 
@@ -198,7 +244,8 @@ class ReadReader {
               params.line_no,
               String.format(
                   "Line [%s] does not match %s regexp", line, ReadReader.ReadStyle.CASAVA18));
-        return line.substring(1); // strip leading '@', preserve full Casava 1.8 name
+        name.set(line, 1, line.length()); // strip leading '@', preserve full Casava 1.8 name
+        break;
 
       case FASTQ:
         if (!params.m_base_name.reset(line).find())
@@ -207,7 +254,8 @@ class ReadReader {
               String.format(
                   "Line [%s] does not match %s regexp", line, ReadReader.ReadStyle.FASTQ));
 
-        return params.m_base_name.group(1);
+        name.set(line, params.m_base_name.start(1), params.m_base_name.end(1));
+        break;
 
       default:
         throw new ConverterException(
@@ -216,82 +264,80 @@ class ReadReader {
   }
 
   // get bases
-  private String readBases(InputStream is) throws IOException {
-    String line = readLine(is, -1, base_stopper);
-    while (line.trim().length() == 0) line = readLine(is, -1, base_stopper);
-
-    if (!params.m_bases.reset(line).find()) handleInvalidBases(line);
+  private void readBases(InputStream is) throws IOException {
+    CharSequence line = readLine(is, -1, base_stopper);
+    while (isBlank(line)) line = readLine(is, -1, base_stopper);
 
-    String value = params.m_bases.group(1);
+    int start = 0;
+    int end = line.length() - 1;
+    if (end < 0 || base_stopper != line.charAt(end) || !bases_charset.isValid(line, start, end))
+      handleInvalidBases(line.toString());
 
     // check against expected, if any
-    if (-1 < expectedBaseLength && expectedBaseLength != value.length())
+    if (-1 < expectedBaseLength && expectedBaseLength != end - start)
       throw new ConverterException(
           params.line_no,
           String.format(
               "Expected base length [%d] does not match the read one[%d]",
-              expectedBaseLength, value.length()));
+              expectedBaseLength, end - start));
 
-    return value;
+    bases.set(line, start, end);
   }
 
   // get name of quality line
   private void readQualName(InputStream is) throws IOException {
-    String line = readLine(is);
+    CharSequence line = readLine(is);
     if (!params.m_qname.reset(line).find())
       throw new ConverterException(
           params.line_no, String.format("Line [%s] does not match regexp", line));
   }
 
-  private String readQualityScores(InputStream is, String readName, String readBases)
-      throws IOException {
-    int expectedQualLength = 0 == readBases.length() ? -1 : readBases.length();
-
-    String line = readLine(is, expectedQualLength);
-    while (expectedQualLength >= 0 && line.trim().length() == 0)
-      line = readLine(is, expectedQualLength);
+  private void readQualityScores(InputStream is) throws IOException {
+    int expectedQualLength = 0 == bases.length ? -1 : bases.length;
 
-    String value = null;
+    CharSequence line = readLine(is, expectedQualLength);
+    while (expectedQualLength >= 0 && isBlank(line)) line = readLine(is, expectedQualLength);
 
-    if (!params.m_quals.reset(line).find()) {
+    if (!ReadValidationKernel.isValidQualities(line)) {
       if (!params.m_quals_sd.reset(line).matches())
         throw new ConverterException(
             params.line_no, String.format("Line [%s] does not match regexp", line));
       else {
-        line += readLine(is);
+        String scoreLine = line.toString() + readLine(is);
 
-        if (!params.m_quals_sd.reset(line).matches())
+        if (!params.m_quals_sd.reset(scoreLine).matches())
           throw new ConverterException(
-              params.line_no, String.format("Line [%s] does not match regexp", line));
+              params.line_no, String.format("Line [%s] does not match regexp", scoreLine));
 
-        String[] scores = line.split(" +");
-        StringBuilder sb = new StringBuilder(scores.length);
-        for (String score : scores) sb.append((char) (Integer.parseInt(score) + '!'));
-        value = sb.toString();
+        String[] scores = scoreLine.split(" +");
+        for (String score : scores) qualityScores.append(Integer.parseInt(score) + '!');
 
-        if (expectedQualLength != value.length())
+        if (expectedQualLength != qualityScores.length)
           throw new ConverterException(
               params.line_no,
               String.format(
                   "%s Expected qual length [%d] does not match length of the read one[%d]",
-                  readName, expectedQualLength, value.length()));
+                  name, expectedQualLength, qualityScores.length));
       }
     } else {
-      value = params.m_quals.group(1);
+      int start = 0;
+      int end = line.length();
 
       // check against expected
-      if (expectedQualLength >= 0 && expectedQualLength != value.length())
+      if (expectedQualLength >= 0 && expectedQualLength != end - start)
         throw new ConverterException(
             params.line_no,
             String.format(
                 "%s Expected qual length [%d] does not match length of the read one[%d]",
-                readName, expectedQualLength, value.length()));
+                name, expectedQualLength, end - start));
+
+      qualityScores.set(line, start, end);
 
       // we are lenient now.
       if (expectedQualLength >= 0) {
         try {
           line = readLine(is);
-          if (line.trim().length() > 0)
+          if (!isBlank(line))
             throw new ConverterException(
                 params.line_no,
                 String.format(
@@ -302,44 +348,44 @@ class ReadReader {
         }
       }
     }
-    return value;
   }
 
-  private String normaliseQualityScores(String qualityScores) {
-    byte[] quals = qualityScores.getBytes(StandardCharsets.UTF_8);
-    qualityNormalizer.normalize(quals);
-    return new String(quals, StandardCharsets.UTF_8);
+  private void normaliseQualityScores() {
+    qualityNormalizer.normalize(qualityScores.data, 0, qualityScores.length);
   }
 
-  private void checkForEmptyBasesAndQualityScores(String bases, String qualityScores) {
+  private void checkForEmptyBasesAndQualityScores() {
     if (!params.allow_empty) {
-      if (null == bases
-          || null == qualityScores
-          || 0 == bases.length()
-          || 0 == qualityScores.length())
+      if (bases.length <= 0 || qualityScores.length <= 0)
         throw new ConverterException(params.line_no, "Empty lines not allowed");
     }
   }
 
   // reads stream line till line separator
-  protected String readLine(InputStream istream) throws IOException {
+  protected CharSequence readLine(InputStream istream) throws IOException {
     return readLine(istream, -1);
   }
 
   // reads stream line till either the length or in case of len = -1 till line separator
-  protected String readLine(InputStream istream, long len) throws IOException {
+  protected CharSequence readLine(InputStream istream, long len) throws IOException {
     return readLine(istream, len, -1);
   }
 
   // reads stream line till either the length or in case of len = -1 till line separator
   // here is unfair checking of stop_seq ( only 1 symbol is allowed!!! )
-  protected String readLine(InputStream istream, long len, int stop) throws IOException {
-    StringBuilder b = new StringBuilder(1024);
+  // the returned line is overwritten by the next call
+  protected CharSequence readLine(InputStream istream, long len, int stop) throws IOException {
+    StringBuilder b = lineBuffer;
+    b.setLength(0);
+
+    // bytes of mapped files are read without a virtual call each
+    MappedFileInputStream mapped =
+        istream instanceof MappedFileInputStream ? (MappedFileInputStream) istream : null;
 
     int space_cnt = 0;
 
     for (int i = 0; len == -1 || i < len; ++i) {
-      int c = istream.read();
+      int c = null == mapped ? istream.read() : mapped.read();
       if (c == ' ') {
         space_cnt++;
       } else if (c == '\r') {
@@ -360,7 +406,7 @@ class ReadReader {
         continue;
       } else if (c == -1) {
         // TODO: should remove trailing spaces?
-        if (b.length() > 0) return b.toString();
+        if (b.length() > 0) return b;
 
         throw new EOFException();
       } else {
@@ -370,24 +416,66 @@ class ReadReader {
       b.append((char) c);
       if (c == stop) break;
     }
-    return b.toString();
+    return b;
   }
 
-  private void handleInvalidBases(String bases) {
-    Matcher matcher = p_bases.matcher("");
+  /** Same as {@code line.toString().trim().isEmpty()}. */
+  private static boolean isBlank(CharSequence line) {
+    return 0 == trimmedLength(line);
+  }
 
+  /** Same as {@code line.toString().trim().length()}. */
+  private static int trimmedLength(CharSequence line) {
+    int start = 0;
+    int end = line.length();
+    while (start < end && line.charAt(start) <= ' ') start++;
+    while (start < end && line.charAt(end - 1) <= ' ') end--;
+    return end - start;
+  }
+
+  private void handleInvalidBases(String bases) {
     // remove the trailing '+' symbol.
     bases = bases.substring(0, bases.length() - 1);
 
-    Set<Character> invalidBaseChars =
-        bases
-            .chars()
-            .mapToObj(intChar -> (char) intChar)
-            // '+' symbol is added because its present in the regex pattern.
-            .filter(base -> !matcher.reset(String.valueOf(base) + "+").matches())
-            .collect(Collectors.toSet());
+    throw new InvalidBaseCharacterException(bases, bases_charset.findInvalid(bases));
+  }
+
+  /** Bytes of a record field, one per character, as in {@link ReadBatch}. */
+  private static final class Field {
+    private byte[] data = new byte[256];
+    // -1 when not read
+    private int length = -1;
 
-    throw new InvalidBaseCharacterException(bases, invalidBaseChars);
+    void reset() {
+      length = -1;
+    }
+
+    void set(CharSequence chars, int start, int end) {
+      ensureCapacity(end - start);
+      for (int i = start; i < end; i++) {
+        data[i - start] = (byte) chars.charAt(i);
+      }
+      length = end - start;
+    }
+
+    void append(int c) {
+      if (length < 0) {
+        length = 0;
+      }
+      ensureCapacity(length + 1);
+      data[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (data.length < capacity) {
+        data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+      }
+    }
+
+    @Override
+    public String toString() {
+      return length < 0 ? null : new String(data, 0, length, StandardCharsets.ISO_8859_1);
+    }
   }
 
   private static DataSpotReaderParams defaultParams() {
@@ -395,9 +483,7 @@ class ReadReader {
         0L,
         true,
         (ReadStyle) null,
-        p_bases.matcher(""),
         p_qual_name.matcher(""),
-        p_quals.matcher(""),
         p_quals_sd.matcher(""),
         p_casava_1_8_name.matcher(""),
         p_base_name.matcher(""));
@@ -27,10 +27,14 @@ import java.util.Map.Entry;
 import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import uk.ac.ebi.ena.readtools.loader.common.Pair;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 
 public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
     extends AbstractReadWriter<T1, T2> {
+  private static final Logger log = LoggerFactory.getLogger(AbstractPagedReadWriter.class);
   private static final int OUTPUT_BUFFER_SIZE = 8192;
   private boolean use_spill = true;
   private List<File> files = new ArrayList<File>();
@@ -74,16 +78,14 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
 
     tmp_file.deleteOnExit();
     files.add(tmp_file);
+    Metrics.SPILL_PAGES.increment();
     return tmp_file;
   }
 
   public File spillMap(Map<String, List<T1>> map) {
-    long started = System.currentTimeMillis();
+    long started = Metrics.SPILL.start();
     try {
       File f = getTempFile();
-      if (verbose) {
-        System.out.printf("spill: %s", f.getAbsolutePath());
-      }
 
       ObjectOutputStream oos = openOutputStream(f);
       // spill & count records
@@ -100,10 +102,15 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
       oos.flush();
       oos.close();
 
+      Metrics.SPILL_BYTES.add(f.length());
+      long nanos = Metrics.SPILL.stop(started);
       if (verbose) {
-        System.out.printf(
-            "\t-%d map entries ( %d records ) in %d ms\n",
-            map.size(), i, System.currentTimeMillis() - started);
+        log.info(
+            "spill: {}\t-{} map entries ( {} records ) in {} ms",
+            f.getAbsolutePath(),
+            map.size(),
+            i,
+            nanos / 1_000_000);
       }
       return f;
     } catch (Exception e) {
@@ -128,14 +135,11 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
   public Map<String, List<T1>> fillMap(File file) {
     Map<String, List<T1>> result = new HashMap<>(spill_page_size);
     ObjectInputStream ois = null;
-    long started = System.currentTimeMillis();
+    long started = Metrics.FILL.start();
     int i = 0;
 
     try {
       ois = openInputStream(file);
-      if (verbose) {
-        System.out.printf("fill:  %s", file.getAbsolutePath());
-      }
       for (; ; ) {
         @SuppressWarnings("unchecked")
         Pair<String, List<T1>> entry = (Pair<String, List<T1>>) ois.readObject();
@@ -155,10 +159,14 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
           e.printStackTrace();
         }
       }
+      long nanos = Metrics.FILL.stop(started);
       if (verbose) {
-        System.out.printf(
-            "\t+%d map entries ( %d records ) in %d ms\n",
-            result.size(), i, System.currentTimeMillis() - started);
+        log.info(
+            "fill:  {}\t+{} map entries ( {} records ) in {} ms",
+            file.getAbsolutePath(),
+            result.size(),
+            i,
+            nanos / 1_000_000);
       }
       return result;
     } catch (Exception e) {
@@ -171,13 +179,11 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
       if (spill_page_size <= super.spots.size() || spill_page_size_bytes <= super.spotsSizeBytes) {
 
         if (spill_page_size <= super.spots.size()) {
-          System.out.println(
-              "read count limit, reads: " + spots.size() + " bytes: " + super.spotsSizeBytes);
+          log.info("read count limit, reads: {} bytes: {}", spots.size(), super.spotsSizeBytes);
         }
 
         if (spill_page_size_bytes <= super.spotsSizeBytes) {
-          System.out.println(
-              "bytes limit, reads: " + spots.size() + " bytes: " + super.spotsSizeBytes);
+          log.info("bytes limit, reads: {} bytes: {}", spots.size(), super.spotsSizeBytes);
         }
 
         if (spill_abandon_limit_bytes > 0 && spill_total_bytes >= spill_abandon_limit_bytes) {
@@ -204,6 +210,7 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
         int generation = -1;
         int i = 0;
         do {
+          Metrics.CASCADE_GENERATIONS.increment();
           if (super.spots.isEmpty()) {
             super.spots = fillMap(files.get(i++));
           }
@@ -214,13 +221,11 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
             ObjectOutputStream oos = null;
             int read_spots = 0;
             int save_spots = 0;
+            long started = Metrics.FILL.start();
+            File f = files.get(j);
 
             try {
-              File f = files.get(j);
               ois = openInputStream(f);
-              if (verbose) {
-                System.out.printf("fill:  %s", f.getAbsolutePath());
-              }
 
               for (; ; ) {
                 @SuppressWarnings("unchecked")
@@ -242,20 +247,24 @@ public abstract class AbstractPagedReadWriter<T1 extends Spot, T2 extends Spot>
                 }
               }
             } catch (EOFException eof) {
-              if (verbose) {
-                System.out.printf("\t+%d records\n", read_spots);
-              }
               ois.close();
             }
 
             if (null != oos) {
-
+              oos.close();
+              File spilled = files.get(files.size() - 1);
+              Metrics.SPILL_BYTES.add(spilled.length());
               if (verbose) {
-                System.out.printf(
-                    "spill: %s\t-%d records\n",
-                    files.get(files.size() - 1).getAbsolutePath(), save_spots);
+                log.info("spill: {}\t-{} records", spilled.getAbsolutePath(), save_spots);
               }
-              oos.close();
+            }
+            long nanos = Metrics.FILL.stop(started);
+            if (verbose) {
+              log.info(
+                  "fill:  {}\t+{} records in {} ms",
+                  f.getAbsolutePath(),
+                  read_spots,
+                  nanos / 1_000_000);
             }
           }
 
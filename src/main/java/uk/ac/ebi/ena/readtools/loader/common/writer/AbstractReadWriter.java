@@ -15,9 +15,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 
 public abstract class AbstractReadWriter<T1 extends Spot, T2 extends Spot>
     implements ReadWriter<T1, T2> {
+  private static final Logger log = LoggerFactory.getLogger(AbstractReadWriter.class);
+
   protected Map<String, List<T1>> spots = null;
   protected ReadWriter<T2, ?> readWriter;
 
@@ -62,6 +67,10 @@ public abstract class AbstractReadWriter<T1 extends Spot, T2 extends Spot>
 
   public void cascadeErrors() throws ReadWriterException {
     for (Entry<String, List<T1>> entry : spots.entrySet()) {
+      // Buckets of paired writers keep a slot for each mate.
+      for (T1 spot : entry.getValue()) {
+        if (null != spot) Metrics.ORPHANS.increment();
+      }
       if (null != readWriter) readWriter.write(handleErrors(entry.getKey(), entry.getValue()));
       else System.out.println("<?> " + handleErrors(entry.getKey(), entry.getValue()));
     }
@@ -89,6 +98,7 @@ public abstract class AbstractReadWriter<T1 extends Spot, T2 extends Spot>
     if (isCollected(bucket)) {
       T2 assembly = assemble(key, bucket);
       assembled++;
+      Metrics.PAIRS_ASSEMBLED.increment();
 
       List<T1> removed = spots.remove(key);
       spotsSizeBytes -= bucketSize(removed);
@@ -105,9 +115,7 @@ public abstract class AbstractReadWriter<T1 extends Spot, T2 extends Spot>
 
       if (time > log_time) {
         log_time = time + log_interval;
-        System.out.println(
-            String.format(
-                "Ate: %d,\tAssembled: %d,\tDiff: %d", ate, assembled, ate - (assembled << 1)));
+        log.info("Ate: {},\tAssembled: {},\tDiff: {}", ate, assembled, ate - (assembled << 1));
       }
     }
   }
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common.writer;
+
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+
+/** Read writer that can also be given whole batches of reads. */
+public interface ReadBatchWriter<T2 extends Spot> extends ReadWriter<Read, T2> {
+  /**
+   * Writes all reads of the batch in order. The batch is cleared and refilled once this returns, so
+   * its arrays must not be kept.
+   *
+   * <p>By default each read is copied out of the batch and written on its own.
+   */
+  default void write(ReadBatch batch) throws ReadWriterException {
+    for (int i = 0; i < batch.size(); i++) {
+      write(batch.getRead(i));
+    }
+  }
+}
@@ -13,6 +13,7 @@ package uk.ac.ebi.ena.readtools.loader.fastq;
 import java.io.File;
 import java.util.Iterator;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.loader.common.PrefetchingIterator;
 
 public class FastqIterativeWriter implements Iterable<PairedRead> {
   public enum READ_TYPE {
@@ -29,19 +30,29 @@ public class FastqIterativeWriter implements Iterable<PairedRead> {
   private QualityNormalizer[] normalizers;
 
   private Long readLimit = null;
+  private int prefetchBatches = 0;
 
+  /**
+   * @return A {@link PrefetchingIterator} when prefetching, which consumers stopping early should
+   *     close.
+   */
   @Override
   public Iterator<PairedRead> iterator() {
     try {
-      return new MultiFastqConverterIterator(
-          tmp_folder,
-          spill_page_size,
-          spill_page_size_bytes,
-          spill_abandon_limit_bytes,
-          read_type,
-          files,
-          normalizers,
-          readLimit);
+      MultiFastqConverterIterator iterator =
+          new MultiFastqConverterIterator(
+              tmp_folder,
+              spill_page_size,
+              spill_page_size_bytes,
+              spill_abandon_limit_bytes,
+              read_type,
+              files,
+              normalizers,
+              readLimit);
+      return 0 < prefetchBatches
+          ? new PrefetchingIterator<>(
+              iterator, prefetchBatches, PrefetchingIterator.DEFAULT_BATCH_SIZE)
+          : iterator;
     } catch (Throwable t) {
       t.printStackTrace();
     }
@@ -104,4 +115,16 @@ public class FastqIterativeWriter implements Iterable<PairedRead> {
   public void setReadLimit(Long readLimit) {
     this.readLimit = readLimit;
   }
+
+  public int getPrefetchBatches() {
+    return prefetchBatches;
+  }
+
+  /**
+   * @param prefetchBatches Batches of reads parsed ahead on a background thread, or 0 to parse them
+   *     on the thread iterating.
+   */
+  public void setPrefetchBatches(int prefetchBatches) {
+    this.prefetchBatches = prefetchBatches;
+  }
 }
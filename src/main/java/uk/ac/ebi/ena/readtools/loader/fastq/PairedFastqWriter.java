@@ -10,19 +10,20 @@
  */
 package uk.ac.ebi.ena.readtools.loader.fastq;
 
-import static uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException.ErrorType.INVALID_READ_NAME;
-
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
+import uk.ac.ebi.ena.readtools.common.reads.ReadName;
+import uk.ac.ebi.ena.readtools.common.reads.ReadNameTokenizer;
 import uk.ac.ebi.ena.readtools.loader.common.writer.AbstractPagedReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 
-public class PairedFastqWriter extends AbstractPagedReadWriter<Read, PairedRead> {
+public class PairedFastqWriter extends AbstractPagedReadWriter<Read, PairedRead>
+    implements ReadBatchWriter<PairedRead> {
   // Provided readname structure is @{readkey}{separator:1(.|/|:|_)}{index:1(0:1:2)}
-  static final Pattern SPLIT_REGEXP = Pattern.compile("^(.*)(?:[\\.|:|/|_])([0-9]+)$");
+  static final Pattern SPLIT_REGEXP = ReadNameTokenizer.P_SEPARATOR_NAME;
   /*
   @ Each sequence identifier line starts with @
   1    <instrument> Characters
@@ -44,14 +45,15 @@ public class PairedFastqWriter extends AbstractPagedReadWriter<Read, PairedRead>
   //    A00953:544:HMTFHDSX3:2:1101:6768:1
   //             1        :  2   :    3       :   4  :  5   :   6   :  7
   //    "^([a-zA-Z0-9_-]+:[0-9]+:[a-zA-Z0-9]+:[0-9]+:[0-9]+:[0-9-]+:[0-9-]+)$"
-  static final Pattern CASAVA_LIKE_EXCLUDE_REGEXP =
-      Pattern.compile("^([a-zA-Z0-9_-]+:[0-9]+:[a-zA-Z0-9_-]+:[0-9]+:[0-9]+:[0-9-]+:[0-9-]+)$");
+  static final Pattern CASAVA_LIKE_EXCLUDE_REGEXP = ReadNameTokenizer.P_CASAVA_LIKE_NAME;
 
   public static final int KEY = 1;
   public static final int INDEX = 2;
 
   Integer index1 = null, index2 = null;
 
+  private final ReadNameTokenizer tokenizer = new ReadNameTokenizer();
+
   public PairedFastqWriter(
       File tmp_root,
       int spill_page_size,
@@ -61,45 +63,33 @@ public class PairedFastqWriter extends AbstractPagedReadWriter<Read, PairedRead>
   }
 
   public static String getReadKey(String readname) throws ReadWriterException {
-    return getReadPart(readname, KEY);
+    return parseReadName(readname).getKey();
   }
 
   public static String getPairNumber(String readname) throws ReadWriterException {
-    return getReadPart(readname, INDEX);
+    return parseReadName(readname).getPairNumber();
   }
 
-  private static String getReadPart(String readname, int group) throws ReadWriterException {
-    // Try Casava 1.8 format first
-    String casavaResult =
-        group == KEY
-            ? CasavaRead.getBaseNameOrNull(readname)
-            : CasavaRead.getReadIndexOrNull(readname);
-    if (casavaResult != null) return casavaResult;
-
-    // Fall back to generic split logic for non-Casava names
-    Matcher casavaLikeMatcher = CASAVA_LIKE_EXCLUDE_REGEXP.matcher(readname);
-    if (!casavaLikeMatcher.find()) {
-      Matcher m = SPLIT_REGEXP.matcher(readname);
-      if (m.find()) {
-        return m.group(group);
-      }
+  /**
+   * Parses the read name once, for callers needing both its key and its pair number.
+   *
+   * @throws ReadWriterException With {@link ReadWriterException.ErrorType#INVALID_READ_NAME} if the
+   *     name follows neither Casava 1.8 nor the separator naming.
+   */
+  public static ReadName parseReadName(String readname) throws ReadWriterException {
+    ReadName parsed = ReadNameTokenizer.parse(readname);
+    if (null == parsed) {
+      throw new ReadWriterException(
+          String.format("Readname [%s] does not match regexp", readname),
+          ReadWriterException.ErrorType.INVALID_READ_NAME);
     }
-    throw new ReadWriterException(
-        String.format("Readname [%s] does not match regexp", readname),
-        ReadWriterException.ErrorType.INVALID_READ_NAME);
+    return parsed;
   }
 
   @Override
   public String getKey(Read spot) {
-    try {
-      return getReadKey(spot.name);
-    } catch (ReadWriterException e) {
-      if (INVALID_READ_NAME.equals(e.getErrorType())) {
-        return spot.name;
-      } else {
-        throw e;
-      }
-    }
+    ReadName readName = tokenizer.tokenize(spot.name);
+    return null == readName ? spot.name : readName.getKey();
   }
 
   public List<Read> newListBucket() {
@@ -141,35 +131,16 @@ public class PairedFastqWriter extends AbstractPagedReadWriter<Read, PairedRead>
           "Got same spot twice: " + spot, ReadWriterException.ErrorType.SPOT_DUPLICATE);
     }
 
-    // Check if the list contains any nulls
-    if (!list.contains(null)) {
-      // Verify and sort the list based on readIndex
-      try {
-        list.sort(
-            (read1, read2) -> {
-              int readIndex1 = getReadIndex(read1);
-              int readIndex2 = getReadIndex(read2);
-              return Integer.compare(readIndex1, readIndex2);
-            });
-      } catch (RuntimeException e) {
-        throw new ReadWriterException(
-            "Error sorting reads by read index:" + e.getMessage(),
-            ReadWriterException.ErrorType.SORTING_ERROR);
-      }
+    // Once both reads are there, order them by read index. Slot 0 holds index1 and slot 1
+    // index2, so their order only depends on which of the two indexes is smaller.
+    if (!list.contains(null) && index1 > index2) {
+      Collections.swap(list, 0, 1);
     }
   }
 
   private int getReadIndex(Read spot) throws ReadWriterException {
-    String readIndexStr;
-    try {
-      readIndexStr = getPairNumber(spot.name);
-    } catch (ReadWriterException e) {
-      if (INVALID_READ_NAME.equals(e.getErrorType())) {
-        readIndexStr = spot.getDefaultReadIndex();
-      } else {
-        throw e;
-      }
-    }
+    ReadName readName = tokenizer.tokenize(spot.name);
+    String readIndexStr = null == readName ? spot.getDefaultReadIndex() : readName.getPairNumber();
     return Integer.parseInt(readIndexStr) - 1;
   }
 
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.fastq;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A batch of reads stored by column. Names, bases and quality scores of all reads are kept one
+ * after the other in three shared byte arrays, read i of a column spanning from offset i to offset
+ * i + 1. Characters are stored one byte each, as ISO-8859-1.
+ *
+ * <p>A batch holds at most {@link #capacity()} reads and is meant to be filled, handed on and
+ * {@link #clear() cleared} again, so the arrays are allocated once and then reused.
+ */
+public class ReadBatch {
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final int capacity;
+  private final int[] nameOffsets;
+  private final int[] baseOffsets;
+  private final int[] qualityOffsets;
+  private final String[] defaultReadIndexes;
+
+  private byte[] names;
+  private byte[] bases;
+  private byte[] qualities;
+  private int size;
+
+  public ReadBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public ReadBatch(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.nameOffsets = new int[capacity + 1];
+    this.baseOffsets = new int[capacity + 1];
+    this.qualityOffsets = new int[capacity + 1];
+    this.defaultReadIndexes = new String[capacity];
+
+    // Sized for short reads, the arrays grow when needed.
+    this.names = new byte[capacity * 64];
+    this.bases = new byte[capacity * 160];
+    this.qualities = new byte[capacity * 160];
+  }
+
+  public void add(Read read) {
+    checkNotFull();
+
+    names = append(names, nameOffsets, read.getName());
+    bases = append(bases, baseOffsets, read.getBases());
+    qualities = append(qualities, qualityOffsets, read.getQualityScores());
+    defaultReadIndexes[size++] = read.getDefaultReadIndex();
+  }
+
+  /** Adds a read from the first bytes of the given arrays, which are copied. */
+  public void add(
+      byte[] name,
+      int nameLength,
+      byte[] bases,
+      int basesLength,
+      byte[] qualities,
+      int qualitiesLength,
+      String defaultReadIndex) {
+    checkNotFull();
+
+    this.names = append(this.names, nameOffsets, name, nameLength);
+    this.bases = append(this.bases, baseOffsets, bases, basesLength);
+    this.qualities = append(this.qualities, qualityOffsets, qualities, qualitiesLength);
+    defaultReadIndexes[size++] = defaultReadIndex;
+  }
+
+  /** Empties the batch, keeping its arrays. */
+  public void clear() {
+    Arrays.fill(defaultReadIndexes, 0, size, null);
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public boolean isEmpty() {
+    return 0 == size;
+  }
+
+  public boolean isFull() {
+    return capacity == size;
+  }
+
+  /**
+   * @return Number of bases of all reads in the batch.
+   */
+  public long getBaseCount() {
+    return baseOffsets[size];
+  }
+
+  /**
+   * @return Names of all reads, valid up to the end offset of the last read.
+   */
+  public byte[] getNames() {
+    return names;
+  }
+
+  public int getNameOffset(int index) {
+    return nameOffsets[checkIndex(index)];
+  }
+
+  public int getNameLength(int index) {
+    return nameOffsets[checkIndex(index) + 1] - nameOffsets[index];
+  }
+
+  /**
+   * @return Bases of all reads, valid up to the end offset of the last read.
+   */
+  public byte[] getBases() {
+    return bases;
+  }
+
+  public int getBasesOffset(int index) {
+    return baseOffsets[checkIndex(index)];
+  }
+
+  public int getBasesLength(int index) {
+    return baseOffsets[checkIndex(index) + 1] - baseOffsets[index];
+  }
+
+  /**
+   * @return Quality scores of all reads, valid up to the end offset of the last read.
+   */
+  public byte[] getQualityScores() {
+    return qualities;
+  }
+
+  public int getQualityScoresOffset(int index) {
+    return qualityOffsets[checkIndex(index)];
+  }
+
+  public int getQualityScoresLength(int index) {
+    return qualityOffsets[checkIndex(index) + 1] - qualityOffsets[index];
+  }
+
+  public String getName(int index) {
+    return toString(names, nameOffsets, checkIndex(index));
+  }
+
+  public String getBases(int index) {
+    return toString(bases, baseOffsets, checkIndex(index));
+  }
+
+  public String getQualityScores(int index) {
+    return toString(qualities, qualityOffsets, checkIndex(index));
+  }
+
+  public String getDefaultReadIndex(int index) {
+    return defaultReadIndexes[checkIndex(index)];
+  }
+
+  /**
+   * @return A new read with a copy of the given read's data.
+   */
+  public Read getRead(int index) {
+    return new Read(
+        getName(index), getBases(index), getQualityScores(index), getDefaultReadIndex(index));
+  }
+
+  private void checkNotFull() {
+    if (isFull()) {
+      throw new IllegalStateException("Read batch is full: " + capacity);
+    }
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    return index;
+  }
+
+  private byte[] append(byte[] column, int[] offsets, String value) {
+    int start = offsets[size];
+    int length = value.length();
+    column = ensureCapacity(column, start + length);
+    for (int i = 0; i < length; i++) {
+      column[start + i] = (byte) value.charAt(i);
+    }
+    offsets[size + 1] = start + length;
+    return column;
+  }
+
+  private byte[] append(byte[] column, int[] offsets, byte[] value, int length) {
+    int start = offsets[size];
+    column = ensureCapacity(column, start + length);
+    System.arraycopy(value, 0, column, start, length);
+    offsets[size + 1] = start + length;
+    return column;
+  }
+
+  private static byte[] ensureCapacity(byte[] column, int capacity) {
+    if (capacity <= column.length) {
+      return column;
+    }
+    return Arrays.copyOf(column, Math.max(capacity, column.length * 2));
+  }
+
+  private static String toString(byte[] column, int[] offsets, int index) {
+    return new String(
+        column, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.ISO_8859_1);
+  }
+}
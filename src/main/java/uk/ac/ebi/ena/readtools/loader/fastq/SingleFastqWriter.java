@@ -11,10 +11,11 @@
 package uk.ac.ebi.ena.readtools.loader.fastq;
 
 import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 
-public class SingleFastqWriter implements ReadWriter<Read, PairedRead> {
+public class SingleFastqWriter implements ReadBatchWriter<PairedRead> {
   ReadWriter<PairedRead, ?> readWriter;
 
   @Override
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.metrics;
+
+/** Metrics recorded by the pipeline stages in the default {@link MetricsRegistry}. */
+public final class Metrics {
+  /** Reads parsed from the input files by the converters, {@code Sam2Fastq} and normalizer. */
+  public static final Counter READS_IN = counter("reads.in");
+
+  public static final Counter BASES_IN = counter("bases.in");
+
+  /** Pairs of mates put together. */
+  public static final Counter PAIRS_ASSEMBLED = counter("pairs.assembled");
+
+  /** Reads left without their mates once all input has been read. */
+  public static final Counter ORPHANS = counter("orphans");
+
+  /** Pages of unpaired reads spilled to temporary files. */
+  public static final Counter SPILL_PAGES = counter("spill.pages");
+
+  /** Size of the spilled pages on disk. */
+  public static final Counter SPILL_BYTES = counter("spill.bytes");
+
+  public static final Timer SPILL = timer("spill");
+
+  /** Spilled pages read back. */
+  public static final Timer FILL = timer("fill");
+
+  /** Passes over the spilled pages pairing reads that were spilled apart. */
+  public static final Counter CASCADE_GENERATIONS = counter("cascade.generations");
+
+  /** Mates found in the cache of reads waiting for them while writing FASTQ. */
+  public static final Counter CACHE_HITS = counter("cache.hits");
+
+  /** Reads evicted from that cache when it is full. */
+  public static final Counter CACHE_EVICTIONS = counter("cache.evictions");
+
+  /** Reads left in that cache at the end of the input, written without their mates. */
+  public static final Counter CACHE_FLUSHED = counter("cache.flushed");
+
+  public static final Timer CACHE_PURGE = timer("cache.purge");
+
+  /** References found in the in-memory reference cache. */
+  public static final Counter REFERENCE_MEMORY_HITS = counter("reference.memory.hits");
+
+  /** References loaded from the disk cache. */
+  public static final Timer REFERENCE_DISK_LOADS = timer("reference.disk.loads");
+
+  /** References downloaded. */
+  public static final Timer REFERENCE_DOWNLOADS = timer("reference.downloads");
+
+  /** Bytes of references loaded from disk or downloaded. */
+  public static final Counter REFERENCE_BYTES = counter("reference.bytes");
+
+  private Metrics() {}
+
+  private static Counter counter(String name) {
+    return MetricsRegistry.getDefault().counter(name);
+  }
+
+  private static Timer timer(String name) {
+    return MetricsRegistry.getDefault().timer(name);
+  }
+}
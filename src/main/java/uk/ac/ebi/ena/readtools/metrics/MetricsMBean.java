@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Read only attributes of a {@link MetricsRegistry}: every counter by its name, every timer as
+ * {@code <name>.count}, {@code <name>.totalMillis} and {@code <name>.maxMillis}, and the JSON
+ * {@code summary}. Metrics created after a client connected show up once it reloads the MBean info.
+ */
+class MetricsMBean implements DynamicMBean {
+  private static final String SUMMARY = "summary";
+  private static final String COUNT = ".count";
+  private static final String TOTAL_MILLIS = ".totalMillis";
+  private static final String MAX_MILLIS = ".maxMillis";
+
+  private final MetricsRegistry registry;
+
+  MetricsMBean(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    if (SUMMARY.equals(attribute)) {
+      return registry.toJson();
+    }
+    Counter counter = registry.getCounters().get(attribute);
+    if (counter != null) {
+      return counter.get();
+    }
+    if (attribute.endsWith(COUNT)) {
+      return timer(attribute, COUNT).getCount();
+    }
+    if (attribute.endsWith(TOTAL_MILLIS)) {
+      return timer(attribute, TOTAL_MILLIS).getTotalNanos() / 1_000_000;
+    }
+    if (attribute.endsWith(MAX_MILLIS)) {
+      return timer(attribute, MAX_MILLIS).getMaxNanos() / 1_000_000;
+    }
+    throw new AttributeNotFoundException(attribute);
+  }
+
+  private Timer timer(String attribute, String suffix) throws AttributeNotFoundException {
+    Timer timer =
+        registry.getTimers().get(attribute.substring(0, attribute.length() - suffix.length()));
+    if (timer == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return timer;
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      try {
+        list.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (AttributeNotFoundException ignored) {
+        // Left out, as the interface asks.
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Read only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for (String name : new TreeMap<>(registry.getCounters()).keySet()) {
+      attributes.add(attribute(name, "Count"));
+    }
+    for (Map.Entry<String, Timer> entry : new TreeMap<>(registry.getTimers()).entrySet()) {
+      attributes.add(attribute(entry.getKey() + COUNT, "Timed events"));
+      attributes.add(attribute(entry.getKey() + TOTAL_MILLIS, "Total duration in ms"));
+      attributes.add(attribute(entry.getKey() + MAX_MILLIS, "Longest duration in ms"));
+    }
+    attributes.add(
+        new MBeanAttributeInfo(
+            SUMMARY, String.class.getName(), "JSON summary", true, false, false));
+    return new MBeanInfo(
+        MetricsRegistry.class.getName(),
+        "Readtools pipeline metrics",
+        attributes.toArray(new MBeanAttributeInfo[0]),
+        null,
+        null,
+        null);
+  }
+
+  private static MBeanAttributeInfo attribute(String name, String description) {
+    return new MBeanAttributeInfo(name, "long", description, true, false, false);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named {@link Counter}s and {@link Timer}s of the pipeline stages, see {@link Metrics} for the
+ * ones recorded. The default registry is exposed over JMX as {@value #OBJECT_NAME} and can write a
+ * JSON summary when the JVM exits, to the file named by the {@value #JSON_PROPERTY} system property
+ * or given to {@link #writeJsonOnExit(File)}.
+ */
+public final class MetricsRegistry {
+  public static final String OBJECT_NAME = "uk.ac.ebi.ena.readtools:type=Metrics";
+
+  /** System property naming the file the default registry writes its JSON summary to at exit. */
+  public static final String JSON_PROPERTY = "readtools.metrics.json";
+
+  private static final Logger log = LoggerFactory.getLogger(MetricsRegistry.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final MetricsRegistry DEFAULT = createDefault();
+
+  private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+  private final long startNanos = System.nanoTime();
+  private final List<File> exitFiles = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean exitHook = new AtomicBoolean();
+
+  private static MetricsRegistry createDefault() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.registerMBean(OBJECT_NAME);
+    String jsonFile = System.getProperty(JSON_PROPERTY);
+    if (jsonFile != null && !jsonFile.isEmpty()) {
+      registry.writeJsonOnExit(new File(jsonFile));
+    }
+    return registry;
+  }
+
+  public static MetricsRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return The counter of the name, created on first use.
+   */
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(name, n -> new Counter());
+  }
+
+  /**
+   * @return The timer of the name, created on first use.
+   */
+  public Timer timer(String name) {
+    return timers.computeIfAbsent(name, n -> new Timer());
+  }
+
+  Map<String, Counter> getCounters() {
+    return counters;
+  }
+
+  Map<String, Timer> getTimers() {
+    return timers;
+  }
+
+  /**
+   * @return Current values by metric name: counters with their count and rate per second since the
+   *     registry was created, timers with their count, total, mean and longest duration.
+   */
+  public Map<String, Object> snapshot() {
+    double uptimeSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+    Map<String, Object> counterValues = new TreeMap<>();
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      long count = entry.getValue().get();
+      Map<String, Object> values = new LinkedHashMap<>();
+      values.put("count", count);
+      values.put("perSecond", uptimeSeconds > 0 ? count / uptimeSeconds : 0);
+      counterValues.put(entry.getKey(), values);
+    }
+
+    Map<String, Object> timerValues = new TreeMap<>();
+    for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+      Timer timer = entry.getValue();
+      long count = timer.getCount();
+      Map<String, Object> values = new LinkedHashMap<>();
+      values.put("count", count);
+      values.put("totalMillis", timer.getTotalNanos() / 1e6);
+      values.put("meanMillis", count > 0 ? timer.getTotalNanos() / 1e6 / count : 0);
+      values.put("maxMillis", timer.getMaxNanos() / 1e6);
+      timerValues.put(entry.getKey(), values);
+    }
+
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("uptimeSeconds", uptimeSeconds);
+    snapshot.put("counters", counterValues);
+    snapshot.put("timers", timerValues);
+    return snapshot;
+  }
+
+  public String toJson() {
+    try {
+      return MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(snapshot());
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  public void writeJson(File file) throws IOException {
+    MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, snapshot());
+  }
+
+  /** Writes the JSON summary to the file when the JVM exits. */
+  public void writeJsonOnExit(File file) {
+    exitFiles.add(file);
+    if (exitHook.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(this::writeExitFiles, "metrics-summary"));
+    }
+  }
+
+  private void writeExitFiles() {
+    for (File file : exitFiles) {
+      try {
+        writeJson(file);
+      } catch (IOException ex) {
+        log.warn("Failed to write metrics to " + file, ex);
+      }
+    }
+  }
+
+  /**
+   * Registers the registry with the platform MBean server, failures are logged and ignored.
+   *
+   * @return True if registered.
+   */
+  public boolean registerMBean(String objectName) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(objectName);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MetricsMBean(this), name);
+      }
+      return true;
+    } catch (JMException | SecurityException ex) {
+      log.warn("Failed to register metrics MBean " + objectName, ex);
+      return false;
+    }
+  }
+}
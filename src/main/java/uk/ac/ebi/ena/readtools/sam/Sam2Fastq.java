@@ -17,6 +17,7 @@ import com.beust.jcommander.converters.FileConverter;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamInputResource;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.ValidationStringency;
@@ -24,19 +25,32 @@ import htsjdk.samtools.cram.ref.CRAMReferenceSource;
 import htsjdk.samtools.util.CloserUtil;
 import htsjdk.samtools.util.Log;
 import htsjdk.samtools.util.SequenceUtil;
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPOutputStream;
 import uk.ac.ebi.ena.readtools.cram.CramTools;
 import uk.ac.ebi.ena.readtools.cram.ref.ENAReferenceSource;
 import uk.ac.ebi.ena.readtools.fastq.MultiFastqOutputter;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
+import uk.ac.ebi.ena.readtools.metrics.MetricsRegistry;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.ChecksumOutputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
 
 public class Sam2Fastq {
   private static final Log log = Log.getInstance(Sam2Fastq.class);
@@ -48,6 +62,7 @@ public class Sam2Fastq {
   private long skippedSecondarySupplementaryReadCount = 0;
   private long skippedVendorQualityCheckReadCount = 0;
   private long totalReadCount = 0, totalBaseCount = 0;
+  private Map<String, Checksums> checksums = Collections.emptyMap();
 
   private static void printUsage(JCommander jc) {
     StringBuilder sb = new StringBuilder();
@@ -77,6 +92,9 @@ public class Sam2Fastq {
     }
 
     Log.setGlobalLogLevel(params.logLevel);
+    if (params.metricsJson != null) {
+      MetricsRegistry.getDefault().writeJsonOnExit(params.metricsJson);
+    }
 
     new Sam2Fastq().create(params);
   }
@@ -102,6 +120,11 @@ public class Sam2Fastq {
       e.printStackTrace();
     }
 
+    List<ChecksumMethod> checksumMethods = new ArrayList<>();
+    for (String method : params.checksumMethods) {
+      checksumMethods.add(ChecksumMethod.valueOf(method.toUpperCase()));
+    }
+
     CollatingDumper d =
         new CollatingDumper(
             params.samFile,
@@ -112,7 +135,8 @@ public class Sam2Fastq {
             params.maxRecords,
             params.reverse,
             params.defaultQS,
-            brokenPipe);
+            brokenPipe,
+            checksumMethods);
     d.prefix = params.prefix;
     d.run();
 
@@ -121,8 +145,14 @@ public class Sam2Fastq {
     skippedVendorQualityCheckReadCount = d.skippedVendorQualityCheckReadCount;
     totalReadCount = d.totalReadCount;
     totalBaseCount = d.totalBaseCount;
+    checksums = d.checksums;
 
     if (d.exception != null) throw d.exception;
+
+    log.info(String.format("READS: %d; BASES: %d", totalReadCount, totalBaseCount));
+    for (Map.Entry<String, Checksums> entry : checksums.entrySet()) {
+      log.info(entry.getKey(), ": ", entry.getValue());
+    }
   }
 
   public void run(String runId, File inputFile, File fastqDir) throws Exception {
@@ -143,6 +173,14 @@ public class Sam2Fastq {
     return totalBaseCount;
   }
 
+  /**
+   * @return Checksums of the input file and the written FASTQ files by path, empty unless
+   *     requested.
+   */
+  public Map<String, Checksums> getChecksums() {
+    return checksums;
+  }
+
   public long getTotalRecordCount() {
     return totalRecordCount;
   }
@@ -165,6 +203,8 @@ public class Sam2Fastq {
     protected Exception exception;
     private boolean reverse = false;
     protected AtomicBoolean brokenPipe;
+    protected final List<ChecksumMethod> checksumMethods;
+    protected final Map<String, Checksums> checksums = new LinkedHashMap<>();
 
     public long totalRecordCount = 0;
     public long skippedSecondarySupplementaryReadCount = 0;
@@ -180,10 +220,15 @@ public class Sam2Fastq {
         long maxRecords,
         boolean reverse,
         int defaultQS,
-        AtomicBoolean brokenPipe)
+        AtomicBoolean brokenPipe,
+        List<ChecksumMethod> checksumMethods)
         throws IOException {
 
       this.samFile = samFile;
+      this.checksumMethods = checksumMethods;
+      if (!checksumMethods.isEmpty()) {
+        checksums.put(samFile.getPath(), new Checksums(checksumMethods));
+      }
       this.referenceSource = referenceSource;
       this.maxRecords = maxRecords;
       this.reverse = reverse;
@@ -203,7 +248,13 @@ public class Sam2Fastq {
           else path = fastqBaseName + "_" + index + extension;
 
           outputs[index].file = new File(path);
-          OutputStream os = new BufferedOutputStream(new FileOutputStream(outputs[index].file));
+          OutputStream os = new FileOutputStream(outputs[index].file);
+          if (!checksumMethods.isEmpty()) {
+            Checksums fileChecksums = new Checksums(checksumMethods);
+            checksums.put(path, fileChecksums);
+            os = new ChecksumOutputStream(os, fileChecksums);
+          }
+          os = new BufferedOutputStream(os);
 
           if (gzip) os = new GZIPOutputStream(os);
 
@@ -217,8 +268,19 @@ public class Sam2Fastq {
     protected void doRun() throws IOException {
       SamReaderFactory.setDefaultValidationStringency(ValidationStringency.LENIENT);
 
-      final SamReader samReader =
-          SamReaderFactory.makeDefault().referenceSource(referenceSource).open(samFile);
+      ChecksumInputStream checksumStream = null;
+      final SamReader samReader;
+      if (checksumMethods.isEmpty()) {
+        samReader = SamReaderFactory.makeDefault().referenceSource(referenceSource).open(samFile);
+      } else {
+        // Checksums of the input file need it read as a stream rather than through its path.
+        checksumStream =
+            new ChecksumInputStream(new FileInputStream(samFile), checksums.get(samFile.getPath()));
+        samReader =
+            SamReaderFactory.makeDefault()
+                .referenceSource(referenceSource)
+                .open(SamInputResource.of(new BufferedInputStream(checksumStream, 1 << 20)));
+      }
 
       samHeader = samReader.getFileHeader();
 
@@ -242,14 +304,17 @@ public class Sam2Fastq {
 
         String readName = currentRecord.getReadName();
 
-        byte[] readBases =
-            Arrays.copyOf(currentRecord.getReadBases(), currentRecord.getReadBases().length);
+        byte[] readBases = currentRecord.getReadBases();
         byte[] baseQualities =
             currentRecord.getBaseQualityString().getBytes(StandardCharsets.UTF_8);
 
         totalBaseCount += readBases.length;
+        Metrics.READS_IN.increment();
+        Metrics.BASES_IN.add(readBases.length);
 
         if (reverse && currentRecord.getReadNegativeStrandFlag()) {
+          // Bases are copied into the FASTQ record, so only copy them here when they change.
+          readBases = Arrays.copyOf(readBases, readBases.length);
           SequenceUtil.reverseComplement(readBases);
           SequenceUtil.reverseQualities(baseQualities);
         }
@@ -261,6 +326,10 @@ public class Sam2Fastq {
             baseQualities);
       }
 
+      if (checksumStream != null) {
+        // Whatever follows the last record, like the end of file marker.
+        checksumStream.drain();
+      }
       CloserUtil.close(samReader);
 
       if (!brokenPipe.get()) fastqOutputter.finish();
@@ -274,6 +343,8 @@ public class Sam2Fastq {
         if (outputs != null) {
           for (FileOutput os : outputs) os.close();
         }
+        // Empty outputs are deleted.
+        checksums.keySet().removeIf(path -> !new File(path).exists());
       } catch (Exception e) {
         this.exception = e;
       }
@@ -296,7 +367,8 @@ public class Sam2Fastq {
         long maxRecords,
         boolean reverse,
         int defaultQS,
-        AtomicBoolean brokenPipe)
+        AtomicBoolean brokenPipe,
+        List<ChecksumMethod> checksumMethods)
         throws IOException {
       super(
           samFile,
@@ -307,7 +379,8 @@ public class Sam2Fastq {
           maxRecords,
           reverse,
           defaultQS,
-          brokenPipe);
+          brokenPipe,
+          checksumMethods);
       this.defaultQS = defaultQS;
       this.brokenPipe = brokenPipe;
       fo.file =
@@ -320,6 +393,10 @@ public class Sam2Fastq {
     @Override
     protected MultiFastqOutputter createFastqWriter() {
       multiFastqOutputter = new MultiFastqOutputter(outputs, fo, samHeader);
+      if (MultiFastqOutputter.hasAdjacentMates(samHeader)) {
+        log.info("Pairing adjacent mates without the cache.");
+        multiFastqOutputter.setAdjacentMates(true);
+      }
       if (prefix != null) {
         multiFastqOutputter.setPrefix(prefix.getBytes());
       }
@@ -353,18 +430,23 @@ public class Sam2Fastq {
         if (r1.getReadName().equals(r2.getReadName())) {
           print(r1, r2);
           counter++;
+          Metrics.PAIRS_ASSEMBLED.increment();
           r1 = null;
           if (!iterator.hasNext()) break;
           r1 = iterator.next();
           r2 = null;
         } else {
           print(r1, 0);
+          Metrics.ORPHANS.increment();
           r1 = r2;
           r2 = null;
           counter++;
         }
       }
-      if (r1 != null) print(r1, 0);
+      if (r1 != null) {
+        print(r1, 0);
+        Metrics.ORPHANS.increment();
+      }
       r.close();
       fo.file.delete();
     }
@@ -512,6 +594,18 @@ public class Sam2Fastq {
         description = "Skip MD5 checks when reading the header.")
     public boolean skipMD5Checks = false;
 
+    @Parameter(
+        names = {"--checksum"},
+        description =
+            "Checksum to compute for the input and output files while they are read and written, repeat option for more than one, supported values: MD5 and SHA256")
+    public List<String> checksumMethods = new ArrayList<>();
+
+    @Parameter(
+        names = {"--metrics-json"},
+        converter = FileConverter.class,
+        description = "File to write the metrics summary to as JSON when the program exits.")
+    public File metricsJson;
+
     public int nofStreams = 3;
   }
 }
@@ -12,8 +12,47 @@ package uk.ac.ebi.ena.readtools.sampler.generator;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
+/**
+ * Produces synthetic FASTQ records. Given the same seed, the same records are produced every time,
+ * which makes the output usable as benchmark and test input.
+ */
 public class FastqGenerator {
+  /** How records are laid out across the outputs. */
+  public enum Layout {
+    /** Mate 1 records only. */
+    SINGLE,
+    /** Mate 1 and mate 2 records, both in the same order. */
+    PAIRED,
+    /**
+     * Mate 1 records in order and mate 2 records in a scrambled order. This is the worst case for
+     * pairing, as mates end up far apart and have to be cached or spilled.
+     */
+    SHUFFLED_PAIRED
+  }
+
+  public enum NameStyle {
+    /** FASTQ_GENERATOR:000000001/1 */
+    PLAIN,
+    /** FASTQGEN:1:FLOWCELL:1:1101:1:0 1:N:0:ACGTACGT */
+    CASAVA18
+  }
+
+  /** Receives generated records. */
+  public interface RecordConsumer {
+    /**
+     * @param mate 1 or 2.
+     */
+    void accept(int mate, String readname, String bases, String quals) throws IOException;
+  }
+
   public enum Scoring {
     PHRED(),
     LOGODDS();
@@ -45,8 +84,46 @@ public class FastqGenerator {
   protected Scoring qual_scoring;
   protected int offset;
   protected int size;
+  protected NameStyle name_style = NameStyle.PLAIN;
+  protected Random random = new Random();
+  protected PrintStream out = System.out;
+
+  public FastqGenerator() {}
 
-  public static void main(String[] args) {
+  /**
+   * @param seed Seed of the random number generator.
+   * @param size Size of sequences.
+   * @param qual_scoring Quality scoring system.
+   * @param offset Quality offset.
+   * @param lbound Low boundary of quality interval in output.
+   * @param hbound High boundary of quality interval in output.
+   */
+  public FastqGenerator(
+      long seed, int size, Scoring qual_scoring, int offset, int lbound, int hbound) {
+    this.random = new Random(seed);
+    this.size = size;
+    this.qual_scoring = qual_scoring;
+    this.offset = offset;
+    this.lbound = lbound;
+    this.hbound = hbound;
+  }
+
+  /** Phred scores with offset 33, as produced by current sequencers. */
+  public static FastqGenerator phred33(long seed, int size) {
+    return new FastqGenerator(seed, size, Scoring.PHRED, 33, 2, 41);
+  }
+
+  /** Solexa log-odds scores with offset 64, as produced by early Illumina pipelines. */
+  public static FastqGenerator solexa(long seed, int size) {
+    return new FastqGenerator(seed, size, Scoring.LOGODDS, 64, 0, 40);
+  }
+
+  public FastqGenerator setNameStyle(NameStyle name_style) {
+    this.name_style = name_style;
+    return this;
+  }
+
+  public static void main(String[] args) throws IOException {
     Params params = new Params();
     JCommander jc = new JCommander(params);
     try {
@@ -59,7 +136,22 @@ public class FastqGenerator {
     FastqGenerator fq = new FastqGenerator();
     fq.configure(params);
 
-    fq.produce(params.count);
+    Layout layout = Layout.valueOf(params.layout.toUpperCase());
+    if (null == params.output) {
+      if (Layout.SINGLE != layout) {
+        throw new IllegalArgumentException("Paired layouts require --output and --output2");
+      }
+      fq.produce(params.count);
+      return;
+    }
+
+    try (OutputStream first = new BufferedOutputStream(new FileOutputStream(params.output));
+        OutputStream second =
+            null == params.output2
+                ? null
+                : new BufferedOutputStream(new FileOutputStream(params.output2))) {
+      fq.generate(params.count, layout, first, second);
+    }
   }
 
   void configure(Params params) {
@@ -68,6 +160,71 @@ public class FastqGenerator {
     qual_scoring = Scoring.valueOf(params.quality_scoring.toUpperCase());
     offset = params.quality_offset;
     size = params.sequence_size;
+    name_style = NameStyle.valueOf(params.name_style.toUpperCase());
+    if (null != params.seed) {
+      random = new Random(params.seed);
+    }
+  }
+
+  /**
+   * Writes generated records as FASTQ.
+   *
+   * @param second Receives mate 2 records. Not used by {@link Layout#SINGLE} and may be null then.
+   */
+  public void generate(int count, Layout layout, OutputStream first, OutputStream second)
+      throws IOException {
+    generate(
+        count,
+        layout,
+        (mate, readname, bases, quals) ->
+            write(1 == mate ? first : second, readname, bases, quals));
+  }
+
+  /** Passes generated records to the consumer, alternating mates for paired layouts. */
+  public void generate(int count, Layout layout, RecordConsumer consumer) throws IOException {
+    long multiplier = coprimeMultiplier(count);
+
+    for (int i = 0; i < count; ++i) {
+      consumer.accept(1, getReadname(i, 1), getRead(i), getQuals(i));
+
+      switch (layout) {
+        case SINGLE:
+          break;
+
+        case PAIRED:
+          consumer.accept(2, getReadname(i, 2), getRead(i), getQuals(i));
+          break;
+
+        case SHUFFLED_PAIRED:
+          // i -> (i * multiplier) mod count is a permutation as long as both are coprime
+          int mate = (int) ((i * multiplier) % count);
+          consumer.accept(2, getReadname(mate, 2), getRead(mate), getQuals(mate));
+          break;
+
+        default:
+          throw new RuntimeException("Not Implemented");
+      }
+    }
+  }
+
+  /** Multiplier close to count / golden ratio, which spreads consecutive mates far apart. */
+  private static long coprimeMultiplier(int count) {
+    long multiplier = Math.max(1, (long) (count * 0.618));
+    while (1 < count && 1 != gcd(multiplier, count)) {
+      multiplier++;
+    }
+    return multiplier;
+  }
+
+  private static long gcd(long a, long b) {
+    return 0 == b ? a : gcd(b, a % b);
+  }
+
+  private static void write(OutputStream stream, String readname, String reads, String quals)
+      throws IOException {
+    stream.write(
+        String.format("@%s\n%s\n+\n%s\n", readname, reads, quals)
+            .getBytes(StandardCharsets.US_ASCII));
   }
 
   protected void produce(int count) {
@@ -79,7 +236,22 @@ public class FastqGenerator {
   }
 
   protected String getReadname(int number) {
-    return String.format("FASTQ_GENERATOR:%09d/1", number);
+    return getReadname(number, 1);
+  }
+
+  protected String getReadname(int number, int mate) {
+    switch (name_style) {
+      case PLAIN:
+        return String.format("FASTQ_GENERATOR:%09d/%d", number, mate);
+
+      case CASAVA18:
+        return String.format(
+            "FASTQGEN:1:FLOWCELL:1:1101:%d:%d %d:N:0:ACGTACGT",
+            number % 100_000, number / 100_000, mate);
+
+      default:
+        throw new RuntimeException("Not Implemented");
+    }
   }
 
   protected String getQuals(int number) {
@@ -87,7 +259,7 @@ public class FastqGenerator {
     for (int i = 0; i < value.length; ++i) {
       int q = 6;
       do {
-        q = qual_scoring.getQ(Math.random());
+        q = qual_scoring.getQ(random.nextDouble());
       } while (q < lbound || q > hbound);
 
       int v = (int) (q + offset);
@@ -102,14 +274,13 @@ public class FastqGenerator {
 
   protected String getRead(int number) {
     char value[] = new char[size];
-    for (int i = 0; i < value.length; ++i)
-      value[i] = (char) BASES[(int) (BASES.length * Math.random())];
+    for (int i = 0; i < value.length; ++i) value[i] = (char) BASES[random.nextInt(BASES.length)];
 
     return new String(value);
   }
 
   protected void emit(String readname, String reads, String quals) {
-    System.out.printf("@%s\n%s\n+%s\n%s\n", readname, reads, readname, quals);
+    out.printf("@%s\n%s\n+%s\n%s\n", readname, reads, readname, quals);
   }
 
   static class Params {
@@ -149,5 +320,30 @@ public class FastqGenerator {
         description = "Size of sequences",
         required = true)
     int sequence_size;
+
+    @Parameter(
+        names = {"--seed"},
+        description = "Seed of the random number generator, makes the output reproducible")
+    Long seed;
+
+    @Parameter(
+        names = {"--name-style"},
+        description = "Read name style: plain or casava18")
+    String name_style = NameStyle.PLAIN.name();
+
+    @Parameter(
+        names = {"--layout"},
+        description = "Record layout: single, paired or shuffled_paired")
+    String layout = Layout.SINGLE.name();
+
+    @Parameter(
+        names = {"--output", "-o"},
+        description = "Output file for mate 1 records, standard output when not given")
+    String output;
+
+    @Parameter(
+        names = {"--output2", "-o2"},
+        description = "Output file for mate 2 records")
+    String output2;
   }
 }
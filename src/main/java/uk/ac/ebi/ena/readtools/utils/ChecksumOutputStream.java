@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Digests the bytes written through it. */
+public class ChecksumOutputStream extends FilterOutputStream {
+  private final Checksums checksums;
+
+  public ChecksumOutputStream(OutputStream out, Checksums checksums) {
+    super(out);
+    this.checksums = checksums;
+  }
+
+  public Checksums getChecksums() {
+    return checksums;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    checksums.update(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    checksums.update(b, off, len);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
+
+/**
+ * Digests of the bytes passing through a {@link ChecksumInputStream} or {@link
+ * ChecksumOutputStream}, so that files are checksummed while they are read or written rather than
+ * in a pass of their own.
+ */
+public final class Checksums {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Map<ChecksumMethod, MessageDigest> digests = new EnumMap<>(ChecksumMethod.class);
+  private long byteCount;
+
+  public Checksums(ChecksumMethod... methods) {
+    this(Arrays.asList(methods));
+  }
+
+  public Checksums(Collection<ChecksumMethod> methods) {
+    for (ChecksumMethod method : methods) {
+      try {
+        digests.put(method, MessageDigest.getInstance(method.xml_name));
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+
+  public void update(int b) {
+    for (MessageDigest digest : digests.values()) {
+      digest.update((byte) b);
+    }
+    byteCount++;
+  }
+
+  public void update(byte[] b, int off, int len) {
+    for (MessageDigest digest : digests.values()) {
+      digest.update(b, off, len);
+    }
+    byteCount += len;
+  }
+
+  /**
+   * @return Number of bytes digested so far.
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  public Set<ChecksumMethod> getMethods() {
+    return Collections.unmodifiableSet(digests.keySet());
+  }
+
+  /**
+   * @return Lower case hex digest of the bytes so far, which can be called again as more bytes pass
+   *     through.
+   */
+  public String get(ChecksumMethod method) {
+    MessageDigest digest = digests.get(method);
+    if (digest == null) {
+      throw new IllegalArgumentException("Checksum not computed: " + method);
+    }
+    try {
+      return toHex(((MessageDigest) digest.clone()).digest());
+    } catch (CloneNotSupportedException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * @return True if the checksum is the expected one, ignoring case.
+   */
+  public boolean matches(ChecksumMethod method, String expected) {
+    return get(method).equalsIgnoreCase(expected);
+  }
+
+  /**
+   * @return Validation error for a file whose checksum is not the expected one, or null if it is.
+   */
+  public String getMismatch(ChecksumMethod method, String expected) {
+    return matches(method, expected)
+        ? null
+        : String.format(
+            "Invalid %s checksum: %s, expected %s", method.xml_name, get(method), expected);
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+  /** Reported like the read and base counts, {@code MD5: ...; SHA-256: ...; BYTES: ...}. */
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner("; ");
+    for (ChecksumMethod method : digests.keySet()) {
+      joiner.add(method.xml_name + ": " + get(method));
+    }
+    return joiner.add("BYTES: " + byteCount).toString();
+  }
+}
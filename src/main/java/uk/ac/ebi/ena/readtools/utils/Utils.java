@@ -170,11 +170,40 @@ public class Utils {
    * @return
    */
   public static InputStream openFastqInputStream(Path path) {
+    return openFastqInputStream(path, null);
+  }
+
+  /**
+   * Opens an input stream to Fastq file like {@link #openFastqInputStream(Path)}, computing
+   * checksums of the raw, possibly compressed, file bytes as they are read. Once the returned
+   * stream has been read to its end the checksums cover the whole file.
+   *
+   * @param checksums Checksums to update, or null.
+   */
+  public static InputStream openFastqInputStream(Path path, Checksums checksums) {
+    InputStream fileStream;
+    try {
+      fileStream = Files.newInputStream(path);
+    } catch (IOException ex) {
+      throw new RawReadsException(ex, ex.getMessage());
+    }
+    if (checksums != null) {
+      fileStream = new ChecksumInputStream(fileStream, checksums);
+    }
+    return openFastqInputStream(fileStream);
+  }
+
+  /**
+   * Decompresses the raw bytes of a Fastq file like {@link #openFastqInputStream(Path)}. Callers
+   * passing a {@link ChecksumInputStream} can {@link ChecksumInputStream#drain() drain} it once
+   * done to checksum the whole file.
+   */
+  public static InputStream openFastqInputStream(InputStream fileStream) {
     final int marksize = 256;
     BufferedInputStream is;
 
     try {
-      is = new BufferedInputStream(Files.newInputStream(path), 1024 * 1024);
+      is = new BufferedInputStream(fileStream, 1024 * 1024);
       is.mark(marksize);
 
       try {
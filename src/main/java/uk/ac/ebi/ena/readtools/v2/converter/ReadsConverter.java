@@ -0,0 +1,283 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.converter;
+
+import static uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator.*;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import uk.ac.ebi.ena.readtools.fastq.ena.ParallelBgzfOutputStream;
+import uk.ac.ebi.ena.readtools.v2.FileFormat;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.InsdcReadCheck;
+import uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Converts all reads of a {@link ReadsProvider} in one pass, checking them like {@link
+ * InsdcReadsValidator} on the way.
+ *
+ * <p>The calling thread reads batches of reads, copying them so that providers may reuse theirs.
+ * Batches are checked and encoded on a pool of threads and written by the calling thread in the
+ * order they were read, compressed by a {@link ParallelBgzfOutputStream} if the output is
+ * compressed. BGZF is gzip, so any gzip reader can read it. Errors are the same as the validator's
+ * for the first failing read.
+ */
+public abstract class ReadsConverter {
+  public static final int DEFAULT_BATCH_SIZE = 10000;
+  // More threads than this rarely help, as the calling thread reads all input, and each holds up
+  // to two batches of reads.
+  public static final int DEFAULT_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+  private final int threads;
+  private final int batchSize;
+  private final int compressionLevel;
+
+  private InsdcReadCheck check;
+  private long readCount;
+
+  /**
+   * @param threads Number of threads checking and encoding reads, and compressing output.
+   * @param batchSize Reads handed to a thread at once.
+   * @param compressionLevel Deflate level of compressed output, 0 to 9.
+   */
+  protected ReadsConverter(int threads, int batchSize, int compressionLevel) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+    }
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.compressionLevel = compressionLevel;
+  }
+
+  protected ReadsConverter(int threads) {
+    this(threads, DEFAULT_BATCH_SIZE, BlockCompressedOutputStream.getDefaultCompressionLevel());
+  }
+
+  /**
+   * @return True if the output is to be BGZF compressed.
+   */
+  protected abstract boolean isCompressed(File outputFile);
+
+  /** Writes what comes before the reads, if anything. */
+  protected void writeHeader(OutputStream outputStream) throws IOException {}
+
+  /**
+   * Encodes checked reads as they are written to the output, before compression. Called from
+   * several threads at once.
+   */
+  protected abstract void encode(List<? extends IRead> reads, OutputStream outputStream)
+      throws IOException;
+
+  /**
+   * Converts all reads, the output file is overwritten.
+   *
+   * @throws ReadsValidationException If a read does not pass the checks, with the same error as
+   *     {@link InsdcReadsValidator}. The output is incomplete then.
+   */
+  public void convert(ReadsProviderFactory readsProviderFactory, File outputFile)
+      throws ReadsValidationException, IOException {
+    FileFormat inputFormat = readsProviderFactory.getFormat();
+    boolean samLikeFormat = inputFormat == FileFormat.BAM || inputFormat == FileFormat.CRAM;
+    boolean withoutQualityScores = inputFormat == FileFormat.FASTA;
+    check = new InsdcReadCheck(samLikeFormat, withoutQualityScores);
+    readCount = 0;
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread thread = new Thread(r, "reads-converter");
+              thread.setDaemon(true);
+              return thread;
+            });
+    Deque<Future<Batch>> pending = new ArrayDeque<>();
+    Deque<Batch> free = new ArrayDeque<>();
+
+    try (ReadsProvider<? extends IRead> provider = readsProviderFactory.makeReadsProvider();
+        OutputStream outputStream = open(outputFile)) {
+      if (provider == null) {
+        throw new ReadsValidationException(ERROR_NULL_READS);
+      }
+
+      Iterator<? extends IRead> iterator;
+      try {
+        iterator = provider.iterator();
+      } catch (SAMException e) {
+        throw new ReadsValidationException(INVALID_FILE + ": " + e.getMessage());
+      }
+
+      writeHeader(outputStream);
+
+      try {
+        while (iterator.hasNext()) {
+          Batch batch =
+              free.isEmpty()
+                  ? new Batch(batchSize, samLikeFormat, withoutQualityScores)
+                  : free.poll();
+          batch.firstReadNumber = readCount + 1;
+          batch.size = 0;
+          while (batch.size < batchSize && iterator.hasNext()) {
+            batch.next().set(iterator.next());
+            readCount++;
+          }
+
+          pending.add(executor.submit(() -> process(batch)));
+          // Enough batches in flight to keep the threads busy while the oldest one is written.
+          if (pending.size() >= 2 * threads) {
+            writeOldest(pending, free, outputStream);
+          }
+        }
+      } catch (SAMException e) {
+        // Reads before the broken one may have failed their checks first.
+        while (!pending.isEmpty()) {
+          writeOldest(pending, free, outputStream);
+        }
+        throw new ReadsValidationException(INVALID_FILE + ": " + e.getMessage(), readCount + 1);
+      }
+
+      while (!pending.isEmpty()) {
+        writeOldest(pending, free, outputStream);
+      }
+
+      if (0 == readCount) {
+        throw new ReadsValidationException(ERROR_NO_READS);
+      }
+      check.checkAutcg(readCount);
+    } catch (ReadsValidationException | IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return Number of reads read by the last conversion.
+   */
+  public long getReadCount() {
+    return readCount;
+  }
+
+  /**
+   * @return Number of bases of the reads written by the last conversion.
+   */
+  public long getBaseCount() {
+    return null == check ? 0 : check.getBaseCount();
+  }
+
+  /**
+   * @return Number of reads with an average quality of at least 30 written by the last conversion.
+   */
+  public long getHighQualityReadCount() {
+    return null == check ? 0 : check.getHighQualityReadCount();
+  }
+
+  private OutputStream open(File outputFile) throws IOException {
+    OutputStream outputStream =
+        new BufferedOutputStream(Files.newOutputStream(outputFile.toPath()), 1 << 20);
+    return isCompressed(outputFile)
+        ? new ParallelBgzfOutputStream(outputStream, compressionLevel, threads)
+        : outputStream;
+  }
+
+  private Batch process(Batch batch) throws IOException, ReadsValidationException {
+    batch.check.clear();
+    for (int i = 0; i < batch.size; i++) {
+      batch.check.check(batch.reads[i], batch.firstReadNumber + i);
+    }
+
+    batch.encoded.reset();
+    encode(Arrays.asList(batch.reads).subList(0, batch.size), batch.encoded);
+    return batch;
+  }
+
+  private void writeOldest(Deque<Future<Batch>> pending, Deque<Batch> free, OutputStream out)
+      throws IOException, ReadsValidationException {
+    Batch batch;
+    try {
+      batch = pending.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ReadsValidationException) {
+        throw (ReadsValidationException) cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+
+    batch.encoded.writeTo(out);
+    check.add(batch.check);
+    free.add(batch);
+  }
+
+  /** Copies of reads, reused once written. Copies are made as needed and sized by the reads. */
+  private static final class Batch {
+    final CopiedRead[] reads;
+    final InsdcReadCheck check;
+    final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    int size;
+    long firstReadNumber;
+
+    Batch(int batchSize, boolean samLikeFormat, boolean withoutQualityScores) {
+      reads = new CopiedRead[batchSize];
+      check = new InsdcReadCheck(samLikeFormat, withoutQualityScores);
+    }
+
+    CopiedRead next() {
+      if (null == reads[size]) {
+        reads[size] = new CopiedRead();
+      }
+      return reads[size++];
+    }
+  }
+
+  private static final class CopiedRead extends MutableFastqRead {
+    CopiedRead() {
+      super(0, 0, 0);
+    }
+
+    void set(IRead read) {
+      setName(read.getNameBytes(), 0, read.getNameLength());
+      setBases(read.getBasesBytes(), 0, read.getBasesLength());
+      setQualityScores(read.getQualityScoresBytes(), 0, read.getQualityScoresLength());
+    }
+  }
+}
@@ -10,4 +10,123 @@
  */
 package uk.ac.ebi.ena.readtools.v2.converter;
 
-public class ToBamReadsConverter {}
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.ReservedTagConstants;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import uk.ac.ebi.ena.readtools.common.reads.ReadName;
+import uk.ac.ebi.ena.readtools.common.reads.ReadNameTokenizer;
+import uk.ac.ebi.ena.readtools.fastq.ena.Fastq2BamWriter;
+import uk.ac.ebi.ena.readtools.fastq.ena.ParallelBamWriter;
+import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+
+/**
+ * Writes reads as unaligned, unsorted BAM records, like the single reads of {@link
+ * Fastq2BamWriter}: one read group, names without their read number, Casava 1.8 barcodes as BC tags
+ * and filtered reads flagged as failing the vendor quality check. Quality scores are expected as
+ * Phred+33, as the reads providers normalise them.
+ */
+public class ToBamReadsConverter extends ReadsConverter {
+  private static final String READ_GROUP_NAME = "A";
+
+  private final SAMFileHeader header;
+  private final boolean convertUracil;
+
+  public ToBamReadsConverter(String sampleName) {
+    this(sampleName, false, DEFAULT_THREADS);
+  }
+
+  /**
+   * @param convertUracil Write U bases as T.
+   */
+  public ToBamReadsConverter(String sampleName, boolean convertUracil, int threads) {
+    super(threads);
+    this.header = createHeader(sampleName);
+    this.convertUracil = convertUracil;
+  }
+
+  public ToBamReadsConverter(
+      String sampleName, boolean convertUracil, int threads, int batchSize, int compressionLevel) {
+    super(threads, batchSize, compressionLevel);
+    this.header = createHeader(sampleName);
+    this.convertUracil = convertUracil;
+  }
+
+  public SAMFileHeader getHeader() {
+    return header;
+  }
+
+  @Override
+  protected boolean isCompressed(File outputFile) {
+    return true;
+  }
+
+  @Override
+  protected void writeHeader(OutputStream outputStream) throws IOException {
+    ParallelBamWriter.writeHeader(header, outputStream);
+  }
+
+  @Override
+  protected void encode(List<? extends IRead> reads, OutputStream outputStream) {
+    BAMRecordCodec codec = new BAMRecordCodec(header);
+    codec.setOutputStream(outputStream);
+    ReadName casavaName = new ReadName();
+
+    for (IRead read : reads) {
+      // Names may be empty, getName() is null then.
+      String name =
+          new String(read.getNameBytes(), 0, read.getNameLength(), StandardCharsets.UTF_8);
+      boolean casava = ReadNameTokenizer.parseCasava(name, casavaName);
+      String baseName;
+      if (casava) {
+        baseName = casavaName.getKey();
+      } else {
+        int slash = name.lastIndexOf('/');
+        baseName = slash == -1 ? name : name.substring(0, slash);
+      }
+
+      byte[] qualityScores = read.getQualityScoresBytes();
+      byte[] phredScores = new byte[read.getQualityScoresLength()];
+      for (int i = 0; i < phredScores.length; i++) {
+        phredScores[i] = (byte) (qualityScores[i] - 33);
+      }
+
+      SAMRecord record = new SAMRecord(header);
+      record.setReadUnmappedFlag(true);
+      record.setAttribute(ReservedTagConstants.READ_GROUP_ID, READ_GROUP_NAME);
+      // '*' is SAM's missing name.
+      record.setReadName(baseName.isEmpty() ? "*" : baseName);
+      record.setReadString(
+          convertUracil ? Utils.replaceUracilBases(read.getBases()) : read.getBases());
+      record.setBaseQualities(phredScores);
+
+      if (casava) {
+        if (casavaName.getBarcode() != null) {
+          record.setAttribute("BC", casavaName.getBarcode());
+        }
+        if (casavaName.isFiltered()) {
+          record.setReadFailsVendorQualityCheckFlag(true);
+        }
+      }
+
+      codec.encode(record);
+    }
+  }
+
+  private static SAMFileHeader createHeader(String sampleName) {
+    SAMReadGroupRecord readGroup = new SAMReadGroupRecord(READ_GROUP_NAME);
+    readGroup.setSample(sampleName);
+
+    SAMFileHeader header = new SAMFileHeader();
+    header.addReadGroup(readGroup);
+    header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+    return header;
+  }
+}
@@ -10,4 +10,68 @@
  */
 package uk.ac.ebi.ena.readtools.v2.converter;
 
-public class ToFastqReadsConverter {}
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import uk.ac.ebi.ena.readtools.sam.Sam2Fastq;
+import uk.ac.ebi.ena.readtools.v2.FileFormat;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Writes reads as FASTQ, gzip compressed (as BGZF) if the output file name ends with ".gz". Quality
+ * scores are written as the reads provider gives them, Phred+33 if it normalises them.
+ *
+ * <p>Only FASTQ and FASTA input is converted. Records of BAM and CRAM files are not all reads as
+ * they were sequenced: secondary and supplementary records repeat reads, and reads on the negative
+ * strand are stored reverse complemented. Use {@link Sam2Fastq} for those.
+ */
+public class ToFastqReadsConverter extends ReadsConverter {
+  private static final byte[] SEPARATOR = {'\n', '+', '\n'};
+
+  public ToFastqReadsConverter() {
+    this(DEFAULT_THREADS);
+  }
+
+  public ToFastqReadsConverter(int threads) {
+    super(threads);
+  }
+
+  public ToFastqReadsConverter(int threads, int batchSize, int compressionLevel) {
+    super(threads, batchSize, compressionLevel);
+  }
+
+  /**
+   * @throws IllegalArgumentException If the input is BAM or CRAM.
+   */
+  @Override
+  public void convert(ReadsProviderFactory readsProviderFactory, File outputFile)
+      throws ReadsValidationException, IOException {
+    FileFormat inputFormat = readsProviderFactory.getFormat();
+    if (inputFormat == FileFormat.BAM || inputFormat == FileFormat.CRAM) {
+      throw new IllegalArgumentException(
+          "Cannot convert " + inputFormat + " to FASTQ, use Sam2Fastq instead");
+    }
+    super.convert(readsProviderFactory, outputFile);
+  }
+
+  @Override
+  protected boolean isCompressed(File outputFile) {
+    return outputFile.getName().endsWith(".gz");
+  }
+
+  @Override
+  protected void encode(List<? extends IRead> reads, OutputStream outputStream) throws IOException {
+    for (IRead read : reads) {
+      outputStream.write('@');
+      outputStream.write(read.getNameBytes(), 0, read.getNameLength());
+      outputStream.write('\n');
+      outputStream.write(read.getBasesBytes(), 0, read.getBasesLength());
+      outputStream.write(SEPARATOR);
+      outputStream.write(read.getQualityScoresBytes(), 0, read.getQualityScoresLength());
+      outputStream.write('\n');
+    }
+  }
+}
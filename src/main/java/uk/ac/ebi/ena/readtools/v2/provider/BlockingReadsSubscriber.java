@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Subscribes to a {@link ReadsPublisher} for a thread that wants to wait for batches, such as a
+ * validator run per file. It keeps {@code prefetch} batches requested ahead of {@link #take()}.
+ * Waiting is done on a {@link LinkedBlockingQueue}, without monitors, so lightweight threads that
+ * wait here do not hold on to their carrier threads.
+ */
+public final class BlockingReadsSubscriber implements Flow.Subscriber<List<IRead>>, AutoCloseable {
+  private static final Object COMPLETE = new Object();
+
+  // Batches, then COMPLETE or the error.
+  private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+  private final int prefetch;
+  private volatile Flow.Subscription subscription;
+  private boolean finished;
+
+  public BlockingReadsSubscriber(int prefetch) {
+    if (prefetch < 1) {
+      throw new IllegalArgumentException("prefetch must be positive: " + prefetch);
+    }
+    this.prefetch = prefetch;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (null != this.subscription) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    subscription.request(prefetch);
+  }
+
+  @Override
+  public void onNext(List<IRead> batch) {
+    queue.add(batch);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    queue.add(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    queue.add(COMPLETE);
+  }
+
+  /**
+   * Waits for the next batch.
+   *
+   * @return The batch, or null once all reads have been taken.
+   */
+  @SuppressWarnings("unchecked")
+  public List<IRead> take() throws ReadsValidationException, InterruptedException {
+    if (finished) {
+      return null;
+    }
+
+    Object next = queue.take();
+    if (next instanceof List) {
+      subscription.request(1);
+      return (List<IRead>) next;
+    }
+
+    finished = true;
+    if (COMPLETE == next) {
+      return null;
+    }
+    if (next instanceof ReadsValidationException) {
+      throw (ReadsValidationException) next;
+    }
+    if (next instanceof RuntimeException) {
+      throw (RuntimeException) next;
+    }
+    if (next instanceof Error) {
+      throw (Error) next;
+    }
+    throw new RuntimeException((Throwable) next);
+  }
+
+  /** Cancels the subscription and drops the batches not taken. */
+  @Override
+  public void close() {
+    finished = true;
+    if (null != subscription) {
+      subscription.cancel();
+    }
+    queue.clear();
+  }
+}
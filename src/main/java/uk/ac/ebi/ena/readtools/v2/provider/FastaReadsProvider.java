@@ -0,0 +1,251 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import htsjdk.samtools.SAMException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import uk.ac.ebi.ena.readtools.loader.common.MappedFileInputStream;
+import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Reads FASTA records into one {@link MutableFastqRead} that is handed out again and again, like
+ * {@link ReusingFastqReadsProvider} does. A read is only valid until the iterator is asked for the
+ * next one. Reads have the whole header line after '>' as their name, the sequence lines joined as
+ * their bases and no quality scores.
+ *
+ * <p>Lines are scanned in the read buffer and copied straight into the read, so that no line is
+ * made into a string. Plain files are read from memory mappings, gzip and bzip2 compressed files
+ * through the streams of {@link Utils#openFastqInputStream}. Blank lines are skipped.
+ */
+public class FastaReadsProvider implements ReadsProvider<MutableFastqRead> {
+  private final MutableFastqRead read = new MutableFastqRead();
+  private final byte[] buffer = new byte[1 << 16];
+  private final String source;
+  private InputStream inputStream;
+
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+  private byte[] header = new byte[256];
+  private int headerLength;
+  private byte[] bases = new byte[1 << 12];
+  private int basesLength;
+  // Lines read so far.
+  private int lineNumber;
+  private boolean loaded;
+
+  public FastaReadsProvider(File fastaFile) throws ReadsValidationException {
+    this(openFastaInputStream(fastaFile), fastaFile.getPath());
+  }
+
+  /**
+   * Reads the records of an open stream.
+   *
+   * @param source Where the stream comes from, appended to error messages.
+   */
+  FastaReadsProvider(InputStream inputStream, String source) throws ReadsValidationException {
+    this.inputStream = inputStream;
+    this.source = source;
+    try {
+      // Like the FASTQ providers, fail on a broken first record right away.
+      loaded = readRecord();
+    } catch (SAMException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  /**
+   * @return A memory mapped stream for plain files, otherwise the stream FASTQ files are read
+   *     through, which finds the compression from the content.
+   */
+  static InputStream openFastaInputStream(File fastaFile) throws ReadsValidationException {
+    try {
+      if (!isCompressed(fastaFile) && fastaFile.isFile()) {
+        return new MappedFileInputStream(fastaFile);
+      }
+      return Utils.openFastqInputStream(fastaFile.toPath());
+    } catch (IOException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  /**
+   * @return True if the file starts with the gzip or bzip2 magic bytes.
+   */
+  private static boolean isCompressed(File file) throws IOException {
+    byte[] magic = new byte[3];
+    int length;
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      length = inputStream.readNBytes(magic, 0, magic.length);
+    }
+    return (length >= 2 && (byte) 0x1f == magic[0] && (byte) 0x8b == magic[1])
+        || (3 == length && 'B' == magic[0] && 'Z' == magic[1] && 'h' == magic[2]);
+  }
+
+  @Override
+  public MutableFastqRead copy(MutableFastqRead read) {
+    return read.copy();
+  }
+
+  @Override
+  public Iterator<MutableFastqRead> iterator() {
+    return new Iterator<MutableFastqRead>() {
+      @Override
+      public boolean hasNext() {
+        if (!loaded && inputStream != null) {
+          loaded = readRecord();
+        }
+        return loaded;
+      }
+
+      @Override
+      public MutableFastqRead next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        // The next record is only parsed into the read once the caller is done with this one.
+        loaded = false;
+        return read;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (inputStream != null) {
+      inputStream.close();
+      inputStream = null;
+    }
+  }
+
+  /**
+   * @return False at the end of the file.
+   */
+  private boolean readRecord() {
+    try {
+      do {
+        if (!fill()) {
+          return false;
+        }
+        headerLength = 0;
+        readLine(true);
+      } while (isBlank(header, 0, headerLength));
+
+      if ('>' != header[0]) {
+        throw new SAMException(
+            error(
+                "Sequence header must start with >: "
+                    + new String(header, 0, headerLength, StandardCharsets.UTF_8)));
+      }
+      read.setName(header, 1, headerLength - 1);
+
+      // Sequence lines up to the next header, which is left for the next record.
+      basesLength = 0;
+      while (fill() && '>' != buffer[position]) {
+        int lineStart = basesLength;
+        readLine(false);
+        if (isBlank(bases, lineStart, basesLength)) {
+          basesLength = lineStart;
+        }
+      }
+      read.setBases(bases, 0, basesLength);
+      read.setQualityScores(bases, 0, 0);
+      return true;
+    } catch (IOException e) {
+      throw new SAMException(error(e.getMessage()), e);
+    }
+  }
+
+  private String error(String message) {
+    return message + " at line " + lineNumber + " in fasta " + source;
+  }
+
+  /**
+   * Makes the next byte available in the buffer, past the line feed of a CR LF line end.
+   *
+   * @return False at the end of the file.
+   */
+  private boolean fill() throws IOException {
+    while (true) {
+      if (position == limit) {
+        limit = inputStream.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return false;
+        }
+      }
+
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if ('\n' == buffer[position]) {
+          position++;
+          continue;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Reads up to the next line feed, carriage return or both, appending the line to the header or to
+   * the bases.
+   */
+  private void readLine(boolean toHeader) throws IOException {
+    lineNumber++;
+    while (fill()) {
+      int start = position;
+      while (position < limit && '\n' != buffer[position] && '\r' != buffer[position]) {
+        position++;
+      }
+      int length = position - start;
+      if (toHeader) {
+        header = append(header, headerLength, start, length);
+        headerLength += length;
+      } else {
+        bases = append(bases, basesLength, start, length);
+        basesLength += length;
+      }
+
+      if (position < limit) {
+        skipLineFeed = '\r' == buffer[position++];
+        return;
+      }
+    }
+  }
+
+  private byte[] append(byte[] target, int targetLength, int start, int length) {
+    if (target.length < targetLength + length) {
+      target = Arrays.copyOf(target, Math.max(targetLength + length, target.length * 2));
+    }
+    System.arraycopy(buffer, start, target, targetLength, length);
+    return target;
+  }
+
+  /** Same as htsjdk StringUtil.isBlank for ASCII lines. */
+  private static boolean isBlank(byte[] line, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!Character.isWhitespace(line[i] & 0xff)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
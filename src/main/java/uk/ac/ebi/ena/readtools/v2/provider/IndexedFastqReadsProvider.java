@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import htsjdk.samtools.SAMException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import uk.ac.ebi.ena.readtools.common.fastq.FastqIndex;
+import uk.ac.ebi.ena.readtools.common.fastq.FastqSplitter;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Reads of a FASTQ file with a {@link FastqIndex}, from any record on. The file is opened at the
+ * indexed record at or before the first one asked for, so fewer than {@link
+ * FastqIndex#getInterval()} records are read and skipped. Records are parsed by a {@link
+ * ReusingFastqReadsProvider}, so reads are reused the same way.
+ */
+public class IndexedFastqReadsProvider implements ReadsProvider<MutableFastqRead> {
+  private final ReusingFastqReadsProvider reads;
+  private final Iterator<MutableFastqRead> readIterator;
+  private long remaining;
+
+  /** Reads all records from the given one on, normalising quality scores. */
+  public IndexedFastqReadsProvider(File fastqFile, FastqIndex index, long firstRecord)
+      throws ReadsValidationException {
+    this(fastqFile, index, firstRecord, Long.MAX_VALUE, true);
+  }
+
+  /**
+   * @param firstRecord Number of the first record to read, counting from 0.
+   * @param recordCount Most records to read.
+   */
+  public IndexedFastqReadsProvider(
+      File fastqFile,
+      FastqIndex index,
+      long firstRecord,
+      long recordCount,
+      boolean normaliseQualityScores)
+      throws ReadsValidationException {
+    if (firstRecord < 0 || firstRecord > index.getReadCount() || recordCount < 0) {
+      throw new IllegalArgumentException(
+          "Records "
+              + firstRecord
+              + " + "
+              + recordCount
+              + " out of "
+              + index.getReadCount()
+              + " indexed");
+    }
+    this.remaining = Math.min(recordCount, index.getReadCount() - firstRecord);
+
+    // Past the last record there is nothing to read.
+    int entry = firstRecord < index.getReadCount() ? index.getEntry(firstRecord) : -1;
+    long entryRecord = -1 == entry ? firstRecord : index.getEntryRecord(entry);
+    long start = -1 == entry ? index.getEndPointer() : index.getEntryPointer(entry);
+    try {
+      InputStream inputStream =
+          -1 == entry
+              ? InputStream.nullInputStream()
+              : FastqSplitter.open(
+                  fastqFile, index.isBlockCompressed(), start, index.getEndPointer());
+      this.reads =
+          new ReusingFastqReadsProvider(
+              normaliseQualityScores
+                  ? ReusingFastqReadsProvider.detectQualityFormat(fastqFile)
+                  : null,
+              inputStream,
+              0 == start ? "" : "from record " + entryRecord);
+      this.readIterator = reads.iterator();
+      for (long i = entryRecord; i < firstRecord; i++) {
+        readIterator.next();
+      }
+    } catch (IOException | SAMException | NoSuchElementException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  @Override
+  public MutableFastqRead copy(MutableFastqRead read) {
+    return read.copy();
+  }
+
+  @Override
+  public Iterator<MutableFastqRead> iterator() {
+    return new Iterator<MutableFastqRead>() {
+      @Override
+      public boolean hasNext() {
+        return remaining > 0 && readIterator.hasNext();
+      }
+
+      @Override
+      public MutableFastqRead next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        remaining--;
+        return readIterator.next();
+      }
+    };
+  }
+
+  @Override
+  public void close() throws Exception {
+    reads.close();
+  }
+}
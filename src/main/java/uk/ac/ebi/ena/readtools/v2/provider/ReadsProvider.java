@@ -10,6 +10,38 @@
  */
 package uk.ac.ebi.ena.readtools.v2.provider;
 
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import uk.ac.ebi.ena.readtools.v2.read.IRead;
 
-public interface ReadsProvider<T extends IRead> extends Iterable<T>, AutoCloseable {}
+public interface ReadsProvider<T extends IRead> extends Iterable<T>, AutoCloseable {
+  /**
+   * @return A read that stays valid once the next read is taken. Providers that overwrite their
+   *     reads return a copy.
+   */
+  default T copy(T read) {
+    return read;
+  }
+
+  default Stream<T> stream(boolean parallel) {
+    return stream(parallel, Long.MAX_VALUE);
+  }
+
+  /**
+   * Streams the reads through a {@link ReadsSpliterator}. Parallel streams hand batches of copied
+   * reads to their workers; sequential streams get the reads as the iterator gives them. The
+   * provider is not closed with the stream.
+   *
+   * @param readCountLimit Most reads taken from the provider.
+   */
+  default Stream<T> stream(boolean parallel, long readCountLimit) {
+    return StreamSupport.stream(
+        new ReadsSpliterator<>(
+            iterator(),
+            parallel ? this::copy : UnaryOperator.identity(),
+            ReadsSpliterator.DEFAULT_BATCH_SIZE,
+            readCountLimit),
+        parallel);
+  }
+}
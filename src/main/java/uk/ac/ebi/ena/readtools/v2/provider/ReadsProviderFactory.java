@@ -19,15 +19,44 @@ public class ReadsProviderFactory {
   private final File file;
   private final FileFormat format;
   private final boolean normaliseFastqQualityScores;
+  private final boolean reuseFastqReads;
+  private final ReadsSampling sampling;
 
   public ReadsProviderFactory(File file, FileFormat format) {
     this(file, format, true);
   }
 
   public ReadsProviderFactory(File file, FileFormat format, boolean normaliseFastqQualityScores) {
+    this(file, format, normaliseFastqQualityScores, false);
+  }
+
+  /**
+   * @param reuseFastqReads When true, FASTQ files are read by a {@link ReusingFastqReadsProvider},
+   *     which overwrites a single read with each record. Only for callers that do not keep reads.
+   */
+  public ReadsProviderFactory(
+      File file, FileFormat format, boolean normaliseFastqQualityScores, boolean reuseFastqReads) {
+    this(file, format, normaliseFastqQualityScores, reuseFastqReads, null);
+  }
+
+  /**
+   * @param sampling Reads to sample from evenly spaced positions of the file, or null to read all.
+   *     Uncompressed and BGZF compressed FASTQ files are read by a {@link
+   *     SampledFastqReadsProvider}, which reuses its reads like a {@link ReusingFastqReadsProvider}
+   *     does. Indexed BAM and CRAM files are sampled through their index. Other files are read from
+   *     the start.
+   */
+  public ReadsProviderFactory(
+      File file,
+      FileFormat format,
+      boolean normaliseFastqQualityScores,
+      boolean reuseFastqReads,
+      ReadsSampling sampling) {
     this.file = file;
     this.format = format;
     this.normaliseFastqQualityScores = normaliseFastqQualityScores;
+    this.reuseFastqReads = reuseFastqReads;
+    this.sampling = sampling;
   }
 
   public FileFormat getFormat() {
@@ -37,10 +66,17 @@ public class ReadsProviderFactory {
   public ReadsProvider<? extends IRead> makeReadsProvider() throws ReadsValidationException {
     switch (format) {
       case FASTQ:
-        return new FastqReadsProvider(file, normaliseFastqQualityScores);
+        if (null != sampling && SampledFastqReadsProvider.isSampleable(file)) {
+          return new SampledFastqReadsProvider(file, normaliseFastqQualityScores, sampling);
+        }
+        return reuseFastqReads
+            ? new ReusingFastqReadsProvider(file, normaliseFastqQualityScores)
+            : new FastqReadsProvider(file, normaliseFastqQualityScores);
       case BAM:
       case CRAM:
-        return new SamReadsProvider(file);
+        return new SamReadsProvider(file, sampling);
+      case FASTA:
+        return new FastaReadsProvider(file);
       default:
         throw new ReadsValidationException("not implemented");
     }
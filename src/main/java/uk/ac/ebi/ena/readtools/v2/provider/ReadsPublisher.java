@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import static uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator.ERROR_NULL_READS;
+import static uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator.INVALID_FILE;
+
+import htsjdk.samtools.SAMException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Publishes the reads of a file in batches, read only as subscribers ask for them. Every
+ * subscription opens its own provider from the factory and closes it once the reads are done, fail
+ * or the subscription is cancelled.
+ *
+ * <p>Reads are taken on the given executor and only while there is demand, so that no thread waits
+ * for a slow subscriber. A task sends at most {@link #BATCHES_PER_TASK} batches before it hands the
+ * thread back, so that many files can be published on a few threads. Reads are copied with {@link
+ * ReadsProvider#copy}, so batches can be kept.
+ *
+ * <p>Errors reach {@link Flow.Subscriber#onError} as the {@link ReadsValidationException} the
+ * validators give: files failing to parse are reported as {@code INVALID_FILE} with the number of
+ * the read that failed.
+ */
+public class ReadsPublisher implements Flow.Publisher<List<IRead>> {
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+  public static final int BATCHES_PER_TASK = 16;
+
+  private final ReadsProviderFactory readsProviderFactory;
+  private final Executor executor;
+  private final int batchSize;
+
+  public ReadsPublisher(ReadsProviderFactory readsProviderFactory, Executor executor) {
+    this(readsProviderFactory, executor, DEFAULT_BATCH_SIZE);
+  }
+
+  public ReadsPublisher(
+      ReadsProviderFactory readsProviderFactory, Executor executor, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.readsProviderFactory = readsProviderFactory;
+    this.executor = executor;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super List<IRead>> subscriber) {
+    Objects.requireNonNull(subscriber);
+    subscriber.onSubscribe(new ReadsSubscription(subscriber));
+  }
+
+  private final class ReadsSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super List<IRead>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    // Signals not yet seen by the task, which runs while this is above 0.
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // Only used by the task.
+    private Source<?> source;
+    private boolean done;
+
+    ReadsSubscription(Flow.Subscriber<? super List<IRead>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Requested batches must be positive: " + n);
+      } else {
+        // Demand adding up past Long.MAX_VALUE is unbounded.
+        demand.getAndAccumulate(
+            n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (0 == work.getAndIncrement()) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = work.get();
+      int sent = 0;
+      while (true) {
+        if (!done) {
+          if (cancelled) {
+            done = true;
+            close();
+          } else if (null != invalidRequest) {
+            fail(invalidRequest);
+          } else {
+            while (!done && !cancelled && 0 < demand.get()) {
+              if (BATCHES_PER_TASK == sent) {
+                // The work count stays above 0, so nothing else runs this task meanwhile.
+                executor.execute(this);
+                return;
+              }
+              send();
+              sent++;
+            }
+          }
+        }
+
+        missed = work.addAndGet(-missed);
+        if (0 == missed) {
+          return;
+        }
+      }
+    }
+
+    private void send() {
+      List<IRead> batch;
+      boolean last;
+      try {
+        if (null == source) {
+          ReadsProvider<? extends IRead> provider = readsProviderFactory.makeReadsProvider();
+          if (null == provider) {
+            throw new ReadsValidationException(ERROR_NULL_READS);
+          }
+          source = Source.open(provider);
+        }
+        batch = source.take(batchSize);
+        last = !source.iterator.hasNext();
+      } catch (SAMException e) {
+        long readNumber = null == source ? 0 : source.readCount + 1;
+        fail(new ReadsValidationException(INVALID_FILE + ": " + e.getMessage(), readNumber));
+        return;
+      } catch (Exception e) {
+        fail(e);
+        return;
+      }
+
+      if (!batch.isEmpty()) {
+        demand.decrementAndGet();
+        subscriber.onNext(batch);
+      }
+      if (last && !cancelled) {
+        done = true;
+        close();
+        subscriber.onComplete();
+      }
+    }
+
+    private void fail(Throwable throwable) {
+      done = true;
+      close();
+      subscriber.onError(throwable);
+    }
+
+    private void close() {
+      if (null != source) {
+        try {
+          source.provider.close();
+        } catch (Exception ignored) {
+          // Nothing is read from it any more.
+        }
+        source = null;
+      }
+    }
+  }
+
+  /** A provider with its iterator, so that both have the same read type. */
+  private static final class Source<T extends IRead> {
+    final ReadsProvider<T> provider;
+    final Iterator<T> iterator;
+    long readCount;
+
+    private Source(ReadsProvider<T> provider) {
+      this.provider = provider;
+      this.iterator = provider.iterator();
+    }
+
+    static <T extends IRead> Source<T> open(ReadsProvider<T> provider) {
+      try {
+        return new Source<>(provider);
+      } catch (RuntimeException e) {
+        try {
+          provider.close();
+        } catch (Exception suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+    }
+
+    List<IRead> take(int batchSize) {
+      List<IRead> batch = new ArrayList<>(batchSize);
+      // Each read is copied before the iterator is asked for the next.
+      while (batch.size() < batchSize && iterator.hasNext()) {
+        batch.add(provider.copy(iterator.next()));
+        readCount++;
+      }
+      return batch;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+/**
+ * Reads taken from evenly spaced positions of a file rather than from its start: a fixed number of
+ * reads is read at each position. Reads are never taken twice, so a file holding fewer reads than
+ * sampled is read whole.
+ */
+public class ReadsSampling {
+  public static final int DEFAULT_POSITIONS = 10;
+
+  private final int positions;
+  private final int readsPerPosition;
+
+  public ReadsSampling(int positions, int readsPerPosition) {
+    if (positions <= 0 || readsPerPosition <= 0) {
+      throw new IllegalArgumentException(
+          "Positions and reads per position must be positive: "
+              + positions
+              + ", "
+              + readsPerPosition);
+    }
+    this.positions = positions;
+    this.readsPerPosition = readsPerPosition;
+  }
+
+  /**
+   * @return Sampling of about the given number of reads from {@link #DEFAULT_POSITIONS} positions.
+   */
+  public static ReadsSampling of(long readCount) {
+    int readsPerPosition = (int) Math.min(Integer.MAX_VALUE, readCount / DEFAULT_POSITIONS);
+    return new ReadsSampling(DEFAULT_POSITIONS, Math.max(1, readsPerPosition));
+  }
+
+  public int getPositions() {
+    return positions;
+  }
+
+  public int getReadsPerPosition() {
+    return readsPerPosition;
+  }
+
+  @Override
+  public String toString() {
+    return positions + " x " + readsPerPosition + " reads";
+  }
+}
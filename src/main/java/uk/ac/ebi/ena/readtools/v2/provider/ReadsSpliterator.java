@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+
+/**
+ * Spliterator over the iterator of a {@link ReadsProvider}, which can only be read by one thread.
+ * Splitting takes the next {@code batchSize} reads off the iterator into an array, which fork-join
+ * workers then process while the reads after them are split off. No more than {@code
+ * readCountLimit} reads are taken, so that a limited stream stops reading the file.
+ *
+ * <p>Every read is passed through {@code copier} as it is taken, which lets reads of providers that
+ * overwrite them be kept in a batch.
+ */
+public final class ReadsSpliterator<T extends IRead> implements Spliterator<T> {
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final Iterator<? extends T> iterator;
+  private final UnaryOperator<T> copier;
+  private final int batchSize;
+  private long remaining;
+
+  /**
+   * @param copier Makes a read that stays valid once the next is taken, see {@link
+   *     ReadsProvider#copy}.
+   * @param readCountLimit Most reads taken from the iterator.
+   */
+  public ReadsSpliterator(
+      Iterator<? extends T> iterator, UnaryOperator<T> copier, int batchSize, long readCountLimit) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.iterator = iterator;
+    this.copier = copier;
+    this.batchSize = batchSize;
+    this.remaining = Math.max(0, readCountLimit);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (0 == remaining || !iterator.hasNext()) {
+      return false;
+    }
+    remaining--;
+    action.accept(copier.apply(iterator.next()));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    while (0 < remaining && iterator.hasNext()) {
+      remaining--;
+      action.accept(copier.apply(iterator.next()));
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    int size = (int) Math.min(batchSize, remaining);
+    if (0 == size || !iterator.hasNext()) {
+      return null;
+    }
+    Object[] batch = new Object[size];
+    int count = 0;
+    // Each read is copied before the iterator is asked for the next.
+    while (count < size && iterator.hasNext()) {
+      batch[count++] = copier.apply(iterator.next());
+    }
+    remaining -= count;
+    return Spliterators.spliterator(batch, 0, count, characteristics());
+  }
+
+  /**
+   * @return Reads left up to the limit, the number of reads in the file is not known.
+   */
+  @Override
+  public long estimateSize() {
+    return remaining;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import static uk.ac.ebi.ena.readtools.utils.Utils.openFastqInputStream;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.util.FastqQualityFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
+import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Same as {@link FastqReadsProvider}, but every read is parsed from the raw bytes into one {@link
+ * MutableFastqRead} that is handed out again and again, so that reading makes no garbage. A read is
+ * only valid until the iterator is asked for the next one.
+ *
+ * <p>Records are parsed with the rules and error messages of the htsjdk FastqReader used by {@link
+ * FastqReadsProvider}: blank lines are skipped, headers must start with '@' and '+' and the bases
+ * and quality scores must have the same length.
+ */
+public class ReusingFastqReadsProvider implements ReadsProvider<MutableFastqRead> {
+  private final MutableFastqRead read = new MutableFastqRead();
+  private final byte[] buffer = new byte[1 << 16];
+  private final FastqQualityFormat qualityFormat;
+  private final QualityNormalizer qualityNormalizer;
+  private final String source;
+  private InputStream inputStream;
+
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+  private byte[] line = new byte[256];
+  private int lineLength;
+  // Line of the next record, as counted by htsjdk.
+  private int lineNumber = 1;
+  private boolean loaded;
+
+  public ReusingFastqReadsProvider(File fastqFile) throws ReadsValidationException {
+    this(fastqFile, true);
+  }
+
+  public ReusingFastqReadsProvider(File fastqFile, boolean normaliseQualityScores)
+      throws ReadsValidationException {
+    this(
+        normaliseQualityScores ? detectQualityFormat(fastqFile) : null,
+        openFastqInputStream(fastqFile.toPath()),
+        "");
+  }
+
+  /**
+   * Reads the records of an open stream.
+   *
+   * @param qualityFormat Format the quality scores are normalised from, or null to keep them.
+   * @param source Where the stream comes from, appended to error messages.
+   */
+  ReusingFastqReadsProvider(
+      FastqQualityFormat qualityFormat, InputStream inputStream, String source)
+      throws ReadsValidationException {
+    this.qualityFormat = qualityFormat;
+    this.qualityNormalizer =
+        null == qualityFormat ? null : Utils.getQualityNormalizer(qualityFormat);
+    this.inputStream = inputStream;
+    this.source = source;
+    try {
+      // Like the htsjdk reader, fail on a broken first record right away.
+      loaded = readRecord();
+    } catch (SAMException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  static FastqQualityFormat detectQualityFormat(File fastqFile) throws ReadsValidationException {
+    try {
+      return Utils.detectFastqQualityFormat(fastqFile.getAbsolutePath(), null);
+    } catch (SAMException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  public FastqQualityFormat getQualityFormat() {
+    return qualityFormat;
+  }
+
+  @Override
+  public MutableFastqRead copy(MutableFastqRead read) {
+    return read.copy();
+  }
+
+  @Override
+  public Iterator<MutableFastqRead> iterator() {
+    return new Iterator<MutableFastqRead>() {
+      @Override
+      public boolean hasNext() {
+        if (!loaded && inputStream != null) {
+          loaded = readRecord();
+        }
+        return loaded;
+      }
+
+      @Override
+      public MutableFastqRead next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        // The next record is only parsed into the read once the caller is done with this one.
+        loaded = false;
+        return read;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (inputStream != null) {
+      inputStream.close();
+      inputStream = null;
+    }
+  }
+
+  /**
+   * @return False at the end of the file.
+   */
+  private boolean readRecord() {
+    try {
+      if (!readLineSkippingBlanks()) {
+        return false;
+      }
+      if ('@' != line[0]) {
+        throw new SAMException(error("Sequence header must start with @: " + lineString()));
+      }
+      read.setName(line, 1, lineLength - 1);
+
+      checkLine(readLineSkippingBlanks(), "Sequence Line");
+      read.setBases(line, 0, lineLength);
+      int basesLength = lineLength;
+
+      checkLine(readLineSkippingBlanks(), "Quality Header");
+      if ('+' != line[0]) {
+        throw new SAMException(error("Quality header must start with +: " + lineString()));
+      }
+
+      checkLine(readLineSkippingBlanks(), "Quality Line");
+      if (basesLength != lineLength) {
+        throw new SAMException(error("Sequence and quality line must be the same length"));
+      }
+      if (null != qualityFormat && qualityFormat != FastqQualityFormat.Standard) {
+        qualityNormalizer.normalize(line, 0, lineLength);
+        for (int i = 0; i < lineLength; i++) {
+          line[i] = (byte) SAMUtils.phredToFastq(line[i] & 0xff);
+        }
+      }
+      read.setQualityScores(line, 0, lineLength);
+
+      lineNumber += 4;
+      return true;
+    } catch (IOException e) {
+      throw new SAMException(error(e.getMessage()), e);
+    }
+  }
+
+  private void checkLine(boolean read, String kind) {
+    if (!read) {
+      throw new SAMException(error("File is too short - missing " + kind));
+    }
+  }
+
+  private String error(String message) {
+    // The htsjdk reader is given no file, so it names none.
+    return message + " at line " + lineNumber + " in fastq " + source;
+  }
+
+  private boolean readLineSkippingBlanks() throws IOException {
+    boolean read;
+    do {
+      read = readLine();
+    } while (read && isBlank());
+    return read;
+  }
+
+  /**
+   * Reads up to the next line feed, carriage return or both, as {@link
+   * java.io.BufferedReader#readLine()} does.
+   *
+   * @return False at the end of the file.
+   */
+  private boolean readLine() throws IOException {
+    lineLength = 0;
+    boolean read = false;
+    while (true) {
+      if (position == limit) {
+        limit = inputStream.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return read;
+        }
+      }
+
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if ('\n' == buffer[position]) {
+          position++;
+          continue;
+        }
+      }
+
+      read = true;
+      int start = position;
+      while (position < limit && '\n' != buffer[position] && '\r' != buffer[position]) {
+        position++;
+      }
+      append(start, position);
+
+      if (position < limit) {
+        skipLineFeed = '\r' == buffer[position++];
+        return true;
+      }
+    }
+  }
+
+  private void append(int start, int end) {
+    int length = end - start;
+    if (line.length < lineLength + length) {
+      line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+    }
+    System.arraycopy(buffer, start, line, lineLength, length);
+    lineLength += length;
+  }
+
+  /** Same as htsjdk StringUtil.isBlank for ASCII lines. */
+  private boolean isBlank() {
+    for (int i = 0; i < lineLength; i++) {
+      if (!Character.isWhitespace(line[i] & 0xff)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String lineString() {
+    return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+  }
+}
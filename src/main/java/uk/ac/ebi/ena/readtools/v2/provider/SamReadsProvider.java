@@ -14,7 +14,10 @@ import htsjdk.samtools.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import uk.ac.ebi.ena.readtools.cram.ref.ENAReferenceSource;
 import uk.ac.ebi.ena.readtools.v2.read.SamRead;
@@ -24,6 +27,14 @@ public class SamReadsProvider implements ReadsProvider<SamRead> {
   private final Iterator<SAMRecord> samIterator;
 
   public SamReadsProvider(File samFile) {
+    this(samFile, null);
+  }
+
+  /**
+   * @param sampling Reads to sample from an indexed file, or null to read all. Files without an
+   *     index are read from the start.
+   */
+  public SamReadsProvider(File samFile, ReadsSampling sampling) {
     SamReaderFactory.setDefaultValidationStringency(ValidationStringency.SILENT);
     if (isCram(samFile)) {
       reader =
@@ -42,7 +53,12 @@ public class SamReadsProvider implements ReadsProvider<SamRead> {
               .open(samFile);
     }
 
-    samIterator = reader.iterator();
+    samIterator =
+        null != sampling && reader.hasIndex() ? new SampleIterator(sampling) : reader.iterator();
+  }
+
+  public boolean isSampled() {
+    return samIterator instanceof SampleIterator;
   }
 
   @Override
@@ -67,11 +83,124 @@ public class SamReadsProvider implements ReadsProvider<SamRead> {
 
   @Override
   public void close() throws Exception {
+    if (samIterator instanceof SampleIterator) {
+      ((SampleIterator) samIterator).closeSample();
+    }
     if (reader != null) {
       reader.close();
     }
   }
 
+  /**
+   * Records of evenly spaced reference positions, found through the index, followed by unmapped
+   * records. Each sample holds the records starting from its position up to the next sample's.
+   * Without reference sequences, as in indexed unaligned files, all reads sampled are unmapped.
+   */
+  private class SampleIterator implements Iterator<SAMRecord> {
+    private final int readsPerPosition;
+    private final long readCountLimit;
+    // Reference index and 1-based start of each sample.
+    private final List<int[]> samples = new ArrayList<>();
+
+    private int sample = -1;
+    private SAMRecordIterator records;
+    private long sampleReadCount;
+    private long sampleReadLimit;
+    private SAMRecord next;
+
+    SampleIterator(ReadsSampling sampling) {
+      readsPerPosition = sampling.getReadsPerPosition();
+      readCountLimit = (long) sampling.getPositions() * readsPerPosition;
+
+      List<SAMSequenceRecord> sequences =
+          reader.getFileHeader().getSequenceDictionary().getSequences();
+      long totalLength = 0;
+      for (SAMSequenceRecord sequence : sequences) {
+        totalLength += sequence.getSequenceLength();
+      }
+
+      int positions = sampling.getPositions();
+      int sequenceIndex = 0;
+      long sequenceOffset = 0;
+      for (int i = 0; i < positions && totalLength > 0; i++) {
+        long offset = i * totalLength / positions;
+        while (offset >= sequenceOffset + sequences.get(sequenceIndex).getSequenceLength()) {
+          sequenceOffset += sequences.get(sequenceIndex++).getSequenceLength();
+        }
+        int[] start = {sequenceIndex, (int) (offset - sequenceOffset) + 1};
+        if (samples.isEmpty() || !Arrays.equals(samples.get(samples.size() - 1), start)) {
+          samples.add(start);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (null == next) {
+        if (null != records && sampleReadCount < sampleReadLimit && records.hasNext()) {
+          SAMRecord record = records.next();
+          if (sample < samples.size()) {
+            int[] start = samples.get(sample);
+            // Overlapping records starting earlier belong to the sample before.
+            if (record.getAlignmentStart() < start[1]) {
+              continue;
+            }
+            int[] end = sample + 1 < samples.size() ? samples.get(sample + 1) : null;
+            if (null != end && end[0] == start[0] && record.getAlignmentStart() >= end[1]) {
+              sampleReadCount = sampleReadLimit;
+              continue;
+            }
+          }
+          next = record;
+          sampleReadCount++;
+        } else if (!nextSample()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public SAMRecord next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      SAMRecord record = next;
+      next = null;
+      return record;
+    }
+
+    /**
+     * @return False when all samples have been read.
+     */
+    private boolean nextSample() {
+      closeSample();
+      if (sample >= samples.size()) {
+        return false;
+      }
+      sample++;
+      if (sample < samples.size()) {
+        int[] start = samples.get(sample);
+        String sequenceName =
+            reader.getFileHeader().getSequenceDictionary().getSequence(start[0]).getSequenceName();
+        records = reader.query(sequenceName, start[1], 0, false);
+        sampleReadLimit = readsPerPosition;
+      } else {
+        records = reader.queryUnmapped();
+        sampleReadLimit = samples.isEmpty() ? readCountLimit : readsPerPosition;
+      }
+      sampleReadCount = 0;
+      return true;
+    }
+
+    private void closeSample() {
+      if (null != records) {
+        records.close();
+        records = null;
+      }
+    }
+  }
+
   public static boolean isCram(File file) {
     // Magic number for CRAM files
     final byte[] cramMagicNumber = new byte[] {'C', 'R', 'A', 'M'};
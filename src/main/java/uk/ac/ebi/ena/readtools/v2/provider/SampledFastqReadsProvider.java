@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.provider;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.FastqQualityFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import uk.ac.ebi.ena.readtools.common.fastq.FastqSplitter;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+/**
+ * Reads of an uncompressed or BGZF compressed FASTQ file, taken from evenly spaced positions as set
+ * by a {@link ReadsSampling}. The file is split by a {@link FastqSplitter} into one part per
+ * position, and each part is read up to the given number of records. Records are parsed by a {@link
+ * ReusingFastqReadsProvider}, so reads are reused the same way.
+ */
+public class SampledFastqReadsProvider implements ReadsProvider<MutableFastqRead> {
+  private final File file;
+  private final boolean blockCompressed;
+  private final int readsPerPosition;
+  private final FastqQualityFormat qualityFormat;
+  // First records of the samples, as file offsets or BGZF virtual file offsets, then the end.
+  private final long[] starts;
+
+  private int sample = -1;
+  private ReusingFastqReadsProvider sampleReads;
+  private Iterator<MutableFastqRead> sampleIterator;
+  private int sampleReadCount;
+
+  public SampledFastqReadsProvider(
+      File fastqFile, boolean normaliseQualityScores, ReadsSampling sampling)
+      throws ReadsValidationException {
+    this.file = fastqFile;
+    this.readsPerPosition = sampling.getReadsPerPosition();
+    this.qualityFormat =
+        normaliseQualityScores ? ReusingFastqReadsProvider.detectQualityFormat(fastqFile) : null;
+    try {
+      this.blockCompressed = FastqSplitter.isBlockCompressed(fastqFile);
+      this.starts = FastqSplitter.split(fastqFile, blockCompressed, sampling.getPositions());
+      // Like the other providers, fail on a broken first record right away.
+      openNextSample();
+    } catch (IOException | SAMException e) {
+      throw new ReadsValidationException(e.getMessage());
+    }
+  }
+
+  /**
+   * @return True for files that can be sampled, which are uncompressed or BGZF compressed.
+   */
+  public static boolean isSampleable(File file) {
+    return FastqSplitter.isSplittable(file);
+  }
+
+  public FastqQualityFormat getQualityFormat() {
+    return qualityFormat;
+  }
+
+  /**
+   * @return Number of samples, fewer than positions asked for if the file has too few records.
+   */
+  public int getSampleCount() {
+    return starts.length - 1;
+  }
+
+  @Override
+  public MutableFastqRead copy(MutableFastqRead read) {
+    return read.copy();
+  }
+
+  @Override
+  public Iterator<MutableFastqRead> iterator() {
+    return new Iterator<MutableFastqRead>() {
+      @Override
+      public boolean hasNext() {
+        while (sampleReadCount >= readsPerPosition || !sampleIterator.hasNext()) {
+          if (!nextSample()) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public MutableFastqRead next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        sampleReadCount++;
+        return sampleIterator.next();
+      }
+    };
+  }
+
+  @Override
+  public void close() throws Exception {
+    closeSample();
+    sample = starts.length;
+  }
+
+  /**
+   * @return False when all samples have been read.
+   */
+  private boolean nextSample() {
+    try {
+      return openNextSample();
+    } catch (ReadsValidationException e) {
+      throw new SAMException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new SAMException(e.getMessage(), e);
+    }
+  }
+
+  private boolean openNextSample() throws IOException, ReadsValidationException {
+    closeSample();
+    if (sample + 1 >= getSampleCount()) {
+      return false;
+    }
+    sample++;
+    long start = starts[sample];
+    // Only the first sample starts at the first line.
+    String source = 0 == sample ? "" : "sample at offset " + start;
+    sampleReads =
+        new ReusingFastqReadsProvider(
+            qualityFormat,
+            FastqSplitter.open(file, blockCompressed, start, starts[sample + 1]),
+            source);
+    sampleIterator = sampleReads.iterator();
+    sampleReadCount = 0;
+    return true;
+  }
+
+  private void closeSample() {
+    if (null != sampleReads) {
+      try {
+        sampleReads.close();
+      } catch (Exception e) {
+        throw new SAMException(e.getMessage(), e);
+      }
+      sampleReads = null;
+    }
+  }
+}
@@ -10,10 +10,54 @@
  */
 package uk.ac.ebi.ena.readtools.v2.read;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read as text. The byte getters give the same as the string getters, UTF-8 encoded, and are
+ * overridden where the read has its bytes at hand. Their arrays are valid up to their lengths and
+ * must not be changed.
+ */
 public interface IRead {
+  /**
+   * @return The read name, null if it is empty.
+   */
   String getName();
 
   String getBases();
 
   String getQualityScores();
+
+  /**
+   * @return The read name, valid up to {@link #getNameLength()}.
+   */
+  default byte[] getNameBytes() {
+    String name = getName();
+    return null == name ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+  }
+
+  default int getNameLength() {
+    return getNameBytes().length;
+  }
+
+  /**
+   * @return The bases, valid up to {@link #getBasesLength()}.
+   */
+  default byte[] getBasesBytes() {
+    return getBases().getBytes(StandardCharsets.UTF_8);
+  }
+
+  default int getBasesLength() {
+    return getBasesBytes().length;
+  }
+
+  /**
+   * @return The quality scores, valid up to {@link #getQualityScoresLength()}.
+   */
+  default byte[] getQualityScoresBytes() {
+    return getQualityScores().getBytes(StandardCharsets.UTF_8);
+  }
+
+  default int getQualityScoresLength() {
+    return getQualityScoresBytes().length;
+  }
 }
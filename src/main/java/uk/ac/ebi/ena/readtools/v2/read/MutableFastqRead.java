@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.read;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * FASTQ read kept as bytes, overwritten with every read taken from its provider. Callers look at
+ * the byte arrays up to their lengths and must not keep them, or the instance itself, beyond the
+ * next read; {@link #toFastqRead()} makes a copy that can be kept.
+ *
+ * <p>The string getters decode the bytes as UTF-8 on every call.
+ */
+public class MutableFastqRead implements IRead {
+  private byte[] name;
+  private byte[] bases;
+  private byte[] qualityScores;
+  private int nameLength;
+  private int basesLength;
+  private int qualityScoresLength;
+
+  public MutableFastqRead() {
+    this(256, 256, 256);
+  }
+
+  /** Starts with arrays of the given sizes, which grow as needed. */
+  protected MutableFastqRead(int nameCapacity, int basesCapacity, int qualityScoresCapacity) {
+    name = new byte[nameCapacity];
+    bases = new byte[basesCapacity];
+    qualityScores = new byte[qualityScoresCapacity];
+  }
+
+  public void setName(byte[] source, int offset, int length) {
+    name = copy(source, offset, length, name);
+    nameLength = length;
+  }
+
+  public void setBases(byte[] source, int offset, int length) {
+    bases = copy(source, offset, length, bases);
+    basesLength = length;
+  }
+
+  public void setQualityScores(byte[] source, int offset, int length) {
+    qualityScores = copy(source, offset, length, qualityScores);
+    qualityScoresLength = length;
+  }
+
+  /**
+   * @return The read name, valid up to {@link #getNameLength()}.
+   */
+  @Override
+  public byte[] getNameBytes() {
+    return name;
+  }
+
+  @Override
+  public int getNameLength() {
+    return nameLength;
+  }
+
+  /**
+   * @return The bases, valid up to {@link #getBasesLength()}.
+   */
+  @Override
+  public byte[] getBasesBytes() {
+    return bases;
+  }
+
+  @Override
+  public int getBasesLength() {
+    return basesLength;
+  }
+
+  /**
+   * @return The quality scores, valid up to {@link #getQualityScoresLength()}.
+   */
+  @Override
+  public byte[] getQualityScoresBytes() {
+    return qualityScores;
+  }
+
+  @Override
+  public int getQualityScoresLength() {
+    return qualityScoresLength;
+  }
+
+  /**
+   * @return The read name, or null if it is empty as htsjdk has it.
+   */
+  @Override
+  public String getName() {
+    return 0 == nameLength ? null : new String(name, 0, nameLength, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String getBases() {
+    return new String(bases, 0, basesLength, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String getQualityScores() {
+    return new String(qualityScores, 0, qualityScoresLength, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return A copy of the current read.
+   */
+  public FastqRead toFastqRead() {
+    return new FastqRead(getName(), getBases(), getQualityScores());
+  }
+
+  /**
+   * @return A copy of the current read as bytes, with arrays of its lengths.
+   */
+  public MutableFastqRead copy() {
+    MutableFastqRead copy = new MutableFastqRead(nameLength, basesLength, qualityScoresLength);
+    copy.setName(name, 0, nameLength);
+    copy.setBases(bases, 0, basesLength);
+    copy.setQualityScores(qualityScores, 0, qualityScoresLength);
+    return copy;
+  }
+
+  private static byte[] copy(byte[] source, int offset, int length, byte[] target) {
+    if (target.length < length) {
+      target = Arrays.copyOf(target, Math.max(length, target.length * 2));
+    }
+    System.arraycopy(source, offset, target, 0, length);
+    return target;
+  }
+}
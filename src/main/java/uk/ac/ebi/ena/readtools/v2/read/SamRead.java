@@ -10,10 +10,27 @@
  */
 package uk.ac.ebi.ena.readtools.v2.read;
 
+import htsjdk.samtools.BAMRecord;
 import htsjdk.samtools.SAMRecord;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Read of a SAM, BAM or CRAM record.
+ *
+ * <p>The byte getters leave out absent bases and quality scores, '*' in the string getters, and
+ * give quality scores as Phred+33. BAM records are decoded straight from their binary data, so that
+ * neither the record nor any strings have to be built for them; everything else is left to htsjdk's
+ * lazy decoding, which is only done when asked for.
+ */
 public class SamRead implements IRead {
+  private static final byte[] BASES = "=ACMGRSVTWYHKDBN".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] EMPTY = new byte[0];
+
   private final SAMRecord samRecord;
+  // Decoded on first use.
+  private byte[] nameBytes;
+  private byte[] basesBytes;
+  private byte[] qualityScoresBytes;
 
   public SamRead(SAMRecord samRecord) {
     this.samRecord = samRecord;
@@ -31,6 +48,78 @@ public class SamRead implements IRead {
     return samRecord.getBaseQualityString();
   }
 
+  @Override
+  public byte[] getNameBytes() {
+    if (null == nameBytes) {
+      byte[] data = getBinaryData();
+      // The name comes first, followed by a NUL.
+      nameBytes = null != data ? data : samRecord.getReadName().getBytes(StandardCharsets.UTF_8);
+    }
+    return nameBytes;
+  }
+
+  @Override
+  public int getNameLength() {
+    return null != getBinaryData() ? samRecord.getReadNameLength() : getNameBytes().length;
+  }
+
+  @Override
+  public byte[] getBasesBytes() {
+    if (null == basesBytes) {
+      byte[] data = getBinaryData();
+      if (null == data) {
+        basesBytes = samRecord.getReadBases();
+      } else {
+        // Two bases a byte, high nibble first.
+        int length = samRecord.getReadLength();
+        int offset = getBasesOffset();
+        basesBytes = 0 == length ? EMPTY : new byte[length];
+        for (int i = 0; i < length; i++) {
+          int packed = data[offset + i / 2];
+          basesBytes[i] = BASES[0 == (i & 1) ? (packed >> 4) & 0xf : packed & 0xf];
+        }
+      }
+    }
+    return basesBytes;
+  }
+
+  @Override
+  public int getBasesLength() {
+    return getBasesBytes().length;
+  }
+
+  @Override
+  public byte[] getQualityScoresBytes() {
+    if (null == qualityScoresBytes) {
+      byte[] data = getBinaryData();
+      int length;
+      int offset;
+      if (null == data) {
+        data = samRecord.getBaseQualities();
+        length = data.length;
+        offset = 0;
+      } else {
+        length = samRecord.getReadLength();
+        offset = getBasesOffset() + (length + 1) / 2;
+        // Absent quality scores are all 0xff, htsjdk only looks at the first.
+        if (length > 0 && (byte) 0xff == data[offset]) {
+          length = 0;
+        }
+      }
+
+      qualityScoresBytes = 0 == length ? EMPTY : new byte[length];
+      for (int i = 0; i < length; i++) {
+        qualityScoresBytes[i] = (byte) (data[offset + i] + 33);
+      }
+    }
+    return qualityScoresBytes;
+  }
+
+  @Override
+  public int getQualityScoresLength() {
+    return getQualityScoresBytes().length;
+  }
+
   public boolean isReadLevelQuality() {
     return samRecord.getBaseQualityString().equals("*");
   }
@@ -43,4 +132,18 @@ public class SamRead implements IRead {
   public SAMRecord getSamRecord() {
     return samRecord;
   }
+
+  /**
+   * @return Name, CIGAR, bases, quality scores and tags of a BAM record as read from the file, or
+   *     null if the record is not a BAM record or has been changed since.
+   */
+  private byte[] getBinaryData() {
+    return samRecord instanceof BAMRecord
+        ? ((BAMRecord) samRecord).getVariableBinaryRepresentation()
+        : null;
+  }
+
+  private int getBasesOffset() {
+    return samRecord.getReadNameLength() + 1 + 4 * samRecord.getCigarLength();
+  }
 }
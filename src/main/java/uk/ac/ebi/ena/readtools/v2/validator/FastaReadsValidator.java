@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.validator;
+
+import htsjdk.samtools.SAMException;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.BloomWrapper;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.ExactDuplicateFinder;
+
+/**
+ * Read name checks of {@link FastqReadsValidator} for FASTA files: names must not be blank and must
+ * not occur twice. Names are added to the duplicate checks as bytes, so that reused reads make no
+ * strings.
+ */
+public class FastaReadsValidator extends ReadsValidator {
+  public FastaReadsValidator(long readCountLimit) {
+    super(readCountLimit);
+  }
+
+  @Override
+  public boolean validate(ReadsProviderFactory readsProviderFactory)
+      throws ReadsValidationException {
+    BloomWrapper duplicationsBloomWrapper = new BloomWrapper(5 * readCountLimit);
+
+    long readCount = 0;
+    try (ExactDuplicateFinder duplicateFinder =
+            exactDuplicates ? new ExactDuplicateFinder() : null;
+        ReadsProvider<? extends IRead> provider = readsProviderFactory.makeReadsProvider()) {
+      for (IRead read : provider) {
+        if (readCount >= readCountLimit) {
+          break;
+        }
+        readCount++;
+
+        byte[] name = read.getNameBytes();
+        int nameLength = read.getNameLength();
+        if (isBlank(name, nameLength)) {
+          throw new ReadsValidationException("Invalid FASTA read name", readCount, read.getName());
+        }
+        duplicationsBloomWrapper.add(name, 0, nameLength);
+        if (duplicateFinder != null) {
+          duplicateFinder.add(name, 0, nameLength);
+        }
+      }
+
+      FastqReadsValidator.checkDuplicates(
+          duplicationsBloomWrapper, duplicateFinder, readsProviderFactory, readCountLimit);
+      return true;
+    } catch (SAMException e) {
+      throw new ReadsValidationException(e.getMessage(), readCount);
+    } catch (ReadsValidationException rve) {
+      throw rve;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static boolean isBlank(byte[] name, int length) {
+    for (int i = 0; i < length; i++) {
+      if (!Character.isWhitespace(name[i] & 0xff)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
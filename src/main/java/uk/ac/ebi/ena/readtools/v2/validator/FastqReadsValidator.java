@@ -16,9 +16,12 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import uk.ac.ebi.ena.readtools.common.reads.CasavaRead;
 import uk.ac.ebi.ena.readtools.v2.provider.FastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
 import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
 import uk.ac.ebi.ena.readtools.v2.read.FastqRead;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
 import uk.ac.ebi.ena.readtools.webin.cli.rawreads.BloomWrapper;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.ExactDuplicateFinder;
 
 public class FastqReadsValidator extends ReadsValidator {
   /*
@@ -69,10 +72,10 @@ public class FastqReadsValidator extends ReadsValidator {
   public boolean validate(ReadsProviderFactory readsProviderFactory)
       throws ReadsValidationException {
     BloomWrapper duplicationsBloomWrapper = new BloomWrapper(5 * readCountLimit);
-    Map<String, Integer> counts = new HashMap<>(100);
 
     long readCount = 0;
-    try {
+    try (ExactDuplicateFinder duplicateFinder =
+        exactDuplicates ? new ExactDuplicateFinder() : null) {
       try (FastqReadsProvider provider =
           (FastqReadsProvider) readsProviderFactory.makeReadsProvider()) {
         for (FastqRead read : provider) {
@@ -88,45 +91,16 @@ public class FastqReadsValidator extends ReadsValidator {
           validateRead(read, readCount);
 
           duplicationsBloomWrapper.add(read.getName());
-
-          extraReadsValidation(readStyle, readCount, read);
-        }
-      }
-
-      try (FastqReadsProvider provider =
-          (FastqReadsProvider) readsProviderFactory.makeReadsProvider()) {
-        long dupCheckReadCount = 0;
-        for (FastqRead read : provider) {
-          if (dupCheckReadCount >= readCountLimit) {
-            break;
+          if (duplicateFinder != null) {
+            duplicateFinder.add(read.getName());
           }
-          dupCheckReadCount++;
 
-          duplicationsBloomWrapper.add(read.getName());
-          if (duplicationsBloomWrapper.getPossibleDuplicates().contains(read.getName())) {
-            counts.put(read.getName(), counts.getOrDefault(read.getName(), 0) + 1);
-          }
-        }
-      }
-
-      if (duplicationsBloomWrapper.hasPossibleDuplicates()) {
-        StringBuilder errorReport = new StringBuilder();
-        boolean found = false;
-
-        for (Map.Entry<String, Integer> e : counts.entrySet()) {
-          if (e.getValue() > 1) {
-            found = true;
-            errorReport.append(
-                String.format(
-                    "Multiple (%d) occurrences of read name \"%s\"", e.getValue(), e.getKey()));
-          }
-        }
-
-        if (found) {
-          throw new ReadsValidationException(errorReport.toString());
+          extraReadsValidation(readStyle, readCount, read);
         }
       }
 
+      checkDuplicates(
+          duplicationsBloomWrapper, duplicateFinder, readsProviderFactory, readCountLimit);
       return true;
     } catch (SAMException e) {
       throw new ReadsValidationException(e.getMessage(), readCount);
@@ -137,6 +111,51 @@ public class FastqReadsValidator extends ReadsValidator {
     }
   }
 
+  /**
+   * Fails with the names added more than once to both the bloom filter and the finder.
+   *
+   * @param duplicateFinder Read names recorded while validating. When null and duplicates are
+   *     suspected, the reads are read again to record them.
+   */
+  static void checkDuplicates(
+      BloomWrapper bloomWrapper,
+      ExactDuplicateFinder duplicateFinder,
+      ReadsProviderFactory readsProviderFactory,
+      long readCountLimit)
+      throws Exception {
+    // The bloom filter has no false negatives, so only suspected files need the exact check.
+    if (!bloomWrapper.hasPossibleDuplicates()) {
+      return;
+    }
+
+    if (duplicateFinder == null) {
+      try (ExactDuplicateFinder readNames = new ExactDuplicateFinder();
+          ReadsProvider<? extends IRead> provider = readsProviderFactory.makeReadsProvider()) {
+        long readCount = 0;
+        for (IRead read : provider) {
+          if (readCount >= readCountLimit) {
+            break;
+          }
+          readCount++;
+          readNames.add(read.getNameBytes(), 0, read.getNameLength());
+        }
+        checkDuplicates(bloomWrapper, readNames, readsProviderFactory, readCountLimit);
+      }
+    } else {
+      Map<String, List<Long>> duplicates = duplicateFinder.findDuplicates(100);
+      if (!duplicates.isEmpty()) {
+        StringBuilder errorReport = new StringBuilder();
+        for (Map.Entry<String, List<Long>> e : duplicates.entrySet()) {
+          errorReport.append(
+              String.format(
+                  "Multiple (%d) occurrences of read name \"%s\"",
+                  e.getValue().size(), e.getKey()));
+        }
+        throw new ReadsValidationException(errorReport.toString());
+      }
+    }
+  }
+
   protected void extraReadsValidation(ReadStyle readStyle, long readCount, FastqRead read)
       throws ReadsValidationException {}
 
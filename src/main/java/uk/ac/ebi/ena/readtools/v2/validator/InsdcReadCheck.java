@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2.validator;
+
+import static uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator.*;
+
+import org.apache.commons.lang3.StringUtils;
+import uk.ac.ebi.ena.readtools.common.reads.ReadValidationKernel;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+
+/**
+ * The per read checks of {@link InsdcReadsValidator}, made on the bytes of a read so that nothing
+ * is copied. Counts what the checks of the whole file need, so that reads can be checked in batches
+ * on several threads, one instance each, and the counts added up afterwards.
+ */
+public final class InsdcReadCheck {
+  static final int MIN_QUALITY_SCORE = 30;
+
+  private final boolean samLikeFormat;
+  private final boolean withoutQualityScores;
+  private long autcgCount;
+  private long baseCount;
+  private long highQualityReadCount;
+
+  /**
+   * @param samLikeFormat True if absent quality scores, '*' in SAM, are left out of the bytes.
+   */
+  public InsdcReadCheck(boolean samLikeFormat) {
+    this(samLikeFormat, false);
+  }
+
+  /**
+   * @param withoutQualityScores True for formats that have no quality scores, such as FASTA, whose
+   *     reads are only checked for their bases and names and never count as high quality.
+   */
+  public InsdcReadCheck(boolean samLikeFormat, boolean withoutQualityScores) {
+    this.samLikeFormat = samLikeFormat;
+    this.withoutQualityScores = withoutQualityScores;
+  }
+
+  /**
+   * @param readNumber 1-based number of the read, for the error.
+   */
+  public void check(IRead read, long readNumber) throws ReadsValidationException {
+    byte[] bases = read.getBasesBytes();
+    int basesLength = read.getBasesLength();
+    byte[] qualityScores = read.getQualityScoresBytes();
+    int qualityScoresLength = read.getQualityScoresLength();
+
+    if (isBlank(bases, basesLength)) {
+      throw new ReadsValidationException(ERROR_EMPTY_READ, readNumber);
+    }
+    // Absent quality scores are not blank, they do not match the bases.
+    if (!withoutQualityScores
+        && !(samLikeFormat && 0 == qualityScoresLength)
+        && isBlank(qualityScores, qualityScoresLength)) {
+      throw new ReadsValidationException(ERROR_EMPTY_QUALITY, readNumber, read.getName());
+    }
+
+    if (!withoutQualityScores && basesLength != qualityScoresLength) {
+      throw new ReadsValidationException(
+          ERROR_BASES_QUALITIES_LENGTH_MISMATCH, readNumber, read.getName());
+    }
+
+    if (trimmedLength(read.getNameBytes(), read.getNameLength()) > 256) {
+      throw new ReadsValidationException(ERROR_READ_NAME_LENGTH, readNumber, read.getName());
+    }
+
+    int autcg = ReadValidationKernel.IUPAC.countAutcg(bases, 0, basesLength);
+    if (autcg < 0) {
+      throw new ReadsValidationException(ERROR_NOT_IUPAC, readNumber, read.getBases());
+    }
+    autcgCount += autcg;
+    baseCount += basesLength;
+
+    if (withoutQualityScores) {
+      return;
+    }
+    long totalQuality = ReadValidationKernel.sumQualities(qualityScores, 0, qualityScoresLength);
+    if ((double) totalQuality / qualityScoresLength >= MIN_QUALITY_SCORE) {
+      highQualityReadCount++;
+    }
+  }
+
+  /** Adds the counts of another check to this one. */
+  public void add(InsdcReadCheck other) {
+    autcgCount += other.autcgCount;
+    baseCount += other.baseCount;
+    highQualityReadCount += other.highQualityReadCount;
+  }
+
+  public void clear() {
+    autcgCount = 0;
+    baseCount = 0;
+    highQualityReadCount = 0;
+  }
+
+  /**
+   * Check of the whole file, once all reads have been checked.
+   *
+   * @param readCount Number of reads checked, for the error.
+   */
+  public void checkAutcg(long readCount) throws ReadsValidationException {
+    if ((baseCount - autcgCount) > (baseCount / 2)) {
+      throw new ReadsValidationException(ERROR_NOT_AUTCG, readCount);
+    }
+  }
+
+  public long getAutcgCount() {
+    return autcgCount;
+  }
+
+  public long getBaseCount() {
+    return baseCount;
+  }
+
+  public long getHighQualityReadCount() {
+    return highQualityReadCount;
+  }
+
+  /** Same as {@link StringUtils#isBlank(CharSequence)} for ASCII. */
+  private static boolean isBlank(byte[] bytes, int length) {
+    for (int i = 0; i < length; i++) {
+      if (!Character.isWhitespace(bytes[i] & 0xff)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Length of the UTF-8 encoded name as a trimmed string.
+   */
+  private static int trimmedLength(byte[] name, int length) {
+    int start = 0;
+    int end = length;
+    while (start < end && (name[start] & 0xff) <= ' ') {
+      start++;
+    }
+    while (end > start && (name[end - 1] & 0xff) <= ' ') {
+      end--;
+    }
+
+    int chars = 0;
+    for (int i = start; i < end; i++) {
+      int b = name[i] & 0xff;
+      // Continuation bytes add nothing, characters of four bytes take two chars.
+      if (0x80 != (b & 0xc0)) {
+        chars += b >= 0xf0 ? 2 : 1;
+      }
+    }
+    return chars;
+  }
+}
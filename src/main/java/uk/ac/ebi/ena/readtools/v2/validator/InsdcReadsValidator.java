@@ -11,19 +11,15 @@
 package uk.ac.ebi.ena.readtools.v2.validator;
 
 import htsjdk.samtools.SAMException;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Set;
-import org.apache.commons.lang3.StringUtils;
+import uk.ac.ebi.ena.readtools.common.reads.ReadValidationKernel;
 import uk.ac.ebi.ena.readtools.v2.FileFormat;
 import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
 import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
 import uk.ac.ebi.ena.readtools.v2.read.IRead;
 
 public class InsdcReadsValidator extends ReadsValidator {
-  public static final String IUPAC_CODES = "ACGTURYSWKMBDHVN.-";
-  private final Set<Character> iupacSet;
-  private static final int MIN_QUALITY_SCORE = 30;
+  public static final String IUPAC_CODES = ReadValidationKernel.IUPAC_CODES;
 
   public static String ERROR_NULL_READS = "Reads cannot be null";
   public static String ERROR_NO_READS = "Submitted files must contain a minimum of 1 sequence read";
@@ -47,11 +43,6 @@ public class InsdcReadsValidator extends ReadsValidator {
 
   public InsdcReadsValidator(long readCountLimit) {
     super(readCountLimit);
-
-    iupacSet = new HashSet<>();
-    for (char c : IUPAC_CODES.toCharArray()) {
-      iupacSet.add(c);
-    }
   }
 
   public long getReadCount() {
@@ -65,10 +56,9 @@ public class InsdcReadsValidator extends ReadsValidator {
   @Override
   public boolean validate(ReadsProviderFactory readsProviderFactory)
       throws ReadsValidationException {
-    long autcgCount = 0;
-    long basesCount = 0;
     FileFormat inputFormat = readsProviderFactory.getFormat();
     boolean samLikeFormat = inputFormat == FileFormat.BAM || inputFormat == FileFormat.CRAM;
+    InsdcReadCheck check = new InsdcReadCheck(samLikeFormat, inputFormat == FileFormat.FASTA);
 
     try (ReadsProvider<? extends IRead> provider = readsProviderFactory.makeReadsProvider()) {
 
@@ -93,68 +83,21 @@ public class InsdcReadsValidator extends ReadsValidator {
         }
 
         IRead read = iterator.next();
-        String bases = read.getBases();
-        String qualityScores = read.getQualityScores();
-
         readCount++;
-
-        String effectiveBases = bases;
-        // In SAM/BAM/CRAM, "*" means sequence is absent (length 0), not a literal base character.
-        if (samLikeFormat && "*".equals(bases)) {
-          effectiveBases = "";
-        }
-
-        if (StringUtils.isBlank(effectiveBases)) {
-          throw new ReadsValidationException(ERROR_EMPTY_READ, readCount);
-        }
-        if (qualityScores == null || StringUtils.isBlank(qualityScores)) {
-          throw new ReadsValidationException(ERROR_EMPTY_QUALITY, readCount, read.getName());
-        }
-
-        String effectiveQualityScores = qualityScores;
-        // In SAM/BAM/CRAM, "*" means quality is absent (length 0), not a literal quality character.
-        if (samLikeFormat && "*".equals(qualityScores)) {
-          effectiveQualityScores = "";
-        }
-
-        if (effectiveBases.length() != effectiveQualityScores.length()) {
-          throw new ReadsValidationException(
-              ERROR_BASES_QUALITIES_LENGTH_MISMATCH, readCount, read.getName());
-        }
-
-        if (read.getName().trim().length() > 256) {
-          throw new ReadsValidationException(ERROR_READ_NAME_LENGTH, readCount, read.getName());
-        }
-
-        basesCount += effectiveBases.length();
-        for (char base : effectiveBases.toUpperCase().toCharArray()) {
-          if (iupacSet.contains(base)) {
-            if (base == 'A' || base == 'U' || base == 'T' || base == 'C' || base == 'G') {
-              autcgCount++;
-            }
-          } else {
-            throw new ReadsValidationException(ERROR_NOT_IUPAC, readCount, effectiveBases);
-          }
-        }
-
-        int totalQuality = 0;
-        for (char q : effectiveQualityScores.toCharArray()) {
-          totalQuality += q - '!'; // Phred+33 0 at !
-        }
-        if ((double) totalQuality / effectiveQualityScores.length() >= MIN_QUALITY_SCORE) {
-          highQualityReadCount++;
-        }
+        check.check(read, readCount);
       }
 
-      if ((basesCount - autcgCount) > (basesCount / 2)) {
-        throw new ReadsValidationException(ERROR_NOT_AUTCG, readCount);
-      }
+      highQualityReadCount = check.getHighQualityReadCount();
+      check.checkAutcg(readCount);
 
       //      if ((double) highQualityReadCount / readCount < 0.5) {
       //        throw new ReadsValidationException(ERROR_QUALITY, readCount);
       //      }
     } catch (ReadsValidationException rve) {
       throw rve;
+    } catch (SAMException e) {
+      // The file turned out to be broken after its first reads.
+      throw new ReadsValidationException(INVALID_FILE + ": " + e.getMessage(), readCount + 1);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
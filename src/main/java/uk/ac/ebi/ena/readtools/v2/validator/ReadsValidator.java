@@ -14,11 +14,23 @@ import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
 
 public abstract class ReadsValidator {
   protected final long readCountLimit;
+  protected boolean exactDuplicates;
 
   public ReadsValidator(long readCountLimit) {
     this.readCountLimit = readCountLimit;
   }
 
+  /**
+   * Record every read name in an {@link
+   * uk.ac.ebi.ena.readtools.webin.cli.rawreads.ExactDuplicateFinder} while the reads are validated,
+   * so that duplicates suspected by the bloom filter are confirmed without reading them again. This
+   * writes all read names to temporary files, so by default they are only recorded in a second pass
+   * when duplicates are suspected.
+   */
+  public void setExactDuplicates(boolean exactDuplicates) {
+    this.exactDuplicates = exactDuplicates;
+  }
+
   abstract boolean validate(ReadsProviderFactory readsProviderFactory)
       throws ReadsValidationException;
 }
@@ -15,12 +15,14 @@ import java.util.*;
 import java.util.stream.Collectors;
 import uk.ac.ebi.ena.readtools.v2.FileFormat;
 import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsSampling;
 import uk.ac.ebi.ena.readtools.webin.cli.rawreads.BloomWrapper;
 
 public class ValidatorWrapper {
   private final List<File> files;
   private final FileFormat format;
   private final long readCountLimit;
+  private final ReadsSampling sampling;
   private static final int PAIRING_THRESHOLD = 20;
 
   private List<FileQualityStats> fileQualityStats = new ArrayList<>();
@@ -54,9 +56,19 @@ public class ValidatorWrapper {
   }
 
   public ValidatorWrapper(List<File> files, FileFormat format, long readCountLimit) {
+    this(files, format, readCountLimit, null);
+  }
+
+  /**
+   * @param sampling Reads to sample across each file for the INSDC checks, or null to check reads
+   *     from the start of the files. Read names and pairing are always checked from the start.
+   */
+  public ValidatorWrapper(
+      List<File> files, FileFormat format, long readCountLimit, ReadsSampling sampling) {
     this.files = files;
     this.format = format;
     this.readCountLimit = readCountLimit;
+    this.sampling = sampling;
   }
 
   public List<FileQualityStats> getFileQualityStats() {
@@ -84,6 +96,11 @@ public class ValidatorWrapper {
           validateSam(file);
         }
         break;
+      case FASTA:
+        for (File file : files) {
+          validateFasta(file);
+        }
+        break;
       default:
         throw new ReadsValidationException("not implemented");
     }
@@ -206,8 +223,20 @@ public class ValidatorWrapper {
     }
   }
 
+  public void validateFasta(File file) throws ReadsValidationException {
+    try {
+      validateInsdc(file);
+      new FastaReadsValidator(readCountLimit).validate(new ReadsProviderFactory(file, format));
+    } catch (ReadsValidationException rve) {
+      throw rve;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private void validateInsdc(File file) throws ReadsValidationException {
-    ReadsProviderFactory factory = new ReadsProviderFactory(file, format);
+    // The INSDC checks keep no reads, so FASTQ reads can be reused.
+    ReadsProviderFactory factory = new ReadsProviderFactory(file, format, true, true, sampling);
     InsdcReadsValidator insdcReadsValidator = new InsdcReadsValidator(readCountLimit);
     insdcReadsValidator.validate(factory);
 
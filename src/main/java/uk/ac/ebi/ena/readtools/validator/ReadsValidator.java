@@ -11,13 +11,18 @@
 package uk.ac.ebi.ena.readtools.validator;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.readtools.v2.FileFormat;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsSampling;
 import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
 import uk.ac.ebi.ena.readtools.v2.validator.ValidatorWrapper;
 import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile;
@@ -89,6 +94,11 @@ public class ReadsValidator implements Validator<ReadsManifest, ReadsValidationR
       } else {
         throw new RuntimeException("Unsupported file type: " + fileType.name());
       }
+
+      // Quick validation reads only part of the files, so it leaves their checksums alone.
+      if (!isQuick) {
+        files.forEach(file -> checkChecksum(result, file));
+      }
     }
 
     ReadsValidationResponse resp = new ReadsValidationResponse();
@@ -99,8 +109,12 @@ public class ReadsValidator implements Validator<ReadsManifest, ReadsValidationR
 
   private void runValidatorWrapper(
       ValidationResult result, List<File> files, FileFormat fileFormat, boolean isQuick) {
+    // Quick validation samples its reads across the files rather than reading their starts.
     ValidatorWrapper validatorWrapper =
-        new ValidatorWrapper(files, fileFormat, isQuick ? QUICK_READ_LIMIT : EXTENDED_READ_LIMIT);
+        isQuick
+            ? new ValidatorWrapper(
+                files, fileFormat, QUICK_READ_LIMIT, ReadsSampling.of(QUICK_READ_LIMIT))
+            : new ValidatorWrapper(files, fileFormat, EXTENDED_READ_LIMIT);
     try {
       validatorWrapper.run();
       fileQualityStats = validatorWrapper.getFileQualityStats();
@@ -110,6 +124,30 @@ public class ReadsValidator implements Validator<ReadsManifest, ReadsValidationR
     }
   }
 
+  /**
+   * Compares the checksum of the file, if it has one, with a checksum of its raw bytes. The reads
+   * providers decompress and decode the files themselves, so their bytes are read again here.
+   */
+  private static void checkChecksum(ValidationResult result, RawReadsFile file) {
+    if (null == file.getChecksum() || null == file.getChecksumMethod()) {
+      return;
+    }
+
+    Checksums checksums = new Checksums(file.getChecksumMethod());
+    try (ChecksumInputStream inputStream =
+        new ChecksumInputStream(Files.newInputStream(Paths.get(file.getFilename())), checksums)) {
+      inputStream.drain();
+    } catch (IOException e) {
+      result.add(ValidationMessage.error(e.getMessage()));
+      return;
+    }
+
+    String mismatch = checksums.getMismatch(file.getChecksumMethod(), file.getChecksum());
+    if (mismatch != null) {
+      result.add(ValidationMessage.error(file.getFilename() + ": " + mismatch));
+    }
+  }
+
   private List<RawReadsFile> submissionFilesToRawReadsFiles(
       ReadsManifest.QualityScore qualityScore, SubmissionFiles<FileType> submissionFiles) {
     List<RawReadsFile> files =
@@ -10,22 +10,28 @@
  */
 package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Tracks read names with a {@link ScalableBloomFilter} to spot possible duplicates. The filter
+ * grows as needed so the expected number of reads is only used to size its first stage, which is
+ * capped at {@link #MAX_INITIAL_CAPACITY} to avoid allocating for read counts that never arrive.
+ * Instances can be shared by several threads adding read names at the same time.
+ */
 public class BloomWrapper {
   private static final double falsePositiveProbability = 0.01;
 
-  // Bloom bloom;
-  private BloomFilter<String> bloom;
+  static final long MAX_INITIAL_CAPACITY = 1 << 24;
+
+  private ScalableBloomFilter bloom;
   private AtomicLong addCount = new AtomicLong();
   private AtomicLong possibleDuplicateCount = new AtomicLong();
   private int possibleDuplicatesRetainLimit;
@@ -44,20 +50,48 @@ public class BloomWrapper {
   BloomWrapper(long expectedReads, int possibleDuplicatesRetainLimit) {
     this.possibleDuplicatesRetainLimit = possibleDuplicatesRetainLimit;
     this.bloom =
-        BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedReads, falsePositiveProbability);
-    possibleDuplicates = new HashSet<>(this.possibleDuplicatesRetainLimit);
+        new ScalableBloomFilter(
+            Math.min(expectedReads, MAX_INITIAL_CAPACITY), falsePositiveProbability);
+    possibleDuplicates = ConcurrentHashMap.newKeySet(this.possibleDuplicatesRetainLimit);
   }
 
   public void add(String readName) {
     addCount.incrementAndGet();
 
-    if (bloom.mightContain(readName)) {
+    if (!bloom.put(readName)) {
+      retainPossibleDuplicate(readName);
+    }
+  }
+
+  /** Adds the read name held in the given byte range. A string is only created for duplicates. */
+  public void add(byte[] readName, int offset, int length) {
+    addCount.incrementAndGet();
+
+    if (!bloom.put(readName, offset, length)) {
+      retainPossibleDuplicate(new String(readName, offset, length, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Adds a read name given by its {@link FingerprintLog} fingerprint. Possible duplicates added
+   * this way are counted but not retained as their names are not known.
+   */
+  void addFingerprint(long fingerprint) {
+    addCount.incrementAndGet();
+
+    if (!bloom.put(fingerprint)) {
       possibleDuplicateCount.incrementAndGet();
-      if (possibleDuplicates.size() < possibleDuplicatesRetainLimit) {
-        possibleDuplicates.add(readName);
+    }
+  }
+
+  private void retainPossibleDuplicate(String readName) {
+    possibleDuplicateCount.incrementAndGet();
+    if (possibleDuplicates.size() < possibleDuplicatesRetainLimit) {
+      synchronized (possibleDuplicates) {
+        if (possibleDuplicates.size() < possibleDuplicatesRetainLimit) {
+          possibleDuplicates.add(readName);
+        }
       }
-    } else {
-      bloom.put(readName);
     }
   }
 
@@ -108,13 +142,17 @@ public class BloomWrapper {
     return bloom.mightContain(readName);
   }
 
+  public boolean contains(byte[] readName, int offset, int length) {
+    return bloom.mightContain(readName, offset, length);
+  }
+
   public BloomWrapper getCopy() {
     BloomWrapper res = new BloomWrapper(1);
     res.bloom = this.bloom.copy();
     res.addCount = new AtomicLong(this.addCount.get());
     res.possibleDuplicateCount = new AtomicLong(this.possibleDuplicateCount.get());
     res.possibleDuplicatesRetainLimit = this.possibleDuplicatesRetainLimit;
-    res.possibleDuplicates = new HashSet<>(res.possibleDuplicatesRetainLimit);
+    res.possibleDuplicates = ConcurrentHashMap.newKeySet(res.possibleDuplicatesRetainLimit);
     res.possibleDuplicates.addAll(this.possibleDuplicates);
 
     return res;
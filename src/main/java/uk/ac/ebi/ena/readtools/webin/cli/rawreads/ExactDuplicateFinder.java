@@ -0,0 +1,368 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Finds every duplicate read name in a single pass over the reads.
+ *
+ * <p>For each added read name a fixed width record of its 64-bit fingerprint, its 1-based record
+ * index and the offset of the name in a name log is buffered in memory. Full buffers are sorted by
+ * fingerprint and written to disk as runs. {@link #findDuplicates(int)} merges the runs and only
+ * looks up the names of records whose fingerprints collide, so that fingerprint collisions between
+ * different names are not reported.
+ */
+public class ExactDuplicateFinder implements Closeable {
+  public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+  private static final int RECORD_SIZE = 3 * Long.BYTES;
+  private static final int IO_BUFFER_SIZE = 1 << 16;
+
+  private final Path workDir;
+  private final Path namesPath;
+  private final DataOutputStream names;
+  private final List<Path> runs = new ArrayList<>();
+
+  private final long[] fingerprints;
+  private final long[] indexes;
+  private final long[] offsets;
+  private int size;
+
+  private long addCount;
+  private long namesOffset;
+  private long duplicateNameCount;
+
+  public ExactDuplicateFinder() throws IOException {
+    this(null, DEFAULT_RUN_SIZE);
+  }
+
+  /**
+   * @param tempDir Directory to keep the runs and the name log in. System default when null.
+   * @param runSize Number of records buffered in memory before a sorted run is written to disk.
+   */
+  public ExactDuplicateFinder(Path tempDir, int runSize) throws IOException {
+    if (runSize <= 0) {
+      throw new IllegalArgumentException("Run size must be positive: " + runSize);
+    }
+
+    this.workDir =
+        tempDir == null
+            ? Files.createTempDirectory("duplicates-")
+            : Files.createTempDirectory(tempDir, "duplicates-");
+    this.namesPath = workDir.resolve("names");
+    this.names =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(namesPath), IO_BUFFER_SIZE));
+
+    this.fingerprints = new long[runSize];
+    this.indexes = new long[runSize];
+    this.offsets = new long[runSize];
+  }
+
+  public void add(String readName) throws IOException {
+    byte[] name = readName.getBytes(StandardCharsets.UTF_8);
+    add(name, 0, name.length);
+  }
+
+  public void add(byte[] readName, int offset, int length) throws IOException {
+    if (size == fingerprints.length) {
+      spill();
+    }
+
+    fingerprints[size] = ScalableBloomFilter.hash(readName, offset, length);
+    indexes[size] = ++addCount;
+    offsets[size] = namesOffset;
+    size++;
+
+    names.writeInt(length);
+    names.write(readName, offset, length);
+    namesOffset += Integer.BYTES + length;
+  }
+
+  /**
+   * @return Number of read names added so far.
+   */
+  public long getAddCount() {
+    return addCount;
+  }
+
+  /**
+   * @return Number of distinct read names found to occur more than once by the last call to {@link
+   *     #findDuplicates(int)}. Not capped by the limit given to it.
+   */
+  public long getDuplicateNameCount() {
+    return duplicateNameCount;
+  }
+
+  /**
+   * @param limit Maximum number of duplicate read names to return.
+   * @return Duplicate read names with the 1-based indexes of the records they occur at. Names are
+   *     ordered by their first occurrence and only the first {@code limit} of them are returned.
+   */
+  public Map<String, List<Long>> findDuplicates(int limit) throws IOException {
+    names.flush();
+    sort(fingerprints, indexes, offsets, 0, size);
+
+    PriorityQueue<Cursor> queue =
+        new PriorityQueue<>(
+            Comparator.<Cursor>comparingLong(c -> c.fingerprint).thenComparingLong(c -> c.index));
+    List<Cursor> cursors = new ArrayList<>();
+    cursors.add(new MemoryCursor());
+    for (Path run : runs) {
+      cursors.add(new RunCursor(run));
+    }
+
+    TreeMap<Long, Map.Entry<String, List<Long>>> found = new TreeMap<>();
+    duplicateNameCount = 0;
+
+    try (RandomAccessFile nameLog = new RandomAccessFile(namesPath.toFile(), "r")) {
+      for (Cursor cursor : cursors) {
+        if (cursor.next()) {
+          queue.add(cursor);
+        }
+      }
+
+      long groupFingerprint = 0;
+      long[] groupIndexes = new long[2];
+      long[] groupOffsets = new long[2];
+      int groupSize = 0;
+
+      while (!queue.isEmpty()) {
+        Cursor cursor = queue.poll();
+        long fingerprint = cursor.fingerprint;
+        long index = cursor.index;
+        long offset = cursor.offset;
+        if (cursor.next()) {
+          queue.add(cursor);
+        }
+
+        if (groupSize > 0 && fingerprint != groupFingerprint) {
+          if (groupSize > 1) {
+            resolve(nameLog, groupIndexes, groupOffsets, groupSize, limit, found);
+          }
+          groupSize = 0;
+        }
+
+        if (groupSize == groupIndexes.length) {
+          groupIndexes = Arrays.copyOf(groupIndexes, groupSize * 2);
+          groupOffsets = Arrays.copyOf(groupOffsets, groupSize * 2);
+        }
+        groupFingerprint = fingerprint;
+        groupIndexes[groupSize] = index;
+        groupOffsets[groupSize] = offset;
+        groupSize++;
+      }
+
+      if (groupSize > 1) {
+        resolve(nameLog, groupIndexes, groupOffsets, groupSize, limit, found);
+      }
+    } finally {
+      for (Cursor cursor : cursors) {
+        cursor.close();
+      }
+    }
+
+    Map<String, List<Long>> result = new LinkedHashMap<>();
+    found.values().forEach(e -> result.put(e.getKey(), e.getValue()));
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    names.close();
+    try (Stream<Path> files = Files.list(workDir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(workDir);
+  }
+
+  /** Reads the names of a group of records sharing a fingerprint and keeps the real duplicates. */
+  private void resolve(
+      RandomAccessFile nameLog,
+      long[] groupIndexes,
+      long[] groupOffsets,
+      int groupSize,
+      int limit,
+      TreeMap<Long, Map.Entry<String, List<Long>>> found)
+      throws IOException {
+    Map<String, List<Long>> byName = new LinkedHashMap<>();
+    for (int i = 0; i < groupSize; i++) {
+      nameLog.seek(groupOffsets[i]);
+      byte[] name = new byte[nameLog.readInt()];
+      nameLog.readFully(name);
+      byName
+          .computeIfAbsent(new String(name, StandardCharsets.UTF_8), k -> new ArrayList<>())
+          .add(groupIndexes[i]);
+    }
+
+    for (Map.Entry<String, List<Long>> e : byName.entrySet()) {
+      if (e.getValue().size() < 2) {
+        continue;
+      }
+
+      duplicateNameCount++;
+      e.getValue().sort(null);
+      found.put(e.getValue().get(0), e);
+      if (found.size() > limit) {
+        found.pollLastEntry();
+      }
+    }
+  }
+
+  private void spill() throws IOException {
+    sort(fingerprints, indexes, offsets, 0, size);
+
+    Path run = workDir.resolve("run-" + runs.size());
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+      for (int i = 0; i < size; i++) {
+        out.writeLong(fingerprints[i]);
+        out.writeLong(indexes[i]);
+        out.writeLong(offsets[i]);
+      }
+    }
+
+    runs.add(run);
+    size = 0;
+  }
+
+  /** Sorts the records in [from, to) by fingerprint, then by index. */
+  static void sort(long[] fingerprints, long[] indexes, long[] offsets, int from, int to) {
+    while (to - from > 16) {
+      int mid = (from + to) >>> 1;
+      long pivotFingerprint = fingerprints[mid];
+      long pivotIndex = indexes[mid];
+
+      int i = from;
+      int j = to - 1;
+      while (i <= j) {
+        while (compare(fingerprints[i], indexes[i], pivotFingerprint, pivotIndex) < 0) i++;
+        while (compare(fingerprints[j], indexes[j], pivotFingerprint, pivotIndex) > 0) j--;
+        if (i <= j) {
+          swap(fingerprints, indexes, offsets, i++, j--);
+        }
+      }
+
+      // Recurse into the smaller part to keep the stack shallow.
+      if (j - from < to - i) {
+        sort(fingerprints, indexes, offsets, from, j + 1);
+        from = i;
+      } else {
+        sort(fingerprints, indexes, offsets, i, to);
+        to = j + 1;
+      }
+    }
+
+    for (int i = from + 1; i < to; i++) {
+      for (int j = i;
+          j > from && compare(fingerprints[j - 1], indexes[j - 1], fingerprints[j], indexes[j]) > 0;
+          j--) {
+        swap(fingerprints, indexes, offsets, j, j - 1);
+      }
+    }
+  }
+
+  private static int compare(long fingerprint1, long index1, long fingerprint2, long index2) {
+    int result = Long.compare(fingerprint1, fingerprint2);
+    return result != 0 ? result : Long.compare(index1, index2);
+  }
+
+  private static void swap(long[] fingerprints, long[] indexes, long[] offsets, int i, int j) {
+    long t = fingerprints[i];
+    fingerprints[i] = fingerprints[j];
+    fingerprints[j] = t;
+
+    t = indexes[i];
+    indexes[i] = indexes[j];
+    indexes[j] = t;
+
+    t = offsets[i];
+    offsets[i] = offsets[j];
+    offsets[j] = t;
+  }
+
+  private abstract static class Cursor implements Closeable {
+    long fingerprint;
+    long index;
+    long offset;
+
+    abstract boolean next() throws IOException;
+
+    @Override
+    public void close() throws IOException {}
+  }
+
+  private class MemoryCursor extends Cursor {
+    private int position;
+
+    @Override
+    boolean next() {
+      if (position == size) {
+        return false;
+      }
+      fingerprint = fingerprints[position];
+      index = indexes[position];
+      offset = offsets[position];
+      position++;
+      return true;
+    }
+  }
+
+  private static class RunCursor extends Cursor {
+    private final DataInputStream in;
+    private long remaining;
+
+    RunCursor(Path run) throws IOException {
+      this.remaining = Files.size(run) / RECORD_SIZE;
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+    }
+
+    @Override
+    boolean next() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      fingerprint = in.readLong();
+      index = in.readLong();
+      offset = in.readLong();
+      remaining--;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
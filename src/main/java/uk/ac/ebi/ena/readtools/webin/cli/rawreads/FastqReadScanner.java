@@ -12,17 +12,25 @@ package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
 
 import static uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException.ErrorType.INVALID_READ_NAME;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Set;
+import uk.ac.ebi.ena.readtools.common.reads.ReadName;
+import uk.ac.ebi.ena.readtools.common.reads.ReadNameTokenizer;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedFastqWriter;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
 
 public class FastqReadScanner extends InsdcStandardCheckingScanner {
   private final String streamName;
   private final Set<String> labels;
   private final BloomWrapper pairingBloomWrapper;
+  private final FingerprintLog pairingKeyLog;
   private final BloomWrapper duplicationsBloomWrapper;
+  private final ExactDuplicateFinder duplicateFinder;
   private final int maxLabelSetSize;
+  private final ReadNameTokenizer readNameTokenizer = new ReadNameTokenizer();
 
   public FastqReadScanner(
       String streamName,
@@ -31,12 +39,42 @@ public class FastqReadScanner extends InsdcStandardCheckingScanner {
       BloomWrapper duplicationsBloomWrapper,
       int maxLabelSetSize,
       int printFreq) {
+    this(
+        streamName,
+        labels,
+        pairingBloomWrapper,
+        null,
+        duplicationsBloomWrapper,
+        null,
+        maxLabelSetSize,
+        printFreq);
+  }
+
+  /**
+   * @param pairingBloomWrapper Receives the read names without pair numbers. May be null when
+   *     pairingKeyLog is given.
+   * @param pairingKeyLog When given, read names without pair numbers are recorded in it so that
+   *     they can be checked against another file's pairing information later.
+   * @param duplicateFinder When given, every read name is also recorded in it so that duplicates
+   *     can be confirmed without reading the file again.
+   */
+  public FastqReadScanner(
+      String streamName,
+      Set<String> labels,
+      BloomWrapper pairingBloomWrapper,
+      FingerprintLog pairingKeyLog,
+      BloomWrapper duplicationsBloomWrapper,
+      ExactDuplicateFinder duplicateFinder,
+      int maxLabelSetSize,
+      int printFreq) {
     super(printFreq);
 
     this.streamName = streamName;
     this.labels = labels;
     this.pairingBloomWrapper = pairingBloomWrapper;
+    this.pairingKeyLog = pairingKeyLog;
     this.duplicationsBloomWrapper = duplicationsBloomWrapper;
+    this.duplicateFinder = duplicateFinder;
     this.maxLabelSetSize = maxLabelSetSize;
   }
 
@@ -47,16 +85,20 @@ public class FastqReadScanner extends InsdcStandardCheckingScanner {
 
   public void write(Read read) throws ReadWriterException {
     super.write(read);
+    addName(read.getName());
+  }
 
+  private void addName(String name) throws ReadWriterException {
     String readNameWithoutPairNumber;
     String pairNumber;
 
     try {
-      readNameWithoutPairNumber = PairedFastqWriter.getReadKey(read.getName());
-      pairNumber = PairedFastqWriter.getPairNumber(read.getName());
+      ReadName readName = PairedFastqWriter.parseReadName(name);
+      readNameWithoutPairNumber = readName.getKey();
+      pairNumber = readName.getPairNumber();
     } catch (ReadWriterException e) {
       if (INVALID_READ_NAME.equals(e.getErrorType())) {
-        readNameWithoutPairNumber = read.getName();
+        readNameWithoutPairNumber = name;
         pairNumber = streamName;
       } else {
         throw e;
@@ -67,7 +109,72 @@ public class FastqReadScanner extends InsdcStandardCheckingScanner {
       labels.add(pairNumber);
     }
 
-    pairingBloomWrapper.add(readNameWithoutPairNumber);
-    duplicationsBloomWrapper.add(read.getName());
+    if (pairingBloomWrapper != null) {
+      pairingBloomWrapper.add(readNameWithoutPairNumber);
+    }
+    duplicationsBloomWrapper.add(name);
+
+    try {
+      if (pairingKeyLog != null) {
+        pairingKeyLog.add(readNameWithoutPairNumber);
+      }
+      if (duplicateFinder != null) {
+        duplicateFinder.add(name);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Same as {@link #write(Read)}, adding read names to the Bloom filters and logs straight from the
+   * batch. Only the name string is created for parsing it.
+   */
+  @Override
+  protected void write(ReadBatch batch, int index) throws ReadWriterException {
+    super.write(batch, index);
+
+    byte[] names = batch.getNames();
+    int nameOffset = batch.getNameOffset(index);
+    int nameLength = batch.getNameLength(index);
+    if (!isAscii(names, nameOffset, nameLength)) {
+      // Strings of other characters are encoded differently than the batch holds them. The
+      // lengths were checked above already.
+      addName(batch.getRead(index).getName());
+      return;
+    }
+
+    String name = batch.getName(index);
+    ReadName readName = readNameTokenizer.tokenize(name);
+    int keyLength = null == readName ? nameLength : readName.getKeyEnd();
+
+    if (labels.size() < maxLabelSetSize) {
+      labels.add(null == readName ? streamName : readName.getPairNumber());
+    }
+
+    if (pairingBloomWrapper != null) {
+      pairingBloomWrapper.add(names, nameOffset, keyLength);
+    }
+    duplicationsBloomWrapper.add(names, nameOffset, nameLength);
+
+    try {
+      if (pairingKeyLog != null) {
+        pairingKeyLog.add(names, nameOffset, keyLength);
+      }
+      if (duplicateFinder != null) {
+        duplicateFinder.add(names, nameOffset, nameLength);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isAscii(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (bytes[i] < 0) {
+        return false;
+      }
+    }
+    return true;
   }
 }
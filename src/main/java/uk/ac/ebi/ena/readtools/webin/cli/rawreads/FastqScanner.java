@@ -11,11 +11,13 @@
 package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -23,6 +25,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -32,6 +39,8 @@ import uk.ac.ebi.ena.readtools.loader.common.converter.ConverterException;
 import uk.ac.ebi.ena.readtools.loader.fastq.FastqIterativeWriter;
 import uk.ac.ebi.ena.readtools.loader.fastq.FastqIterativeWriter.READ_TYPE;
 import uk.ac.ebi.ena.readtools.loader.fastq.PairedRead;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.readtools.utils.Utils;
 import uk.ac.ebi.ena.webin.cli.validator.message.ValidationMessage;
 import uk.ac.ebi.ena.webin.cli.validator.message.ValidationOrigin;
@@ -49,6 +58,10 @@ public abstract class FastqScanner {
       Integer.valueOf(
           System.getProperty(PRINT_FREQ_PROPERTY_NAME, String.valueOf(DEFAULT_PRINT_FREQ)));
 
+  private static final String CONCURRENT_PROPERTY_NAME = "webincli.scanner.concurrent";
+
+  private static final String EXACT_DUPLICATES_PROPERTY_NAME = "webincli.scanner.exact.duplicates";
+
   private static final Logger log = LoggerFactory.getLogger(FastqScanner.class);
 
   private final int expected_size;
@@ -56,7 +69,10 @@ public abstract class FastqScanner {
   private final AtomicBoolean paired = new AtomicBoolean();
 
   private final Long readLimit;
-  private Long count = 0L;
+  private boolean concurrent =
+      Boolean.parseBoolean(System.getProperty(CONCURRENT_PROPERTY_NAME, "false"));
+  private boolean exactDuplicates =
+      Boolean.parseBoolean(System.getProperty(EXACT_DUPLICATES_PROPERTY_NAME, "false"));
 
   protected abstract void logFlushMsg(String message);
 
@@ -69,7 +85,7 @@ public abstract class FastqScanner {
    *     reads in a given file.
    */
   public FastqScanner(Long readLimit) {
-    this(readLimit, readLimit.intValue() * 5);
+    this(readLimit, (int) Math.min(Integer.MAX_VALUE, readLimit * 5));
   }
 
   /**
@@ -86,6 +102,28 @@ public abstract class FastqScanner {
     return this.paired.get();
   }
 
+  /**
+   * Scan all files of a submission at the same time instead of one after another. Pairing is
+   * determined after the scans from pairing keys recorded for each file, so the results are the
+   * same as in sequential mode. Defaults to the value of the {@value #CONCURRENT_PROPERTY_NAME}
+   * system property. Note that {@link #logFlushMsg} and {@link #logProcessedReadNumber} are then
+   * called from several threads.
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  /**
+   * Record every read name in an {@link ExactDuplicateFinder} while the file is scanned, so that
+   * duplicates suspected by the bloom filter are confirmed without reading the file again. This
+   * writes all read names to temporary files, so by default the names are only recorded in a second
+   * pass over files with suspected duplicates. Defaults to the value of the {@value
+   * #EXACT_DUPLICATES_PROPERTY_NAME} system property.
+   */
+  public void setExactDuplicates(boolean exactDuplicates) {
+    this.exactDuplicates = exactDuplicates;
+  }
+
   public void checkFiles(ValidationResult validationResult, RawReadsFile... rawReadsFiles)
       throws Throwable {
     if (null == rawReadsFiles || rawReadsFiles.length == 0) {
@@ -94,6 +132,11 @@ public abstract class FastqScanner {
       return;
     }
 
+    if (concurrent && rawReadsFiles.length > 1) {
+      checkFilesConcurrently(validationResult, rawReadsFiles);
+      return;
+    }
+
     /**
      * Duplicate read name check across files has been dropped. Now, the check will be performed for
      * read names within the file only.
@@ -139,19 +182,123 @@ public abstract class FastqScanner {
         break;
       }
 
-      // Calculate pairing percentage between current file and main file to determine how well they
-      // are paired.
+      pairedFiles.add(
+          pairFiles(
+              mainFile,
+              mainFileReadCount,
+              currentFile,
+              currentFileReadCount,
+              currentAndMainFilePairingBloomWrapper));
+    }
 
-      long readCount = Math.max(mainFileReadCount, currentFileReadCount);
+    checkPairing(validationResult, pairedFiles, rawReadsFiles);
+  }
 
-      long pairedCount = currentAndMainFilePairingBloomWrapper.getPossibleDuplicateCount();
+  /**
+   * Scans every file in its own thread. The main file fills its pairing bloom wrapper directly
+   * while the other files record their pairing keys, which are added to copies of the main file's
+   * pairing information once it is complete. Results are reported in file order and reporting stops
+   * at the first invalid file, exactly as in sequential mode.
+   */
+  private void checkFilesConcurrently(
+      ValidationResult validationResult, RawReadsFile... rawReadsFiles) throws Throwable {
+    RawReadsFile mainFile = rawReadsFiles[0];
+    BloomWrapper mainFileOnlyPairingBloomWrapper = new BloomWrapper(expected_size / 10);
 
-      double pairingPercentage = 100 * ((double) pairedCount / (double) readCount);
+    List<FingerprintLog> pairingKeyLogs = new ArrayList<>();
+    List<Future<FileScan>> scans = new ArrayList<>();
 
-      pairedFiles.add(
-          new PairedFiles(mainFile.getFilename(), currentFile.getFilename(), pairingPercentage));
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(rawReadsFiles.length, Runtime.getRuntime().availableProcessors()));
+    try {
+      scans.add(executor.submit(() -> scanFile(mainFile, mainFileOnlyPairingBloomWrapper, null)));
+      for (int i = 1; i < rawReadsFiles.length; i++) {
+        RawReadsFile currentFile = rawReadsFiles[i];
+        FingerprintLog pairingKeyLog = new FingerprintLog();
+        pairingKeyLogs.add(pairingKeyLog);
+        scans.add(executor.submit(() -> scanFile(currentFile, null, pairingKeyLog)));
+      }
+
+      long mainFileReadCount = reportFile(validationResult, mainFile, getScan(scans.get(0)));
+
+      if (!validationResult.isValid()) {
+        return;
+      }
+
+      List<PairedFiles> pairedFiles = new ArrayList<>();
+
+      for (int i = 1; i < rawReadsFiles.length; i++) {
+        RawReadsFile currentFile = rawReadsFiles[i];
+
+        long currentFileReadCount =
+            reportFile(validationResult, currentFile, getScan(scans.get(i)));
+
+        if (!validationResult.isValid()) {
+          break;
+        }
+
+        BloomWrapper currentAndMainFilePairingBloomWrapper =
+            mainFileOnlyPairingBloomWrapper.getCopy();
+        pairingKeyLogs.get(i - 1).replayInto(currentAndMainFilePairingBloomWrapper);
+
+        pairedFiles.add(
+            pairFiles(
+                mainFile,
+                mainFileReadCount,
+                currentFile,
+                currentFileReadCount,
+                currentAndMainFilePairingBloomWrapper));
+      }
+
+      checkPairing(validationResult, pairedFiles, rawReadsFiles);
+    } finally {
+      scans.forEach(scan -> scan.cancel(true));
+      executor.shutdownNow();
+      // Cancelled scans stop at their next read from the file. Wait for them, as they may still be
+      // writing to the pairing key logs.
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (FingerprintLog pairingKeyLog : pairingKeyLogs) {
+        pairingKeyLog.close();
+      }
+    }
+  }
+
+  private static FileScan getScan(Future<FileScan> scan) throws Throwable {
+    try {
+      return scan.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
     }
+  }
+
+  /**
+   * Calculate pairing percentage between current file and main file to determine how well they are
+   * paired.
+   */
+  private PairedFiles pairFiles(
+      RawReadsFile mainFile,
+      long mainFileReadCount,
+      RawReadsFile currentFile,
+      long currentFileReadCount,
+      BloomWrapper currentAndMainFilePairingBloomWrapper) {
+    long readCount = Math.max(mainFileReadCount, currentFileReadCount);
+
+    long pairedCount = currentAndMainFilePairingBloomWrapper.getPossibleDuplicateCount();
+
+    double pairingPercentage = 100 * ((double) pairedCount / (double) readCount);
 
+    return new PairedFiles(mainFile.getFilename(), currentFile.getFilename(), pairingPercentage);
+  }
+
+  private void checkPairing(
+      ValidationResult validationResult,
+      List<PairedFiles> pairedFiles,
+      RawReadsFile... rawReadsFiles) {
     if (!validationResult.isValid()) return;
 
     // Label set size and low pairing percentage validation.
@@ -204,7 +351,79 @@ public abstract class FastqScanner {
       RawReadsFile rawReadsFile,
       BloomWrapper pairingBloomWrapper)
       throws Throwable {
+    return reportFile(
+        validationResult, rawReadsFile, scanFile(rawReadsFile, pairingBloomWrapper, null));
+  }
+
+  /**
+   * Reads the file and collects everything needed to report on it. Does not touch any state shared
+   * between files so that several files can be scanned at the same time.
+   *
+   * @param pairingBloomWrapper Receives the pairing keys of the file. May be null.
+   * @param pairingKeyLog Records the pairing keys of the file. May be null.
+   */
+  private FileScan scanFile(
+      RawReadsFile rawReadsFile, BloomWrapper pairingBloomWrapper, FingerprintLog pairingKeyLog)
+      throws IOException {
+    FileScan scan = new FileScan();
+
+    /** Should ideally have a low to 0 number of duplicates. */
+    BloomWrapper duplicationsBloomWrapper = new BloomWrapper(expected_size);
+
+    ExactDuplicateFinder duplicateFinder = exactDuplicates ? new ExactDuplicateFinder() : null;
+    Checksums checksums =
+        null == rawReadsFile.getChecksum() || null == rawReadsFile.getChecksumMethod()
+            ? null
+            : new Checksums(rawReadsFile.getChecksumMethod());
+    try {
+      try {
+        scan.readCount =
+            read(
+                rawReadsFile,
+                checksums,
+                scan.labels,
+                pairingBloomWrapper,
+                pairingKeyLog,
+                duplicationsBloomWrapper,
+                duplicateFinder);
+
+        logFlushMsg("Processing completed. Result: OK\n");
+      } catch (ConverterException converterException) {
+        converterException.printStackTrace();
+
+        logFlushMsg(String.format("Processing completed. Result: %s\n", converterException));
+
+        scan.error = converterException;
+      }
+
+      if (scan.error == null && checksums != null) {
+        scan.checksumError =
+            checksums.getMismatch(rawReadsFile.getChecksumMethod(), rawReadsFile.getChecksum());
+      }
+
+      scan.hasPossibleDuplicates = duplicationsBloomWrapper.hasPossibleDuplicates();
+      scan.addCount = duplicationsBloomWrapper.getAddCount();
 
+      // the bloom filter has no false negatives so the exact check is only needed for suspected
+      // reads
+      if (scan.error == null && scan.hasPossibleDuplicates) {
+        // read name, list
+        scan.duplicates = findAllduplications(duplicateFinder, 100, rawReadsFile);
+      }
+    } finally {
+      if (duplicateFinder != null) {
+        duplicateFinder.close();
+      }
+    }
+
+    return scan;
+  }
+
+  /**
+   * @return Number of read processed from the given file.
+   */
+  private long reportFile(
+      ValidationResult validationResult, RawReadsFile rawReadsFile, FileScan scan) {
     ValidationResult fileValidationResult =
         rawReadsFile.getReportFile() == null
             ? validationResult.create(new ValidationOrigin("file", rawReadsFile.getFilename()))
@@ -212,26 +431,29 @@ public abstract class FastqScanner {
                 rawReadsFile.getReportFile().toFile(),
                 new ValidationOrigin("file", rawReadsFile.getFilename()));
 
-    /** Should ideally have a low to 0 number of duplicates. */
-    BloomWrapper duplicationsBloomWrapper = new BloomWrapper(expected_size);
+    if (scan.error == null) {
+      fileValidationResult.add(
+          ValidationMessage.info(String.format("Collected %d reads", scan.readCount)));
+      fileValidationResult.add(
+          ValidationMessage.info(
+              String.format("Collected %d read labels: %s", scan.labels.size(), scan.labels)));
+      fileValidationResult.add(
+          ValidationMessage.info(
+              String.format("Has possible duplicate read name(s): " + scan.hasPossibleDuplicates)));
+    } else {
+      ValidationMessage dataProducerError = ValidationMessage.error(scan.error.getMessage());
+      dataProducerError.appendOrigin(new ValidationOrigin("line number", scan.error.getLineNo()));
+      fileValidationResult.add(dataProducerError);
+    }
+    if (scan.checksumError != null) {
+      fileValidationResult.add(ValidationMessage.error(scan.checksumError));
+    }
 
-    Set<String> fileLabelSet = new HashSet<>();
-    checkSingleFile(
-        fileValidationResult,
-        rawReadsFile,
-        fileLabelSet,
-        pairingBloomWrapper,
-        duplicationsBloomWrapper);
-    labelSet.addAll(fileLabelSet);
-
-    // extra check for suspected reads
-    if (fileValidationResult.isValid() && duplicationsBloomWrapper.hasPossibleDuplicates()) {
-      // read name, list
-      Map<String, Set<String>> duplicates =
-          findAllduplications(duplicationsBloomWrapper, 100, rawReadsFile);
+    labelSet.addAll(scan.labels);
 
+    if (fileValidationResult.isValid() && scan.duplicates != null) {
       ValidationResult duplicationResult = validationResult.create();
-      duplicates.entrySet().stream()
+      scan.duplicates.entrySet().stream()
           .forEach(
               e ->
                   duplicationResult.add(
@@ -245,57 +467,39 @@ public abstract class FastqScanner {
       }
     }
 
-    return duplicationsBloomWrapper.getAddCount();
+    return scan.addCount;
   }
 
-  private void checkSingleFile(
-      ValidationResult fileResult,
-      RawReadsFile rawReadsFile,
-      Set<String> labelSet,
-      BloomWrapper pairingBloomWrapper,
-      BloomWrapper duplicationsBloomWrapper)
-      throws Throwable {
-    try {
-      read(rawReadsFile, labelSet, pairingBloomWrapper, duplicationsBloomWrapper);
-
-      logFlushMsg("Processing completed. Result: OK\n");
-
-      fileResult.add(ValidationMessage.info(String.format("Collected %d reads", count)));
-      fileResult.add(
-          ValidationMessage.info(
-              String.format("Collected %d read labels: %s", labelSet.size(), labelSet)));
-      fileResult.add(
-          ValidationMessage.info(
-              String.format(
-                  "Has possible duplicate read name(s): "
-                      + duplicationsBloomWrapper.hasPossibleDuplicates())));
-    } catch (ConverterException converterException) {
-      converterException.printStackTrace();
-
-      logFlushMsg(String.format("Processing completed. Result: %s\n", converterException));
-
-      ValidationMessage dataProducerError =
-          ValidationMessage.error(converterException.getMessage());
-      dataProducerError.appendOrigin(
-          new ValidationOrigin("line number", converterException.getLineNo()));
-      fileResult.add(dataProducerError);
-    }
-  }
-
-  private void read(
+  /**
+   * @param checksums Checksums of the raw file to compute, or null. The file is read to its end for
+   *     them, even if the read limit stops the scan before.
+   * @return Number of reads read from the file.
+   */
+  private long read(
       RawReadsFile readsFile,
+      Checksums checksums,
       Set<String> labels,
       BloomWrapper pairingBloomWrapper,
-      BloomWrapper duplicationsBloomWrapper)
-      throws Throwable {
-    try (InputStream inputStream = Utils.openFastqInputStream(Paths.get(readsFile.getFilename()))) {
+      FingerprintLog pairingKeyLog,
+      BloomWrapper duplicationsBloomWrapper,
+      ExactDuplicateFinder duplicateFinder)
+      throws IOException {
+    Path path = Paths.get(readsFile.getFilename());
+    ChecksumInputStream checksumStream =
+        null == checksums ? null : new ChecksumInputStream(Files.newInputStream(path), checksums);
+    try (InputStream inputStream =
+        null == checksumStream
+            ? Utils.openFastqInputStream(path)
+            : Utils.openFastqInputStream(checksumStream)) {
       String streamName = readsFile.getFilename();
       FastqReadScanner fastqReadScanner =
           new FastqReadScanner(
               streamName,
               labels,
               pairingBloomWrapper,
+              pairingKeyLog,
               duplicationsBloomWrapper,
+              duplicateFinder,
               MAX_LABEL_SET_SIZE,
               PRINT_FREQ);
       AutoNormalizeQualityReadConverter readScanningConverter =
@@ -305,57 +509,76 @@ public abstract class FastqScanner {
       log.info("Processing file " + readsFile.getFilename());
       readScanningConverter.run();
 
-      count = readScanningConverter.getReadCount();
+      long count = readScanningConverter.getReadCount();
       logProcessedReadNumber(count);
       if (count <= 0) {
         throw new ConverterException(0, "Empty file");
       }
+      if (checksumStream != null) {
+        // Digests the raw bytes the decompressor has not read.
+        checksumStream.drain();
+      }
+      return count;
     }
   }
 
   protected abstract void logProcessedReadNumber(Long count);
 
+  /**
+   * Resolves the read names recorded while scanning the file into the duplicates and the reads they
+   * occur at.
+   *
+   * @param duplicateFinder Read names recorded while scanning the file. When null, the file is read
+   *     again to record them.
+   */
   private Map<String, Set<String>> findAllduplications(
-      BloomWrapper duplications, int limit, RawReadsFile rf) {
-    Map<String, Integer> counts = new HashMap<>(limit);
+      ExactDuplicateFinder duplicateFinder, int limit, RawReadsFile rf) throws IOException {
+    if (duplicateFinder == null) {
+      try (ExactDuplicateFinder readNames = new ExactDuplicateFinder()) {
+        recordReadNames(readNames, rf);
+        return findAllduplications(readNames, limit, rf);
+      }
+    }
+
     Map<String, Set<String>> results = new LinkedHashMap<>(limit);
 
     String msg = "Verifying possible duplicates for file " + rf.getFilename();
     log.info(msg);
 
+    duplicateFinder
+        .findDuplicates(limit)
+        .forEach(
+            (readName, indexes) -> {
+              Set<String> dlist = new LinkedHashSet<>();
+              indexes.forEach(index -> dlist.add(rf.getFilename() + ", read " + index));
+              results.put(readName, dlist);
+            });
+
+    return results;
+  }
+
+  private void recordReadNames(ExactDuplicateFinder duplicateFinder, RawReadsFile rf)
+      throws IOException {
     FastqIterativeWriter wrapper = new FastqIterativeWriter();
     wrapper.setFiles(new File[] {new File(rf.getFilename())});
     wrapper.setReadType(READ_TYPE.SINGLE);
     wrapper.setReadLimit(readLimit);
 
-    Iterator<String> read_name_iterator =
-        new DelegateIterator<PairedRead, String>(wrapper.iterator()) {
-          @Override
-          public String convert(PairedRead obj) {
-            return obj.forward.getName();
-          }
-        };
-
-    long index = 1;
-
-    while (read_name_iterator.hasNext()) {
-      String read_name = read_name_iterator.next();
-      if (duplications.getPossibleDuplicates().contains(read_name)) {
-        counts.put(read_name, counts.getOrDefault(read_name, 0) + 1);
-        Set<String> dlist = results.getOrDefault(read_name, new LinkedHashSet<>());
-        dlist.add(rf.getFilename() + ", read " + index);
-        results.put(read_name, dlist);
-      }
-      ++index;
+    Iterator<PairedRead> reads = wrapper.iterator();
+    while (reads.hasNext()) {
+      duplicateFinder.add(reads.next().forward.getName());
     }
+  }
 
-    return results.entrySet().stream()
-        // only read names occurring more than once are considered duplicates
-        .filter(e -> counts.get(e.getKey()) > 1)
-        .limit(limit)
-        .collect(
-            Collectors.toMap(
-                e -> e.getKey(), e -> e.getValue(), (v1, v2) -> v1, LinkedHashMap::new));
+  /** Outcome of scanning a single file, reported once all earlier files have been reported. */
+  private static class FileScan {
+    final Set<String> labels = new HashSet<>();
+    long readCount;
+    long addCount;
+    boolean hasPossibleDuplicates;
+    Map<String, Set<String>> duplicates;
+    ConverterException error;
+    String checksumError;
   }
 
   private static class PairedFiles {
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Append only temporary file of read name fingerprints. Lets a file be scanned before the Bloom
+ * filter its names have to be checked against is complete: the fingerprints are replayed into the
+ * filter afterwards, in the order they were recorded, which gives the same result as adding the
+ * names directly.
+ */
+public class FingerprintLog implements Closeable {
+  private static final int IO_BUFFER_SIZE = 1 << 16;
+
+  private final Path path;
+  private final DataOutputStream out;
+  private long count;
+
+  public FingerprintLog() throws IOException {
+    this(null);
+  }
+
+  /**
+   * @param tempDir Directory to create the log in. System default when null.
+   */
+  public FingerprintLog(Path tempDir) throws IOException {
+    this.path =
+        tempDir == null
+            ? Files.createTempFile("fingerprints-", ".bin")
+            : Files.createTempFile(tempDir, "fingerprints-", ".bin");
+    this.out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE));
+  }
+
+  public void add(String readName) throws IOException {
+    byte[] name = readName.getBytes(StandardCharsets.UTF_8);
+    add(name, 0, name.length);
+  }
+
+  public void add(byte[] readName, int offset, int length) throws IOException {
+    out.writeLong(ScalableBloomFilter.hash(readName, offset, length));
+    count++;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /** Adds every recorded read name to the given bloom wrapper. */
+  public void replayInto(BloomWrapper bloomWrapper) throws IOException {
+    out.flush();
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_SIZE))) {
+      for (long i = 0; i < count; i++) {
+        bloomWrapper.addFingerprint(in.readLong());
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+    Files.deleteIfExists(path);
+  }
+}
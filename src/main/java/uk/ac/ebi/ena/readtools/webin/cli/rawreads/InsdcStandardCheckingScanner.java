@@ -10,12 +10,14 @@
  */
 package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
 
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
 
-public abstract class InsdcStandardCheckingScanner implements ReadWriter<Read, Spot> {
+public abstract class InsdcStandardCheckingScanner implements ReadBatchWriter<Spot> {
   /*
   A	Adenine
   C	Cytosine
@@ -37,7 +39,7 @@ public abstract class InsdcStandardCheckingScanner implements ReadWriter<Read, S
   private static final String IUPAC_CODES = "ACGTURYSWKMBDHVN.-";
 
   private final int printFreq;
-  private Long count = 0L;
+  private long count = 0;
 
   protected abstract void logProcessedReadNumber(long cnt);
 
@@ -83,7 +85,24 @@ public abstract class InsdcStandardCheckingScanner implements ReadWriter<Read, S
     //            }
     //        }
 
-    if (read.getBases().length() != read.getQualityScores().length()) {
+    checkLengths(read.getBases().length(), read.getQualityScores().length());
+  }
+
+  /** Checks the reads in place, without creating a {@link Read} for each of them. */
+  @Override
+  public void write(ReadBatch batch) throws ReadWriterException {
+    for (int i = 0; i < batch.size(); i++) {
+      write(batch, i);
+    }
+  }
+
+  /** Same as {@link #write(Read)} for the read at the given index of the batch. */
+  protected void write(ReadBatch batch, int index) throws ReadWriterException {
+    checkLengths(batch.getBasesLength(index), batch.getQualityScoresLength(index));
+  }
+
+  private void checkLengths(int basesLength, int qualityScoresLength) throws ReadWriterException {
+    if (basesLength != qualityScoresLength) {
       throw new ReadWriterException(
           "Mismatch between length of read bases and qualities",
           ReadWriterException.ErrorType.BASES_QUALITIES_LENGTH_MISMATCH);
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Bloom filter which does not need to know the number of elements up front. It starts with a stage
+ * sized for the given initial capacity and, once that stage is full, adds a new stage twice as
+ * large with a tighter false positive probability. The per stage probabilities form a geometric
+ * series so the compound false positive probability stays below the requested one no matter how
+ * many stages are added.
+ *
+ * <p>Every stage is partitioned: each of the k hash functions owns its own slice of bits. Bits are
+ * set with atomic operations, so {@link #put} can be called from several threads at once without
+ * external locking. Two threads inserting the very same element at the same moment may both be told
+ * it was absent.
+ *
+ * <p>Elements are hashed straight from {@code byte[]} ranges, so callers holding raw read names do
+ * not need to create {@link String}s.
+ */
+public class ScalableBloomFilter {
+  private static final int GROWTH_FACTOR = 2;
+  private static final double TIGHTENING_RATIO = 0.5;
+  private static final long MIN_STAGE_CAPACITY = 1024;
+
+  private static final VarHandle LONG_LE =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final LongBinaryOperator OR = (a, b) -> a | b;
+
+  private final double falsePositiveProbability;
+  private volatile Stage[] stages;
+
+  /**
+   * @param initialCapacity Number of elements the first stage is sized for.
+   * @param falsePositiveProbability Upper bound of the compound false positive probability.
+   */
+  public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability) {
+    if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException(
+          "False positive probability must be in (0, 1): " + falsePositiveProbability);
+    }
+
+    this.falsePositiveProbability = falsePositiveProbability;
+    this.stages =
+        new Stage[] {
+          new Stage(
+              Math.max(MIN_STAGE_CAPACITY, initialCapacity),
+              falsePositiveProbability * (1 - TIGHTENING_RATIO))
+        };
+  }
+
+  private ScalableBloomFilter(double falsePositiveProbability, Stage[] stages) {
+    this.falsePositiveProbability = falsePositiveProbability;
+    this.stages = stages;
+  }
+
+  /**
+   * @return true if the element was definitely not present before and has now been added, false if
+   *     it might have been added before.
+   */
+  public boolean put(byte[] data, int offset, int length) {
+    return put(hash(data, offset, length));
+  }
+
+  public boolean put(byte[] data) {
+    return put(data, 0, data.length);
+  }
+
+  public boolean put(String value) {
+    return put(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Adds an element given by its {@link #hash(byte[], int, int)}. */
+  boolean put(long hash1) {
+    long hash2 = secondHash(hash1);
+
+    Stage[] current = stages;
+    for (Stage stage : current) {
+      if (stage.mightContain(hash1, hash2)) {
+        return false;
+      }
+    }
+
+    Stage last = current[current.length - 1];
+    if (!last.put(hash1, hash2)) {
+      return false;
+    }
+
+    if (last.count.incrementAndGet() >= last.capacity) {
+      grow(last);
+    }
+    return true;
+  }
+
+  public boolean mightContain(byte[] data, int offset, int length) {
+    return mightContain(hash(data, offset, length));
+  }
+
+  boolean mightContain(long hash1) {
+    long hash2 = secondHash(hash1);
+
+    for (Stage stage : stages) {
+      if (stage.mightContain(hash1, hash2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean mightContain(byte[] data) {
+    return mightContain(data, 0, data.length);
+  }
+
+  public boolean mightContain(String value) {
+    return mightContain(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return Number of elements added so far. Elements which were reported as possibly present are
+   *     not counted.
+   */
+  public long getElementCount() {
+    long count = 0;
+    for (Stage stage : stages) {
+      count += stage.count.get();
+    }
+    return count;
+  }
+
+  public int getStageCount() {
+    return stages.length;
+  }
+
+  /**
+   * @return Total number of bits allocated across all stages.
+   */
+  public long getBitSize() {
+    long size = 0;
+    for (Stage stage : stages) {
+      size += stage.sliceBits * stage.hashCount;
+    }
+    return size;
+  }
+
+  public double getFalsePositiveProbability() {
+    return falsePositiveProbability;
+  }
+
+  public ScalableBloomFilter copy() {
+    Stage[] current = stages;
+    Stage[] copied = new Stage[current.length];
+    for (int i = 0; i < current.length; i++) {
+      copied[i] = current[i].copy();
+    }
+    return new ScalableBloomFilter(falsePositiveProbability, copied);
+  }
+
+  private synchronized void grow(Stage full) {
+    Stage[] current = stages;
+    if (current[current.length - 1] != full) {
+      // Another thread has already added a stage.
+      return;
+    }
+
+    Stage[] grown = Arrays.copyOf(current, current.length + 1);
+    grown[current.length] =
+        new Stage(full.capacity * GROWTH_FACTOR, full.falsePositiveProbability * TIGHTENING_RATIO);
+    stages = grown;
+  }
+
+  /** MurmurHash64A over the given byte range. */
+  static long hash(byte[] data, int offset, int length) {
+    final long m = 0xc6a4a7935bd1e995L;
+    final int r = 47;
+
+    long h = 0x5bd1e995L ^ (length * m);
+
+    int i = offset;
+    int end = offset + (length & ~7);
+    for (; i < end; i += 8) {
+      long k = (long) LONG_LE.get(data, i);
+      k *= m;
+      k ^= k >>> r;
+      k *= m;
+
+      h ^= k;
+      h *= m;
+    }
+
+    int remaining = length & 7;
+    if (remaining > 0) {
+      long k = 0;
+      for (int j = remaining - 1; j >= 0; j--) {
+        k = (k << 8) | (data[i + j] & 0xffL);
+      }
+      h ^= k;
+      h *= m;
+    }
+
+    h ^= h >>> r;
+    h *= m;
+    h ^= h >>> r;
+    return h;
+  }
+
+  /** Derives the second hash for double hashing; always odd so that probes never repeat. */
+  private static long secondHash(long hash1) {
+    long h = hash1 ^ 0x9e3779b97f4a7c15L;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h | 1;
+  }
+
+  private static final class Stage {
+    final long capacity;
+    final double falsePositiveProbability;
+    final int hashCount;
+    final long sliceBits;
+    final AtomicLongArray words;
+    final AtomicLong count;
+
+    Stage(long capacity, double falsePositiveProbability) {
+      this.capacity = capacity;
+      this.falsePositiveProbability = falsePositiveProbability;
+      this.hashCount =
+          Math.max(1, (int) Math.ceil(-Math.log(falsePositiveProbability) / Math.log(2)));
+
+      long totalBits =
+          (long)
+              Math.ceil(
+                  -capacity * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+      long bitsPerSlice = Math.max(Long.SIZE, (totalBits + hashCount - 1) / hashCount);
+      // Round up to whole words so that slices never share a word.
+      this.sliceBits = ((bitsPerSlice + Long.SIZE - 1) / Long.SIZE) * Long.SIZE;
+      this.words = new AtomicLongArray(Math.toIntExact(sliceBits / Long.SIZE * hashCount));
+      this.count = new AtomicLong();
+    }
+
+    private Stage(Stage other) {
+      this.capacity = other.capacity;
+      this.falsePositiveProbability = other.falsePositiveProbability;
+      this.hashCount = other.hashCount;
+      this.sliceBits = other.sliceBits;
+      this.words = new AtomicLongArray(other.words.length());
+      for (int i = 0; i < other.words.length(); i++) {
+        this.words.set(i, other.words.get(i));
+      }
+      this.count = new AtomicLong(other.count.get());
+    }
+
+    Stage copy() {
+      return new Stage(this);
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+      for (int i = 0; i < hashCount; i++) {
+        long bit = bitIndex(i, hash1, hash2);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return true if at least one bit has been changed.
+     */
+    boolean put(long hash1, long hash2) {
+      boolean changed = false;
+      for (int i = 0; i < hashCount; i++) {
+        long bit = bitIndex(i, hash1, hash2);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((words.get(word) & mask) == 0 && (words.getAndAccumulate(word, mask, OR) & mask) == 0) {
+          changed = true;
+        }
+      }
+      return changed;
+    }
+
+    private long bitIndex(int slice, long hash1, long hash2) {
+      return slice * sliceBits + Math.floorMod(hash1 + slice * hash2, sliceBits);
+    }
+  }
+}
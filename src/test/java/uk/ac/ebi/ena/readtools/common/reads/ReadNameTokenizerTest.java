@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.reads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadNameTokenizerTest {
+  private static final List<String> NAMES =
+      Arrays.asList(
+          "A00953:544:HMTFHDSX3:2:1101:6768:1 1:N:0:ATCACG",
+          "A00953:544:HMTFHDSX3:2:1101:6768:1 2:Y:18:ATCACG+GCGCTA",
+          "inst:1:FC:1:1:0:0 1:N:0",
+          "inst:1:FC:1:1:0:0 1:N:0:",
+          "inst:1:FC:1:1:0:0\t\t2:N:0",
+          "inst:1:FC:1:1:0:0  1:N:0",
+          "inst:1:FC:1:1:0:0 \t1:N:0",
+          "inst 1:N:0:AC 2:N:0",
+          "inst 1:N:0:AC 2:N:1",
+          "inst 1:N:1",
+          "inst 1:X:0",
+          "inst 1:N:",
+          "inst 1:N:0x",
+          "inst 01:N:10:",
+          " 1:N:0",
+          "  1:N:0",
+          "x 1:N:0\n",
+          "A00953:544:HMTFHDSX3:2:1101:6768:1",
+          "A00953:544:HMTFHDSX3:2:1101:6768",
+          "A00953:544:HMTFHDSX3:2:1101:-1:-1",
+          "A00953:544:HMTF.HDSX3:2:1101:6768:1",
+          "READ/1",
+          "READ/2",
+          "READ.1",
+          "READ:1",
+          "READ_1",
+          "READ|1",
+          "READ-1",
+          "READ/12",
+          "READ/",
+          "/1",
+          "1",
+          "",
+          "READ",
+          "SRR123.1.1",
+          "SRR123.45 45 length=100",
+          "SRR123.45/1\n",
+          "a\nb/1",
+          "FASTQ_GENERATOR:000000001/1");
+
+  @Test
+  public void testSameAsPatterns() {
+    for (String name : NAMES) {
+      assertSameAsPatterns(name);
+    }
+  }
+
+  @Test
+  public void testSameAsPatternsRandom() {
+    Random random = new Random(42);
+    String alphabet = "0123456789:NY /._|\t-Aa\n";
+    for (int i = 0; i < 200_000; i++) {
+      StringBuilder name = new StringBuilder();
+      int length = random.nextInt(16);
+      for (int j = 0; j < length; j++) {
+        name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSameAsPatterns(name.toString());
+    }
+  }
+
+  @Test
+  public void testCasavaParts() {
+    ReadName name = ReadNameTokenizer.parse("inst:1:FC:1:1:0:0 2:Y:18:ATCACG+GCGCTA");
+
+    Assert.assertEquals(ReadNameTokenizer.Scheme.CASAVA18, name.getScheme());
+    Assert.assertEquals("inst:1:FC:1:1:0:0", name.getKey());
+    Assert.assertEquals("2", name.getPairNumber());
+    Assert.assertEquals(2, name.getPairIndex());
+    Assert.assertTrue(name.isFiltered());
+    Assert.assertEquals("18", name.getControlNumber());
+    Assert.assertEquals("ATCACG+GCGCTA", name.getBarcode());
+  }
+
+  @Test
+  public void testSeparatorParts() {
+    ReadName name = ReadNameTokenizer.parse("SRR123.45/1");
+
+    Assert.assertEquals(ReadNameTokenizer.Scheme.SEPARATOR, name.getScheme());
+    Assert.assertEquals("SRR123.45", name.getKey());
+    Assert.assertEquals("1", name.getPairNumber());
+    Assert.assertFalse(name.isFiltered());
+    Assert.assertNull(name.getControlNumber());
+    Assert.assertNull(name.getBarcode());
+  }
+
+  @Test
+  public void testSchemeDetectedOnce() {
+    ReadNameTokenizer tokenizer = new ReadNameTokenizer();
+    Assert.assertNull(tokenizer.getScheme());
+
+    Assert.assertEquals("READ", tokenizer.tokenize("READ/1").getKey());
+    Assert.assertEquals(ReadNameTokenizer.Scheme.SEPARATOR, tokenizer.getScheme());
+
+    // Names of the other scheme are still recognised.
+    ReadName casava = tokenizer.tokenize("inst:1:FC:1:1:0:0 2:N:0");
+    Assert.assertEquals(ReadNameTokenizer.Scheme.CASAVA18, casava.getScheme());
+    Assert.assertEquals("inst:1:FC:1:1:0:0", casava.getKey());
+    Assert.assertEquals(ReadNameTokenizer.Scheme.SEPARATOR, tokenizer.getScheme());
+
+    Assert.assertNull(tokenizer.tokenize("READ"));
+  }
+
+  private static void assertSameAsPatterns(String name) {
+    String message = "[" + name + "]";
+
+    Matcher casava = CasavaRead.P_CASAVA_18_NAME.matcher(name);
+    ReadName parsedCasava = ReadNameTokenizer.parseCasava(name);
+    if (!casava.matches()) {
+      Assert.assertNull(message, parsedCasava);
+    } else {
+      Assert.assertNotNull(message, parsedCasava);
+      Assert.assertEquals(message, casava.group(1), parsedCasava.getKey());
+      Assert.assertEquals(message, casava.group(3), parsedCasava.getPairNumber());
+      Assert.assertEquals(message, "Y".equals(casava.group(4)), parsedCasava.isFiltered());
+      Assert.assertEquals(message, casava.group(5), parsedCasava.getControlNumber());
+      String tail = casava.group(6);
+      Assert.assertEquals(
+          message, tail.length() > 1 ? tail.substring(1) : null, parsedCasava.getBarcode());
+    }
+
+    String key = null;
+    String pairNumber = null;
+    if (casava.matches()) {
+      key = casava.group(1);
+      pairNumber = casava.group(3);
+    } else if (!ReadNameTokenizer.P_CASAVA_LIKE_NAME.matcher(name).find()) {
+      Matcher separator = ReadNameTokenizer.P_SEPARATOR_NAME.matcher(name);
+      if (separator.find()) {
+        key = separator.group(1);
+        pairNumber = separator.group(2);
+      }
+    }
+
+    List<ReadName> parsed = new ArrayList<>();
+    parsed.add(ReadNameTokenizer.parse(name));
+    parsed.add(new ReadNameTokenizer().tokenize(name));
+    ReadNameTokenizer separatorTokenizer = new ReadNameTokenizer();
+    separatorTokenizer.tokenize("READ/1");
+    parsed.add(separatorTokenizer.tokenize(name));
+
+    for (ReadName readName : parsed) {
+      if (null == key) {
+        Assert.assertNull(message, readName);
+      } else {
+        Assert.assertNotNull(message, readName);
+        Assert.assertEquals(message, key, readName.getKey());
+        Assert.assertEquals(message, pairNumber, readName.getPairNumber());
+      }
+    }
+  }
+}
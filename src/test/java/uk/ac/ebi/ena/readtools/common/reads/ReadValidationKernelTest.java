@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.common.reads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+public class ReadValidationKernelTest {
+  @Test
+  public void countsAutcg() {
+    ReadValidationKernel kernel = ReadValidationKernel.IUPAC;
+
+    assertEquals(5, countAutcg(kernel, "AUTCG"));
+    assertEquals(5, countAutcg(kernel, "autcg"));
+    assertEquals(2, countAutcg(kernel, "NNaN.-t"));
+    assertEquals(0, countAutcg(kernel, "RYSWKMBDHVN.-ryswkmbdhvn"));
+    assertEquals(0, countAutcg(kernel, ""));
+    assertEquals(-1, countAutcg(kernel, "ACGTX"));
+    assertEquals(-1, countAutcg(kernel, "ACG T"));
+    assertEquals(-1, countAutcg(kernel, "ACGÁ"));
+    assertEquals(-1, countAutcg(kernel, "ACGĀ"));
+  }
+
+  @Test
+  public void countsAutcgInRange() {
+    ReadValidationKernel kernel = ReadValidationKernel.IUPAC;
+    byte[] bytes = "XXACGNXX".getBytes(StandardCharsets.ISO_8859_1);
+
+    assertEquals(3, kernel.countAutcg(bytes, 2, 4));
+    assertEquals(-1, kernel.countAutcg(bytes, 1, 4));
+    assertEquals(3, kernel.countAutcg("XXACGNXX", 2, 6));
+    assertEquals(-1, kernel.countAutcg("XXACGNXX", 2, 7));
+  }
+
+  @Test
+  public void isCaseSensitive() {
+    ReadValidationKernel kernel = new ReadValidationKernel("ACGTNUactgnu.");
+
+    assertTrue(kernel.isValid("ACGTNUactgnu."));
+    assertFalse(kernel.isValid("R"));
+    assertFalse(kernel.isValid("-"));
+
+    kernel = new ReadValidationKernel("ACGT");
+    assertTrue(kernel.isValid("ACGT"));
+    assertFalse(kernel.isValid("acgt"));
+  }
+
+  @Test
+  public void findsInvalidBases() {
+    ReadValidationKernel kernel = new ReadValidationKernel("ACGT");
+
+    assertEquals(new HashSet<>(Arrays.asList('X', 'a', 'Ā')), kernel.findInvalid("AXaXCĀ"));
+    assertTrue(kernel.findInvalid("ACGT").isEmpty());
+  }
+
+  @Test
+  public void sumsQualities() {
+    assertEquals(0, ReadValidationKernel.sumQualities(""));
+    assertEquals(0 + 1 + 30 + 93, ReadValidationKernel.sumQualities("!\"?~"));
+
+    byte[] bytes = "x!\"?~x".getBytes(StandardCharsets.ISO_8859_1);
+    assertEquals(0 + 1 + 30 + 93, ReadValidationKernel.sumQualities(bytes, 1, 4));
+  }
+
+  @Test
+  public void checksQualities() {
+    assertTrue(ReadValidationKernel.isValidQualities(""));
+    assertTrue(ReadValidationKernel.isValidQualities("!IJ~"));
+    assertFalse(ReadValidationKernel.isValidQualities("II I"));
+    assertFalse(ReadValidationKernel.isValidQualities("II\u007f"));
+    assertTrue(ReadValidationKernel.isValidQualities("  II  ", 2, 4));
+  }
+
+  private static int countAutcg(ReadValidationKernel kernel, String bases) {
+    byte[] bytes = bases.getBytes(StandardCharsets.ISO_8859_1);
+    int count = kernel.countAutcg(bytes, 0, bytes.length);
+    // Both variants must agree, even for characters beyond one byte.
+    if (bases.chars().allMatch(c -> c < 256)) {
+      assertEquals(count, kernel.countAutcg(bases, 0, bases.length()));
+    } else {
+      assertEquals(-1, kernel.countAutcg(bases, 0, bases.length()));
+    }
+    return count;
+  }
+}
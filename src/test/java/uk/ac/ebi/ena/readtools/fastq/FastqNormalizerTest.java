@@ -19,12 +19,18 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
+import uk.ac.ebi.ena.readtools.utils.ChecksumsTest;
 import uk.ac.ebi.ena.readtools.utils.Utils;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
 
 public class FastqNormalizerTest {
 
@@ -534,6 +540,68 @@ public class FastqNormalizerTest {
     assertTrue(records2.get(0).getReadName().endsWith("/2"));
   }
 
+  @Test
+  public void testSingleEndChecksums() throws IOException {
+    String inputFile = "src/test/resources/T966_R1.fastq.gz";
+    Path outputFile = tempFolder.newFile("output.fastq.gz").toPath();
+
+    FastqNormalizer.SingleNormalizationResult result =
+        FastqNormalizer.normalizeSingleEndWithStats(
+            inputFile, outputFile.toString(), "ERR1234567", false, ChecksumMethod.MD5);
+
+    assertEquals(result.getReadCount(), readFastq(outputFile).size());
+    assertEquals(
+        Arrays.asList(inputFile, outputFile.toString()),
+        new ArrayList<>(result.getChecksums().keySet()));
+    for (Map.Entry<String, Checksums> entry : result.getChecksums().entrySet()) {
+      ChecksumsTest.assertChecksums(
+          Files.readAllBytes(Paths.get(entry.getKey())), entry.getValue());
+    }
+  }
+
+  @Test
+  public void testPairedEndChecksums() throws IOException {
+    String inputFile1 = "src/test/resources/2fastq/28239_1822_1.fastq";
+    String inputFile2 = "src/test/resources/2fastq/28239_1822_2.fastq";
+    Path outputFile1 = tempFolder.newFile("output_1.fastq").toPath();
+    Path outputFile2 = tempFolder.newFile("output_2.fastq").toPath();
+    Path outputFileOrphans = tempFolder.newFile("output.fastq").toPath();
+
+    FastqNormalizer.PairedNormalizationResult result =
+        FastqNormalizer.normalizePairedEnd(
+            inputFile1,
+            inputFile2,
+            outputFile1.toString(),
+            outputFile2.toString(),
+            outputFileOrphans.toString(),
+            "ERR1234567",
+            false,
+            tempFolder.getRoot(),
+            100_000,
+            4L * 1024L * 1024L * 1024L,
+            10L * 1024L * 1024L * 1024L,
+            ChecksumMethod.MD5,
+            ChecksumMethod.SHA256);
+
+    assertTrue(result.getPairCount() > 0);
+    assertEquals(5, result.getChecksums().size());
+    for (Map.Entry<String, Checksums> entry : result.getChecksums().entrySet()) {
+      ChecksumsTest.assertChecksums(
+          Files.readAllBytes(Paths.get(entry.getKey())), entry.getValue());
+    }
+    // Without checksums the outputs are the same.
+    Path plainOutputFile1 = tempFolder.newFile("plain_1.fastq").toPath();
+    FastqNormalizer.normalizePairedEnd(
+        inputFile1,
+        inputFile2,
+        plainOutputFile1.toString(),
+        tempFolder.newFile("plain_2.fastq").toString(),
+        "ERR1234567",
+        false,
+        tempFolder.getRoot());
+    assertArrayEquals(Files.readAllBytes(plainOutputFile1), Files.readAllBytes(outputFile1));
+  }
+
   // ---- Non-Casava separator format tests ----
   // PairedFastqWriter.SPLIT_REGEXP supports pairing on dot, colon, slash, and underscore
   // separators. These tests verify FastqNormalizer handles them all.
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
+
+public class MultiFastqOutputterTest {
+  private static final int UNPAIRED = 0;
+  private static final int FIRST_OF_PAIR = 1 | 64;
+  private static final int SECOND_OF_PAIR = 1 | 128;
+
+  @Test
+  public void testHasAdjacentMates() {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    Assert.assertFalse(MultiFastqOutputter.hasAdjacentMates(header));
+
+    header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+    Assert.assertTrue(MultiFastqOutputter.hasAdjacentMates(header));
+
+    header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+    header.setGroupOrder(SAMFileHeader.GroupOrder.query);
+    Assert.assertTrue(MultiFastqOutputter.hasAdjacentMates(header));
+  }
+
+  @Test
+  public void testAdjacentMatesMatchCache() {
+    Object[][] records = {
+      {"a", FIRST_OF_PAIR},
+      {"a", SECOND_OF_PAIR},
+      {"b", UNPAIRED},
+      {"c", SECOND_OF_PAIR},
+      {"d", UNPAIRED},
+      {"c", FIRST_OF_PAIR},
+      {"e", FIRST_OF_PAIR},
+      {"e", SECOND_OF_PAIR}
+    };
+
+    Output cached = write(records, false);
+    Output adjacent = write(records, true);
+
+    Assert.assertTrue(adjacent.outputter.isAdjacentMates());
+    Assert.assertEquals(cached.toString(), adjacent.toString());
+    Assert.assertEquals(
+        "@a/1\nACGT\n+\n!!!!\n@c/1\nACGT\n+\n!!!!\n@e/1\nACGT\n+\n!!!!\n", adjacent.get(1));
+    Assert.assertEquals(0, adjacent.overflow.size());
+  }
+
+  @Test
+  public void testWritesOrphansToOverflow() {
+    Object[][] records = {
+      {"a", FIRST_OF_PAIR},
+      {"a", SECOND_OF_PAIR},
+      {"b", FIRST_OF_PAIR},
+      {"c", FIRST_OF_PAIR},
+      {"c", SECOND_OF_PAIR},
+      {"d", SECOND_OF_PAIR},
+      {"e", FIRST_OF_PAIR},
+      {"e", SECOND_OF_PAIR}
+    };
+
+    long evictions = Metrics.CACHE_EVICTIONS.get();
+    long flushed = Metrics.CACHE_FLUSHED.get();
+    Output cached = write(records, false);
+    // The cache never filled up, the reads left in it are flushed at the end.
+    Assert.assertEquals(evictions, Metrics.CACHE_EVICTIONS.get());
+    Assert.assertEquals(2, Metrics.CACHE_FLUSHED.get() - flushed);
+
+    flushed = Metrics.CACHE_FLUSHED.get();
+    Output adjacent = write(records, true);
+    Assert.assertEquals(flushed, Metrics.CACHE_FLUSHED.get());
+
+    // Reads without a mate do not turn off pairing as they come.
+    Assert.assertTrue(adjacent.outputter.isAdjacentMates());
+    Assert.assertEquals(cached.toString(), adjacent.toString());
+    Assert.assertEquals(
+        "@a/2\nACGT\n+\n!!!!\n@c/2\nACGT\n+\n!!!!\n@e/2\nACGT\n+\n!!!!\n", adjacent.get(2));
+    Assert.assertEquals(Arrays.asList("b", "d"), overflowNames(adjacent));
+    Assert.assertEquals(overflowNames(cached), overflowNames(adjacent));
+  }
+
+  @Test
+  public void testPairsMatesThatAreNotAdjacentInOverflow() {
+    Object[][] records = {
+      {"a", FIRST_OF_PAIR}, {"b", FIRST_OF_PAIR}, {"a", SECOND_OF_PAIR}, {"b", SECOND_OF_PAIR}
+    };
+
+    Output adjacent = write(records, true);
+    Assert.assertEquals("||", adjacent.toString());
+    // Sorted by name, so that mates are paired when the overflow BAM is read.
+    Assert.assertEquals(Arrays.asList("a", "a", "b", "b"), overflowNames(adjacent));
+  }
+
+  private static List<String> overflowNames(Output output) {
+    List<String> names = new ArrayList<>();
+    try (SamReader reader =
+        SamReaderFactory.makeDefault()
+            .validationStringency(ValidationStringency.SILENT)
+            .open(SamInputResource.of(new ByteArrayInputStream(output.overflow.toByteArray())))) {
+      for (SAMRecord record : reader) {
+        names.add(record.getReadName());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return names;
+  }
+
+  private static Output write(Object[][] records, boolean adjacentMates) {
+    Output output = new Output();
+    output.outputter.setAdjacentMates(adjacentMates);
+    for (Object[] record : records) {
+      output.outputter.writeRead(
+          ((String) record[0]).getBytes(StandardCharsets.US_ASCII),
+          (Integer) record[1],
+          "ACGT".getBytes(StandardCharsets.US_ASCII),
+          "!!!!".getBytes(StandardCharsets.US_ASCII));
+    }
+    output.outputter.finish();
+    return output;
+  }
+
+  private static class Output {
+    final ByteArrayOutputStream[] streams = {
+      new ByteArrayOutputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream()
+    };
+    final ByteArrayOutputStream overflow = new ByteArrayOutputStream();
+    final MultiFastqOutputter outputter =
+        new MultiFastqOutputter(
+            new OutputStream[] {streams[0], streams[1], streams[2]}, overflow, new SAMFileHeader());
+
+    String get(int index) {
+      return new String(streams[index].toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+      return get(0) + "|" + get(1) + "|" + get(2);
+    }
+  }
+}
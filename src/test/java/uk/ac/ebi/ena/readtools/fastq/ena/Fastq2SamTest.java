@@ -13,11 +13,14 @@ package uk.ac.ebi.ena.readtools.fastq.ena;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.fail;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordQueryNameComparator;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.fastq.FastqReader;
 import htsjdk.samtools.fastq.FastqRecord;
+import htsjdk.samtools.util.BlockCompressedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -47,7 +50,10 @@ import uk.ac.ebi.ena.readtools.loader.common.InvalidBaseCharacterException;
 import uk.ac.ebi.ena.readtools.loader.common.converter.ConverterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
 import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterMemoryLimitException;
+import uk.ac.ebi.ena.readtools.metrics.Metrics;
 import uk.ac.ebi.ena.readtools.sam.Sam2Fastq;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
+import uk.ac.ebi.ena.readtools.utils.ChecksumsTest;
 import uk.ac.ebi.ena.readtools.utils.Utils;
 
 /**
@@ -115,6 +121,214 @@ public class Fastq2SamTest {
     assertBamMatchesFastqInputs(params);
   }
 
+  @Test
+  public void pairedFastqQuerynameOrder() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.sort_threads = 2;
+
+    new Fastq2Sam().create(params);
+
+    try (SamReader samReader = SamReaderFactory.makeDefault().open(new File(params.data_file))) {
+      Assert.assertEquals(
+          SAMFileHeader.SortOrder.queryname, samReader.getFileHeader().getSortOrder());
+
+      SAMRecord previous = null;
+      for (SAMRecord rec : samReader) {
+        if (previous != null) {
+          Assert.assertTrue(new SAMRecordQueryNameComparator().compare(previous, rec) <= 0);
+        }
+        previous = rec;
+      }
+    }
+    assertBamMatchesFastqInputs(params);
+  }
+
+  @Test
+  public void pairedFastqCollated() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.pair_order = Fastq2BamWriter.PairOrder.COLLATED.name();
+
+    new Fastq2Sam().create(params);
+
+    try (SamReader samReader = SamReaderFactory.makeDefault().open(new File(params.data_file))) {
+      SAMFileHeader header = samReader.getFileHeader();
+      Assert.assertEquals(SAMFileHeader.SortOrder.unsorted, header.getSortOrder());
+      Assert.assertEquals(SAMFileHeader.GroupOrder.query, header.getGroupOrder());
+
+      SAMRecord first = null;
+      for (SAMRecord rec : samReader) {
+        if (first != null) {
+          Assert.assertTrue(rec.getSecondOfPairFlag());
+          Assert.assertEquals(first.getReadName(), rec.getReadName());
+          first = null;
+        } else if (rec.getReadPairedFlag()) {
+          Assert.assertTrue(rec.getFirstOfPairFlag());
+          first = rec;
+        }
+      }
+      Assert.assertNull(first);
+    }
+    assertBamMatchesFastqInputs(params);
+  }
+
+  @Test
+  public void pairedFastqParallelCompression() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.compression_level = 1;
+    params.compression_threads = 3;
+
+    new Fastq2Sam().create(params);
+
+    try (SamReader samReader = SamReaderFactory.makeDefault().open(new File(params.data_file))) {
+      Assert.assertEquals(
+          SAMFileHeader.SortOrder.queryname, samReader.getFileHeader().getSortOrder());
+    }
+    Assert.assertEquals(
+        BlockCompressedInputStream.FileTermination.HAS_TERMINATOR_BLOCK,
+        BlockCompressedInputStream.checkTermination(new File(params.data_file)));
+    assertBamMatchesFastqInputs(params);
+  }
+
+  @Test
+  public void pairedFastqCram() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.data_file = Files.createTempFile(null, ".cram").toString();
+
+    new Fastq2Sam().create(params);
+
+    assertCram(params);
+  }
+
+  @Test
+  public void pairedFastqParallelCram() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.data_file = Files.createTempFile(null, ".cram").toString();
+    params.compression_threads = 3;
+    // Small slices and containers to write many of them.
+    params.cram_reads_per_slice = 3;
+    params.cram_slices_per_container = 2;
+
+    new Fastq2Sam().create(params);
+
+    assertCram(params);
+  }
+
+  @Test
+  public void singleFastqParallelParse() throws IOException {
+    // Large enough to be split into several parts.
+    int readCount = 60_000;
+    Path fastq = Files.createTempFile(null, ".fastq");
+    fastq.toFile().deleteOnExit();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < readCount; i++) {
+      sb.append("@read").append(i).append('\n');
+      sb.append("ACGTACGTAC".repeat(10)).append('\n');
+      sb.append("+\n");
+      sb.append("IIIIIIIIII".repeat(10)).append('\n');
+    }
+    Files.write(fastq, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+    Fastq2Sam.Params params = new Fastq2Sam.Params();
+    params.tmp_root = System.getProperty("java.io.tmpdir");
+    params.sample_name = "SM-001";
+    params.data_file = Files.createTempFile(null, ".bam").toString();
+    params.compression = FileCompression.NONE.name();
+    params.files = Arrays.asList(fastq.toString());
+    params.parse_threads = 3;
+
+    Fastq2Sam fastq2Sam = new Fastq2Sam();
+    fastq2Sam.create(params);
+
+    Assert.assertEquals(readCount, fastq2Sam.getTotalReadCount());
+    Assert.assertEquals(readCount * 100L, fastq2Sam.getTotalBaseCount());
+    try (SamReader samReader = SamReaderFactory.makeDefault().open(new File(params.data_file))) {
+      int i = 0;
+      for (SAMRecord rec : samReader) {
+        Assert.assertEquals("read" + i++, rec.getReadName());
+      }
+      Assert.assertEquals(readCount, i);
+    }
+    assertBamMatchesFastqInputs(params);
+  }
+
+  @Test
+  public void pairedFastqChecksums() throws IOException {
+    for (String extension : Arrays.asList(".bam", ".sam", ".cram")) {
+      for (int threads : new int[] {0, 2}) {
+        Fastq2Sam.Params params = pairedParams();
+        params.data_file = Files.createTempFile(null, extension).toString();
+        params.compression_threads = threads;
+        params.checksum_methods = Arrays.asList("MD5", "SHA256");
+
+        Fastq2Sam fastq2Sam = new Fastq2Sam();
+        fastq2Sam.create(params);
+
+        Assert.assertEquals(8, fastq2Sam.getTotalReadCount());
+        List<String> files = new ArrayList<>(params.files);
+        files.add(params.data_file);
+        Assert.assertEquals(files, new ArrayList<>(fastq2Sam.getChecksums().keySet()));
+        for (Map.Entry<String, Checksums> entry : fastq2Sam.getChecksums().entrySet()) {
+          ChecksumsTest.assertChecksums(
+              Files.readAllBytes(Paths.get(entry.getKey())), entry.getValue());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void pairedFastqMetrics() throws IOException {
+    Fastq2Sam.Params params = pairedParams();
+    params.data_file = Files.createTempFile(null, ".bam").toString();
+    long readsIn = Metrics.READS_IN.get();
+    long pairsAssembled = Metrics.PAIRS_ASSEMBLED.get();
+    long orphans = Metrics.ORPHANS.get();
+
+    new Fastq2Sam().create(params);
+
+    Assert.assertEquals(8, Metrics.READS_IN.get() - readsIn);
+    Assert.assertEquals(3, Metrics.PAIRS_ASSEMBLED.get() - pairsAssembled);
+    Assert.assertEquals(2, Metrics.ORPHANS.get() - orphans);
+  }
+
+  private static void assertCram(Fastq2Sam.Params params) throws IOException {
+    try (SamReader samReader = SamReaderFactory.makeDefault().open(new File(params.data_file))) {
+      Assert.assertEquals(SamReader.Type.CRAM_TYPE, samReader.type());
+      Assert.assertEquals(
+          SAMFileHeader.SortOrder.queryname, samReader.getFileHeader().getSortOrder());
+
+      String previous = "";
+      for (SAMRecord record : samReader) {
+        Assert.assertTrue(record.getReadUnmappedFlag());
+        Assert.assertTrue(previous.compareTo(record.getReadName()) <= 0);
+        previous = record.getReadName();
+      }
+    }
+    assertBamMatchesFastqInputs(params);
+  }
+
+  private static Fastq2Sam.Params pairedParams() throws IOException {
+    Fastq2Sam.Params params = new Fastq2Sam.Params();
+    params.tmp_root = System.getProperty("java.io.tmpdir");
+    params.sample_name = "SM-001";
+    params.data_file = Files.createTempFile(null, ".bam").toString();
+    params.compression = FileCompression.NONE.name();
+    params.files =
+        Arrays.asList(
+            new File(
+                    Fastq2SamTest.class
+                        .getClassLoader()
+                        .getResource("fastq_spots_correct_paired_with_unpaired_1.txt")
+                        .getFile())
+                .getAbsolutePath(),
+            new File(
+                    Fastq2SamTest.class
+                        .getClassLoader()
+                        .getResource("fastq_spots_correct_paired_with_unpaired_2.txt")
+                        .getFile())
+                .getAbsolutePath());
+    return params;
+  }
+
   @Test
   public void pairedFastqCasavaLikeNoPairNum()
       throws IOException, ConverterException, ReadWriterException {
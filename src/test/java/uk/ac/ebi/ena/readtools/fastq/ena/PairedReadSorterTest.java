@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.loader.fastq.PairedRead;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+
+public class PairedReadSorterTest {
+  @Test
+  public void testInMemory() throws IOException {
+    assertSorted(randomSpots(1_000, 10), PairedReadSorter.DEFAULT_BUFFER_BYTES, 2, 0);
+  }
+
+  @Test
+  public void testRuns() throws IOException {
+    // The smallest buffers hold 64KiB, so a few megabytes of spots spill several runs.
+    assertSorted(randomSpots(20_000, 100), 1, 3, 2);
+  }
+
+  @Test
+  public void testIntermediateMerges() throws IOException {
+    List<PairedRead> spots = randomSpots(60_000, 150);
+    long runs = assertSorted(spots, 1, 2, PairedReadSorter.MAX_MERGE_WIDTH + 1);
+    Assert.assertTrue(runs > PairedReadSorter.MAX_MERGE_WIDTH);
+  }
+
+  @Test
+  public void testCleansUp() throws IOException {
+    Path tempDir = Files.createTempDirectory("sorter-test");
+    try (PairedReadSorter sorter = new PairedReadSorter(tempDir, 1, 2)) {
+      for (PairedRead spot : randomSpots(5_000, 100)) {
+        sorter.add(spot);
+      }
+      Assert.assertTrue(sorter.getRunCount() > 0);
+    }
+
+    try (Stream<Path> files = Files.list(tempDir)) {
+      Assert.assertEquals(0, files.count());
+    }
+    Files.delete(tempDir);
+  }
+
+  /**
+   * @return Number of runs written.
+   */
+  private static long assertSorted(
+      List<PairedRead> spots, long bufferBytes, int threads, int minRuns) throws IOException {
+    List<PairedRead> expected = new ArrayList<>(spots);
+    // Stable, so spots with equal names stay in the order they were added in.
+    expected.sort(Comparator.comparing(spot -> spot.name));
+
+    List<PairedRead> actual = new ArrayList<>();
+    int runs;
+    try (PairedReadSorter sorter = new PairedReadSorter(null, bufferBytes, threads)) {
+      for (PairedRead spot : spots) {
+        sorter.add(spot);
+      }
+      runs = sorter.getRunCount();
+      Assert.assertTrue(runs >= minRuns);
+      Assert.assertEquals(spots.size(), sorter.getAddCount());
+
+      sorter.writeSorted(actual::add);
+    }
+
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+      Assert.assertEquals(
+          getDefaultReadIndex(expected.get(i).forward), getDefaultReadIndex(actual.get(i).forward));
+      Assert.assertEquals(
+          getDefaultReadIndex(expected.get(i).reverse), getDefaultReadIndex(actual.get(i).reverse));
+    }
+    return runs;
+  }
+
+  private static String getDefaultReadIndex(Read read) {
+    return read == null ? null : read.getDefaultReadIndex();
+  }
+
+  private static List<PairedRead> randomSpots(int count, int length) {
+    Random random = new Random(count);
+    List<PairedRead> spots = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      // Few enough distinct names to have duplicates.
+      String name = "SPOT:" + random.nextInt(count) + (0 == i % 97 ? "é" : "");
+      Read forward = random.nextInt(10) > 0 ? randomRead(random, name + "/1", length, "1") : null;
+      Read reverse =
+          null == forward || random.nextBoolean()
+              ? randomRead(random, name + "/2", length, null)
+              : null;
+      spots.add(new PairedRead(name, forward, reverse));
+    }
+    return spots;
+  }
+
+  private static Read randomRead(Random random, String name, int length, String defaultReadIndex) {
+    StringBuilder bases = new StringBuilder();
+    StringBuilder qualities = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      bases.append("ACGTN".charAt(random.nextInt(5)));
+      qualities.append((char) ('!' + random.nextInt(41)));
+    }
+    return new Read(name, bases.toString(), qualities.toString(), defaultReadIndex);
+  }
+}
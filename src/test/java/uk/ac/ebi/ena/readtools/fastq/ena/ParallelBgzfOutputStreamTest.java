@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelBgzfOutputStreamTest {
+  @Test
+  public void testCompressible() throws IOException {
+    Random random = new Random(1);
+    byte[] data = new byte[1_000_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) "ACGT".charAt(random.nextInt(4));
+    }
+    assertRoundTrip(data, 6, 3);
+  }
+
+  @Test
+  public void testIncompressible() throws IOException {
+    byte[] data = new byte[300_000];
+    new Random(2).nextBytes(data);
+    assertRoundTrip(data, 9, 2);
+  }
+
+  @Test
+  public void testStored() throws IOException {
+    byte[] data = new byte[200_000];
+    new Random(3).nextBytes(data);
+    assertRoundTrip(data, 0, 1);
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    ByteArrayOutputStream bgzf = new ByteArrayOutputStream();
+    new ParallelBgzfOutputStream(bgzf, 5, 2).close();
+    Assert.assertArrayEquals(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK, bgzf.toByteArray());
+  }
+
+  private static void assertRoundTrip(byte[] data, int level, int threads) throws IOException {
+    ByteArrayOutputStream bgzf = new ByteArrayOutputStream();
+    Random random = new Random(data.length);
+    try (ParallelBgzfOutputStream out = new ParallelBgzfOutputStream(bgzf, level, threads)) {
+      int position = 0;
+      while (position < data.length) {
+        if (random.nextInt(10) == 0) {
+          out.write(data[position++]);
+        } else {
+          int length = Math.min(data.length - position, random.nextInt(100_000));
+          out.write(data, position, length);
+          position += length;
+        }
+        if (random.nextInt(50) == 0) {
+          out.flush();
+        }
+      }
+    }
+
+    byte[] bytes = bgzf.toByteArray();
+    assertBlocks(bytes);
+
+    ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[8192];
+      for (int read; (read = in.read(buffer)) > 0; ) {
+        inflated.write(buffer, 0, read);
+      }
+    }
+    Assert.assertArrayEquals(data, inflated.toByteArray());
+  }
+
+  /** Checks the BGZF block sizes add up and the end-of-file marker. */
+  private static void assertBlocks(byte[] bytes) {
+    int position = 0;
+    int blocks = 0;
+    while (position < bytes.length) {
+      Assert.assertEquals(31, bytes[position]);
+      Assert.assertEquals('B', bytes[position + 12]);
+      Assert.assertEquals('C', bytes[position + 13]);
+      int blockSize = ((bytes[position + 16] & 0xff) | (bytes[position + 17] & 0xff) << 8) + 1;
+      int uncompressed = readInt(bytes, position + blockSize - 4);
+      Assert.assertTrue(uncompressed <= ParallelBgzfOutputStream.BLOCK_SIZE);
+      position += blockSize;
+      blocks++;
+    }
+    Assert.assertEquals(bytes.length, position);
+    Assert.assertTrue(blocks > 1);
+    Assert.assertArrayEquals(
+        BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK,
+        Arrays.copyOfRange(
+            bytes,
+            bytes.length - BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length,
+            bytes.length));
+  }
+
+  private static int readInt(byte[] bytes, int position) {
+    return (bytes[position] & 0xff)
+        | (bytes[position + 1] & 0xff) << 8
+        | (bytes[position + 2] & 0xff) << 16
+        | (bytes[position + 3] & 0xff) << 24;
+  }
+}
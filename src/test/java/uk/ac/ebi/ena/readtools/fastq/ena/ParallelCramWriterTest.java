@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.fastq.ena;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.cram.build.CramContainerIterator;
+import htsjdk.samtools.cram.structure.CRAMEncodingStrategy;
+import htsjdk.samtools.cram.structure.Container;
+import htsjdk.samtools.cram.structure.Slice;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelCramWriterTest {
+  @Test
+  public void testRecordCountersRunAcrossContainers() throws IOException {
+    CRAMEncodingStrategy strategy =
+        new CRAMEncodingStrategy()
+            .setMinimumSingleReferenceSliceSize(3)
+            .setReadsPerSlice(3)
+            .setSlicesPerContainer(2);
+    SAMFileHeader header = new SAMFileHeader();
+    int recordCount = 20;
+
+    ByteArrayOutputStream cram = new ByteArrayOutputStream();
+    try (ParallelCramWriter writer =
+        new ParallelCramWriter(header, cram, "test.cram", strategy, 3)) {
+      for (int i = 0; i < recordCount; i++) {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName("read" + i);
+        record.setReadString("ACGTACGT");
+        record.setBaseQualityString("IIIIIIII");
+        record.setReadUnmappedFlag(true);
+        writer.addAlignment(record);
+      }
+    }
+
+    long records = 0;
+    int containers = 0;
+    try (CramContainerIterator iterator =
+        new CramContainerIterator(new ByteArrayInputStream(cram.toByteArray()))) {
+      while (iterator.hasNext()) {
+        Container container = iterator.next();
+        if (container.isEOF()) {
+          continue;
+        }
+        Assert.assertEquals(records, container.getContainerHeader().getGlobalRecordCounter());
+        for (Slice slice : container.getSlices()) {
+          Assert.assertEquals(records, slice.getGlobalRecordCounter());
+          records += slice.getNumberOfRecords();
+        }
+        containers++;
+      }
+    }
+    Assert.assertEquals(recordCount, records);
+    Assert.assertEquals(4, containers);
+
+    try (SamReader reader =
+        SamReaderFactory.makeDefault()
+            .validationStringency(ValidationStringency.SILENT)
+            .open(SamInputResource.of(new ByteArrayInputStream(cram.toByteArray())))) {
+      int i = 0;
+      for (SAMRecord record : reader) {
+        Assert.assertEquals("read" + i++, record.getReadName());
+      }
+      Assert.assertEquals(recordCount, i);
+    }
+  }
+
+  @Test
+  public void testClosesOutputWhenEncodingFails() {
+    SAMFileHeader header = new SAMFileHeader();
+    header.addSequence(new SAMSequenceRecord("chr1", 100));
+    AtomicBoolean closed = new AtomicBoolean();
+    OutputStream cram =
+        new ByteArrayOutputStream() {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+
+    ParallelCramWriter writer =
+        new ParallelCramWriter(header, cram, "test.cram", new CRAMEncodingStrategy(), 2);
+    // Mapped records need a reference, which unaligned CRAM files do not have.
+    SAMRecord record = new SAMRecord(header);
+    record.setReadName("read");
+    record.setReferenceName("chr1");
+    record.setAlignmentStart(1);
+    record.setCigarString("8M");
+    record.setReadString("ACGTACGT");
+    record.setBaseQualityString("IIIIIIII");
+    writer.addAlignment(record);
+
+    try {
+      writer.close();
+      Assert.fail();
+    } catch (RuntimeException e) {
+      Assert.assertTrue(closed.get());
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedFileInputStreamTest {
+  // Small mappings, so that the test file needs many.
+  private static final int MAPPING_SIZE = 7;
+
+  @Test
+  public void testReadsAcrossMappings() throws IOException {
+    byte[] content = content(1000);
+    File file = write(content);
+
+    try (MappedFileInputStream inputStream =
+        new MappedFileInputStream(file, 0, Long.MAX_VALUE, MAPPING_SIZE)) {
+      for (int i = 0; i < content.length; i++) {
+        Assert.assertEquals(i, inputStream.getPosition());
+        Assert.assertEquals(content[i] & 0xff, inputStream.read());
+      }
+      Assert.assertEquals(-1, inputStream.read());
+    }
+
+    try (MappedFileInputStream inputStream =
+        new MappedFileInputStream(file, 0, Long.MAX_VALUE, MAPPING_SIZE)) {
+      Assert.assertArrayEquals(content, readAll(inputStream));
+    }
+  }
+
+  @Test
+  public void testReadsRange() throws IOException {
+    byte[] content = content(1000);
+    File file = write(content);
+
+    try (MappedFileInputStream inputStream =
+        new MappedFileInputStream(file, 100, 900, MAPPING_SIZE)) {
+      Assert.assertEquals(800, inputStream.available());
+      Assert.assertArrayEquals(Arrays.copyOfRange(content, 100, 900), readAll(inputStream));
+      Assert.assertEquals(0, inputStream.available());
+    }
+  }
+
+  @Test
+  public void testSkips() throws IOException {
+    byte[] content = content(1000);
+    File file = write(content);
+
+    try (MappedFileInputStream inputStream =
+        new MappedFileInputStream(file, 0, Long.MAX_VALUE, MAPPING_SIZE)) {
+      Assert.assertEquals(content[0] & 0xff, inputStream.read());
+      // Within the mapping, then beyond it.
+      Assert.assertEquals(3, inputStream.skip(3));
+      Assert.assertEquals(content[4] & 0xff, inputStream.read());
+      Assert.assertEquals(500, inputStream.skip(500));
+      Assert.assertEquals(content[505] & 0xff, inputStream.read());
+      Assert.assertEquals(494, inputStream.skip(Long.MAX_VALUE));
+      Assert.assertEquals(-1, inputStream.read());
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    try (MappedFileInputStream inputStream = new MappedFileInputStream(write(new byte[0]))) {
+      Assert.assertEquals(-1, inputStream.read());
+      Assert.assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+    }
+  }
+
+  @Test
+  public void testOpensPlainFilesMapped() throws IOException {
+    File file = new File("src/test/resources/fastq_spots_correct.txt");
+    try (InputStream inputStream = FileCompression.open(file)) {
+      Assert.assertTrue(inputStream instanceof MappedFileInputStream);
+      Assert.assertArrayEquals(Files.readAllBytes(file.toPath()), readAll(inputStream));
+    }
+  }
+
+  private static byte[] content(int length) {
+    byte[] content = new byte[length];
+    for (int i = 0; i < length; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  private static File write(byte[] content) throws IOException {
+    File file = File.createTempFile("mapped", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  private static byte[] readAll(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[13];
+    int read;
+    while ((read = inputStream.read(buffer, 0, buffer.length)) >= 0) {
+      outputStream.write(buffer, 0, read);
+    }
+    return outputStream.toByteArray();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefetchingIteratorTest {
+  @Test
+  public void testKeepsOrder() {
+    try (PrefetchingIterator<Integer> iterator =
+        new PrefetchingIterator<>(new CountingIterator(10000, -1), 3, 7)) {
+      for (int i = 0; i < 10000; i++) {
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(i, (int) iterator.next());
+      }
+      Assert.assertFalse(iterator.hasNext());
+      try {
+        iterator.next();
+        Assert.fail();
+      } catch (NoSuchElementException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testThrowsAfterElementsTakenBefore() {
+    try (PrefetchingIterator<Integer> iterator =
+        new PrefetchingIterator<>(new CountingIterator(10000, 1234), 3, 100)) {
+      for (int i = 0; i < 1234; i++) {
+        Assert.assertEquals(i, (int) iterator.next());
+      }
+      try {
+        iterator.hasNext();
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        Assert.assertEquals("1234", e.getMessage());
+      }
+      Assert.assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testCloseStopsProducer() throws InterruptedException {
+    CountingIterator source = new CountingIterator(Integer.MAX_VALUE, -1);
+    PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(source, 2, 10);
+    Assert.assertEquals(0, (int) iterator.next());
+    iterator.close();
+    Assert.assertFalse(iterator.hasNext());
+
+    // The producer stops at the full queue, after at most the batches it holds and one more.
+    Thread.sleep(100);
+    int taken = source.taken.get();
+    Assert.assertTrue(String.valueOf(taken), taken <= 40);
+    Thread.sleep(100);
+    Assert.assertEquals(taken, source.taken.get());
+  }
+
+  private static class CountingIterator implements Iterator<Integer> {
+    final AtomicInteger taken = new AtomicInteger();
+    private final int size;
+    private final int failAt;
+
+    CountingIterator(int size, int failAt) {
+      this.size = size;
+      this.failAt = failAt;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return taken.get() < size;
+    }
+
+    @Override
+    public Integer next() {
+      int next = taken.getAndIncrement();
+      if (failAt == next) {
+        throw new IllegalStateException(String.valueOf(next));
+      }
+      return next;
+    }
+  }
+}
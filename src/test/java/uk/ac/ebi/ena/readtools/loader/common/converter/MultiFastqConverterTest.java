@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
+import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+
+public class MultiFastqConverterTest {
+  private static final String[] FILES = {
+    "src/test/resources/T966_R1.fastq.gz", "src/test/resources/T966_R2.fastq.gz"
+  };
+
+  @Test
+  public void testBatchesMatchSingleReads() throws IOException {
+    ListReadWriter single = new ListReadWriter();
+    MultiFastqConverter<Spot> converter = new MultiFastqConverter<>(open(FILES), single);
+    converter.run();
+
+    BatchListReadWriter batched = new BatchListReadWriter();
+    MultiFastqConverter<Spot> batchConverter = new MultiFastqConverter<>(open(FILES), batched);
+    batchConverter.run();
+
+    Assert.assertTrue(batched.batches > 1);
+    Assert.assertEquals(single.reads.size(), batched.reads.size());
+    for (int i = 0; i < single.reads.size(); i++) {
+      Assert.assertEquals(single.reads.get(i).toString(), batched.reads.get(i).toString());
+      Assert.assertEquals(
+          single.reads.get(i).getDefaultReadIndex(), batched.reads.get(i).getDefaultReadIndex());
+    }
+    Assert.assertEquals(converter.getReadCount(), batchConverter.getReadCount());
+    Assert.assertEquals(converter.getBaseCount(), batchConverter.getBaseCount());
+  }
+
+  @Test
+  public void testReadLimit() throws IOException {
+    BatchListReadWriter batched = new BatchListReadWriter();
+    new MultiFastqConverter<>(open(FILES), batched, 5L).run();
+
+    Assert.assertEquals(5, batched.reads.size());
+  }
+
+  private static List<InputStream> open(String... files) throws IOException {
+    List<InputStream> istreams = new ArrayList<>();
+    for (String file : files) {
+      istreams.add(new GZIPInputStream(Files.newInputStream(Paths.get(file))));
+    }
+    return istreams;
+  }
+
+  private static class ListReadWriter implements ReadWriter<Read, Spot> {
+    final List<Read> reads = new ArrayList<>();
+
+    @Override
+    public void write(Read spot) throws ReadWriterException {
+      reads.add(spot);
+    }
+
+    @Override
+    public void cascadeErrors() throws ReadWriterException {}
+
+    @Override
+    public void setWriter(ReadWriter<Spot, ? extends Spot> readWriter) {}
+  }
+
+  private static class BatchListReadWriter extends ListReadWriter implements ReadBatchWriter<Spot> {
+    int batches;
+
+    @Override
+    public void write(ReadBatch batch) throws ReadWriterException {
+      batches++;
+      ReadBatchWriter.super.write(batch);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.common.converter;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadBatchWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
+import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
+
+public class ParallelFastqConverterTest {
+  private static final int RECORDS = 20000;
+  // Small parts, so that the test files are split into many.
+  private static final long PART_SIZE = 64 * 1024;
+
+  @Test
+  public void testUncompressedMatchesSequential() throws IOException {
+    File file = write(false, ParallelFastqConverterTest::record);
+    assertSameReads(file, new ListReadWriter());
+    assertSameReads(file, new BatchListReadWriter());
+  }
+
+  @Test
+  public void testBlockCompressedMatchesSequential() throws IOException {
+    File file = write(true, ParallelFastqConverterTest::record);
+    assertSameReads(file, new ListReadWriter());
+    assertSameReads(file, new BatchListReadWriter());
+  }
+
+  @Test
+  public void testErrorMatchesSequential() throws IOException {
+    // Quality scores too short, far into the file.
+    File file = write(false, i -> 17000 == i ? "@r" + i + "\nACGT\n+\n!!!\n" : record(i));
+    assertSameError(file);
+  }
+
+  @Test
+  public void testReadStyleMatchesSequential() throws IOException {
+    // Casava 1.8 names, then a plain name that the sequential reader does not accept.
+    File file =
+        write(
+            true,
+            i ->
+                (15000 == i ? "@plain" : "@A00:1:FC:1:1:" + i + ":1 1:N:0:ACGT")
+                    + "\nACGT\n+\n!!!!\n");
+    assertSameError(file);
+  }
+
+  @Test
+  public void testMultiLineBasesMatchSequential() throws IOException {
+    File file = write(false, i -> "@r" + i + "\nACGT\nTTGA\n+\n@!!!\n!!!!\n");
+    assertSameReads(file, new BatchListReadWriter());
+  }
+
+  @Test
+  public void testReadLimit() throws IOException {
+    File file = write(false, ParallelFastqConverterTest::record);
+    BatchListReadWriter batched = new BatchListReadWriter();
+    ParallelFastqConverter<Spot> converter =
+        new ParallelFastqConverter<>(file, null, batched, 12345L, 4, PART_SIZE);
+    converter.run();
+
+    Assert.assertEquals(12345, batched.reads.size());
+    Assert.assertEquals(12345, converter.getReadCount());
+    Assert.assertTrue(converter.isDone());
+  }
+
+  @Test
+  public void testRunOnce() throws IOException {
+    File file = write(true, ParallelFastqConverterTest::record);
+    ListReadWriter single = new ListReadWriter();
+    ParallelFastqConverter<Spot> converter =
+        new ParallelFastqConverter<>(file, null, single, null, 4, PART_SIZE);
+    converter.runOnce();
+    converter.runOnce();
+    Assert.assertEquals(2, single.reads.size());
+
+    converter.run();
+    Assert.assertEquals(RECORDS, single.reads.size());
+    Assert.assertEquals(
+        record(RECORDS - 1).split("\n")[1], single.reads.get(RECORDS - 1).getBases());
+  }
+
+  private static void assertSameReads(File file, ListReadWriter parallel) throws IOException {
+    ListReadWriter sequential = new ListReadWriter();
+    MultiFastqConverter<Spot> converter = new MultiFastqConverter<>(open(file), sequential);
+    converter.run();
+
+    ParallelFastqConverter<Spot> parallelConverter =
+        new ParallelFastqConverter<>(file, null, parallel, null, 4, PART_SIZE);
+    parallelConverter.run();
+
+    Assert.assertEquals(RECORDS, sequential.reads.size());
+    Assert.assertEquals(sequential.reads.size(), parallel.reads.size());
+    for (int i = 0; i < sequential.reads.size(); i++) {
+      Assert.assertEquals(sequential.reads.get(i).toString(), parallel.reads.get(i).toString());
+      Assert.assertEquals(
+          sequential.reads.get(i).getDefaultReadIndex(),
+          parallel.reads.get(i).getDefaultReadIndex());
+    }
+    Assert.assertEquals(converter.getReadCount(), parallelConverter.getReadCount());
+    Assert.assertEquals(converter.getBaseCount(), parallelConverter.getBaseCount());
+    Assert.assertTrue(parallelConverter.isDone());
+  }
+
+  private static void assertSameError(File file) throws IOException {
+    ListReadWriter sequential = new ListReadWriter();
+    MultiFastqConverter<Spot> converter = new MultiFastqConverter<>(open(file), sequential);
+    ConverterException expected = null;
+    try {
+      converter.run();
+    } catch (ConverterException e) {
+      expected = e;
+    }
+    Assert.assertNotNull(expected);
+
+    BatchListReadWriter parallel = new BatchListReadWriter();
+    ParallelFastqConverter<Spot> parallelConverter =
+        new ParallelFastqConverter<>(file, null, parallel, null, 4, PART_SIZE);
+    try {
+      parallelConverter.run();
+      Assert.fail();
+    } catch (ConverterException e) {
+      Assert.assertTrue(expected.getLineNo() > 0);
+      Assert.assertEquals(expected.getLineNo(), e.getLineNo());
+      Assert.assertEquals(expected.toString(), e.toString());
+    }
+    Assert.assertEquals(sequential.reads.size(), parallel.reads.size());
+    Assert.assertEquals(converter.getReadCount(), parallelConverter.getReadCount());
+    Assert.assertEquals(converter.getBaseCount(), parallelConverter.getBaseCount());
+  }
+
+  private static String record(int i) {
+    StringBuilder bases = new StringBuilder();
+    StringBuilder qualities = new StringBuilder();
+    for (int j = 0; j < 20 + i % 31; j++) {
+      bases.append("ACGT".charAt((i + j) % 4));
+      qualities.append(0 == j ? '@' : (char) ('!' + (i + j) % 40));
+    }
+    return "@r" + i + "\n" + bases + "\n+\n" + qualities + "\n";
+  }
+
+  private static File write(boolean blockCompressed, IntFunction<String> record)
+      throws IOException {
+    File file = File.createTempFile("parallel", blockCompressed ? ".fastq.gz" : ".fastq");
+    file.deleteOnExit();
+    try (OutputStream outputStream =
+        blockCompressed
+            ? new BlockCompressedOutputStream(file)
+            : Files.newOutputStream(file.toPath())) {
+      for (int i = 0; i < RECORDS; i++) {
+        outputStream.write(record.apply(i).getBytes(StandardCharsets.US_ASCII));
+      }
+    }
+    return file;
+  }
+
+  private static List<InputStream> open(File file) throws IOException {
+    InputStream inputStream = Files.newInputStream(file.toPath());
+    return Collections.singletonList(
+        file.getName().endsWith(".gz") ? new BlockCompressedInputStream(inputStream) : inputStream);
+  }
+
+  private static class ListReadWriter implements ReadWriter<Read, Spot> {
+    final List<Read> reads = new ArrayList<>();
+
+    @Override
+    public void write(Read spot) throws ReadWriterException {
+      reads.add(spot);
+    }
+
+    @Override
+    public void cascadeErrors() throws ReadWriterException {}
+
+    @Override
+    public void setWriter(ReadWriter<Spot, ? extends Spot> readWriter) {}
+  }
+
+  private static class BatchListReadWriter extends ListReadWriter implements ReadBatchWriter<Spot> {
+    @Override
+    public void write(ReadBatch batch) throws ReadWriterException {
+      ReadBatchWriter.super.write(batch);
+    }
+  }
+}
@@ -19,6 +19,7 @@ import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
 import uk.ac.ebi.ena.readtools.common.reads.normalizers.htsjdk.StandardQualityNormalizer;
 import uk.ac.ebi.ena.readtools.loader.common.InvalidBaseCharacterException;
 import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.loader.fastq.ReadBatch;
 
 public class ReadReaderTest {
 
@@ -210,4 +211,52 @@ public class ReadReaderTest {
       ds.read(is);
     }
   }
+
+  @Test
+  public void testReadIntoBatch() throws Exception {
+    String fullInput =
+        String.join(
+            "\n",
+            "@RN-001/1",
+            "AGCTAGCT",
+            "+",
+            "FFFFFFFF",
+            "",
+            "@RN-002/1 comment",
+            "AGCT",
+            "AGCT",
+            "+RN-002/1",
+            "FFFF",
+            "#FFF",
+            "@RN-003/1",
+            "ACGT",
+            "+",
+            "30 31 32 33");
+
+    try (InputStream single = new ByteArrayInputStream(fullInput.getBytes(StandardCharsets.UTF_8));
+        InputStream batched =
+            new ByteArrayInputStream(fullInput.getBytes(StandardCharsets.UTF_8))) {
+      ReadReader singleReader = new ReadReader(new StandardQualityNormalizer(), "1");
+      ReadReader batchReader = new ReadReader(new StandardQualityNormalizer(), "1");
+      ReadBatch batch = new ReadBatch(3);
+
+      for (int i = 0; i < 3; i++) {
+        batchReader.read(batched, batch);
+      }
+
+      Assert.assertEquals(3, batch.size());
+      for (int i = 0; i < 3; i++) {
+        Read expected = singleReader.read(single);
+        Read actual = batch.getRead(i);
+        Assert.assertEquals(expected.toString(), actual.toString());
+        Assert.assertEquals("1", actual.getDefaultReadIndex());
+      }
+      Assert.assertEquals("RN-002/1 comment", batch.getName(1));
+      Assert.assertEquals("AGCTAGCT", batch.getBases(1));
+      // Space delimited scores, normalized to binary phred.
+      Assert.assertArrayEquals(
+          new byte[] {30, 31, 32, 33},
+          batch.getQualityScores(2).getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
 }
@@ -11,14 +11,18 @@
 package uk.ac.ebi.ena.readtools.loader.fastq;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.ebi.ena.readtools.common.reads.QualityNormalizer;
 import uk.ac.ebi.ena.readtools.common.reads.normalizers.htsjdk.StandardQualityNormalizer;
+import uk.ac.ebi.ena.readtools.loader.common.PrefetchingIterator;
 import uk.ac.ebi.ena.readtools.loader.fastq.FastqIterativeWriter.READ_TYPE;
 
 public class MultiFastqConverterIteratorTest {
@@ -129,4 +133,35 @@ public class MultiFastqConverterIteratorTest {
     if (3 != spot_count || base_count != 606) throw new RuntimeException("");
     System.out.printf("passed\n");
   }
+
+  @Test
+  public void iteratorPairedPrefetchingTest() {
+    FastqIterativeWriter wrapper = new FastqIterativeWriter();
+
+    wrapper.setFiles(
+        new File[] {
+          new File("src/test/resources/T966_R1.fastq.gz"),
+          new File("src/test/resources/T966_R2.fastq.gz")
+        });
+
+    wrapper.setNormalizers(new QualityNormalizer[] {new StandardQualityNormalizer()});
+    wrapper.setReadType(READ_TYPE.PAIRED);
+
+    List<String> expected = new ArrayList<>();
+    for (PairedRead is : wrapper) {
+      expected.add(is.forward.bases + is.reverse.bases);
+    }
+
+    wrapper.setPrefetchBatches(2);
+    List<String> prefetched = new ArrayList<>();
+    Iterator<PairedRead> i = wrapper.iterator();
+    Assert.assertTrue(i instanceof PrefetchingIterator);
+    while (i.hasNext()) {
+      PairedRead is = i.next();
+      prefetched.add(is.forward.bases + is.reverse.bases);
+    }
+
+    Assert.assertEquals(3829, expected.size());
+    Assert.assertEquals(expected, prefetched);
+  }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.loader.fastq;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadBatchTest {
+  @Test
+  public void testAdd() {
+    ReadBatch batch = new ReadBatch(3);
+    Assert.assertTrue(batch.isEmpty());
+
+    batch.add(new Read("read/1", "ACGT", "!#%'", "1"));
+    byte[] name = "read/2 and more".getBytes(StandardCharsets.US_ASCII);
+    byte[] bases = "GGCCAT".getBytes(StandardCharsets.US_ASCII);
+    byte[] qualities = "IIIIIIII".getBytes(StandardCharsets.US_ASCII);
+    batch.add(name, 6, bases, 5, qualities, 5, "2");
+
+    Assert.assertEquals(2, batch.size());
+    Assert.assertFalse(batch.isFull());
+    Assert.assertEquals(9, batch.getBaseCount());
+
+    assertRead(batch, 0, "read/1", "ACGT", "!#%'", "1");
+    assertRead(batch, 1, "read/2", "GGCCA", "IIIII", "2");
+
+    Assert.assertEquals(4, batch.getBasesOffset(1));
+    Assert.assertEquals(5, batch.getBasesLength(1));
+    Assert.assertEquals('G', batch.getBases()[batch.getBasesOffset(1)]);
+    Assert.assertEquals(6, batch.getNameOffset(1));
+    Assert.assertEquals(6, batch.getNameLength(1));
+    Assert.assertEquals(4, batch.getQualityScoresOffset(1));
+    Assert.assertEquals(5, batch.getQualityScoresLength(1));
+  }
+
+  @Test
+  public void testGrows() {
+    ReadBatch batch = new ReadBatch(2);
+    String bases = "A".repeat(100_000);
+    String qualities = "I".repeat(100_000);
+    batch.add(new Read("short", "ACGT", "IIII"));
+    batch.add(new Read("long", bases, qualities));
+
+    Assert.assertTrue(batch.isFull());
+    assertRead(batch, 0, "short", "ACGT", "IIII", null);
+    assertRead(batch, 1, "long", bases, qualities, null);
+  }
+
+  @Test
+  public void testFull() {
+    ReadBatch batch = new ReadBatch(1);
+    batch.add(new Read("read", "A", "I"));
+    try {
+      batch.add(new Read("read", "A", "I"));
+      Assert.fail();
+    } catch (IllegalStateException ignored) {
+    }
+  }
+
+  @Test
+  public void testClear() {
+    ReadBatch batch = new ReadBatch(2);
+    batch.add(new Read("read/1", "ACGT", "IIII", "1"));
+    batch.add(new Read("read/2", "ACGT", "IIII", "2"));
+    batch.clear();
+
+    Assert.assertTrue(batch.isEmpty());
+    Assert.assertEquals(0, batch.getBaseCount());
+    try {
+      batch.getRead(0);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException ignored) {
+    }
+
+    batch.add(new Read("other", "GG", "##"));
+    assertRead(batch, 0, "other", "GG", "##", null);
+  }
+
+  private static void assertRead(
+      ReadBatch batch,
+      int index,
+      String name,
+      String bases,
+      String qualityScores,
+      String defaultReadIndex) {
+    Read read = batch.getRead(index);
+    Assert.assertEquals(name, read.getName());
+    Assert.assertEquals(bases, read.getBases());
+    Assert.assertEquals(qualityScores, read.getQualityScores());
+    Assert.assertEquals(defaultReadIndex, read.getDefaultReadIndex());
+  }
+}
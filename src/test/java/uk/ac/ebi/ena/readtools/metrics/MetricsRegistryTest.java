@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+  @Test
+  public void testCountersAndTimers() throws InterruptedException {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter counter = registry.counter("reads");
+    Assert.assertSame(counter, registry.counter("reads"));
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  counter.increment();
+                }
+              }));
+    }
+    for (Thread thread : threads) thread.start();
+    for (Thread thread : threads) thread.join();
+    counter.add(5);
+    Assert.assertEquals(40005, counter.get());
+
+    Timer timer = registry.timer("spill");
+    timer.record(3_000_000);
+    timer.record(1_000_000);
+    Assert.assertTrue(timer.stop(timer.start()) >= 0);
+    Assert.assertEquals(3, timer.getCount());
+    Assert.assertTrue(timer.getTotalNanos() >= 4_000_000);
+    Assert.assertEquals(3_000_000, timer.getMaxNanos());
+  }
+
+  @Test
+  public void testJson() throws IOException {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("bases").add(42);
+    registry.timer("fill").record(2_000_000);
+    registry.timer("fill").record(4_000_000);
+
+    File file = File.createTempFile("metrics", ".json");
+    file.deleteOnExit();
+    registry.writeJson(file);
+
+    for (JsonNode json :
+        new JsonNode[] {
+          new ObjectMapper().readTree(registry.toJson()), new ObjectMapper().readTree(file)
+        }) {
+      Assert.assertEquals(42, json.path("counters").path("bases").path("count").asLong());
+      Assert.assertTrue(json.path("counters").path("bases").has("perSecond"));
+      JsonNode fill = json.path("timers").path("fill");
+      Assert.assertEquals(2, fill.path("count").asLong());
+      Assert.assertEquals(6.0, fill.path("totalMillis").asDouble(), 1e-9);
+      Assert.assertEquals(3.0, fill.path("meanMillis").asDouble(), 1e-9);
+      Assert.assertEquals(4.0, fill.path("maxMillis").asDouble(), 1e-9);
+    }
+  }
+
+  @Test
+  public void testMBean() throws JMException, IOException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(MetricsRegistry.OBJECT_NAME);
+    Metrics.READS_IN.add(7);
+    Metrics.SPILL.record(1_000_000);
+
+    Assert.assertTrue(server.isRegistered(name));
+    Assert.assertEquals(Metrics.READS_IN.get(), server.getAttribute(name, "reads.in"));
+    Assert.assertEquals(Metrics.SPILL.getCount(), server.getAttribute(name, "spill.count"));
+
+    List<String> attributes = new ArrayList<>();
+    for (MBeanAttributeInfo info : server.getMBeanInfo(name).getAttributes()) {
+      attributes.add(info.getName());
+    }
+    Assert.assertTrue(attributes.contains("pairs.assembled"));
+    Assert.assertTrue(attributes.contains("summary"));
+
+    JsonNode json = new ObjectMapper().readTree((String) server.getAttribute(name, "summary"));
+    Assert.assertTrue(json.path("counters").path("reads.in").path("count").asLong() >= 7);
+  }
+}
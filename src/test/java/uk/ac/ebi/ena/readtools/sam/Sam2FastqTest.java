@@ -18,8 +18,13 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
 import org.junit.Assert;
 import org.junit.Test;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
+import uk.ac.ebi.ena.readtools.utils.ChecksumsTest;
 
 /**
  * The expected TotalReadCount and TotalBaseCount in the following tests were calculated using these
@@ -138,6 +143,40 @@ public class Sam2FastqTest {
     assertFastqResult(baseDir + fileNamePrefix, output.getPath(), "_2");
   }
 
+  @Test
+  public void computesChecksumsWhileConverting() throws Exception {
+    String fileNamePrefix = "bam2fastq/1fastq/S0567a_E1_L1__aln.sort.mapped.rmdupse_adna_v2";
+    File input =
+        new File(getClass().getClassLoader().getResource(fileNamePrefix + ".bam").getFile());
+
+    File output = File.createTempFile("FASTQ", "FASTQ");
+    output.delete();
+
+    Sam2Fastq.Params params = new Sam2Fastq.Params();
+    params.samFile = input;
+    params.reverse = true;
+    params.nofStreams = 3;
+    params.fastqBaseName = output.getPath();
+    params.checksumMethods = Arrays.asList("MD5", "sha256");
+
+    Sam2Fastq sam2Fastq = new Sam2Fastq();
+    sam2Fastq.create(params);
+
+    assertFastqResult(fileNamePrefix, output.getPath(), "");
+    Assert.assertEquals(20l, sam2Fastq.getTotalReadCount());
+
+    // The input and the one FASTQ file written, the empty paired ones are deleted.
+    Map<String, Checksums> checksums = sam2Fastq.getChecksums();
+    Assert.assertEquals(
+        Arrays.asList(input.getPath(), output.getPath() + ".fastq"),
+        new ArrayList<>(checksums.keySet()));
+    for (Map.Entry<String, Checksums> entry : checksums.entrySet()) {
+      Assert.assertEquals(2, entry.getValue().getMethods().size());
+      ChecksumsTest.assertChecksums(
+          Files.readAllBytes(Paths.get(entry.getKey())), entry.getValue());
+    }
+  }
+
   @Test
   public void tracksVendorQualityCheckSkippedReads() throws Exception {
     File input = File.createTempFile("sam2fastq-qc-failed", ".sam");
@@ -168,6 +207,49 @@ public class Sam2FastqTest {
     Assert.assertEquals(0l, sam2Fastq.getTotalBaseCount());
   }
 
+  @Test
+  public void pairsMatesNotAdjacentInQuerynameSortedInput() throws Exception {
+    // The header claims queryname order, but the mates of read2 are apart.
+    File input = File.createTempFile("sam2fastq-queryname", ".sam");
+    Files.write(
+        input.toPath(),
+        ("@HD\tVN:1.6\tSO:queryname\n"
+                + "read1\t77\t*\t0\t0\t*\t*\t0\t0\tACGT\t!!!!\n"
+                + "read1\t141\t*\t0\t0\t*\t*\t0\t0\tTGCA\t####\n"
+                + "read2\t77\t*\t0\t0\t*\t*\t0\t0\tAAAA\t!!!!\n"
+                + "read3\t4\t*\t0\t0\t*\t*\t0\t0\tCCCC\t!!!!\n"
+                + "read4\t77\t*\t0\t0\t*\t*\t0\t0\tGGGG\t!!!!\n"
+                + "read2\t141\t*\t0\t0\t*\t*\t0\t0\tTTTT\t####\n"
+                + "read4\t141\t*\t0\t0\t*\t*\t0\t0\tCCGG\t####\n")
+            .getBytes(StandardCharsets.UTF_8));
+
+    File output = File.createTempFile("FASTQ", "FASTQ");
+    output.delete();
+
+    Sam2Fastq.Params params = new Sam2Fastq.Params();
+    params.samFile = input;
+    params.reverse = true;
+    params.nofStreams = 3;
+    params.fastqBaseName = output.getPath();
+
+    Sam2Fastq sam2Fastq = new Sam2Fastq();
+    sam2Fastq.create(params);
+
+    Assert.assertEquals(
+        "@read1/1\nACGT\n+\n!!!!\n@read2/1\nAAAA\n+\n!!!!\n@read4/1\nGGGG\n+\n!!!!\n",
+        new String(
+            Files.readAllBytes(Paths.get(output.getPath() + "_1.fastq")), StandardCharsets.UTF_8));
+    Assert.assertEquals(
+        "@read1/2\nTGCA\n+\n####\n@read2/2\nTTTT\n+\n####\n@read4/2\nCCGG\n+\n####\n",
+        new String(
+            Files.readAllBytes(Paths.get(output.getPath() + "_2.fastq")), StandardCharsets.UTF_8));
+    Assert.assertEquals(
+        "@read3\nCCCC\n+\n!!!!\n",
+        new String(
+            Files.readAllBytes(Paths.get(output.getPath() + ".fastq")), StandardCharsets.UTF_8));
+    Assert.assertEquals(7l, sam2Fastq.getTotalReadCount());
+  }
+
   private GeneratedFastqResult generateFastqFiles(String source) throws Exception {
     File output = File.createTempFile("FASTQ", "FASTQ");
     output.delete();
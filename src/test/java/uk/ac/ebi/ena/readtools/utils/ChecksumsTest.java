@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.loader.common.FileCompression;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile.ChecksumMethod;
+
+public class ChecksumsTest {
+  @Test
+  public void testOpenFastqInputStream() throws IOException {
+    for (String file :
+        Arrays.asList(
+            "src/test/resources/fastq_spots_correct.txt",
+            "src/test/resources/T966_R1.fastq.gz",
+            "src/test/resources/tst.fastq.bz2")) {
+      Path path = Paths.get(file);
+      Checksums checksums = new Checksums(ChecksumMethod.MD5, ChecksumMethod.SHA256);
+      try (InputStream inputStream = Utils.openFastqInputStream(path, checksums)) {
+        readAll(inputStream);
+      }
+      assertChecksums(Files.readAllBytes(path), checksums);
+    }
+  }
+
+  @Test
+  public void testFileCompressionOpen() throws IOException {
+    for (String file :
+        Arrays.asList(
+            "src/test/resources/fastq_spots_correct.txt", "src/test/resources/T966_R2.fastq.gz")) {
+      Checksums checksums = new Checksums(ChecksumMethod.MD5, ChecksumMethod.SHA256);
+      try (InputStream inputStream = FileCompression.open(new File(file), checksums)) {
+        readAll(inputStream);
+      }
+      assertChecksums(Files.readAllBytes(Paths.get(file)), checksums);
+    }
+  }
+
+  @Test
+  public void testTarEntryAndDrain() throws IOException {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream out = new TarArchiveOutputStream(tar)) {
+      for (String name : Arrays.asList("reads.fastq", "other")) {
+        byte[] content = content(50000);
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+      }
+    }
+
+    Checksums checksums = new Checksums(ChecksumMethod.MD5, ChecksumMethod.SHA256);
+    ChecksumInputStream checksumStream =
+        new ChecksumInputStream(new ByteArrayInputStream(tar.toByteArray()), checksums);
+    try (InputStream inputStream = FileCompression.NONE.open(checksumStream, true)) {
+      readAll(inputStream);
+      // Only the first entry is read.
+      Assert.assertTrue(checksums.getByteCount() < tar.size());
+      checksumStream.drain();
+    }
+    assertChecksums(tar.toByteArray(), checksums);
+  }
+
+  @Test
+  public void testSkipAndDrain() throws IOException {
+    byte[] content = content(100000);
+    Checksums checksums = new Checksums(ChecksumMethod.MD5);
+    try (ChecksumInputStream inputStream =
+        new ChecksumInputStream(new ByteArrayInputStream(content), checksums)) {
+      Assert.assertEquals(content[0] & 0xff, inputStream.read());
+      Assert.assertEquals(20000, inputStream.skip(20000));
+      Assert.assertEquals(content[20001] & 0xff, inputStream.read());
+      Assert.assertEquals(20002, checksums.getByteCount());
+      Assert.assertSame(checksums, inputStream.drain());
+    }
+    assertChecksums(content, checksums);
+  }
+
+  @Test
+  public void testOutputStream() throws IOException {
+    byte[] content = content(100000);
+    Checksums checksums = new Checksums(ChecksumMethod.SHA256, ChecksumMethod.MD5);
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    try (OutputStream outputStream = new ChecksumOutputStream(written, checksums)) {
+      outputStream.write(content[0]);
+      outputStream.write(content, 1, content.length - 1);
+    }
+    Assert.assertArrayEquals(content, written.toByteArray());
+    assertChecksums(content, checksums);
+  }
+
+  @Test
+  public void testKnownDigests() {
+    Checksums checksums = new Checksums(ChecksumMethod.MD5, ChecksumMethod.SHA256);
+    Assert.assertEquals("d41d8cd98f00b204e9800998ecf8427e", checksums.get(ChecksumMethod.MD5));
+    checksums.update("abc".getBytes(), 0, 3);
+    Assert.assertEquals("900150983cd24fb0d6963f7d28e17f72", checksums.get(ChecksumMethod.MD5));
+    Assert.assertTrue(checksums.matches(ChecksumMethod.MD5, "900150983CD24FB0D6963F7D28E17F72"));
+    Assert.assertEquals(
+        "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        checksums.get(ChecksumMethod.SHA256));
+    Assert.assertEquals(
+        "MD5: 900150983cd24fb0d6963f7d28e17f72; "
+            + "SHA-256: ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad; "
+            + "BYTES: 3",
+        checksums.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMethodNotComputed() {
+    new Checksums(ChecksumMethod.MD5).get(ChecksumMethod.SHA256);
+  }
+
+  /** Asserts that the checksums are those of the content. */
+  public static void assertChecksums(byte[] content, Checksums checksums) {
+    Assert.assertEquals(content.length, checksums.getByteCount());
+    for (ChecksumMethod method : checksums.getMethods()) {
+      Assert.assertEquals(digest(method, content), checksums.get(method));
+    }
+  }
+
+  private static String digest(ChecksumMethod method, byte[] content) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance(method.xml_name).digest(content)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static byte[] content(int length) {
+    byte[] content = new byte[length];
+    for (int i = 0; i < length; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  private static void readAll(InputStream inputStream) throws IOException {
+    byte[] buffer = new byte[8192];
+    while (inputStream.read(buffer, 0, buffer.length) >= 0) {}
+  }
+}
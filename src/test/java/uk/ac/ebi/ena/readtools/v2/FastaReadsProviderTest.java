@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.*;
+import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.provider.FastaReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+import uk.ac.ebi.ena.readtools.v2.validator.FastaReadsValidator;
+import uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+import uk.ac.ebi.ena.readtools.v2.validator.ValidatorWrapper;
+
+public class FastaReadsProviderTest {
+  private static final int RECORDS = 5000;
+
+  @Test
+  public void readsMultiLineRecords() throws Exception {
+    StringBuilder content = new StringBuilder("\n");
+    for (int i = 0; i < RECORDS; i++) {
+      // Line ends of every kind, and records spanning the read buffer.
+      String lineEnd = 0 == i % 3 ? "\n" : 1 == i % 3 ? "\r\n" : "\r";
+      content.append(">r").append(i).append(" description").append(lineEnd);
+      content.append(bases(i)).append(lineEnd).append("ACGT").append(lineEnd);
+      if (0 == i % 7) {
+        content.append(lineEnd);
+      }
+    }
+
+    for (boolean gzip : new boolean[] {false, true}) {
+      File file = save(content.toString(), gzip);
+      List<String> names = new ArrayList<>();
+      try (FastaReadsProvider provider = new FastaReadsProvider(file)) {
+        for (MutableFastqRead read : provider) {
+          int i = names.size();
+          names.add(read.getName());
+          assertEquals(bases(i) + "ACGT", read.getBases());
+          assertEquals(0, read.getQualityScoresLength());
+        }
+      }
+      assertEquals(RECORDS, names.size());
+      assertEquals("r0 description", names.get(0));
+      assertEquals("r" + (RECORDS - 1) + " description", names.get(RECORDS - 1));
+    }
+  }
+
+  @Test
+  public void skipsWhitespaceLines() throws Exception {
+    File file = save(">r1\nACGT\n  \t\nAC\r\n \r\n>r2\n\t\nGG\n", false);
+    try (FastaReadsProvider provider = new FastaReadsProvider(file)) {
+      Iterator<MutableFastqRead> reads = provider.iterator();
+      assertEquals("ACGTAC", reads.next().getBases());
+      MutableFastqRead read = reads.next();
+      assertEquals("r2", read.getName());
+      assertEquals("GG", read.getBases());
+      assertFalse(reads.hasNext());
+    }
+  }
+
+  @Test
+  public void failsOnMissingHeader() throws IOException {
+    File file = save("ACGT\n>r1\nACGT\n", false);
+    try {
+      new FastaReadsProvider(file).close();
+      fail();
+    } catch (ReadsValidationException e) {
+      assertTrue(e.getMessage().startsWith("Sequence header must start with >: ACGT at line 1"));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void validatesFasta() throws IOException, ReadsValidationException {
+    File file = save(">r1\nACGT\nNNAC\n>r2\nUUAC\n", true);
+    ValidatorWrapper validator =
+        new ValidatorWrapper(Collections.singletonList(file), FileFormat.FASTA, READ_COUNT_LIMIT);
+    validator.run();
+    assertEquals(2, validator.getFileQualityStats().get(0).getReadCount());
+    assertEquals(0, validator.getFileQualityStats().get(0).getHighQualityReadCount());
+  }
+
+  @Test
+  public void failsOnInvalidReads() throws IOException {
+    assertError(">r1\nACGT\n>r2\n>r3\nACGT\n", InsdcReadsValidator.ERROR_EMPTY_READ);
+    assertError(">r1\nACGT\n>r2\nACXT\n", InsdcReadsValidator.ERROR_NOT_IUPAC);
+    assertError(">r1\nACGT\n>r2\nACGT\n>r1\nACGT\n", "Multiple (2) occurrences");
+    assertError(">r1\nACGT\n> \nACGT\n", "Invalid FASTA read name");
+  }
+
+  @Test
+  public void failsOnDuplicateNamesExact() throws IOException {
+    File file = save(">r1\nACGT\n>r2\nACGT\n>r1\nACGT\n", false);
+    FastaReadsValidator validator = new FastaReadsValidator(READ_COUNT_LIMIT);
+    validator.setExactDuplicates(true);
+    try {
+      validator.validate(new ReadsProviderFactory(file, FileFormat.FASTA));
+      fail();
+    } catch (ReadsValidationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Multiple (2) occurrences"));
+    }
+  }
+
+  @Test
+  public void factoryMakesFastaProvider() throws Exception {
+    File file = save(">r1\nACGT\n", false);
+    try (AutoCloseable provider =
+        new ReadsProviderFactory(file, FileFormat.FASTA).makeReadsProvider()) {
+      assertTrue(provider instanceof FastaReadsProvider);
+    }
+  }
+
+  private static void assertError(String content, String error) throws IOException {
+    File file = save(content, false);
+    try {
+      new ValidatorWrapper(Collections.singletonList(file), FileFormat.FASTA, READ_COUNT_LIMIT)
+          .run();
+      fail();
+    } catch (ReadsValidationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(error));
+    }
+  }
+
+  private static String bases(int i) {
+    StringBuilder bases = new StringBuilder();
+    for (int j = 0; j < 20 + i % 31; j++) {
+      bases.append("ACGT".charAt((i + j) % 4));
+    }
+    return bases.toString();
+  }
+
+  private static File save(String content, boolean gzip) throws IOException {
+    return saveRandomized(content, createOutputFolder().toPath(), gzip, "fasta").toFile();
+  }
+}
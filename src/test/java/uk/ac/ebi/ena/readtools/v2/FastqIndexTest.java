@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.ena.readtools.v2.SampledReadsProviderTest.fastq;
+import static uk.ac.ebi.ena.readtools.v2.SampledReadsProviderTest.writeFastq;
+import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.createOutputFolder;
+import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.saveRandomized;
+
+import htsjdk.samtools.SAMException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.common.fastq.FastqIndex;
+import uk.ac.ebi.ena.readtools.v2.provider.IndexedFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsSampling;
+import uk.ac.ebi.ena.readtools.v2.provider.SampledFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
+
+public class FastqIndexTest {
+  @Test
+  public void indexesUncompressedFastq() throws Exception {
+    assertIndexes(writeFastq(2345, "\n", false), 2345);
+    assertIndexes(writeFastq(2345, "\r\n", false), 2345);
+  }
+
+  @Test
+  public void indexesBlockCompressedFastq() throws Exception {
+    assertIndexes(writeFastq(20000, "\n", true), 20000);
+  }
+
+  @Test
+  public void indexesEmptyFastq() throws Exception {
+    File file = writeFastq(0, "\n", false);
+    FastqIndex index = FastqIndex.build(file);
+    assertEquals(0, index.getReadCount());
+    assertEquals(0, index.getEntryCount());
+    try (IndexedFastqReadsProvider provider =
+        new IndexedFastqReadsProvider(file, index, 0, 10, false)) {
+      assertFalse(provider.iterator().hasNext());
+    }
+  }
+
+  @Test
+  public void ignoresStaleIndex() throws Exception {
+    File file = writeFastq(100, "\n", false);
+    assertNull(FastqIndex.load(file));
+
+    FastqIndex.build(file).write(FastqIndex.getIndexFile(file));
+    FastqIndex.getIndexFile(file).deleteOnExit();
+    assertNotNull(FastqIndex.load(file));
+
+    Files.write(
+        file.toPath(),
+        fastq(100, "\n").getBytes(StandardCharsets.US_ASCII),
+        StandardOpenOption.APPEND);
+    assertNull(FastqIndex.load(file));
+  }
+
+  @Test
+  public void samplesIndexedFastq() throws Exception {
+    File file = writeFastq(20000, "\n", true);
+    FastqIndex.build(file, 100).write(FastqIndex.getIndexFile(file));
+    FastqIndex.getIndexFile(file).deleteOnExit();
+
+    List<Integer> names = new ArrayList<>();
+    try (SampledFastqReadsProvider provider =
+        new SampledFastqReadsProvider(file, false, new ReadsSampling(5, 20))) {
+      assertEquals(5, provider.getSampleCount());
+      for (MutableFastqRead read : provider) {
+        names.add(Integer.parseInt(read.getName()));
+      }
+    }
+
+    // Samples start at indexed records.
+    assertEquals(100, names.size());
+    for (int sample = 0; sample < 5; sample++) {
+      for (int i = 0; i < 20; i++) {
+        assertEquals(sample * 4000 + i, (int) names.get(sample * 20 + i));
+      }
+    }
+  }
+
+  @Test
+  public void rejectsGzip() throws Exception {
+    File file =
+        saveRandomized("@R1\nACGT\n+\n!!!!\n", createOutputFolder().toPath(), true, "fastq", "gz")
+            .toFile();
+    try {
+      FastqIndex.build(file);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void rejectsBrokenFastq() throws Exception {
+    File file =
+        saveRandomized(
+                "@R1\nACGT\n+\n!!!!\n@R2\nACGT\n+\n!!!\n",
+                createOutputFolder().toPath(),
+                false,
+                "fastq")
+            .toFile();
+    try {
+      FastqIndex.build(file);
+      fail();
+    } catch (SAMException expected) {
+      assertTrue(
+          expected.getMessage(),
+          expected
+              .getMessage()
+              .startsWith("Sequence and quality line must be the same length at line 8"));
+    }
+  }
+
+  private static void assertIndexes(File file, int recordCount) throws Exception {
+    FastqIndex index = FastqIndex.build(file, 100);
+    long baseCount = 0;
+    for (int i = 0; i < recordCount; i++) {
+      baseCount += 20 + i % 37;
+    }
+    assertEquals(recordCount, index.getReadCount());
+    assertEquals(baseCount, index.getBaseCount());
+    assertEquals((recordCount + 99) / 100, index.getEntryCount());
+    assertEquals(100, index.getEntryRecord(1));
+    assertEquals(1, index.getEntry(199));
+
+    File indexFile = File.createTempFile("index", FastqIndex.EXTENSION);
+    indexFile.deleteOnExit();
+    index.write(indexFile);
+    FastqIndex read = FastqIndex.read(indexFile);
+    assertEquals(index.getInterval(), read.getInterval());
+    assertEquals(index.isBlockCompressed(), read.isBlockCompressed());
+    assertEquals(index.getFileSize(), read.getFileSize());
+    assertEquals(index.getReadCount(), read.getReadCount());
+    assertEquals(index.getBaseCount(), read.getBaseCount());
+    assertEquals(index.getEndPointer(), read.getEndPointer());
+    assertEquals(index.getEntryCount(), read.getEntryCount());
+    for (int entry = 0; entry < index.getEntryCount(); entry++) {
+      assertEquals(index.getEntryPointer(entry), read.getEntryPointer(entry));
+      assertEquals(index.getEntryBaseCount(entry), read.getEntryBaseCount(entry));
+    }
+
+    long basesBefore = 0;
+    for (int i = 0; i < 200; i++) {
+      basesBefore += 20 + i % 37;
+    }
+    assertEquals(basesBefore, index.getEntryBaseCount(index.getEntry(250)));
+
+    for (long first : new long[] {0, 1, 99, 100, 1234, recordCount - 1, recordCount}) {
+      assertReads(file, read, first, 150, recordCount);
+    }
+  }
+
+  private static void assertReads(
+      File file, FastqIndex index, long first, long count, int recordCount) throws Exception {
+    long expected = first;
+    try (IndexedFastqReadsProvider provider =
+        new IndexedFastqReadsProvider(file, index, first, count, false)) {
+      for (MutableFastqRead read : provider) {
+        String[] lines = fastq((int) expected, "\n").split("\n");
+        assertEquals(lines[0].substring(1), read.getName());
+        assertEquals(lines[1], read.getBases());
+        assertEquals(lines[3], read.getQualityScores());
+        expected++;
+      }
+    }
+    assertEquals(Math.min(recordCount, first + count), expected);
+  }
+}
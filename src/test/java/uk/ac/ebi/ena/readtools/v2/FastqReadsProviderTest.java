@@ -11,15 +11,25 @@
 package uk.ac.ebi.ena.readtools.v2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.createOutputFolder;
 import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.saveRandomized;
 
+import htsjdk.samtools.SAMException;
 import htsjdk.samtools.util.FastqQualityFormat;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import org.junit.Test;
 import uk.ac.ebi.ena.readtools.v2.provider.FastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReusingFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.read.MutableFastqRead;
 import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
 
 public class FastqReadsProviderTest {
@@ -86,4 +96,105 @@ public class FastqReadsProviderTest {
     assertEquals(FastqQualityFormat.Standard, mrp.getQualityFormat());
     assertEquals("!\"#${|}~", mrp.iterator().next().getQualityScores());
   }
+
+  @Test
+  public void reusingProviderReusesRead() throws Exception {
+    File output_dir = createOutputFolder();
+    Path file =
+        saveRandomized(
+            "@R1\n" + "ATCC\n" + "+\n" + "!!!!\n" + "@R2\n" + "GG\n" + "+R2\n" + "##\n",
+            output_dir.toPath(),
+            true,
+            "fastq",
+            "gz");
+
+    try (ReusingFastqReadsProvider provider = new ReusingFastqReadsProvider(file.toFile())) {
+      Iterator<MutableFastqRead> iterator = provider.iterator();
+      MutableFastqRead read1 = iterator.next();
+      assertEquals("R1", read1.getName());
+      assertEquals("ATCC", read1.getBases());
+      assertEquals(4, read1.getQualityScoresLength());
+
+      MutableFastqRead read2 = iterator.next();
+      assertSame(read1, read2);
+      assertEquals("R2", read2.getName());
+      assertEquals("GG", read2.getBases());
+      assertEquals("##", read2.getQualityScores());
+      assertEquals(2, read2.getBasesLength());
+      assertEquals(false, iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void reusingProviderMatchesProvider() throws Exception {
+    String[] files = {
+      "src/test/resources/rawreads/EP0_GTTCCTT_S1.txt.gz",
+      "src/test/resources/rawreads/SPOP-87C_plKO2-min.fastq.gz",
+      "src/test/resources/rawreads/MG23S_431.fastq.gz",
+      "src/test/resources/T966_R1.fastq.gz",
+      "src/test/resources/invalid.fastq.gz",
+      "src/test/resources/fastq_spot_incorrect.txt",
+      "src/test/resources/fastq_spot_incorrect2.txt",
+      "src/test/resources/fastq_spot_incorrect3.txt",
+      "src/test/resources/fastq_spot_incorrect4.txt",
+      "src/test/resources/fastq_spot_incorrect5.txt",
+      "src/test/resources/fastq_spot_incorrect6.txt",
+      "src/test/resources/fastq_spots_correct.txt",
+      "src/test/resources/mp3_schw3.fq",
+      "src/test/resources/uracil-bases_1.fastq"
+    };
+    for (String file : files) {
+      assertSameReads(Paths.get(file).toFile(), true);
+      assertSameReads(Paths.get(file).toFile(), false);
+    }
+
+    File output_dir = createOutputFolder();
+    String[] contents = {
+      "@R1\r\nATCCATCC\r\n+\r\n;<=>{|}~\r\n\r\n@R2\rGGCC\r+\r;;;;",
+      "\n\n@R1 x\nATCC\n\n+R1\n@ABC\n  \n@R2\nNNAC\n+\n@@@@",
+      "@R1\nATCC\n+\n!!!!\n@R2\nATCC\n+\n!!!\n",
+      "@R1\nATCC\n+\n!!!!\n@R2\nATCC\n",
+      "@R1\nATCC\n-\n!!!!\n",
+      "R1\nATCC\n+\n!!!!\n",
+      "@\nATCC\n+\n!!!!\n",
+      ""
+    };
+    for (String content : contents) {
+      Path file = saveRandomized(content, output_dir.toPath(), true, "fastq", "gz");
+      assertSameReads(file.toFile(), true);
+      assertSameReads(file.toFile(), false);
+    }
+  }
+
+  private static void assertSameReads(File file, boolean normalise) {
+    List<String> expected = new ArrayList<>();
+    String expectedError = readAll(() -> new FastqReadsProvider(file, normalise), expected);
+    List<String> actual = new ArrayList<>();
+    String actualError = readAll(() -> new ReusingFastqReadsProvider(file, normalise), actual);
+
+    assertEquals(file.getName(), expectedError, actualError);
+    if (null == expectedError) {
+      assertEquals(file.getName(), expected, actual);
+    }
+  }
+
+  /**
+   * @return Error message, if any.
+   */
+  private static String readAll(ProviderSupplier supplier, List<String> reads) {
+    try (ReadsProvider<? extends IRead> provider = supplier.get()) {
+      for (IRead read : provider) {
+        reads.add(read.getName() + "\n" + read.getBases() + "\n" + read.getQualityScores());
+      }
+      return null;
+    } catch (ReadsValidationException | SAMException e) {
+      return e.getMessage();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private interface ProviderSupplier {
+    ReadsProvider<? extends IRead> get() throws ReadsValidationException;
+  }
 }
@@ -133,6 +133,28 @@ public class FastqReadsValidatorTest {
     }
   }
 
+  @Test
+  public void readNameDuplicateExact() throws IOException {
+    File output_dir = createOutputFolder();
+    Path f1 =
+        saveRandomized(
+            "@NAME1/1\nACGT\n+\n1234\n" + "@NAME1/2\nACGT\n+\n1234\n" + "@NAME1/1\nACGT\n+\n1234",
+            output_dir.toPath(),
+            true,
+            "fastq-1",
+            "gz");
+
+    try {
+      ReadsProviderFactory factory = new ReadsProviderFactory(f1.toFile(), FileFormat.FASTQ);
+      FastqReadsValidator validator = new FastqReadsValidator(READ_COUNT_LIMIT);
+      validator.setExactDuplicates(true);
+      validator.validate(factory);
+      fail();
+    } catch (ReadsValidationException e) {
+      assertTrue(e.getMessage().contains("Multiple"));
+    }
+  }
+
   @Test
   public void validPairedReads1() throws IOException, ReadsValidationException {
     File output_dir = createOutputFolder();
@@ -461,6 +461,55 @@ public class InsdcReadsValidatorTest {
     }
   }
 
+  // Verifies reused FASTQ reads are validated with the same results as read strings.
+  @Test
+  public void reusedFastqReadsGiveSameResults() throws ReadsValidationException {
+    String[] files = {
+      "src/test/resources/rawreads/EP0_GTTCCTT_S1.txt.gz",
+      "src/test/resources/rawreads/SPOP-87C_plKO2-min.fastq.gz",
+      "src/test/resources/T966_R1.fastq.gz",
+      "src/test/resources/mp3_schw3.fq",
+      "src/test/resources/uracil-bases_1.fastq"
+    };
+    for (String file : files) {
+      InsdcReadsValidator expected = new InsdcReadsValidator(Long.MAX_VALUE);
+      expected.validate(new ReadsProviderFactory(new File(file), FileFormat.FASTQ));
+      InsdcReadsValidator actual = new InsdcReadsValidator(Long.MAX_VALUE);
+      actual.validate(new ReadsProviderFactory(new File(file), FileFormat.FASTQ, true, true));
+
+      assertEquals(file, expected.getReadCount(), actual.getReadCount());
+      assertEquals(file, expected.getHighQualityReadCount(), actual.getHighQualityReadCount());
+    }
+  }
+
+  // Verifies reused FASTQ reads are checked like read strings.
+  @Test
+  public void rejectsInvalidReusedFastqReads() throws IOException {
+    String[][] cases = {
+      {"@r1\nACGT\n+\n!!!!\n@r2\nAFFF\n+\n!!!!\n", ERROR_NOT_IUPAC},
+      {"@r1\nNNNN\n+\n!!!!\n@r2\nacgn\n+\n!!!!\n", ERROR_NOT_AUTCG},
+      {"@" + "x".repeat(257) + "\nACGT\n+\n!!!!\n", ERROR_READ_NAME_LENGTH},
+      {
+        "@r1\nACGT\n+\n!!!!\n@r2\nACGT\n+\n!!!!\n@r3\nACGT\n+\n!!!\n",
+        "Sequence and quality line must be the same length at line 9"
+      }
+    };
+
+    File outputDir = createOutputFolder();
+    for (String[] c : cases) {
+      Path fastqPath = saveRandomized(c[0], outputDir.toPath(), true, "fastq-reused", "gz");
+      try {
+        new InsdcReadsValidator(READ_COUNT_LIMIT)
+            .validate(new ReadsProviderFactory(fastqPath.toFile(), FileFormat.FASTQ, true, true));
+        fail(c[1]);
+      } catch (ReadsValidationException validationException) {
+        assertTrue(
+            validationException.getErrorMessage(),
+            validationException.getErrorMessage().contains(c[1]));
+      }
+    }
+  }
+
   private ReadsProviderFactory createMockReadsProviderFactory(
       FileFormat format, MockRead... reads) {
     return new ReadsProviderFactory(null, format) {
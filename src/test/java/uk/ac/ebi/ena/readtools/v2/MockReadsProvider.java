@@ -10,6 +10,7 @@
  */
 package uk.ac.ebi.ena.readtools.v2;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -65,9 +66,44 @@ public class MockReadsProvider implements ReadsProvider<MockReadsProvider.MockRe
       return qualityScores;
     }
 
+    // The strings have no record behind them, so the bytes are taken from the strings.
+    @Override
+    public byte[] getNameBytes() {
+      return toBytes(name);
+    }
+
+    @Override
+    public int getNameLength() {
+      return getNameBytes().length;
+    }
+
+    @Override
+    public byte[] getBasesBytes() {
+      return toBytes(bases);
+    }
+
+    @Override
+    public int getBasesLength() {
+      return getBasesBytes().length;
+    }
+
+    @Override
+    public byte[] getQualityScoresBytes() {
+      return toBytes(qualityScores);
+    }
+
+    @Override
+    public int getQualityScoresLength() {
+      return getQualityScoresBytes().length;
+    }
+
     @Override
     public boolean hasQualityControlFlag() {
       return qualityControlFlag;
     }
+
+    private static byte[] toBytes(String string) {
+      return null == string ? new byte[0] : string.getBytes(StandardCharsets.UTF_8);
+    }
   }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.converter.ToBamReadsConverter;
+import uk.ac.ebi.ena.readtools.v2.converter.ToFastqReadsConverter;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+public class ReadsConverterTest {
+  private static final int RECORDS = 5000;
+  // Small batches on a few threads, so that batches are written out of order.
+  private static final int THREADS = 3;
+  private static final int BATCH_SIZE = 97;
+
+  @Test
+  public void testFastqToFastq() throws Exception {
+    File input = SampledReadsProviderTest.writeFastq(RECORDS, "\n", false);
+    File output = new File(TestFileUtil.createOutputFolder(), "converted.fastq.gz");
+
+    ToFastqReadsConverter converter = new ToFastqReadsConverter(THREADS, BATCH_SIZE, 5);
+    converter.convert(new ReadsProviderFactory(input, FileFormat.FASTQ, true, true), output);
+
+    try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(output.toPath()))) {
+      assertEquals(
+          new String(Files.readAllBytes(input.toPath()), StandardCharsets.US_ASCII),
+          new String(inputStream.readAllBytes(), StandardCharsets.US_ASCII));
+    }
+
+    InsdcReadsValidator validator = new InsdcReadsValidator(Long.MAX_VALUE);
+    validator.validate(new ReadsProviderFactory(input, FileFormat.FASTQ, true, true));
+    assertEquals(RECORDS, converter.getReadCount());
+    assertEquals(validator.getHighQualityReadCount(), converter.getHighQualityReadCount());
+  }
+
+  @Test
+  public void testFastqToBam() throws Exception {
+    File input = SampledReadsProviderTest.writeFastq(RECORDS, "\n", true);
+    File bam = new File(TestFileUtil.createOutputFolder(), "converted.bam");
+
+    ToBamReadsConverter converter =
+        new ToBamReadsConverter("sample", false, THREADS, BATCH_SIZE, 5);
+    converter.convert(new ReadsProviderFactory(input, FileFormat.FASTQ), bam);
+    assertEquals(RECORDS, converter.getReadCount());
+
+    try (SamReader reader = SamReaderFactory.makeDefault().open(bam);
+        SAMRecordIterator records = reader.iterator()) {
+      assertEquals("sample", reader.getFileHeader().getReadGroup("A").getSample());
+      for (int i = 0; i < RECORDS; i++) {
+        String[] lines = SampledReadsProviderTest.fastq(i, "\n").split("\n");
+        SAMRecord record = records.next();
+        assertEquals(lines[0].substring(1), record.getReadName());
+        assertEquals(lines[1], record.getReadString());
+        assertEquals(lines[3], record.getBaseQualityString());
+        assertTrue(record.getReadUnmappedFlag());
+        assertEquals("A", record.getReadGroup().getId());
+      }
+      assertFalse(records.hasNext());
+    }
+  }
+
+  @Test
+  public void testFastaToBam() throws Exception {
+    File input = File.createTempFile("converter", ".fasta");
+    input.deleteOnExit();
+    Files.write(input.toPath(), ">r1\nACGT\nAC\n>r2\nGGCC\n".getBytes(StandardCharsets.US_ASCII));
+    File bam = new File(TestFileUtil.createOutputFolder(), "fasta.bam");
+
+    ToBamReadsConverter converter =
+        new ToBamReadsConverter("sample", false, THREADS, BATCH_SIZE, 5);
+    converter.convert(new ReadsProviderFactory(input, FileFormat.FASTA), bam);
+    assertEquals(2, converter.getReadCount());
+    assertEquals(10, converter.getBaseCount());
+    assertEquals(0, converter.getHighQualityReadCount());
+
+    try (SamReader reader = SamReaderFactory.makeDefault().open(bam);
+        SAMRecordIterator records = reader.iterator()) {
+      SAMRecord record = records.next();
+      assertEquals("r1", record.getReadName());
+      assertEquals("ACGTAC", record.getReadString());
+      assertEquals("*", record.getBaseQualityString());
+
+      record = records.next();
+      assertEquals("r2", record.getReadName());
+      assertEquals("GGCC", record.getReadString());
+      assertFalse(records.hasNext());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBamToFastqRejected() throws Exception {
+    File input = SampledReadsProviderTest.writeFastq(10, "\n", false);
+    File bam = new File(TestFileUtil.createOutputFolder(), "rejected.bam");
+    new ToBamReadsConverter("sample", false, THREADS, BATCH_SIZE, 5)
+        .convert(new ReadsProviderFactory(input, FileFormat.FASTQ), bam);
+
+    new ToFastqReadsConverter(THREADS, BATCH_SIZE, 5)
+        .convert(
+            new ReadsProviderFactory(bam, FileFormat.BAM),
+            new File(TestFileUtil.createOutputFolder(), "rejected.fastq"));
+  }
+
+  @Test
+  public void testCasavaNamesToBam() throws Exception {
+    File input =
+        write(
+            "@A00:1:FC:1:1:1:1 1:N:0:ACGT\nACGU\n+\nIIII\n"
+                + "@A00:1:FC:1:1:1:2 1:Y:0:TTTT\nACGT\n+\nIIII\n"
+                + "@plain/1\nACGT\n+\nIIII\n");
+    File bam = new File(TestFileUtil.createOutputFolder(), "casava.bam");
+    new ToBamReadsConverter("sample", true, THREADS, BATCH_SIZE, 5)
+        .convert(new ReadsProviderFactory(input, FileFormat.FASTQ), bam);
+
+    try (SamReader reader = SamReaderFactory.makeDefault().open(bam);
+        SAMRecordIterator records = reader.iterator()) {
+      SAMRecord record = records.next();
+      assertEquals("A00:1:FC:1:1:1:1", record.getReadName());
+      assertEquals("ACGT", record.getReadString());
+      assertEquals("ACGT", record.getAttribute("BC"));
+      assertFalse(record.getReadFailsVendorQualityCheckFlag());
+
+      record = records.next();
+      assertEquals("TTTT", record.getAttribute("BC"));
+      assertTrue(record.getReadFailsVendorQualityCheckFlag());
+
+      record = records.next();
+      assertEquals("plain", record.getReadName());
+      assertEquals(null, record.getAttribute("BC"));
+    }
+  }
+
+  @Test
+  public void testEmptyNamesToBam() throws Exception {
+    File input = write("@\nACGT\n+\nIIII\n@/1\nACGT\n+\nIIII\n");
+    File bam = new File(TestFileUtil.createOutputFolder(), "empty-names.bam");
+    new ToBamReadsConverter("sample", false, THREADS, BATCH_SIZE, 5)
+        .convert(new ReadsProviderFactory(input, FileFormat.FASTQ), bam);
+
+    try (SamReader reader = SamReaderFactory.makeDefault().open(bam);
+        SAMRecordIterator records = reader.iterator()) {
+      assertEquals("*", records.next().getReadName());
+      assertEquals("*", records.next().getReadName());
+      assertFalse(records.hasNext());
+    }
+  }
+
+  @Test
+  public void testErrorMatchesValidator() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < RECORDS; i++) {
+      content.append(
+          3456 == i ? "@" + i + "\nACXT\n+\nIIII\n" : SampledReadsProviderTest.fastq(i, "\n"));
+    }
+    File input = write(content.toString());
+
+    ReadsValidationException expected = null;
+    try {
+      new InsdcReadsValidator(Long.MAX_VALUE)
+          .validate(new ReadsProviderFactory(input, FileFormat.FASTQ, true, true));
+    } catch (ReadsValidationException e) {
+      expected = e;
+    }
+    assertEquals(3457, expected.getReadIndex());
+
+    try {
+      new ToFastqReadsConverter(THREADS, BATCH_SIZE, 5)
+          .convert(
+              new ReadsProviderFactory(input, FileFormat.FASTQ, true, true),
+              new File(TestFileUtil.createOutputFolder(), "error.fastq"));
+      fail();
+    } catch (ReadsValidationException e) {
+      assertEquals(expected.getErrorMessage(), e.getErrorMessage());
+    }
+  }
+
+  private static File write(String content) throws IOException {
+    File file = File.createTempFile("converter", ".fastq");
+    file.deleteOnExit();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+}
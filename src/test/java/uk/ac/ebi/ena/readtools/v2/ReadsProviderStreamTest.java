@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.provider.FastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsSpliterator;
+import uk.ac.ebi.ena.readtools.v2.provider.ReusingFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.read.FastqRead;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+
+public class ReadsProviderStreamTest {
+  private static final int RECORDS = 10000;
+
+  @Test
+  public void parallelStreamCopiesReusedReads() throws Exception {
+    File file = SampledReadsProviderTest.writeFastq(RECORDS, "\n", false);
+    List<String> expected = new ArrayList<>();
+    try (FastqReadsProvider provider = new FastqReadsProvider(file)) {
+      for (FastqRead read : provider) {
+        expected.add(read.getName() + read.getBases() + read.getQualityScores());
+      }
+    }
+
+    try (ReusingFastqReadsProvider provider = new ReusingFastqReadsProvider(file)) {
+      // Reads are kept until the end, so each must be a copy.
+      List<IRead> reads = provider.stream(true).collect(Collectors.toList());
+      assertEquals(
+          expected,
+          reads.stream()
+              .map(read -> read.getName() + read.getBases() + read.getQualityScores())
+              .collect(Collectors.toList()));
+    }
+
+    try (FastqReadsProvider provider = new FastqReadsProvider(file)) {
+      assertEquals(
+          expected.stream().mapToInt(String::length).sum(),
+          provider.stream(true)
+              .mapToInt(
+                  read ->
+                      read.getName().length()
+                          + read.getBases().length()
+                          + read.getQualityScores().length())
+              .sum());
+    }
+  }
+
+  @Test
+  public void sequentialStreamTakesReadsAsIterated() throws Exception {
+    File file = SampledReadsProviderTest.writeFastq(10, "\n", false);
+    try (ReusingFastqReadsProvider provider = new ReusingFastqReadsProvider(file)) {
+      assertEquals(1, provider.stream(false).distinct().count());
+    }
+  }
+
+  @Test
+  public void readCountLimitStopsReading() {
+    AtomicInteger taken = new AtomicInteger();
+    Iterator<FastqRead> iterator =
+        new Iterator<FastqRead>() {
+          @Override
+          public boolean hasNext() {
+            return true;
+          }
+
+          @Override
+          public FastqRead next() {
+            return new FastqRead("r" + taken.getAndIncrement(), "ACGT", "!!!!");
+          }
+        };
+
+    ReadsSpliterator<FastqRead> spliterator =
+        new ReadsSpliterator<>(iterator, UnaryOperator.identity(), 100, 250);
+    Spliterator<FastqRead> batch = spliterator.trySplit();
+    assertEquals(100, batch.estimateSize());
+    assertEquals(150, spliterator.estimateSize());
+    assertEquals(100, taken.get());
+
+    List<String> names = Collections.synchronizedList(new ArrayList<>());
+    spliterator.forEachRemaining(read -> names.add(read.getName()));
+    assertEquals(150, names.size());
+    assertEquals("r100", names.get(0));
+    assertEquals(250, taken.get());
+    assertNull(spliterator.trySplit());
+    assertFalse(spliterator.tryAdvance(read -> fail()));
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.provider.BlockingReadsSubscriber;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsPublisher;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.validator.InsdcReadsValidator;
+import uk.ac.ebi.ena.readtools.v2.validator.ReadsValidationException;
+
+public class ReadsPublisherTest {
+  private static final int RECORDS = 5000;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void publishesManyFilesOnFewThreads() throws Exception {
+    File fastq = SampledReadsProviderTest.writeFastq(RECORDS, "\n", true);
+    ExecutorService consumers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(
+            consumers.submit(
+                () -> {
+                  // Reused FASTQ reads must come out as copies.
+                  ReadsPublisher publisher =
+                      new ReadsPublisher(
+                          new ReadsProviderFactory(fastq, FileFormat.FASTQ, true, true),
+                          executor,
+                          100);
+                  List<String> reads = new ArrayList<>();
+                  try (BlockingReadsSubscriber subscriber = new BlockingReadsSubscriber(2)) {
+                    publisher.subscribe(subscriber);
+                    List<IRead> batch;
+                    while (null != (batch = subscriber.take())) {
+                      for (IRead read : batch) {
+                        reads.add(read.getName() + read.getBases() + read.getQualityScores());
+                      }
+                    }
+                  }
+                  return reads;
+                }));
+      }
+
+      for (Future<List<String>> result : results) {
+        List<String> reads = result.get(1, TimeUnit.MINUTES);
+        assertEquals(RECORDS, reads.size());
+        for (int i = 0; i < RECORDS; i++) {
+          assertEquals(
+              SampledReadsProviderTest.fastq(i, "\n")
+                  .replace("\n+\n", "")
+                  .replace("\n", "")
+                  .substring(1),
+              reads.get(i));
+        }
+      }
+    } finally {
+      consumers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sendsOnlyRequestedBatches() throws Exception {
+    File fastq = SampledReadsProviderTest.writeFastq(RECORDS, "\n", false);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new ReadsPublisher(new ReadsProviderFactory(fastq, FileFormat.FASTQ), executor, 10)
+        .subscribe(subscriber);
+
+    subscriber.subscription.request(3);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(subscriber.signals.poll(1, TimeUnit.MINUTES) instanceof List);
+    }
+    assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+    assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void rejectsNonPositiveRequests() throws Exception {
+    File fastq = SampledReadsProviderTest.writeFastq(10, "\n", false);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new ReadsPublisher(new ReadsProviderFactory(fastq, FileFormat.FASTQ), executor)
+        .subscribe(subscriber);
+
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.signals.poll(1, TimeUnit.MINUTES) instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void reportsInvalidFileWithReadNumber() throws Exception {
+    File fastq = File.createTempFile("publisher", ".fastq");
+    fastq.deleteOnExit();
+    try (OutputStream outputStream = Files.newOutputStream(fastq.toPath())) {
+      for (int i = 0; i < 250; i++) {
+        outputStream.write(
+            SampledReadsProviderTest.fastq(i, "\n").getBytes(StandardCharsets.US_ASCII));
+      }
+      outputStream.write("@broken\nACGT\n-\nIIII\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    int reads = 0;
+    // Not normalised, as detecting the quality format would find the error before any read.
+    try (BlockingReadsSubscriber subscriber = new BlockingReadsSubscriber(1)) {
+      new ReadsPublisher(
+              new ReadsProviderFactory(fastq, FileFormat.FASTQ, false, true), executor, 100)
+          .subscribe(subscriber);
+      try {
+        List<IRead> batch;
+        while (null != (batch = subscriber.take())) {
+          reads += batch.size();
+        }
+        fail();
+      } catch (ReadsValidationException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith(InsdcReadsValidator.INVALID_FILE));
+        assertEquals(251, e.getReadIndex());
+      }
+    }
+    assertEquals(200, reads);
+  }
+
+  private static class RecordingSubscriber implements Flow.Subscriber<List<IRead>> {
+    final LinkedBlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    volatile Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(List<IRead> batch) {
+      signals.add(batch);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add("complete");
+    }
+  }
+}
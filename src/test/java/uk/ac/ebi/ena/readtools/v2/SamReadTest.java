@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.provider.SamReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.read.SamRead;
+
+public class SamReadTest {
+  private static final String[][] RECORDS = {
+    // Name, CIGAR, bases, quality scores.
+    {"r1", "5M", "ACGTN", "!#+5I"},
+    {"read.with.a.longer:name/1", "2S3M2I", "TTGCA=A", "IIIIIII"},
+    {"r3", "*", "ACGTRYKMSWBDHV", "*"},
+    {"r4", "*", "*", "*"},
+    {"r5", "1M1D1M", "AC", "~!"}
+  };
+
+  @Test
+  public void testBamBytesMatchStrings() throws Exception {
+    assertBytesMatchStrings(write(".bam"));
+  }
+
+  @Test
+  public void testSamBytesMatchStrings() throws Exception {
+    assertBytesMatchStrings(write(".sam"));
+  }
+
+  private static void assertBytesMatchStrings(File file) throws Exception {
+    try (SamReadsProvider provider = new SamReadsProvider(file)) {
+      Iterator<SamRead> iterator = provider.iterator();
+      for (String[] record : RECORDS) {
+        SamRead read = iterator.next();
+        Assert.assertEquals(record[0], read.getName());
+        Assert.assertEquals(record[2], read.getBases());
+        Assert.assertEquals(record[3], read.getQualityScores());
+
+        Assert.assertEquals(read.getName(), string(read.getNameBytes(), read.getNameLength()));
+        Assert.assertEquals(
+            "*".equals(record[2]) ? "" : record[2],
+            string(read.getBasesBytes(), read.getBasesLength()));
+        Assert.assertEquals(
+            "*".equals(record[3]) ? "" : record[3],
+            string(read.getQualityScoresBytes(), read.getQualityScoresLength()));
+      }
+      Assert.assertFalse(iterator.hasNext());
+    }
+  }
+
+  private static String string(byte[] bytes, int length) {
+    return new String(Arrays.copyOf(bytes, length), StandardCharsets.UTF_8);
+  }
+
+  private static File write(String extension) throws IOException {
+    File file = File.createTempFile("sam-read", extension);
+    file.deleteOnExit();
+
+    SAMFileHeader header = new SAMFileHeader();
+    header.addSequence(new SAMSequenceRecord("chr1", 1000));
+    try (SAMFileWriter writer = new SAMFileWriterFactory().makeWriter(header, true, file, null)) {
+      for (String[] fields : RECORDS) {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName(fields[0]);
+        if ("*".equals(fields[1])) {
+          record.setReadUnmappedFlag(true);
+        } else {
+          record.setReferenceIndex(0);
+          record.setAlignmentStart(10);
+          record.setCigarString(fields[1]);
+          record.setAttribute("NM", 1);
+          record.setAttribute("XS", "tag");
+        }
+        record.setReadString(fields[2]);
+        record.setBaseQualityString(fields[3]);
+        writer.addAlignment(record);
+      }
+    }
+    return file;
+  }
+}
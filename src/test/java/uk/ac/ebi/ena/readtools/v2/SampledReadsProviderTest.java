@@ -0,0 +1,269 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.v2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.createOutputFolder;
+import static uk.ac.ebi.ena.readtools.v2.TestFileUtil.saveRandomized;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsProviderFactory;
+import uk.ac.ebi.ena.readtools.v2.provider.ReadsSampling;
+import uk.ac.ebi.ena.readtools.v2.provider.ReusingFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.SamReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.provider.SampledFastqReadsProvider;
+import uk.ac.ebi.ena.readtools.v2.read.IRead;
+import uk.ac.ebi.ena.readtools.v2.read.SamRead;
+
+public class SampledReadsProviderTest {
+  @Test
+  public void samplesUncompressedFastq() throws Exception {
+    assertSamplesFastq(writeFastq(2000, "\n", false), 2000);
+    assertSamplesFastq(writeFastq(2000, "\r\n", false), 2000);
+    assertSamplesFastq(writeFastq(2000, "\r", false), 2000);
+  }
+
+  @Test
+  public void samplesBlockCompressedFastq() throws Exception {
+    // Enough records for several BGZF blocks.
+    assertSamplesFastq(writeFastq(20000, "\n", true), 20000);
+  }
+
+  @Test
+  public void readsSmallFastqOnce() throws Exception {
+    for (boolean blockCompressed : new boolean[] {false, true}) {
+      File file = writeFastq(30, "\n", blockCompressed);
+      List<String> reads = readAll(file, new ReadsSampling(10, 100));
+      assertEquals(30, reads.size());
+      for (int i = 0; i < reads.size(); i++) {
+        assertEquals(record(i, "\n"), reads.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void readsGzipFromStart() throws Exception {
+    Path file =
+        saveRandomized(
+            "@R1\nACGT\n+\n!!!!\n@R2\nACGT\n+\n!!!!\n",
+            createOutputFolder().toPath(),
+            true,
+            "fastq",
+            "gz");
+
+    assertFalse(SampledFastqReadsProvider.isSampleable(file.toFile()));
+    ReadsProviderFactory factory =
+        new ReadsProviderFactory(
+            file.toFile(), FileFormat.FASTQ, false, true, new ReadsSampling(2, 1));
+    try (ReadsProvider<? extends IRead> provider = factory.makeReadsProvider()) {
+      assertTrue(provider instanceof ReusingFastqReadsProvider);
+    }
+  }
+
+  @Test
+  public void samplesIndexedBam() throws Exception {
+    File bam = writeBam(true);
+    Set<String> names = new HashSet<>();
+    try (SamReadsProvider provider = new SamReadsProvider(bam, new ReadsSampling(4, 10))) {
+      assertTrue(provider.isSampled());
+      for (SamRead read : provider) {
+        assertTrue(read.getName(), names.add(read.getName()));
+      }
+    }
+
+    // Four samples of mapped reads, then the unmapped ones.
+    assertEquals(50, names.size());
+    assertTrue(names.contains("chr1-0"));
+    assertTrue(names.contains("chr1-500"));
+    assertTrue(names.contains("chr2-0"));
+    assertTrue(names.contains("chr2-500"));
+    assertTrue(names.contains("unmapped-9"));
+  }
+
+  @Test
+  public void samplesIndexedUnalignedBam() throws Exception {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    File bam = new File(createOutputFolder(), "sampled-unaligned.bam");
+    try (SAMFileWriter writer =
+        new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, bam)) {
+      for (int i = 0; i < 100; i++) {
+        writer.addAlignment(unmapped(header, "unmapped-" + i));
+      }
+    }
+
+    List<String> names = new ArrayList<>();
+    try (SamReadsProvider provider = new SamReadsProvider(bam, new ReadsSampling(4, 10))) {
+      assertTrue(provider.isSampled());
+      for (SamRead read : provider) {
+        names.add(read.getName());
+      }
+    }
+
+    // All reads sampled are unmapped, up to the reads of all positions.
+    assertEquals(40, names.size());
+    assertEquals("unmapped-39", names.get(39));
+  }
+
+  @Test
+  public void readsUnindexedBamFromStart() throws Exception {
+    File bam = writeBam(false);
+    int count = 0;
+    try (SamReadsProvider provider = new SamReadsProvider(bam, new ReadsSampling(4, 10))) {
+      assertFalse(provider.isSampled());
+      for (SamRead ignored : provider) {
+        count++;
+      }
+    }
+    assertEquals(2010, count);
+  }
+
+  private static void assertSamplesFastq(File file, int recordCount) throws Exception {
+    ReadsSampling sampling = new ReadsSampling(5, 20);
+    assertTrue(SampledFastqReadsProvider.isSampleable(file));
+
+    String lineEnd = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+    lineEnd = lineEnd.contains("\r\n") ? "\r\n" : lineEnd.contains("\r") ? "\r" : "\n";
+
+    List<String> reads = readAll(file, sampling);
+    assertEquals(100, reads.size());
+    assertEquals(100, new HashSet<>(reads).size());
+    assertEquals(record(0, lineEnd), reads.get(0));
+
+    int last = -1;
+    for (String read : reads) {
+      int index = Integer.parseInt(read.substring(1, read.indexOf('\n')));
+      assertEquals(record(index, lineEnd), read);
+      assertTrue(index > last);
+      last = index;
+    }
+    // Reads are taken from the whole file.
+    assertTrue(last >= recordCount * 4 / 5);
+  }
+
+  private static List<String> readAll(File file, ReadsSampling sampling) throws Exception {
+    List<String> reads = new ArrayList<>();
+    ReadsProviderFactory factory =
+        new ReadsProviderFactory(file, FileFormat.FASTQ, false, true, sampling);
+    try (ReadsProvider<? extends IRead> provider = factory.makeReadsProvider()) {
+      assertTrue(provider instanceof SampledFastqReadsProvider);
+      for (IRead read : provider) {
+        reads.add(
+            "R" + read.getName() + "\n" + read.getBases() + "\n" + read.getQualityScores() + "\n");
+      }
+    }
+    return reads;
+  }
+
+  /**
+   * @return Name, bases and quality scores of the given record as put together by {@link
+   *     #readAll(File, ReadsSampling)}.
+   */
+  private static String record(int index, String lineEnd) {
+    String[] lines = fastq(index, lineEnd).split(lineEnd);
+    return "R" + lines[0].substring(1) + "\n" + lines[1] + "\n" + lines[3] + "\n";
+  }
+
+  static String fastq(int index, String lineEnd) {
+    // Reads of different lengths, with quality scores starting with '@' like a header.
+    char[] bases = new char[20 + index % 37];
+    char[] qualities = new char[bases.length];
+    for (int i = 0; i < bases.length; i++) {
+      bases[i] = "ACGT".charAt((index + i) % 4);
+      qualities[i] = 0 == i ? '@' : (char) ('!' + (index + i) % 40);
+    }
+    return "@"
+        + index
+        + lineEnd
+        + new String(bases)
+        + lineEnd
+        + "+"
+        + lineEnd
+        + new String(qualities)
+        + lineEnd;
+  }
+
+  static File writeFastq(int recordCount, String lineEnd, boolean blockCompressed)
+      throws IOException {
+    File file = File.createTempFile("sampled", blockCompressed ? ".fastq.gz" : ".fastq");
+    file.deleteOnExit();
+    try (OutputStream outputStream =
+        blockCompressed
+            ? new BlockCompressedOutputStream(file)
+            : Files.newOutputStream(file.toPath())) {
+      for (int i = 0; i < recordCount; i++) {
+        outputStream.write(fastq(i, lineEnd).getBytes(StandardCharsets.US_ASCII));
+      }
+    }
+    return file;
+  }
+
+  /** Writes 1000 reads on each of two references and 10 unmapped reads. */
+  private static File writeBam(boolean index) throws IOException {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSequenceDictionary(
+        new SAMSequenceDictionary(
+            Arrays.asList(
+                new SAMSequenceRecord("chr1", 10000), new SAMSequenceRecord("chr2", 10000))));
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+
+    File file = new File(createOutputFolder(), "sampled.bam");
+    try (SAMFileWriter writer =
+        new SAMFileWriterFactory().setCreateIndex(index).makeBAMWriter(header, true, file)) {
+      for (String sequence : new String[] {"chr1", "chr2"}) {
+        for (int i = 0; i < 1000; i++) {
+          SAMRecord record = new SAMRecord(header);
+          record.setReadName(sequence + "-" + i);
+          record.setReferenceName(sequence);
+          record.setAlignmentStart(1 + i * 10);
+          record.setCigarString("20M");
+          record.setReadString("ACGTACGTACGTACGTACGT");
+          record.setBaseQualityString("IIIIIIIIIIIIIIIIIIII");
+          writer.addAlignment(record);
+        }
+      }
+      for (int i = 0; i < 10; i++) {
+        writer.addAlignment(unmapped(header, "unmapped-" + i));
+      }
+    }
+    return file;
+  }
+
+  private static SAMRecord unmapped(SAMFileHeader header, String name) {
+    SAMRecord record = new SAMRecord(header);
+    record.setReadName(name);
+    record.setReadUnmappedFlag(true);
+    record.setReadString("ACGT");
+    record.setBaseQualityString("IIII");
+    return record;
+  }
+}
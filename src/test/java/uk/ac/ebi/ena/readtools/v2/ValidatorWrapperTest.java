@@ -22,6 +22,7 @@ import htsjdk.samtools.SAMRecord;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -123,9 +124,9 @@ public class ValidatorWrapperTest {
     assertEquals(1, fileQualityStats.get(0).getReadCount());
   }
 
-  // Verifies FASTA is explicitly unsupported in ReadsProviderFactory.
+  // Verifies a missing FASTA file is reported as a validation error.
   @Test
-  public void readsProviderFactoryRejectsFastaFormatAsNotImplemented() {
+  public void readsProviderFactoryFailsOnMissingFastaFile() {
     ReadsProviderFactory readsProviderFactory =
         new ReadsProviderFactory(new File("unused"), FileFormat.FASTA);
 
@@ -133,22 +134,25 @@ public class ValidatorWrapperTest {
       readsProviderFactory.makeReadsProvider();
       fail();
     } catch (ReadsValidationException validationException) {
-      assertTrue(validationException.getMessage().contains("not implemented"));
+      assertTrue(validationException.getMessage().contains("unused"));
     }
   }
 
-  // Verifies FASTA is explicitly unsupported in ValidatorWrapper.
+  // Verifies FASTA files are validated one by one.
   @Test
-  public void validatorWrapperRejectsFastaFormatAsNotImplemented() {
+  public void validatorWrapperValidatesFastaFiles() throws IOException, ReadsValidationException {
+    Path fastaPath = Files.createTempFile("reads", ".fasta");
+    fastaPath.toFile().deleteOnExit();
+    Files.write(fastaPath, ">r1\nACGT\n>r2\nACGT\n".getBytes(StandardCharsets.US_ASCII));
     ValidatorWrapper wrapper =
-        new ValidatorWrapper(Collections.emptyList(), FileFormat.FASTA, READ_COUNT_LIMIT);
+        new ValidatorWrapper(
+            Arrays.asList(fastaPath.toFile(), fastaPath.toFile()),
+            FileFormat.FASTA,
+            READ_COUNT_LIMIT);
 
-    try {
-      wrapper.run();
-      fail();
-    } catch (ReadsValidationException validationException) {
-      assertTrue(validationException.getMessage().contains("not implemented"));
-    }
+    wrapper.run();
+    assertEquals(2, wrapper.getFileQualityStats().size());
+    assertEquals(2, wrapper.getFileQualityStats().get(1).getReadCount());
   }
 
   private void writeBamWithRecord(Path bamPath, SAMRecord record) {
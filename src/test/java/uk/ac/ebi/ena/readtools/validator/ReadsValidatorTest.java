@@ -14,14 +14,17 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 import uk.ac.ebi.ena.readtools.v2.validator.ValidatorWrapper;
+import uk.ac.ebi.ena.readtools.webin.cli.rawreads.RawReadsFile;
 import uk.ac.ebi.ena.webin.cli.validator.api.ValidationResponse;
 import uk.ac.ebi.ena.webin.cli.validator.file.SubmissionFile;
 import uk.ac.ebi.ena.webin.cli.validator.file.SubmissionFiles;
 import uk.ac.ebi.ena.webin.cli.validator.manifest.ReadsManifest;
+import uk.ac.ebi.ena.webin.cli.validator.message.ValidationResult;
 import uk.ac.ebi.ena.webin.cli.validator.response.ReadsValidationResponse;
 
 public class ReadsValidatorTest {
@@ -65,4 +68,29 @@ public class ReadsValidatorTest {
     Assert.assertEquals(3, qs.size());
     qs.forEach(e -> Assert.assertTrue(e.getReadCount() > 0 && e.getHighQualityReadCount() > 0));
   }
+
+  @Test
+  public void testChecksumMismatch() throws IOException {
+    Path reportFile = Files.createTempFile("rvt", ".report");
+    RawReadsFile file = new RawReadsFile();
+    file.setFiletype(RawReadsFile.Filetype.fastq);
+    file.setFilename(
+        ReadsValidatorTest.class.getClassLoader().getResource("10x/3fastq/I1.fastq").getFile());
+    file.setChecksumMethod(RawReadsFile.ChecksumMethod.MD5);
+    file.setChecksum("0123456789abcdef0123456789abcdef");
+
+    ReadsValidationResponse validationResponse =
+        new ReadsValidator()
+            .validate(
+                new ValidationResult(reportFile.toFile()), Collections.singletonList(file), false);
+    Assert.assertEquals(ValidationResponse.status.VALIDATION_ERROR, validationResponse.getStatus());
+
+    // Quick validation leaves checksums alone.
+    validationResponse =
+        new ReadsValidator()
+            .validate(
+                new ValidationResult(reportFile.toFile()), Collections.singletonList(file), true);
+    Assert.assertEquals(
+        ValidationResponse.status.VALIDATION_SUCCESS, validationResponse.getStatus());
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExactDuplicateFinderTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testNoDuplicates() throws IOException {
+    try (ExactDuplicateFinder finder =
+        new ExactDuplicateFinder(temporaryFolder.getRoot().toPath(), 10)) {
+      for (int i = 0; i < 1000; i++) {
+        finder.add("read-" + i);
+      }
+
+      Assert.assertTrue(finder.findDuplicates(100).isEmpty());
+      Assert.assertEquals(0, finder.getDuplicateNameCount());
+      Assert.assertEquals(1000, finder.getAddCount());
+    }
+  }
+
+  @Test
+  public void testDuplicatesAcrossRuns() throws IOException {
+    try (ExactDuplicateFinder finder =
+        new ExactDuplicateFinder(temporaryFolder.getRoot().toPath(), 7)) {
+      for (int i = 0; i < 100; i++) {
+        finder.add("read-" + i);
+      }
+      finder.add("read-42");
+      finder.add("read-3");
+      finder.add("read-42");
+
+      Map<String, List<Long>> duplicates = finder.findDuplicates(100);
+
+      Assert.assertEquals(2, duplicates.size());
+      Assert.assertEquals(2, finder.getDuplicateNameCount());
+      // ordered by first occurrence
+      Assert.assertEquals(
+          Arrays.asList("read-3", "read-42"), Arrays.asList(duplicates.keySet().toArray()));
+      Assert.assertEquals(Arrays.asList(4L, 102L), duplicates.get("read-3"));
+      Assert.assertEquals(Arrays.asList(43L, 101L, 103L), duplicates.get("read-42"));
+    }
+  }
+
+  @Test
+  public void testLimit() throws IOException {
+    try (ExactDuplicateFinder finder =
+        new ExactDuplicateFinder(temporaryFolder.getRoot().toPath(), 16)) {
+      for (int i = 0; i < 50; i++) {
+        finder.add("read-" + i);
+        finder.add("read-" + i);
+      }
+
+      Map<String, List<Long>> duplicates = finder.findDuplicates(5);
+
+      Assert.assertEquals(5, duplicates.size());
+      Assert.assertEquals(50, finder.getDuplicateNameCount());
+      Assert.assertEquals(Arrays.asList(1L, 2L), duplicates.get("read-0"));
+    }
+  }
+
+  @Test
+  public void testByteRange() throws IOException {
+    try (ExactDuplicateFinder finder =
+        new ExactDuplicateFinder(temporaryFolder.getRoot().toPath(), 4)) {
+      byte[] line = "@NAME1/1".getBytes();
+      finder.add(line, 1, line.length - 1);
+      finder.add("NAME1/2");
+      finder.add("NAME1/1");
+
+      Assert.assertEquals(Arrays.asList(1L, 3L), finder.findDuplicates(10).get("NAME1/1"));
+    }
+  }
+
+  @Test
+  public void testSort() {
+    int size = 10_000;
+    long[] fingerprints = new long[size];
+    long[] indexes = new long[size];
+    long[] offsets = new long[size];
+    for (int i = 0; i < size; i++) {
+      // few distinct values to exercise ties
+      fingerprints[i] = ThreadLocalRandom.current().nextLong(-50, 50);
+      indexes[i] = i;
+      offsets[i] = fingerprints[i] * 31 + i;
+    }
+
+    ExactDuplicateFinder.sort(fingerprints, indexes, offsets, 0, size);
+
+    for (int i = 1; i < size; i++) {
+      Assert.assertTrue(
+          fingerprints[i - 1] < fingerprints[i]
+              || (fingerprints[i - 1] == fingerprints[i] && indexes[i - 1] < indexes[i]));
+    }
+    for (int i = 0; i < size; i++) {
+      Assert.assertEquals(fingerprints[i] * 31 + indexes[i], offsets[i]);
+    }
+  }
+
+  @Test
+  public void testCleanup() throws IOException {
+    Path root = temporaryFolder.getRoot().toPath();
+    try (ExactDuplicateFinder finder = new ExactDuplicateFinder(root, 2)) {
+      for (int i = 0; i < 10; i++) {
+        finder.add("read-" + i);
+      }
+    }
+
+    try (Stream<Path> files = Files.list(root)) {
+      Assert.assertEquals(0, files.count());
+    }
+  }
+}
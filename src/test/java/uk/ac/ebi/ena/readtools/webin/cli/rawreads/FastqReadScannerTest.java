@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.ebi.ena.readtools.loader.common.converter.AutoNormalizeQualityReadConverter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriter;
+import uk.ac.ebi.ena.readtools.loader.common.writer.ReadWriterException;
+import uk.ac.ebi.ena.readtools.loader.common.writer.Spot;
+import uk.ac.ebi.ena.readtools.loader.fastq.Read;
+import uk.ac.ebi.ena.readtools.utils.Utils;
+
+public class FastqReadScannerTest {
+  @Test
+  public void testBatchesSameAsReads() throws IOException {
+    assertBatchesSameAsReads("src/test/resources/rawreads/EP0_GTTCCTT_S1.txt.gz");
+    assertBatchesSameAsReads("src/test/resources/rawreads/EP0_GTTCCTT_S1.txt.dup.gz");
+    assertBatchesSameAsReads("src/test/resources/rawreads/SPOP-87C_plKO2-min.fastq.gz");
+    assertBatchesSameAsReads("src/test/resources/T966_R1.fastq.gz");
+  }
+
+  @Test
+  public void testNonAsciiNamesCountedOnce() throws IOException {
+    StringBuilder fastq = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      fastq.append("@r\u00e9ad").append(i).append("/1\nACGT\n+\nIIII\n");
+    }
+    Path file = Files.createTempFile("non-ascii", ".fastq");
+    file.toFile().deleteOnExit();
+    Files.write(file, fastq.toString().getBytes(StandardCharsets.UTF_8));
+
+    assertBatchesSameAsReads(file.toString());
+  }
+
+  private static void assertBatchesSameAsReads(String file) throws IOException {
+    Path path = Paths.get(file);
+
+    Scan expected = new Scan(file);
+    try (InputStream inputStream = Utils.openFastqInputStream(path)) {
+      // Not a batch writer, so the converter writes the reads one by one.
+      ReadWriter<Read, Spot> readWriter =
+          new ReadWriter<Read, Spot>() {
+            @Override
+            public void cascadeErrors() {}
+
+            @Override
+            public void write(Read read) throws ReadWriterException {
+              expected.scanner.write(read);
+            }
+
+            @Override
+            public void setWriter(ReadWriter<Spot, ? extends Spot> readWriter) {}
+          };
+      new AutoNormalizeQualityReadConverter(inputStream, readWriter, "", file).run();
+    }
+
+    Scan actual = new Scan(file);
+    try (InputStream inputStream = Utils.openFastqInputStream(path)) {
+      AutoNormalizeQualityReadConverter converter =
+          new AutoNormalizeQualityReadConverter(inputStream, actual.scanner, "", file);
+      converter.run();
+      Assert.assertEquals(expected.duplications.getAddCount(), converter.getReadCount());
+    }
+
+    Assert.assertEquals(expected.processed, actual.processed);
+    Assert.assertEquals(expected.labels, actual.labels);
+    Assert.assertEquals(expected.pairing.getAddCount(), actual.pairing.getAddCount());
+    Assert.assertEquals(
+        expected.pairing.getPossibleDuplicates(), actual.pairing.getPossibleDuplicates());
+    Assert.assertEquals(expected.duplications.getAddCount(), actual.duplications.getAddCount());
+    Assert.assertEquals(
+        expected.duplications.getPossibleDuplicates(), actual.duplications.getPossibleDuplicates());
+    Assert.assertEquals(
+        expected.duplicateFinder.findDuplicates(100), actual.duplicateFinder.findDuplicates(100));
+
+    expected.duplicateFinder.close();
+    actual.duplicateFinder.close();
+  }
+
+  private static class Scan {
+    final Set<String> labels = new HashSet<>();
+    final BloomWrapper pairing = new BloomWrapper(100_000);
+    final BloomWrapper duplications = new BloomWrapper(100_000);
+    final ExactDuplicateFinder duplicateFinder;
+    final FastqReadScanner scanner;
+    long processed;
+
+    Scan(String streamName) throws IOException {
+      duplicateFinder = new ExactDuplicateFinder();
+      scanner =
+          new FastqReadScanner(
+              streamName, labels, pairing, null, duplications, duplicateFinder, 10, 1) {
+            @Override
+            protected void logProcessedReadNumber(long cnt) {
+              processed = cnt;
+            }
+          };
+    }
+  }
+}
@@ -26,6 +26,8 @@ import java.util.zip.GZIPOutputStream;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import uk.ac.ebi.ena.readtools.utils.ChecksumInputStream;
+import uk.ac.ebi.ena.readtools.utils.Checksums;
 import uk.ac.ebi.ena.webin.cli.validator.message.ValidationMessage.Severity;
 import uk.ac.ebi.ena.webin.cli.validator.message.ValidationResult;
 
@@ -82,6 +84,31 @@ public class FastqScannerTest {
     Assert.assertTrue(vr.isValid());
   }
 
+  @Test
+  public void testChecksum() throws Throwable {
+    URL url1 =
+        FastqScannerTest.class.getClassLoader().getResource("rawreads/EP0_GTTCCTT_S1.txt.gz");
+    File file = new File(url1.getFile()).getCanonicalFile();
+    String md5 =
+        new ChecksumInputStream(
+                Files.newInputStream(file.toPath()), new Checksums(RawReadsFile.ChecksumMethod.MD5))
+            .drain()
+            .get(RawReadsFile.ChecksumMethod.MD5);
+
+    RawReadsFile rf = new RawReadsFile();
+    rf.setFilename(file.getPath());
+    rf.setChecksumMethod(RawReadsFile.ChecksumMethod.MD5);
+    rf.setChecksum(md5.toUpperCase());
+    ValidationResult vr = new ValidationResult();
+    new MyScanner(expected_reads).checkFiles(vr, rf);
+    Assert.assertTrue(vr.isValid());
+
+    rf.setChecksum("0123456789abcdef0123456789abcdef");
+    vr = new ValidationResult();
+    new MyScanner(expected_reads).checkFiles(vr, rf);
+    Assert.assertEquals(1, vr.count(Severity.ERROR));
+  }
+
   @Test
   public void testSingleDuplications() throws Throwable {
     URL url1 =
@@ -98,6 +125,23 @@ public class FastqScannerTest {
     Assert.assertEquals(2, vr.count(Severity.ERROR));
   }
 
+  @Test
+  public void testSingleDuplicationsExact() throws Throwable {
+    URL url1 =
+        FastqScannerTest.class.getClassLoader().getResource("rawreads/EP0_GTTCCTT_S1.txt.dup.gz");
+    FastqScanner fs = new MyScanner(expected_reads);
+    fs.setExactDuplicates(true);
+    RawReadsFile rf = new RawReadsFile();
+
+    rf.setFilename(new File(url1.getFile()).getCanonicalPath());
+
+    ValidationResult vr = new ValidationResult();
+
+    fs.checkFiles(vr, rf);
+
+    Assert.assertEquals(2, vr.count(Severity.ERROR));
+  }
+
   @Test
   public void testPaired() throws Throwable {
     URL url1 = FastqScannerTest.class.getClassLoader().getResource("rawreads/EP0_GTTCCTT_0.txt.gz");
@@ -1340,6 +1384,107 @@ public class FastqScannerTest {
     Assert.assertEquals(1, vr.count(Severity.ERROR));
   }
 
+  @Test
+  public void test4PairedFastqsConcurrent() throws Throwable {
+    URL url1 = FastqScannerTest.class.getClassLoader().getResource("10x/4fastq/I1.fastq");
+    URL url2 = FastqScannerTest.class.getClassLoader().getResource("10x/4fastq/R1.fastq");
+    URL url3 = FastqScannerTest.class.getClassLoader().getResource("10x/4fastq/R2.fastq");
+    URL url4 = FastqScannerTest.class.getClassLoader().getResource("10x/4fastq/R3.fastq");
+
+    FastqScanner fs = new MyScanner(expected_reads);
+    fs.setConcurrent(true);
+
+    RawReadsFile rf1 = new RawReadsFile();
+    rf1.setFilename(new File(url1.getFile()).getCanonicalPath());
+
+    RawReadsFile rf2 = new RawReadsFile();
+    rf2.setFilename(new File(url2.getFile()).getCanonicalPath());
+
+    RawReadsFile rf3 = new RawReadsFile();
+    rf3.setFilename(new File(url3.getFile()).getCanonicalPath());
+
+    RawReadsFile rf4 = new RawReadsFile();
+    rf4.setFilename(new File(url4.getFile()).getCanonicalPath());
+
+    ValidationResult vr = new ValidationResult();
+
+    fs.checkFiles(vr, rf1, rf2, rf3, rf4);
+
+    Assert.assertTrue(vr.isValid());
+    Assert.assertTrue(fs.getPaired());
+  }
+
+  @Test
+  public void testMultiplePairedFastqsWithLowPairingPercentageConcurrent() throws Throwable {
+    File output_dir = createOutputFolder();
+
+    // f1 & f2 = 100%, f1 & f3 = 0%
+    Path f1 =
+        saveRandomized(
+            "@NAME1/1\nACGT\n+\n1234\n" + "@NAME2/1\nACGT\n+\n1234",
+            output_dir.toPath(),
+            true,
+            "fastq-1",
+            "gz");
+
+    Path f2 =
+        saveRandomized(
+            "@NAME1/2\nACGT\n+\n1234\n" + "@NAME2/2\nACGT\n+\n2341",
+            output_dir.toPath(),
+            true,
+            "fastq-2",
+            "gz");
+
+    Path f3 =
+        saveRandomized(
+            "@NAME3/3\nACGT\n+\n1234\n" + "@NAME4/3\nACGT\n+\n2341",
+            output_dir.toPath(),
+            true,
+            "fastq-3",
+            "gz");
+
+    FastqScanner fs = new MyScanner(expected_reads);
+    fs.setConcurrent(true);
+
+    RawReadsFile rf1 = new RawReadsFile();
+    rf1.setFilename(f1.toFile().getCanonicalPath());
+
+    RawReadsFile rf2 = new RawReadsFile();
+    rf2.setFilename(f2.toFile().getCanonicalPath());
+
+    RawReadsFile rf3 = new RawReadsFile();
+    rf3.setFilename(f3.toFile().getCanonicalPath());
+
+    ValidationResult vr = new ValidationResult();
+
+    fs.checkFiles(vr, rf1, rf2, rf3);
+
+    Assert.assertEquals(1, vr.count(Severity.ERROR));
+  }
+
+  @Test
+  public void testPairWithDuplicationConcurrent() throws Throwable {
+    URL url2 =
+        FastqScannerTest.class.getClassLoader().getResource("rawreads/EP0_GTTCCTT_S1.txt.dup.gz");
+    URL url1 =
+        FastqScannerTest.class.getClassLoader().getResource("rawreads/EP0_GTTCCTT_S2.txt.gz");
+
+    FastqScanner fs = new MyScanner(expected_reads);
+    fs.setConcurrent(true);
+
+    RawReadsFile rf1 = new RawReadsFile();
+    rf1.setFilename(new File(url1.getFile()).getCanonicalPath());
+
+    RawReadsFile rf2 = new RawReadsFile();
+    rf2.setFilename(new File(url2.getFile()).getCanonicalPath());
+
+    ValidationResult vr = new ValidationResult();
+
+    fs.checkFiles(vr, rf1, rf2);
+
+    Assert.assertEquals(2, vr.count(Severity.ERROR));
+  }
+
   @Test
   public void testPairingThresholdPass() throws Throwable {
     File output_dir = createOutputFolder();
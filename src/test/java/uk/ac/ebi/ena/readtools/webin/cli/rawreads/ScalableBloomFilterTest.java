@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2021 EMBL - European Bioinformatics Institute
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.ac.ebi.ena.readtools.webin.cli.rawreads;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScalableBloomFilterTest {
+  @Test
+  public void testGrowsAndKeepsFalsePositiveRate() {
+    ScalableBloomFilter bloom = new ScalableBloomFilter(1_000, 0.01);
+
+    int added = 200_000;
+    for (int i = 0; i < added; i++) {
+      bloom.put("read-" + i);
+    }
+
+    Assert.assertTrue(bloom.getStageCount() > 1);
+
+    for (int i = 0; i < added; i++) {
+      Assert.assertTrue(bloom.mightContain("read-" + i));
+    }
+
+    int falsePositives = 0;
+    int probes = 200_000;
+    for (int i = 0; i < probes; i++) {
+      if (bloom.mightContain("other-" + i)) {
+        falsePositives++;
+      }
+    }
+
+    Assert.assertTrue(
+        "False positive rate: " + (double) falsePositives / probes,
+        (double) falsePositives / probes < 0.01);
+  }
+
+  @Test
+  public void testPutReportsDuplicates() {
+    ScalableBloomFilter bloom = new ScalableBloomFilter(10, 0.01);
+
+    Assert.assertTrue(bloom.put("1"));
+    Assert.assertFalse(bloom.put("1"));
+    Assert.assertTrue(bloom.put("2"));
+    Assert.assertEquals(2, bloom.getElementCount());
+  }
+
+  @Test
+  public void testByteRangeAndStringAgree() {
+    ScalableBloomFilter bloom = new ScalableBloomFilter(10, 0.01);
+
+    byte[] line = "@SRR123.1 1:N:0:ACGT".getBytes(StandardCharsets.UTF_8);
+    Assert.assertTrue(bloom.put(line, 1, 8));
+
+    Assert.assertTrue(bloom.mightContain("SRR123.1"));
+    Assert.assertFalse(bloom.put("SRR123.1"));
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    ScalableBloomFilter bloom = new ScalableBloomFilter(10, 0.01);
+    bloom.put("1");
+
+    ScalableBloomFilter copy = bloom.copy();
+    copy.put("2");
+
+    Assert.assertTrue(copy.mightContain("1"));
+    Assert.assertTrue(copy.mightContain("2"));
+    Assert.assertFalse(bloom.mightContain("2"));
+  }
+
+  @Test
+  public void testParallelPut() throws Exception {
+    ScalableBloomFilter bloom = new ScalableBloomFilter(1_000, 0.01);
+    AtomicLong absent = new AtomicLong();
+
+    int threads = 4;
+    int perThread = 50_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < perThread; i++) {
+                    if (bloom.put("read-" + thread + "-" + i)) {
+                      absent.incrementAndGet();
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < perThread; i++) {
+        Assert.assertTrue(bloom.mightContain("read-" + t + "-" + i));
+      }
+    }
+
+    // Only false positives may be reported as present.
+    Assert.assertTrue(absent.get() > threads * perThread * 0.98);
+    Assert.assertEquals(absent.get(), bloom.getElementCount());
+  }
+}